@@ -0,0 +1,158 @@
+package com.example.cache.access;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.cache.region.RegionImpl;
+import com.example.cache.utils.CacheKey;
+
+/**
+ * Batch lookups and puts shared by the entity and collection access
+ * strategies, for batch fetching and multi-load. A whole batch goes to
+ * {@link RegionImpl#getAll} or {@link RegionImpl#putAll}, so the storage
+ * engine takes each of its locks once instead of once per key.
+ */
+public final class BatchAccess {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchAccess.class);
+
+    private BatchAccess() {
+    }
+
+    /**
+     * @param locked keys for which the cache must be bypassed, e.g. because a
+     *               transaction is updating them
+     * @return the cached values by key; keys that missed or are locked are absent
+     */
+    public static <T extends CacheKey> Map<Object, Object> getAll(RegionImpl region, Collection<?> keys,
+                                                                  Class<T> keyType, Predicate<T> locked) {
+        try {
+            List<T> cacheKeys = new ArrayList<>(keys.size());
+            for (Object key : keys) {
+                T cacheKey = CacheKey.convert(key, keyType);
+                if (!locked.test(cacheKey)) {
+                    cacheKeys.add(cacheKey);
+                }
+            }
+            return cacheKeys.isEmpty() ? Collections.emptyMap() : region.getAll(cacheKeys);
+        } catch (Exception e) {
+            logger.warn("Cache getAll operation failed for {} keys", keys.size(), e);
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Caches the loaded values, skipping null values and locked keys, and
+     * publishes them to the sessions waiting for the same keys.
+     *
+     * @return the number of entries cached
+     */
+    public static <T extends CacheKey> int putAllFromLoad(RegionImpl region, Map<?, ?> values,
+                                                          Class<T> keyType, Predicate<T> locked) {
+        try {
+            Map<T, Object> entries = new HashMap<>();
+            for (Map.Entry<?, ?> entry : values.entrySet()) {
+                T cacheKey = CacheKey.convert(entry.getKey(), keyType);
+                if (entry.getValue() == null) {
+                    continue;
+                }
+                if (locked.test(cacheKey)) {
+                    region.completeLoad(cacheKey, null);
+                } else {
+                    entries.put(cacheKey, entry.getValue());
+                }
+            }
+            region.putAll(entries);
+            entries.forEach(region::completeLoad);
+            return entries.size();
+        } catch (Exception e) {
+            logger.warn("Cache putAllFromLoad operation failed for {} entries", values.size(), e);
+            return 0;
+        }
+    }
+
+    /**
+     * Batch lookup for the read-write strategies, whose regions hold
+     * {@link ReadWriteEntry} values: only items of the current {@code epoch}
+     * count as hits. Each key is peeked first, so lock entries and entries of
+     * an earlier epoch are counted as misses rather than as engine hits, and
+     * the latter are removed as {@link ReadWriteLockProtocol#get} does.
+     *
+     * @return the cached values by key; keys that missed or are locked are absent
+     */
+    public static <T extends CacheKey> Map<Object, Object> getAllItems(RegionImpl region, Collection<?> keys,
+                                                                       Class<T> keyType, long epoch) {
+        try {
+            List<T> readable = new ArrayList<>(keys.size());
+            for (Object key : keys) {
+                T cacheKey = CacheKey.convert(key, keyType);
+                Object peeked = region.peek(cacheKey);
+                Object live = ReadWriteEntry.live(peeked, epoch);
+                if (peeked == null || live instanceof ReadWriteEntry.Item) {
+                    readable.add(cacheKey);
+                    continue;
+                }
+                if (live == null) {
+                    region.update(cacheKey, current -> current == peeked ? null : current);
+                }
+                region.getMetrics().miss();
+            }
+            Map<Object, Object> found = new HashMap<>();
+            if (!readable.isEmpty()) {
+                region.getAll(readable).forEach((key, entry) -> {
+                    if (ReadWriteEntry.live(entry, epoch) instanceof ReadWriteEntry.Item) {
+                        found.put(key, ((ReadWriteEntry.Item) entry).getValue());
+                    }
+                });
+            }
+            return found;
+        } catch (Exception e) {
+            logger.warn("Cache getAll operation failed for {} keys", keys.size(), e);
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Batch load for the read-write strategies. Each value is cached as an item
+     * stamped with {@code timestamp} and {@code epoch} if it may replace the key's current entry,
+     * see {@link ReadWriteEntry#canReplace}; the batch carries no versions.
+     *
+     * @param txTimestamp start of the loading transaction
+     * @return the number of entries cached
+     */
+    public static <T extends CacheKey> int putAllItemsFromLoad(RegionImpl region, Map<?, ?> values,
+                                                               Class<T> keyType, long txTimestamp, long timestamp,
+                                                               long epoch) {
+        try {
+            Map<T, ReadWriteEntry.Item> items = new HashMap<>();
+            for (Map.Entry<?, ?> entry : values.entrySet()) {
+                if (entry.getValue() != null) {
+                    items.put(CacheKey.convert(entry.getKey(), keyType),
+                        new ReadWriteEntry.Item(entry.getValue(), null, timestamp, epoch));
+                }
+            }
+            long now = region.getTicker().read();
+            Map<Object, Object> cached = region.updateAll(items.keySet(), (key, current) ->
+                ReadWriteEntry.canReplace(ReadWriteEntry.live(current, epoch), txTimestamp, null, now, false)
+                    ? items.get(key) : current);
+            int written = 0;
+            for (Map.Entry<T, ReadWriteEntry.Item> entry : items.entrySet()) {
+                boolean mine = cached.get(entry.getKey()) == entry.getValue();
+                region.completeLoad(entry.getKey(), mine ? entry.getValue().getValue() : null);
+                written += mine ? 1 : 0;
+            }
+            return written;
+        } catch (Exception e) {
+            logger.warn("Cache putAllFromLoad operation failed for {} entries", values.size(), e);
+            return 0;
+        }
+    }
+}
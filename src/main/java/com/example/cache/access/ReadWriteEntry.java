@@ -0,0 +1,267 @@
+package com.example.cache.access;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What the read-write strategies store in their region: an {@link Item} holding
+ * a cached value, or a {@link Lock} marking a key that transactions are
+ * writing. With the lock kept next to the value, a read tells the two apart
+ * with one lookup, and {@code putFromLoad} checks the loaded version and the
+ * transaction start timestamp against whatever the region holds.
+ * <p>
+ * Entries are immutable, so engines that serialize their values can store
+ * them; a strategy changes an entry by replacing it through
+ * {@link com.example.cache.region.RegionImpl#update}. Each entry records the
+ * region epoch it was written in; entries from an earlier epoch count as
+ * absent, see {@link #live}.
+ */
+public abstract class ReadWriteEntry implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // Seeded from the clock so the ids of locks restored from a snapshot are not handed out again
+    private static final AtomicLong nextLockId = new AtomicLong(System.currentTimeMillis() << 16);
+
+    private final long epoch;
+
+    private ReadWriteEntry(long epoch) {
+        this.epoch = epoch;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * @return {@code entry}, or {@code null} if it is an entry written before
+     *         the region moved to {@code epoch}
+     */
+    public static Object live(Object entry, long epoch) {
+        return entry instanceof ReadWriteEntry && ((ReadWriteEntry) entry).epoch != epoch ? null : entry;
+    }
+
+    /**
+     * Whether a value loaded with {@code version} by a transaction that started
+     * at {@code txTimestamp} may replace this entry.
+     *
+     * @param now the region ticker's current time, to tell expired locks
+     */
+    public abstract boolean isWriteable(long txTimestamp, Object version, long now);
+
+    /**
+     * Whether a loaded value may replace {@code entry}, the current value of its
+     * key. Keys holding no entry, or a value cached by another access type, are
+     * always writeable; a minimal put never replaces an item.
+     */
+    public static boolean canReplace(Object entry, long txTimestamp, Object version, long now, boolean minimalPut) {
+        if (!(entry instanceof ReadWriteEntry)) {
+            return true;
+        }
+        if (minimalPut && entry instanceof Item) {
+            return false;
+        }
+        return ((ReadWriteEntry) entry).isWriteable(txTimestamp, version, now);
+    }
+
+    /**
+     * @return negative, zero or positive like {@link Comparable#compareTo}, or
+     *         {@code null} when the versions cannot be compared
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Integer compareVersions(Object version, Object other) {
+        if (version instanceof Comparable && other != null && version.getClass() == other.getClass()) {
+            return ((Comparable) version).compareTo(other);
+        }
+        return null;
+    }
+
+    /**
+     * A cached value with the version it was loaded or written with and the
+     * timestamp at which it was cached.
+     */
+    public static final class Item extends ReadWriteEntry {
+        private static final long serialVersionUID = 1L;
+
+        private final Object value;
+        private final Object version;
+        private final long timestamp;
+
+        public Item(Object value, Object version, long timestamp, long epoch) {
+            super(epoch);
+            this.value = value;
+            this.version = version;
+            this.timestamp = timestamp;
+        }
+
+        /**
+         * Only an older version is stale; the same version may refresh the item.
+         * Without comparable versions, a transaction that started after the item
+         * was cached replaces it.
+         */
+        @Override
+        public boolean isWriteable(long txTimestamp, Object version, long now) {
+            Integer comparison = compareVersions(version, this.version);
+            return comparison != null ? comparison >= 0 : txTimestamp > timestamp;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        public Object getVersion() {
+            return version;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+    }
+
+    /**
+     * A key locked by {@code count} transactions. Once the count drops to zero
+     * the lock stays as a marker of the last unlock, so loads that started
+     * before it cannot cache what they read. A lock is ignored after
+     * {@code timeout} on the region ticker.
+     */
+    public static final class Lock extends ReadWriteEntry {
+        private static final long serialVersionUID = 1L;
+
+        private final long id;
+        private final long timeout;
+        private final int count;
+        // Whether a second transaction locked the key before the first one unlocked it
+        private final boolean concurrent;
+        private final Object version;
+        private final long unlockTimestamp;
+
+        private Lock(long id, long timeout, int count, boolean concurrent, Object version, long unlockTimestamp,
+                     long epoch) {
+            super(epoch);
+            this.id = id;
+            this.timeout = timeout;
+            this.count = count;
+            this.concurrent = concurrent;
+            this.version = version;
+            this.unlockTimestamp = unlockTimestamp;
+        }
+
+        /**
+         * A lock held by one transaction, replacing whatever the key held.
+         */
+        public static Lock acquire(Object version, long timeout, long epoch) {
+            return new Lock(nextLockId.incrementAndGet(), timeout, 1, false, version, 0, epoch);
+        }
+
+        /**
+         * An unlocked marker for a key whose lock was lost, e.g. because it
+         * expired or was evicted while its transaction was running.
+         */
+        public static Lock unlocked(long unlockTimestamp, long timeout, long epoch) {
+            return new Lock(nextLockId.incrementAndGet(), timeout, 0, false, null, unlockTimestamp, epoch);
+        }
+
+        /**
+         * The entry that replaces {@code current} when a transaction locks its
+         * key: a live lock gains a holder, anything else becomes a new lock.
+         */
+        public static Lock lockEntry(Object current, Object version, long now, long timeout, long epoch) {
+            current = live(current, epoch);
+            if (current instanceof Lock && ((Lock) current).isHeld(now)) {
+                return ((Lock) current).lock(timeout);
+            }
+            return acquire(version, timeout, epoch);
+        }
+
+        /**
+         * The entry that replaces {@code current} when {@code lock} is released.
+         * A lock that was lost in the meantime leaves an unlocked marker, unless
+         * another transaction holds the key by now.
+         */
+        public static Lock unlockEntry(Object current, ReadWriteSoftLock lock, long now, long unlockTimestamp,
+                                       long timeout, long epoch) {
+            current = live(current, epoch);
+            if (current instanceof Lock) {
+                Lock held = (Lock) current;
+                if (lock != null && held.isHeldBy(lock, now)) {
+                    return held.unlock(unlockTimestamp);
+                }
+                if (held.isHeld(now)) {
+                    return held;
+                }
+            }
+            return unlocked(unlockTimestamp, timeout, epoch);
+        }
+
+        /**
+         * The entry that replaces {@code current} when the transaction holding
+         * {@code lock} has written {@code item}. The item is cached only if that
+         * transaction was the only one to lock the key; otherwise the order of
+         * the writes is unknown and the key is just unlocked.
+         */
+        public static ReadWriteEntry updateEntry(Object current, ReadWriteSoftLock lock, Item item, long now,
+                                                 long timeout) {
+            current = live(current, item.getEpoch());
+            if (current instanceof Lock && lock != null) {
+                Lock held = (Lock) current;
+                if (held.isHeldBy(lock, now) && held.count == 1 && !held.concurrent) {
+                    return item;
+                }
+            }
+            return unlockEntry(current, lock, now, item.getTimestamp(), timeout, item.getEpoch());
+        }
+
+        /**
+         * Adds a holder; the new holder gets the same lock id.
+         */
+        public Lock lock(long timeout) {
+            return new Lock(id, Math.max(timeout, this.timeout), count + 1, true, version, unlockTimestamp,
+                getEpoch());
+        }
+
+        public Lock unlock(long unlockTimestamp) {
+            return new Lock(id, timeout, Math.max(0, count - 1), concurrent, version, unlockTimestamp, getEpoch());
+        }
+
+        @Override
+        public boolean isWriteable(long txTimestamp, Object version, long now) {
+            if (isExpired(now)) {
+                return true;
+            }
+            if (count > 0) {
+                return false;
+            }
+            Integer comparison = compareVersions(version, this.version);
+            return comparison != null ? comparison > 0 : txTimestamp > unlockTimestamp;
+        }
+
+        /**
+         * Whether a transaction still holds the lock and it has not expired.
+         */
+        public boolean isHeld(long now) {
+            return count > 0 && !isExpired(now);
+        }
+
+        public boolean isExpired(long now) {
+            return now > timeout;
+        }
+
+        /**
+         * Whether {@code lock} was handed out for this lock and it has not expired.
+         */
+        public boolean isHeldBy(ReadWriteSoftLock lock, long now) {
+            return id == lock.getLockId() && isHeld(now);
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public boolean wasLockedConcurrently() {
+            return concurrent;
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.example.cache.access;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.spi.CacheTransactionSynchronization;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import com.example.cache.config.CacheConfiguration;
+import com.example.cache.metrics.MetricsCollector;
+import com.example.cache.region.RegionImpl;
+import com.example.cache.utils.CacheKey;
+
+/**
+ * The soft-lock protocol of the read-write entity, collection and natural id
+ * strategies, which differ only in their key types. Keys passed in are
+ * already converted; errors are left to the strategies to log.
+ * <p>
+ * Every lock handed out by {@link #lockItem} or {@link #lockRegion} is counted
+ * until it is released. While the count is zero no transaction can hold a
+ * key or the region, so reads skip the region lock check and {@link #update}
+ * locks the key without looking at it first.
+ * <p>
+ * Counted locks are also kept in order of their timeout, up to
+ * {@code hibernate.cache.max_soft_locks}. The region's maintenance runs
+ * {@link #reapExpiredLocks}, which releases the locks of transactions that
+ * never handed theirs back and clears their lock entries, so that neither
+ * depends on a later read of the same key. Locks beyond the cap still lock
+ * their key but are neither counted nor reaped; the region evicts their
+ * entries like any other.
+ * <p>
+ * Unlocking the region invalidates it by moving the {@link RegionImpl} to a
+ * new epoch instead of clearing it, so the entries of every strategy sharing
+ * the region are invalidated: entries from earlier epochs count as absent, are overwritten
+ * by the next write of their key, are removed when read, and age out of the
+ * region otherwise. Invalidation therefore takes the same time however large
+ * the region is.
+ */
+public final class ReadWriteLockProtocol {
+
+    private static final long DEFAULT_LOCK_TIMEOUT_MS = 60000; // 1 minute
+    private static final int DEFAULT_MAX_SOFT_LOCKS = 10000;
+
+    private final RegionImpl region;
+
+    // Null when the region was not built by a region factory, e.g. in tests
+    private final RegionFactory regionFactory;
+
+    private final long lockTimeoutMs;
+
+    private final int maxSoftLocks;
+
+    private final MetricsCollector metrics;
+
+    private final AtomicReference<ReadWriteSoftLock> regionLock = new AtomicReference<>();
+
+    private final AtomicInteger outstandingLocks = new AtomicInteger();
+
+    // The counted locks, soonest to expire first
+    private final ConcurrentSkipListSet<ReadWriteSoftLock> expiryQueue =
+        new ConcurrentSkipListSet<>(ReadWriteSoftLock.BY_TIMEOUT);
+
+    public ReadWriteLockProtocol(RegionImpl region, RegionFactory regionFactory) {
+        if (region == null) {
+            throw new IllegalArgumentException("region cannot be null");
+        }
+        this.region = region;
+        this.regionFactory = regionFactory;
+        // The region's configuration carries its own lock_timeout_seconds override, if any
+        CacheConfiguration regionConfig = region.getConfiguration();
+        this.lockTimeoutMs = regionConfig != null ? regionConfig.getLockTimeoutMillis() : DEFAULT_LOCK_TIMEOUT_MS;
+        this.maxSoftLocks = regionConfig != null ? regionConfig.getMaxSoftLocks() : DEFAULT_MAX_SOFT_LOCKS;
+        this.metrics = region.getMetrics();
+        region.addMaintenanceTask(this::reapExpiredLocks);
+    }
+
+    /**
+     * The number of item and region locks handed out and not yet released.
+     */
+    public int getOutstandingLocks() {
+        return outstandingLocks.get();
+    }
+
+    public long getLockTimeoutMillis() {
+        return lockTimeoutMs;
+    }
+
+    /**
+     * Whether the region is locked. With no outstanding locks this is one
+     * volatile read; a region lock is always counted while it is set.
+     */
+    public boolean isRegionLocked() {
+        if (outstandingLocks.get() == 0) {
+            return false;
+        }
+        ReadWriteSoftLock currentRegionLock = regionLock.get();
+        if (currentRegionLock != null) {
+            if (currentRegionLock.isExpired(region.getTicker().read())) {
+                regionLock.compareAndSet(currentRegionLock, null);
+                return regionLock.get() != null;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Start of the session's transaction on the region factory's clock. Without a
+     * session there is nothing to order the load against, so it is taken as current.
+     */
+    private long txTimestamp(SharedSessionContractImplementor session) {
+        CacheTransactionSynchronization synchronization =
+            session != null ? session.getCacheTransactionSynchronization() : null;
+        return synchronization != null ? synchronization.getCachingTimestamp() : Long.MAX_VALUE;
+    }
+
+    // Stamps entries on the same clock as the transaction start timestamps
+    private long nextTimestamp() {
+        return regionFactory != null ? regionFactory.nextTimestamp() : region.getTicker().read();
+    }
+
+    // Counts a lock once however often Hibernate hands it back; locks beyond the cap were never counted
+    private void release(ReadWriteSoftLock lock) {
+        if (expiryQueue.remove(lock)) {
+            outstandingLocks.decrementAndGet();
+        }
+    }
+
+    // Takes a place in the lock table, reaping expired locks first if it is full
+    private boolean reserve() {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            if (outstandingLocks.incrementAndGet() <= maxSoftLocks) {
+                return true;
+            }
+            outstandingLocks.decrementAndGet();
+            if (reapExpiredLocks() == 0) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Releases the counted locks whose timeout has passed, and removes their
+     * entries from the region unless another transaction has locked the key
+     * since.
+     *
+     * @return the number of locks released
+     */
+    public int reapExpiredLocks() {
+        long now = region.getTicker().read();
+        int reaped = 0;
+        for (ReadWriteSoftLock lock : expiryQueue) {
+            if (!lock.isExpired(now)) {
+                break;
+            }
+            if (!expiryQueue.remove(lock)) {
+                continue;
+            }
+            outstandingLocks.decrementAndGet();
+            if (lock.getKey() == null) {
+                regionLock.compareAndSet(lock, null);
+            } else {
+                region.update(lock.getKey(), current -> current instanceof ReadWriteEntry.Lock
+                    && ((ReadWriteEntry.Lock) current).isExpired(now) ? null : current);
+            }
+            metrics.reapSoftLock();
+            reaped++;
+        }
+        return reaped;
+    }
+
+    private boolean isHeldLock(Object entry, long now) {
+        return entry instanceof ReadWriteEntry.Lock && ((ReadWriteEntry.Lock) entry).isHeld(now);
+    }
+
+    public boolean contains(Object cacheKey) {
+        return !isRegionLocked()
+            && ReadWriteEntry.live(region.peek(cacheKey), region.getEpoch()) instanceof ReadWriteEntry.Item;
+    }
+
+    public Object get(Object cacheKey) {
+        if (isRegionLocked()) {
+            return null;
+        }
+        // Peeked first, so lock entries and entries of an earlier epoch are counted as misses, not hits
+        Object peeked = region.peek(cacheKey);
+        if (peeked != null && ReadWriteEntry.live(peeked, region.getEpoch()) == null) {
+            region.update(cacheKey, current -> current == peeked ? null : current);
+            metrics.miss();
+            return region.awaitLoad(cacheKey);
+        }
+        if (peeked instanceof ReadWriteEntry.Lock) {
+            metrics.miss();
+            return null;
+        }
+        // An item or nothing: the engine counts the hit or miss, refreshes recency and drops expired entries
+        Object entry = ReadWriteEntry.live(region.get(cacheKey), region.getEpoch());
+        if (entry instanceof ReadWriteEntry.Item) {
+            return ((ReadWriteEntry.Item) entry).getValue();
+        }
+        // A miss waits briefly for a session already loading the same key instead of querying too
+        return entry == null ? region.awaitLoad(cacheKey) : null;
+    }
+
+    public boolean putFromLoad(SharedSessionContractImplementor session, Object cacheKey, Object value,
+                               Object version, boolean minimalPut) {
+        if (isRegionLocked()) {
+            region.completeLoad(cacheKey, null);
+            return false;
+        }
+        long txTimestamp = txTimestamp(session);
+        if (txTimestamp <= region.getInvalidatedAt()) {
+            region.completeLoad(cacheKey, null);
+            return false;
+        }
+        long now = region.getTicker().read();
+        long currentEpoch = region.getEpoch();
+        ReadWriteEntry.Item item = new ReadWriteEntry.Item(value, version, nextTimestamp(), currentEpoch);
+        // One lookup decides against a lock, a newer version or an item cached after the transaction started
+        boolean written = region.update(cacheKey, current -> ReadWriteEntry.canReplace(
+            ReadWriteEntry.live(current, currentEpoch), txTimestamp, version, now, minimalPut) ? item : current)
+            == item;
+        region.completeLoad(cacheKey, written ? value : null);
+        return written;
+    }
+
+    /**
+     * @return the lock, or {@code null} if the region is locked
+     */
+    public ReadWriteSoftLock lockItem(CacheKey cacheKey, Object version) {
+        if (isRegionLocked()) {
+            return null;
+        }
+        // Counted before the lock entry is written, so a counted entry always has a count behind it
+        boolean counted = reserve();
+        if (!counted) {
+            metrics.overflowSoftLock();
+        }
+        try {
+            long now = region.getTicker().read();
+            long timeout = now + lockTimeoutMs;
+            long currentEpoch = region.getEpoch();
+            // A key already locked by another transaction gains a holder rather than making this one wait
+            ReadWriteEntry.Lock lock = (ReadWriteEntry.Lock) region.update(cacheKey,
+                current -> ReadWriteEntry.Lock.lockEntry(current, version, now, timeout, currentEpoch));
+            // Sessions waiting for a load of the key go to the database instead
+            region.completeLoad(cacheKey, null);
+            ReadWriteSoftLock softLock = new ReadWriteSoftLock(cacheKey, lock.getId(), version, now, timeout);
+            if (counted) {
+                expiryQueue.add(softLock);
+            }
+            return softLock;
+        } catch (RuntimeException e) {
+            if (counted) {
+                outstandingLocks.decrementAndGet();
+            }
+            throw e;
+        }
+    }
+
+    public void unlockItem(Object cacheKey, ReadWriteSoftLock lock) {
+        try {
+            long now = region.getTicker().read();
+            long unlockTimestamp = nextTimestamp();
+            long currentEpoch = region.getEpoch();
+            // The key stays a miss until a load that started after this unlock caches it again
+            region.update(cacheKey, current -> ReadWriteEntry.Lock.unlockEntry(current, lock, now, unlockTimestamp,
+                now + lockTimeoutMs, currentEpoch));
+        } finally {
+            release(lock);
+        }
+    }
+
+    public boolean afterInsert(Object cacheKey, Object value, Object version) {
+        if (isRegionLocked()) {
+            return false;
+        }
+        long now = region.getTicker().read();
+        long currentEpoch = region.getEpoch();
+        ReadWriteEntry.Item item = new ReadWriteEntry.Item(value, version, nextTimestamp(), currentEpoch);
+        return region.update(cacheKey, current ->
+            isHeldLock(ReadWriteEntry.live(current, currentEpoch), now) ? current : item) == item;
+    }
+
+    /**
+     * Locks the key unless a transaction already holds it; Hibernate normally
+     * locks it through {@code lockItem} before updating.
+     */
+    public boolean update(CacheKey cacheKey, Object version) {
+        if (isRegionLocked()) {
+            return false;
+        }
+        if (outstandingLocks.get() > 0
+            && isHeldLock(ReadWriteEntry.live(region.peek(cacheKey), region.getEpoch()), region.getTicker().read())) {
+            return false;
+        }
+        return lockItem(cacheKey, version) != null;
+    }
+
+    /**
+     * @param lock the lock taken for the update, or {@code null} if there was none
+     */
+    public boolean afterUpdate(Object cacheKey, Object value, Object version, ReadWriteSoftLock lock) {
+        try {
+            if (isRegionLocked()) {
+                return false;
+            }
+            long now = region.getTicker().read();
+            ReadWriteEntry.Item item = new ReadWriteEntry.Item(value, version, nextTimestamp(), region.getEpoch());
+            return region.update(cacheKey, current ->
+                ReadWriteEntry.Lock.updateEntry(current, lock, item, now, now + lockTimeoutMs)) == item;
+        } finally {
+            if (lock != null) {
+                release(lock);
+            }
+        }
+    }
+
+    public void remove(Object cacheKey) {
+        if (isRegionLocked()) {
+            return;
+        }
+        long now = region.getTicker().read();
+        long currentEpoch = region.getEpoch();
+        // The deleting transaction's lock stays until unlockItem, so stale loads cannot cache the row
+        region.update(cacheKey, current ->
+            isHeldLock(ReadWriteEntry.live(current, currentEpoch), now) ? current : null);
+        region.completeLoad(cacheKey, null);
+    }
+
+    public ReadWriteSoftLock lockRegion() {
+        long now = region.getTicker().read();
+        ReadWriteSoftLock newLock = new ReadWriteSoftLock(null, 0, null, now, now + lockTimeoutMs);
+        // Counted before it is set, so isRegionLocked cannot miss it; the region lock is never over the cap
+        outstandingLocks.incrementAndGet();
+        expiryQueue.add(newLock);
+        ReadWriteSoftLock existing = regionLock.get();
+        if (existing != null && !existing.isExpired(now)) {
+            release(newLock);
+            throw new CacheException("Region already locked");
+        }
+        if (!regionLock.compareAndSet(existing, newLock)) {
+            release(newLock);
+            throw new CacheException("Region already locked by another thread");
+        }
+        return newLock;
+    }
+
+    /**
+     * Unlocks the region and invalidates it: entries and item locks written
+     * before or during the region lock may be stale.
+     */
+    public void unlockRegion(ReadWriteSoftLock lock) {
+        // Moves on before the region lock is cleared, so no read sees the old entries
+        region.invalidate(nextTimestamp());
+        regionLock.compareAndSet(lock, null);
+        release(lock);
+    }
+
+    /**
+     * Locks the region and invalidates it on unlock.
+     */
+    public void removeAll() {
+        unlockRegion(lockRegion());
+    }
+
+    /**
+     * Batch form of {@link #get}; locked keys miss, and misses do not wait for concurrent loads.
+     */
+    public <T extends CacheKey> Map<Object, Object> getAll(Collection<?> keys, Class<T> keyType) {
+        if (isRegionLocked()) {
+            return Collections.emptyMap();
+        }
+        return BatchAccess.getAllItems(region, keys, keyType, region.getEpoch());
+    }
+
+    /**
+     * Batch form of {@link #putFromLoad} without versions or minimal puts.
+     *
+     * @return the number of entries cached
+     */
+    public <T extends CacheKey> int putAllFromLoad(SharedSessionContractImplementor session, Map<?, ?> values,
+                                                   Class<T> keyType) {
+        long txTimestamp = txTimestamp(session);
+        if (isRegionLocked() || txTimestamp <= region.getInvalidatedAt()) {
+            return 0;
+        }
+        return BatchAccess.putAllItemsFromLoad(region, values, keyType, txTimestamp, nextTimestamp(), region.getEpoch());
+    }
+}
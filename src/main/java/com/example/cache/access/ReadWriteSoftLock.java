@@ -1,28 +1,49 @@
 package com.example.cache.access;
 
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.hibernate.cache.spi.access.SoftLock;
 
 import com.example.cache.utils.CacheKey;
 
+/**
+ * Handed to Hibernate by {@code lockItem}. It names the {@link ReadWriteEntry.Lock}
+ * stored in the region, so {@code unlockItem} and {@code afterUpdate} can tell
+ * whether their lock is still the one there.
+ */
 public class ReadWriteSoftLock implements SoftLock {
+    private static final AtomicLong nextSequence = new AtomicLong();
+
+    // Orders locks by when they expire; the sequence tells apart locks expiring at the same time
+    static final Comparator<ReadWriteSoftLock> BY_TIMEOUT =
+        Comparator.comparingLong(ReadWriteSoftLock::getTimeout).thenComparingLong(lock -> lock.sequence);
+
     private final CacheKey key;
-    private final Object oldValue;
+    private final long lockId;
     private final Object version;
     private final long timestamp;
+    private final long timeout;
+    private final long sequence = nextSequence.incrementAndGet();
 
-    public ReadWriteSoftLock(CacheKey key, Object oldValue, Object version) {
+    /**
+     * @param timestamp when the lock was taken, on the region ticker
+     * @param timeout   the region ticker time after which the lock has expired
+     */
+    public ReadWriteSoftLock(CacheKey key, long lockId, Object version, long timestamp, long timeout) {
         this.key = key;
-        this.oldValue = oldValue;
+        this.lockId = lockId;
         this.version = version;
-        this.timestamp = System.currentTimeMillis();
+        this.timestamp = timestamp;
+        this.timeout = timeout;
     }
 
     public CacheKey getKey() {
         return key;
     }
 
-    public Object getOldValue() {
-        return oldValue;
+    public long getLockId() {
+        return lockId;
     }
 
     public Object getVersion() {
@@ -32,4 +53,12 @@ public class ReadWriteSoftLock implements SoftLock {
     public long getTimestamp() {
         return timestamp;
     }
-}
\ No newline at end of file
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public boolean isExpired(long now) {
+        return now > timeout;
+    }
+}
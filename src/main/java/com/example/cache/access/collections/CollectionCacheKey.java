@@ -1,16 +1,24 @@
 package com.example.cache.access.collections;
 
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Objects;
 
 import com.example.cache.utils.CacheKey;
+import com.example.cache.utils.KeyTypeRegistry;
 
+/**
+ * Collection key. The role is held as its {@link KeyTypeRegistry} id and the
+ * hash code is computed once at construction.
+ */
 public final class CollectionCacheKey implements Serializable, CacheKey {
     private static final long serialVersionUID = 1L;
     
     private final Object ownerId;        
-    private final String role;           
+    private final int typeId;           
     private final String tenantId;       
+    private final int hash;
     
 
     public CollectionCacheKey(Object ownerId, String role, String tenantId) {
@@ -21,8 +29,9 @@ public final class CollectionCacheKey implements Serializable, CacheKey {
             throw new IllegalArgumentException("Role cannot be null or empty");
         }
         this.ownerId = ownerId;
-        this.role = role;
+        this.typeId = KeyTypeRegistry.idOf(role);
         this.tenantId = tenantId;
+        this.hash = 31 * (31 * ownerId.hashCode() + typeId) + Objects.hashCode(tenantId);
     }
     
 
@@ -32,7 +41,11 @@ public final class CollectionCacheKey implements Serializable, CacheKey {
     
 
     public String getRole() {
-        return role;
+        return KeyTypeRegistry.nameOf(typeId);
+    }
+
+    public int getTypeId() {
+        return typeId;
     }
     
 
@@ -48,20 +61,21 @@ public final class CollectionCacheKey implements Serializable, CacheKey {
         
         CollectionCacheKey that = (CollectionCacheKey) o;
         
-        return Objects.equals(ownerId, that.ownerId)
-            && Objects.equals(role, that.role)
+        return hash == that.hash
+            && typeId == that.typeId
+            && ownerId.equals(that.ownerId)
             && Objects.equals(tenantId, that.tenantId);
     }
     
     @Override
     public int hashCode() {
-        return Objects.hash(ownerId, role, tenantId);
+        return hash;
     }
     
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder("CollectionCacheKey[");
-        sb.append(role);
+        sb.append(getRole());
         sb.append("#");
         sb.append(ownerId);
         if (tenantId != null) {
@@ -71,4 +85,31 @@ public final class CollectionCacheKey implements Serializable, CacheKey {
         sb.append("]");
         return sb.toString();
     }
-}
\ No newline at end of file
+
+    // Type ids are local to this JVM, so the serialized form carries the role
+    private Object writeReplace() {
+        return new SerializedForm(ownerId, getRole(), tenantId);
+    }
+
+    private void readObject(ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("CollectionCacheKey is serialized through its SerializedForm");
+    }
+
+    private static final class SerializedForm implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final Object ownerId;
+        private final String role;
+        private final String tenantId;
+
+        SerializedForm(Object ownerId, String role, String tenantId) {
+            this.ownerId = ownerId;
+            this.role = role;
+            this.tenantId = tenantId;
+        }
+
+        private Object readResolve() {
+            return new CollectionCacheKey(ownerId, role, tenantId);
+        }
+    }
+}
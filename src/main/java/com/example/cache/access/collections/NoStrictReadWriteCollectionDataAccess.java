@@ -1,6 +1,9 @@
 package com.example.cache.access.collections;
 
 
+import java.util.Collection;
+import java.util.Map;
+
 import org.hibernate.cache.spi.DomainDataRegion;
 import org.hibernate.cache.spi.access.AccessType;
 import org.hibernate.cache.spi.access.CollectionDataAccess;
@@ -9,6 +12,7 @@ import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.hibernate.persister.collection.CollectionPersister;
 
+import com.example.cache.access.BatchAccess;
 import com.example.cache.region.DomainDataRegionAdapter;
 import com.example.cache.region.RegionImpl;
 import com.example.cache.utils.CacheKey;
@@ -35,13 +39,34 @@ public class NoStrictReadWriteCollectionDataAccess implements CollectionDataAcce
         try {
             CollectionCacheKey cacheKey = CacheKey.convert(key, CollectionCacheKey.class);
 
-            return entityRegion.get(cacheKey) != null;
+            return entityRegion.contains(cacheKey);
         } catch (Exception e) {
             // Log in production
             return false;
         }
     }
 
+    /**
+     * Batch form of {@link #get} for batch fetching and multi-load; the keys are
+     * looked up with one lock acquisition per storage segment.
+     *
+     * @return the cached values by key; keys that missed are absent
+     */
+    public Map<Object, Object> getAll(SharedSessionContractImplementor session, Collection<?> keys) {
+        return BatchAccess.getAll(entityRegion, keys, CollectionCacheKey.class, key -> false);
+    }
+
+
+    /**
+     * Batch form of {@link #putFromLoad} without minimal puts.
+     *
+     * @return the number of entries cached
+     */
+    public int putAllFromLoad(SharedSessionContractImplementor session, Map<?, ?> values) {
+        return BatchAccess.putAllFromLoad(entityRegion, values, CollectionCacheKey.class, key -> false);
+    }
+
+
     @Override
     public void evict(Object key) {
         try {
@@ -114,7 +139,7 @@ public class NoStrictReadWriteCollectionDataAccess implements CollectionDataAcce
             CollectionCacheKey cacheKey = CacheKey.convert(key, CollectionCacheKey.class);
             
 
-            if (minimalPutOverride && entityRegion.get(cacheKey) != null) {
+            if (minimalPutOverride && entityRegion.contains(cacheKey)) {
                 return false;
             }
 
@@ -1,9 +1,8 @@
 package com.example.cache.access.collections;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Collection;
+import java.util.Map;
 
-import org.hibernate.cache.CacheException;
 import org.hibernate.cache.spi.DomainDataRegion;
 import org.hibernate.cache.spi.access.AccessType;
 import org.hibernate.cache.spi.access.CollectionDataAccess;
@@ -12,6 +11,7 @@ import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.hibernate.persister.collection.CollectionPersister;
 
+import com.example.cache.access.ReadWriteLockProtocol;
 import com.example.cache.access.ReadWriteSoftLock;
 import com.example.cache.region.DomainDataRegionAdapter;
 import com.example.cache.region.RegionImpl;
@@ -21,11 +21,7 @@ public class ReadWriteCollectionDataAccess implements CollectionDataAccess {
     private final RegionImpl entityRegion;
     private final DomainDataRegionAdapter domainDataRegion;
     
-    private final ConcurrentHashMap<CollectionCacheKey, ReadWriteSoftLock> lockMap = new ConcurrentHashMap<>();
-    
-    private volatile AtomicReference<ReadWriteSoftLock> regionLock = new AtomicReference<>(null);
-    
-    private static final long LOCK_TIMEOUT_MS = 60000; // 1 minute
+    private final ReadWriteLockProtocol protocol;
 
     public ReadWriteCollectionDataAccess(RegionImpl entityRegion, 
                                     DomainDataRegionAdapter domainDataRegion) {
@@ -37,56 +33,23 @@ public class ReadWriteCollectionDataAccess implements CollectionDataAccess {
         }
         this.entityRegion = entityRegion;
         this.domainDataRegion = domainDataRegion;
+        this.protocol = new ReadWriteLockProtocol(entityRegion, domainDataRegion.getRegionFactory());
     }
 
 
 
-    private boolean isRegionLocked() {
-        ReadWriteSoftLock currentRegionLock = regionLock.get();
-        if (currentRegionLock != null) {
-            if (isLockExpired(currentRegionLock)) {
-                regionLock.compareAndSet(currentRegionLock, null);
-                return regionLock.get() != null;
-            } else {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private boolean isLocked(CollectionCacheKey cacheKey) {
-        if (isRegionLocked()) {
-            return true;
-        }
-        
-        ReadWriteSoftLock lock = lockMap.get(cacheKey);
-        if (lock != null) {
-            if (isLockExpired(lock)) {
-                lockMap.remove(cacheKey, lock);
-                return false;
-            }
-            return true;
-        }
-        
-        return false;
-    }
-
-
-    private boolean isLockExpired(ReadWriteSoftLock lock) {
-        return System.currentTimeMillis() - lock.getTimestamp() > LOCK_TIMEOUT_MS;
+    /**
+     * The number of locks handed out by this strategy and not yet released.
+     */
+    public int getOutstandingLocks() {
+        return protocol.getOutstandingLocks();
     }
 
 
     @Override
     public boolean contains(Object key) {
         try {
-            CollectionCacheKey cacheKey = CacheKey.convert(key, CollectionCacheKey.class);
-            
-            if (isLocked(cacheKey)) {
-                return false;
-            }
-            
-            return entityRegion.get(cacheKey) != null;
+            return protocol.contains(CacheKey.convert(key, CollectionCacheKey.class));
         } catch (Exception e) {
             // Log in production
             return false;
@@ -97,13 +60,7 @@ public class ReadWriteCollectionDataAccess implements CollectionDataAccess {
     @Override
     public Object get(SharedSessionContractImplementor session, Object key) {
         try {
-            CollectionCacheKey cacheKey = CacheKey.convert(key, CollectionCacheKey.class);
-            
-            if (isLocked(cacheKey)) {
-                return null;
-            }
-            
-            return entityRegion.get(cacheKey);
+            return protocol.get(CacheKey.convert(key, CollectionCacheKey.class));
         } catch (Exception e) {
             // Log in production
             return null;
@@ -132,17 +89,7 @@ public class ReadWriteCollectionDataAccess implements CollectionDataAccess {
 
         try {
             CollectionCacheKey cacheKey = CacheKey.convert(key, CollectionCacheKey.class);
-            
-            if (isLocked(cacheKey)) {
-                return false;
-            }
-
-            if (minimalPutOverride && entityRegion.get(cacheKey) != null) {
-                return false;
-            }
-
-            entityRegion.put(cacheKey, value);
-            return true;
+            return protocol.putFromLoad(session, cacheKey, value, version, minimalPutOverride);
         } catch (Exception e) {
             // Log in production
             return false;
@@ -153,44 +100,7 @@ public class ReadWriteCollectionDataAccess implements CollectionDataAccess {
     @Override
     public SoftLock lockItem(SharedSessionContractImplementor session, Object key, Object version) {
         try {
-            CollectionCacheKey cacheKey = CacheKey.convert(key, CollectionCacheKey.class);
-            
-            if (isRegionLocked()) {
-                return null;
-            }
-            
-            Object currentValue = entityRegion.get(cacheKey);
-
-            long startTime = System.currentTimeMillis();
-            long timeoutMs = Math.min(LOCK_TIMEOUT_MS, 1000); 
-            
-            while (System.currentTimeMillis() - startTime < timeoutMs) {
-                ReadWriteSoftLock newLock = new ReadWriteSoftLock(cacheKey, currentValue, version);
-                
-                ReadWriteSoftLock existingLock = lockMap.putIfAbsent(cacheKey, newLock);
-                
-                if (existingLock == null) {
-                    entityRegion.evict(cacheKey);
-                    return newLock;
-                }
-                
-                if (isLockExpired(existingLock)) {
-                    if (lockMap.replace(cacheKey, existingLock, newLock)) {
-                        entityRegion.evict(cacheKey);
-                        return newLock;
-                    }
-                }
-                
-                try {
-                    Thread.sleep(1); 
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    return null;
-                }
-            }
-            
-            return null;
-            
+            return protocol.lockItem(CacheKey.convert(key, CollectionCacheKey.class), version);
         } catch (Exception e) {
             // Log in production
             return null;
@@ -206,13 +116,7 @@ public class ReadWriteCollectionDataAccess implements CollectionDataAccess {
         
         try {
             ReadWriteSoftLock rwLock = (ReadWriteSoftLock) lock;
-            CollectionCacheKey cacheKey = CacheKey.convert(rwLock.getKey(), CollectionCacheKey.class);
-            
-            lockMap.remove(cacheKey, rwLock);
-
-            entityRegion.put(cacheKey, rwLock.getOldValue());
-
-            
+            protocol.unlockItem(CacheKey.convert(rwLock.getKey(), CollectionCacheKey.class), rwLock);
         } catch (Exception e) {
             // Log in production - don't throw, unlocking should be best-effort
         }
@@ -221,33 +125,43 @@ public class ReadWriteCollectionDataAccess implements CollectionDataAccess {
 
     @Override
     public SoftLock lockRegion() {
-        ReadWriteSoftLock newLock = new ReadWriteSoftLock(null, null, null);
-        ReadWriteSoftLock existing = regionLock.get();
-        
-        if (existing != null && !isLockExpired(existing)) {
-            throw new CacheException("Region already locked");
-        }
-        
-        if (!regionLock.compareAndSet(existing, newLock)) {
-            throw new CacheException("Region already locked by another thread");
-        }
-        
-        return newLock;
+        return protocol.lockRegion();
     }
     @Override
     public void unlockRegion(SoftLock lock) {
         if (lock instanceof ReadWriteSoftLock) {
-            regionLock.compareAndSet((ReadWriteSoftLock) lock, null);
-            lockMap.clear();
+            protocol.unlockRegion((ReadWriteSoftLock) lock);
         }
     }
 
 
+    /**
+     * Batch form of {@link #get} for batch fetching and multi-load; the keys are
+     * looked up with one lock acquisition per storage segment. Locked keys
+     * miss, and misses do not wait for concurrent loads.
+     *
+     * @return the cached values by key; keys that missed are absent
+     */
+    public Map<Object, Object> getAll(SharedSessionContractImplementor session, Collection<?> keys) {
+        return protocol.getAll(keys, CollectionCacheKey.class);
+    }
+
+
+    /**
+     * Batch form of {@link #putFromLoad} without versions or minimal puts. Locked
+     * keys and keys cached after the session's transaction started are skipped.
+     *
+     * @return the number of entries cached
+     */
+    public int putAllFromLoad(SharedSessionContractImplementor session, Map<?, ?> values) {
+        return protocol.putAllFromLoad(session, values, CollectionCacheKey.class);
+    }
+
+
     @Override
     public void evict(Object key) {
         try {
             CollectionCacheKey cacheKey = CacheKey.convert(key, CollectionCacheKey.class);
-            lockMap.remove(cacheKey);
             entityRegion.evict(cacheKey);
         } catch (Exception e) {
             // Log in production
@@ -258,7 +172,6 @@ public class ReadWriteCollectionDataAccess implements CollectionDataAccess {
     @Override
     public void evictAll() {
         try {
-            lockMap.clear();
             entityRegion.evictAll();
         } catch (Exception e) {
             // Log in production
@@ -269,18 +182,7 @@ public class ReadWriteCollectionDataAccess implements CollectionDataAccess {
     @Override
     public void remove(SharedSessionContractImplementor session, Object key) {
         try {
-            if (isRegionLocked()) {
-                return;
-            }
-
-            CollectionCacheKey cacheKey = CacheKey.convert(key, CollectionCacheKey.class);
-
-            SoftLock lock = lockItem(session, cacheKey, null);
-            
-            if (lock != null) {
-                lockMap.remove(cacheKey, lock);
-                entityRegion.evict(cacheKey);
-            }
+            protocol.remove(CacheKey.convert(key, CollectionCacheKey.class));
         } catch (Exception e) {
             // Log in production
         }
@@ -289,19 +191,10 @@ public class ReadWriteCollectionDataAccess implements CollectionDataAccess {
 
     @Override
     public void removeAll(SharedSessionContractImplementor session) {
-        SoftLock lock = null;
         try {
-            lock = lockRegion();
-            
-            entityRegion.evictAll();
-            lockMap.clear();
-            
+            protocol.removeAll();
         } catch (Exception e) {
             // Log in production
-        } finally {
-            if (lock != null) {
-                unlockRegion(lock);
-            }
         }
     }
 
@@ -1,17 +1,25 @@
 package com.example.cache.access.entities;
 
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Objects;
 
 import com.example.cache.utils.CacheKey;
+import com.example.cache.utils.KeyTypeRegistry;
 
 
+/**
+ * Entity key. The entity name is held as its {@link KeyTypeRegistry} id and the
+ * hash code is computed once, so map probes neither rehash the key nor compare strings.
+ */
 public final class EntityCacheKey implements Serializable, CacheKey {
     private static final long serialVersionUID = 1L;
 
     private final Object id;
-    private final String entityName;
+    private final int typeId;
     private final String tenantId;
+    private final int hash;
 
     public EntityCacheKey(Object id, String entityName, String tenantId) {
         if (id == null) {
@@ -21,8 +29,9 @@ public final class EntityCacheKey implements Serializable, CacheKey {
             throw new IllegalArgumentException("Entity name cannot be null or empty");
         }
         this.id = id;
-        this.entityName = entityName;
+        this.typeId = KeyTypeRegistry.idOf(entityName);
         this.tenantId = tenantId;
+        this.hash = 31 * (31 * id.hashCode() + typeId) + Objects.hashCode(tenantId);
     }
 
     public Object getId() {
@@ -30,8 +39,13 @@ public final class EntityCacheKey implements Serializable, CacheKey {
     }
 
     public String getEntityName() {
-        return entityName;
+        return KeyTypeRegistry.nameOf(typeId);
     }
+
+    public int getTypeId() {
+        return typeId;
+    }
+
     @Override
     public String getTenantId() {
         return tenantId;
@@ -42,18 +56,46 @@ public final class EntityCacheKey implements Serializable, CacheKey {
         if (this == o) return true;
         if (!(o instanceof EntityCacheKey)) return false;
         EntityCacheKey other = (EntityCacheKey) o;
-        return Objects.equals(id, other.id)
-            && Objects.equals(entityName, other.entityName)
+        return hash == other.hash
+            && typeId == other.typeId
+            && id.equals(other.id)
             && Objects.equals(tenantId, other.tenantId);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, entityName, tenantId);
+        return hash;
     }
 
     @Override
     public String toString() {
-        return "EntityCacheKey[" + entityName + "#" + id + (tenantId != null ? ", tenant=" + tenantId : "") + "]";
+        return "EntityCacheKey[" + getEntityName() + "#" + id + (tenantId != null ? ", tenant=" + tenantId : "") + "]";
+    }
+
+    // Type ids are local to this JVM, so the serialized form carries the entity name
+    private Object writeReplace() {
+        return new SerializedForm(id, getEntityName(), tenantId);
+    }
+
+    private void readObject(ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("EntityCacheKey is serialized through its SerializedForm");
+    }
+
+    private static final class SerializedForm implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final Object id;
+        private final String entityName;
+        private final String tenantId;
+
+        SerializedForm(Object id, String entityName, String tenantId) {
+            this.id = id;
+            this.entityName = entityName;
+            this.tenantId = tenantId;
+        }
+
+        private Object readResolve() {
+            return new EntityCacheKey(id, entityName, tenantId);
+        }
     }
 }
@@ -1,5 +1,8 @@
 package com.example.cache.access.entities;
 
+import java.util.Collection;
+import java.util.Map;
+
 import org.hibernate.cache.spi.DomainDataRegion;
 import org.hibernate.cache.spi.access.AccessType;
 import org.hibernate.cache.spi.access.EntityDataAccess;
@@ -8,6 +11,7 @@ import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.hibernate.persister.entity.EntityPersister;
 
+import com.example.cache.access.BatchAccess;
 import com.example.cache.region.DomainDataRegionAdapter;
 import com.example.cache.region.RegionImpl;
 import com.example.cache.utils.CacheKey;
@@ -34,13 +38,34 @@ public class NoStrictReadWriteEntityDataAccess implements EntityDataAccess {
         try {
             EntityCacheKey cacheKey = CacheKey.convert(key, EntityCacheKey.class);
 
-            return entityRegion.get(cacheKey) != null;
+            return entityRegion.contains(cacheKey);
         } catch (Exception e) {
             // Log in production
             return false;
         }
     }
 
+    /**
+     * Batch form of {@link #get} for batch fetching and multi-load; the keys are
+     * looked up with one lock acquisition per storage segment.
+     *
+     * @return the cached values by key; keys that missed are absent
+     */
+    public Map<Object, Object> getAll(SharedSessionContractImplementor session, Collection<?> keys) {
+        return BatchAccess.getAll(entityRegion, keys, EntityCacheKey.class, key -> false);
+    }
+
+
+    /**
+     * Batch form of {@link #putFromLoad} without minimal puts.
+     *
+     * @return the number of entries cached
+     */
+    public int putAllFromLoad(SharedSessionContractImplementor session, Map<?, ?> values) {
+        return BatchAccess.putAllFromLoad(entityRegion, values, EntityCacheKey.class, key -> false);
+    }
+
+
     @Override
     public void evict(Object key) {
         try {
@@ -113,7 +138,7 @@ public class NoStrictReadWriteEntityDataAccess implements EntityDataAccess {
             EntityCacheKey cacheKey = CacheKey.convert(key, EntityCacheKey.class);
             
 
-            if (minimalPutOverride && entityRegion.get(cacheKey) != null) {
+            if (minimalPutOverride && entityRegion.contains(cacheKey)) {
                 return false;
             }
 
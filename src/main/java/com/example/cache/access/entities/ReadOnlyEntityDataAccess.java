@@ -1,5 +1,8 @@
 package com.example.cache.access.entities;
 
+import java.util.Collection;
+import java.util.Map;
+
 import org.hibernate.cache.spi.DomainDataRegion;
 import org.hibernate.cache.spi.access.AccessType;
 import org.hibernate.cache.spi.access.EntityDataAccess;
@@ -7,6 +10,7 @@ import org.hibernate.cache.spi.access.SoftLock;
 import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.hibernate.persister.entity.EntityPersister;
+import com.example.cache.access.BatchAccess;
 import com.example.cache.region.DomainDataRegionAdapter;
 import com.example.cache.region.RegionImpl;
 import com.example.cache.utils.CacheKey;
@@ -33,7 +37,7 @@ public class ReadOnlyEntityDataAccess implements EntityDataAccess {
   public boolean contains(Object key) {
     try {
       EntityCacheKey cacheKey = CacheKey.convert(key, EntityCacheKey.class);
-      return entityRegion.get(cacheKey) != null;
+      return entityRegion.contains(cacheKey);
     } catch (Exception e) {
       return false;
     }
@@ -72,7 +76,7 @@ public class ReadOnlyEntityDataAccess implements EntityDataAccess {
     try {
       EntityCacheKey cacheKey = CacheKey.convert(key, EntityCacheKey.class);
       
-      if (minimalPutOverride && entityRegion.get(cacheKey) != null) {
+      if (minimalPutOverride && entityRegion.contains(cacheKey)) {
         return false;
       }
 
@@ -84,6 +88,27 @@ public class ReadOnlyEntityDataAccess implements EntityDataAccess {
   }
 
 
+  /**
+   * Batch form of {@link #get} for batch fetching and multi-load; the keys are
+   * looked up with one lock acquisition per storage segment.
+   *
+   * @return the cached values by key; keys that missed are absent
+   */
+  public Map<Object, Object> getAll(SharedSessionContractImplementor session, Collection<?> keys) {
+    return BatchAccess.getAll(entityRegion, keys, EntityCacheKey.class, key -> false);
+  }
+
+
+  /**
+   * Batch form of {@link #putFromLoad} without minimal puts.
+   *
+   * @return the number of entries cached
+   */
+  public int putAllFromLoad(SharedSessionContractImplementor session, Map<?, ?> values) {
+    return BatchAccess.putAllFromLoad(entityRegion, values, EntityCacheKey.class, key -> false);
+  }
+
+
   @Override
   public void evict(Object key) {
     try {
@@ -1,9 +1,8 @@
 package com.example.cache.access.entities;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Collection;
+import java.util.Map;
 
-import org.hibernate.cache.CacheException;
 import org.hibernate.cache.spi.DomainDataRegion;
 import org.hibernate.cache.spi.access.AccessType;
 import org.hibernate.cache.spi.access.EntityDataAccess;
@@ -14,6 +13,7 @@ import org.hibernate.persister.entity.EntityPersister;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.example.cache.access.ReadWriteLockProtocol;
 import com.example.cache.access.ReadWriteSoftLock;
 import com.example.cache.region.DomainDataRegionAdapter;
 import com.example.cache.region.RegionImpl;
@@ -28,12 +28,7 @@ public class ReadWriteEntityDataAccess implements EntityDataAccess {
     
     private final DomainDataRegionAdapter domainDataRegion;
     
-    private final ConcurrentHashMap<EntityCacheKey, ReadWriteSoftLock> lockMap = new ConcurrentHashMap<>();
-    
-    private final AtomicReference<ReadWriteSoftLock> regionLock = new AtomicReference<>();
-    
-    private static final long DEFAULT_LOCK_TIMEOUT_MS = 60000; // 1 minute
-    private final long lockTimeoutMs;
+    private final ReadWriteLockProtocol protocol;
 
     public ReadWriteEntityDataAccess(RegionImpl entityRegion, 
                                     DomainDataRegionAdapter domainDataRegion) {
@@ -45,65 +40,22 @@ public class ReadWriteEntityDataAccess implements EntityDataAccess {
         }
         this.entityRegion = entityRegion;
         this.domainDataRegion = domainDataRegion;
-        
-        // Get lock timeout from configuration
-        var regionFactory = domainDataRegion.getRegionFactory();
-        if (regionFactory instanceof com.example.cache.factory.CustomRegionFactory) {
-            var config = ((com.example.cache.factory.CustomRegionFactory) regionFactory).getConfiguration();
-            this.lockTimeoutMs = config != null ? config.getLockTimeoutMillis() : DEFAULT_LOCK_TIMEOUT_MS;
-        } else {
-            this.lockTimeoutMs = DEFAULT_LOCK_TIMEOUT_MS;
-        }
+        this.protocol = new ReadWriteLockProtocol(entityRegion, domainDataRegion.getRegionFactory());
     }
 
-    
-    
-    private boolean isRegionLocked() {
-        ReadWriteSoftLock currentRegionLock = regionLock.get();
-        if (currentRegionLock != null) {
-            if (isLockExpired(currentRegionLock)) {
-                regionLock.compareAndSet(currentRegionLock, null);
-                return regionLock.get() != null;
-            } else {
-                return true;
-            }
-        }
-        return false;
-    }
 
-    private boolean isLocked(EntityCacheKey cacheKey) {
-        if (isRegionLocked()) {
-            return true;
-        }
-        
-        ReadWriteSoftLock lock = lockMap.get(cacheKey);
-        if (lock != null) {
-            if (isLockExpired(lock)) {
-                lockMap.remove(cacheKey, lock);
-                return false;
-            }
-            return true;
-        }
-        
-        return false;
-    }
-
-
-    private boolean isLockExpired(ReadWriteSoftLock lock) {
-        return System.currentTimeMillis() - lock.getTimestamp() > lockTimeoutMs;
+    /**
+     * The number of locks handed out by this strategy and not yet released.
+     */
+    public int getOutstandingLocks() {
+        return protocol.getOutstandingLocks();
     }
 
 
     @Override
     public boolean contains(Object key) {
         try {
-            EntityCacheKey cacheKey = CacheKey.convert(key, EntityCacheKey.class);
-            
-            if (isLocked(cacheKey)) {
-                return false;
-            }
-            
-            return entityRegion.get(cacheKey) != null;
+            return protocol.contains(CacheKey.convert(key, EntityCacheKey.class));
         } catch (Exception e) {
             logger.warn("Cache contains operation failed for key: {}", key, e);
             return false;
@@ -114,13 +66,7 @@ public class ReadWriteEntityDataAccess implements EntityDataAccess {
     @Override
     public Object get(SharedSessionContractImplementor session, Object key) {
         try {
-            EntityCacheKey cacheKey = CacheKey.convert(key, EntityCacheKey.class);
-            
-            if (isLocked(cacheKey)) {
-                return null;
-            }
-            
-            return entityRegion.get(cacheKey);
+            return protocol.get(CacheKey.convert(key, EntityCacheKey.class));
         } catch (Exception e) {
             logger.warn("Cache get operation failed for key: {}", key, e);
             return null;
@@ -149,17 +95,7 @@ public class ReadWriteEntityDataAccess implements EntityDataAccess {
 
         try {
             EntityCacheKey cacheKey = CacheKey.convert(key, EntityCacheKey.class);
-            
-            if (isLocked(cacheKey)) {
-                return false;
-            }
-
-            if (minimalPutOverride && entityRegion.get(cacheKey) != null) {
-                return false;
-            }
-
-            entityRegion.put(cacheKey, value);
-            return true;
+            return protocol.putFromLoad(session, cacheKey, value, version, minimalPutOverride);
         } catch (Exception e) {
             logger.warn("Cache putFromLoad operation failed for key: {}", key, e);
             return false;
@@ -170,44 +106,7 @@ public class ReadWriteEntityDataAccess implements EntityDataAccess {
     @Override
     public SoftLock lockItem(SharedSessionContractImplementor session, Object key, Object version) {
         try {
-            EntityCacheKey cacheKey = CacheKey.convert(key, EntityCacheKey.class);
-            
-            if (isRegionLocked()) {
-                return null;
-            }
-            
-            Object currentValue = entityRegion.get(cacheKey);
-
-            long startTime = System.currentTimeMillis();
-            long timeoutMs = Math.min(lockTimeoutMs, 1000); 
-            
-            while (System.currentTimeMillis() - startTime < timeoutMs) {
-                ReadWriteSoftLock newLock = new ReadWriteSoftLock(cacheKey, currentValue, version);
-                
-                ReadWriteSoftLock existingLock = lockMap.putIfAbsent(cacheKey, newLock);
-                
-                if (existingLock == null) {
-                    entityRegion.evict(cacheKey);
-                    return newLock;
-                }
-                
-                if (isLockExpired(existingLock)) {
-                    if (lockMap.replace(cacheKey, existingLock, newLock)) {
-                        entityRegion.evict(cacheKey);
-                        return newLock;
-                    }
-                }
-                
-                try {
-                    Thread.sleep(1); 
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    return null;
-                }
-            }
-            
-            return null;
-            
+            return protocol.lockItem(CacheKey.convert(key, EntityCacheKey.class), version);
         } catch (Exception e) {
             logger.warn("Failed to lock item: {}", key, e);
             return null;
@@ -223,13 +122,7 @@ public class ReadWriteEntityDataAccess implements EntityDataAccess {
         
         try {
             ReadWriteSoftLock rwLock = (ReadWriteSoftLock) lock;
-            EntityCacheKey cacheKey = CacheKey.convert(rwLock.getKey(), EntityCacheKey.class);
-            
-            lockMap.remove(cacheKey, rwLock);
-
-            entityRegion.put(cacheKey, rwLock.getOldValue());
-
-            
+            protocol.unlockItem(CacheKey.convert(rwLock.getKey(), EntityCacheKey.class), rwLock);
         } catch (Exception e) {
             logger.warn("Cache unlockItem operation failed for key: {}", key, e);
         }
@@ -237,24 +130,12 @@ public class ReadWriteEntityDataAccess implements EntityDataAccess {
 
     @Override
     public SoftLock lockRegion() {
-        ReadWriteSoftLock newLock = new ReadWriteSoftLock(null, null, null);
-        ReadWriteSoftLock existing = regionLock.get();
-        
-        if (existing != null && !isLockExpired(existing)) {
-            throw new CacheException("Region already locked");
-        }
-        
-        if (!regionLock.compareAndSet(existing, newLock)) {
-            throw new CacheException("Region already locked by another thread");
-        }
-        
-        return newLock;
+        return protocol.lockRegion();
     }
     @Override
     public void unlockRegion(SoftLock lock) {
         if (lock instanceof ReadWriteSoftLock) {
-            regionLock.compareAndSet((ReadWriteSoftLock) lock, null);
-            lockMap.clear();
+            protocol.unlockRegion((ReadWriteSoftLock) lock);
         }
     }
 
@@ -278,15 +159,7 @@ public class ReadWriteEntityDataAccess implements EntityDataAccess {
         }
 
         try {
-            EntityCacheKey cacheKey = CacheKey.convert(key, EntityCacheKey.class);
-            
-            if (isRegionLocked()) {
-                return false;
-            }
-            
-            entityRegion.put(cacheKey, value);
-            return true;
-            
+            return protocol.afterInsert(CacheKey.convert(key, EntityCacheKey.class), value, version);
         } catch (Exception e) {
             logger.warn("Cache afterInsert operation failed for key: {}", key, e);
             return false;
@@ -301,15 +174,7 @@ public class ReadWriteEntityDataAccess implements EntityDataAccess {
                         Object currentVersion,
                         Object previousVersion) {
         try {
-            if (isRegionLocked()) {
-                return false;
-            }
-            
-            SoftLock lock = lockItem(session, key, previousVersion);
-            
-
-            return lock != null;
-            
+            return protocol.update(CacheKey.convert(key, EntityCacheKey.class), previousVersion);
         } catch (Exception e) {
             logger.warn("Cache update operation failed for key: {}", key, e);
             return false;
@@ -330,19 +195,8 @@ public class ReadWriteEntityDataAccess implements EntityDataAccess {
 
         try {
             EntityCacheKey cacheKey = CacheKey.convert(key, EntityCacheKey.class);
-            
-            if (isRegionLocked()) {
-                return false;
-            }
-            
-            if (lock instanceof ReadWriteSoftLock) {
-                ReadWriteSoftLock rwLock = (ReadWriteSoftLock) lock;
-                lockMap.remove(rwLock.getKey(), rwLock);
-            }
-            
-            entityRegion.put(cacheKey, value);
-            return true;
-            
+            ReadWriteSoftLock rwLock = lock instanceof ReadWriteSoftLock ? (ReadWriteSoftLock) lock : null;
+            return protocol.afterUpdate(cacheKey, value, currentVersion, rwLock);
         } catch (Exception e) {
             logger.warn("Cache afterUpdate operation failed for key: {}", key, e);
             return false;
@@ -350,11 +204,33 @@ public class ReadWriteEntityDataAccess implements EntityDataAccess {
     }
 
 
+    /**
+     * Batch form of {@link #get} for batch fetching and multi-load; the keys are
+     * looked up with one lock acquisition per storage segment. Locked keys
+     * miss, and misses do not wait for concurrent loads.
+     *
+     * @return the cached values by key; keys that missed are absent
+     */
+    public Map<Object, Object> getAll(SharedSessionContractImplementor session, Collection<?> keys) {
+        return protocol.getAll(keys, EntityCacheKey.class);
+    }
+
+
+    /**
+     * Batch form of {@link #putFromLoad} without versions or minimal puts. Locked
+     * keys and keys cached after the session's transaction started are skipped.
+     *
+     * @return the number of entries cached
+     */
+    public int putAllFromLoad(SharedSessionContractImplementor session, Map<?, ?> values) {
+        return protocol.putAllFromLoad(session, values, EntityCacheKey.class);
+    }
+
+
     @Override
     public void evict(Object key) {
         try {
             EntityCacheKey cacheKey = CacheKey.convert(key, EntityCacheKey.class);
-            lockMap.remove(cacheKey); 
             entityRegion.evict(cacheKey);
         } catch (Exception e) {
             logger.warn("Cache evict operation failed for key: {}", key, e);
@@ -365,7 +241,6 @@ public class ReadWriteEntityDataAccess implements EntityDataAccess {
     @Override
     public void evictAll() {
         try {
-            lockMap.clear();
             entityRegion.evictAll();
         } catch (Exception e) {
             logger.warn("Cache evictAll operation failed", e);
@@ -376,18 +251,7 @@ public class ReadWriteEntityDataAccess implements EntityDataAccess {
     @Override
     public void remove(SharedSessionContractImplementor session, Object key) {
         try {
-            if (isRegionLocked()) {
-                return;
-            }
-
-            EntityCacheKey cacheKey = CacheKey.convert(key, EntityCacheKey.class);
-
-            SoftLock lock = lockItem(session, cacheKey, null);
-            
-            if (lock != null) {
-                lockMap.remove(cacheKey, lock);
-                entityRegion.evict(cacheKey);
-            }
+            protocol.remove(CacheKey.convert(key, EntityCacheKey.class));
         } catch (Exception e) {
             logger.warn("Cache remove operation failed for key: {}", key, e);
         }
@@ -396,19 +260,10 @@ public class ReadWriteEntityDataAccess implements EntityDataAccess {
 
     @Override
     public void removeAll(SharedSessionContractImplementor session) {
-        SoftLock lock = null;
         try {
-            lock = lockRegion();
-            
-            entityRegion.evictAll();
-            lockMap.clear();
-            
+            protocol.removeAll();
         } catch (Exception e) {
             logger.warn("Cache removeAll operation failed", e);
-        } finally {
-            if (lock != null) {
-                unlockRegion(lock);
-            }
         }
     }
 
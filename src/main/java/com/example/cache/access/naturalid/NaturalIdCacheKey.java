@@ -1,17 +1,26 @@
 package com.example.cache.access.naturalid;
 
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Objects;
 
 import com.example.cache.utils.CacheKey;
+import com.example.cache.utils.KeyTypeRegistry;
 
+/**
+ * Natural id key. {@link Arrays#deepHashCode} runs once at construction instead
+ * of on every lookup, which matters for composite natural ids; the values array
+ * must therefore not be modified after the key is built.
+ */
 public final class NaturalIdCacheKey implements Serializable, CacheKey {
     private static final long serialVersionUID = 1L;
 
     private final Object[] naturalIdValues; 
-    private final String entityName;
+    private final int typeId;
     private final String tenantId;
+    private final int hash;
 
     public NaturalIdCacheKey(Object[] naturalIdValues, String entityName, String tenantId) {
         if (naturalIdValues == null || naturalIdValues.length == 0)
@@ -20,8 +29,12 @@ public final class NaturalIdCacheKey implements Serializable, CacheKey {
             throw new IllegalArgumentException("Entity name cannot be null or empty");
         }
         this.naturalIdValues = naturalIdValues;
-        this.entityName = entityName;
+        this.typeId = KeyTypeRegistry.idOf(entityName);
         this.tenantId = tenantId;
+        int result = Arrays.deepHashCode(naturalIdValues);
+        result = 31 * result + typeId;
+        result = 31 * result + Objects.hashCode(tenantId);
+        this.hash = result;
     }
 
     public Object[] getNaturalIdValues() {
@@ -29,7 +42,11 @@ public final class NaturalIdCacheKey implements Serializable, CacheKey {
     }
 
     public String getEntityName() {
-        return entityName;
+        return KeyTypeRegistry.nameOf(typeId);
+    }
+
+    public int getTypeId() {
+        return typeId;
     }
 
     @Override
@@ -42,21 +59,46 @@ public final class NaturalIdCacheKey implements Serializable, CacheKey {
         if (this == o) return true;
         if (!(o instanceof NaturalIdCacheKey)) return false;
         NaturalIdCacheKey that = (NaturalIdCacheKey) o;
-        return Arrays.deepEquals(naturalIdValues, that.naturalIdValues)
-            && Objects.equals(entityName, that.entityName)
-            && Objects.equals(tenantId, that.tenantId);
+        return hash == that.hash
+            && typeId == that.typeId
+            && Objects.equals(tenantId, that.tenantId)
+            && Arrays.deepEquals(naturalIdValues, that.naturalIdValues);
     }
 
     @Override
     public int hashCode() {
-        int result = Arrays.deepHashCode(naturalIdValues);
-        result = 31 * result + Objects.hashCode(entityName);
-        result = 31 * result + Objects.hashCode(tenantId);
-        return result;
+        return hash;
     }
 
     @Override
     public String toString() {
-        return "NaturalIdCacheKey[" + entityName + " " + Arrays.toString(naturalIdValues) + "]";
+        return "NaturalIdCacheKey[" + getEntityName() + " " + Arrays.toString(naturalIdValues) + "]";
+    }
+
+    // Type ids are local to this JVM, so the serialized form carries the entity name
+    private Object writeReplace() {
+        return new SerializedForm(naturalIdValues, getEntityName(), tenantId);
+    }
+
+    private void readObject(ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("NaturalIdCacheKey is serialized through its SerializedForm");
+    }
+
+    private static final class SerializedForm implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final Object[] naturalIdValues;
+        private final String entityName;
+        private final String tenantId;
+
+        SerializedForm(Object[] naturalIdValues, String entityName, String tenantId) {
+            this.naturalIdValues = naturalIdValues;
+            this.entityName = entityName;
+            this.tenantId = tenantId;
+        }
+
+        private Object readResolve() {
+            return new NaturalIdCacheKey(naturalIdValues, entityName, tenantId);
+        }
     }
 }
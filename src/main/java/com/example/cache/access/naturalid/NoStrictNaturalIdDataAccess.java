@@ -32,7 +32,7 @@ public class NoStrictNaturalIdDataAccess implements NaturalIdDataAccess {
       try {
           NaturalIdCacheKey cacheKey = CacheKey.convert(key, NaturalIdCacheKey.class);
 
-            return entityRegion.get(cacheKey) != null;
+            return entityRegion.contains(cacheKey);
         } catch (Exception e) {
             // Log in production
             return false;
@@ -111,7 +111,7 @@ public class NoStrictNaturalIdDataAccess implements NaturalIdDataAccess {
             NaturalIdCacheKey cacheKey = CacheKey.convert(key, NaturalIdCacheKey.class);
             
 
-            if (minimalPutOverride && entityRegion.get(cacheKey) != null) {
+            if (minimalPutOverride && entityRegion.contains(cacheKey)) {
                 return false;
             }
 
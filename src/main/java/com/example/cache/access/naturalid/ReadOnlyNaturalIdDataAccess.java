@@ -29,7 +29,7 @@ public class ReadOnlyNaturalIdDataAccess implements NaturalIdDataAccess {
   public boolean contains(Object key) {
     try {
       NaturalIdCacheKey cacheKey = CacheKey.convert(key, NaturalIdCacheKey.class);
-      return entityRegion.get(cacheKey) != null;
+      return entityRegion.contains(cacheKey);
     } catch (Exception e) {
       return false;
     }
@@ -68,7 +68,7 @@ public class ReadOnlyNaturalIdDataAccess implements NaturalIdDataAccess {
     try {
       NaturalIdCacheKey cacheKey = CacheKey.convert(key, NaturalIdCacheKey.class);
       
-      if (minimalPutOverride && entityRegion.get(cacheKey) != null) {
+      if (minimalPutOverride && entityRegion.contains(cacheKey)) {
         return false;
       }
 
@@ -1,15 +1,13 @@
 package com.example.cache.access.naturalid;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicReference;
 
-import org.hibernate.cache.CacheException;
 import org.hibernate.cache.spi.DomainDataRegion;
 import org.hibernate.cache.spi.access.AccessType;
 import org.hibernate.cache.spi.access.NaturalIdDataAccess;
 import org.hibernate.cache.spi.access.SoftLock;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.hibernate.persister.entity.EntityPersister;
+import com.example.cache.access.ReadWriteLockProtocol;
 import com.example.cache.access.ReadWriteSoftLock;
 import com.example.cache.region.DomainDataRegionAdapter;
 import com.example.cache.region.RegionImpl;
@@ -21,11 +19,7 @@ public class ReadWriteNaturalIdDataAccess implements NaturalIdDataAccess {
     
     private final DomainDataRegionAdapter domainDataRegion;
     
-    private final ConcurrentHashMap<NaturalIdCacheKey, ReadWriteSoftLock> lockMap = new ConcurrentHashMap<>();
-    
-    private final AtomicReference<ReadWriteSoftLock> regionLock = new AtomicReference<>();
-    
-    private static final long LOCK_TIMEOUT_MS = 60000; 
+    private final ReadWriteLockProtocol protocol;
 
     public ReadWriteNaturalIdDataAccess(RegionImpl entityRegion, 
                                     DomainDataRegionAdapter domainDataRegion) {
@@ -37,54 +31,21 @@ public class ReadWriteNaturalIdDataAccess implements NaturalIdDataAccess {
         }
         this.entityRegion = entityRegion;
         this.domainDataRegion = domainDataRegion;
+        this.protocol = new ReadWriteLockProtocol(entityRegion, domainDataRegion.getRegionFactory());
     }
 
-    private boolean isRegionLocked() {
-        ReadWriteSoftLock currentRegionLock = regionLock.get();
-        if (currentRegionLock != null) {
-            if (isLockExpired(currentRegionLock)) {
-                regionLock.compareAndSet(currentRegionLock, null);
-                return regionLock.get() != null;
-            } else {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private boolean isLocked(NaturalIdCacheKey cacheKey) {
-        if (isRegionLocked()) {
-            return true;
-        }
-        
-        ReadWriteSoftLock lock = lockMap.get(cacheKey);
-        if (lock != null) {
-            if (isLockExpired(lock)) {
-                lockMap.remove(cacheKey, lock);
-                return false;
-            }
-            return true;
-        }
-        
-        return false;
-    }
-
-
-    private boolean isLockExpired(ReadWriteSoftLock lock) {
-        return System.currentTimeMillis() - lock.getTimestamp() > LOCK_TIMEOUT_MS;
+    /**
+     * The number of locks handed out by this strategy and not yet released.
+     */
+    public int getOutstandingLocks() {
+        return protocol.getOutstandingLocks();
     }
 
 
     @Override
     public boolean contains(Object key) {
         try {
-            NaturalIdCacheKey cacheKey = CacheKey.convert(key, NaturalIdCacheKey.class);
-            
-            if (isLocked(cacheKey)) {
-                return false;
-            }
-            
-            return entityRegion.get(cacheKey) != null;
+            return protocol.contains(CacheKey.convert(key, NaturalIdCacheKey.class));
         } catch (Exception e) {
             // Log in production
             return false;
@@ -95,13 +56,7 @@ public class ReadWriteNaturalIdDataAccess implements NaturalIdDataAccess {
     @Override
     public Object get(SharedSessionContractImplementor session, Object key) {
         try {
-            NaturalIdCacheKey cacheKey = CacheKey.convert(key, NaturalIdCacheKey.class);
-            
-            if (isLocked(cacheKey)) {
-                return null;
-            }
-            
-            return entityRegion.get(cacheKey);
+            return protocol.get(CacheKey.convert(key, NaturalIdCacheKey.class));
         } catch (Exception e) {
             // Log in production
             return null;
@@ -130,17 +85,7 @@ public class ReadWriteNaturalIdDataAccess implements NaturalIdDataAccess {
 
         try {
             NaturalIdCacheKey cacheKey = CacheKey.convert(key, NaturalIdCacheKey.class);
-            
-            if (isLocked(cacheKey)) {
-                return false;
-            }
-
-            if (minimalPutOverride && entityRegion.get(cacheKey) != null) {
-                return false;
-            }
-
-            entityRegion.put(cacheKey, value);
-            return true;
+            return protocol.putFromLoad(session, cacheKey, value, version, minimalPutOverride);
         } catch (Exception e) {
             // Log in production
             return false;
@@ -151,44 +96,7 @@ public class ReadWriteNaturalIdDataAccess implements NaturalIdDataAccess {
     @Override
     public SoftLock lockItem(SharedSessionContractImplementor session, Object key, Object version) {
         try {
-            NaturalIdCacheKey cacheKey = CacheKey.convert(key, NaturalIdCacheKey.class);
-            
-            if (isRegionLocked()) {
-                return null;
-            }
-            
-            Object currentValue = entityRegion.get(cacheKey);
-
-            long startTime = System.currentTimeMillis();
-            long timeoutMs = Math.min(LOCK_TIMEOUT_MS, 1000); 
-            
-            while (System.currentTimeMillis() - startTime < timeoutMs) {
-                ReadWriteSoftLock newLock = new ReadWriteSoftLock(cacheKey, currentValue, version);
-                
-                ReadWriteSoftLock existingLock = lockMap.putIfAbsent(cacheKey, newLock);
-                
-                if (existingLock == null) {
-                    entityRegion.evict(cacheKey);
-                    return newLock;
-                }
-                
-                if (isLockExpired(existingLock)) {
-                    if (lockMap.replace(cacheKey, existingLock, newLock)) {
-                        entityRegion.evict(cacheKey);
-                        return newLock;
-                    }
-                }
-                
-                try {
-                    Thread.sleep(1); 
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    return null;
-                }
-            }
-            
-            return null;
-            
+            return protocol.lockItem(CacheKey.convert(key, NaturalIdCacheKey.class), version);
         } catch (Exception e) {
             // Log in production
             return null;
@@ -204,13 +112,7 @@ public class ReadWriteNaturalIdDataAccess implements NaturalIdDataAccess {
         
         try {
             ReadWriteSoftLock rwLock = (ReadWriteSoftLock) lock;
-            NaturalIdCacheKey cacheKey = CacheKey.convert(key, NaturalIdCacheKey.class);
-            
-            lockMap.remove(cacheKey, rwLock);
-
-            entityRegion.put(cacheKey, rwLock.getOldValue());
-
-            
+            protocol.unlockItem(CacheKey.convert(key, NaturalIdCacheKey.class), rwLock);
         } catch (Exception e) {
             // Log in production - don't throw, unlocking should be best-effort
         }
@@ -218,24 +120,12 @@ public class ReadWriteNaturalIdDataAccess implements NaturalIdDataAccess {
 
 
     public SoftLock lockRegion() {
-        ReadWriteSoftLock newLock = new ReadWriteSoftLock(null, null, null);
-        ReadWriteSoftLock existing = regionLock.get();
-        
-        if (existing != null && !isLockExpired(existing)) {
-            throw new CacheException("Region already locked");
-        }
-        
-        if (!regionLock.compareAndSet(existing, newLock)) {
-            throw new CacheException("Region already locked by another thread");
-        }
-        
-        return newLock;
+        return protocol.lockRegion();
     }
 
     public void unlockRegion(SoftLock lock) {
         if (lock instanceof ReadWriteSoftLock) {
-            regionLock.compareAndSet((ReadWriteSoftLock) lock, null);
-            lockMap.clear();
+            protocol.unlockRegion((ReadWriteSoftLock) lock);
         }
     }
 
@@ -247,7 +137,6 @@ public class ReadWriteNaturalIdDataAccess implements NaturalIdDataAccess {
     public void evict(Object key) {
         try {
             NaturalIdCacheKey cacheKey = CacheKey.convert(key, NaturalIdCacheKey.class);
-            lockMap.remove(cacheKey); 
             entityRegion.evict(cacheKey);
         } catch (Exception e) {
             // Log in production
@@ -258,7 +147,6 @@ public class ReadWriteNaturalIdDataAccess implements NaturalIdDataAccess {
     @Override
     public void evictAll() {
         try {
-            lockMap.clear();
             entityRegion.evictAll();
         } catch (Exception e) {
             // Log in production
@@ -269,18 +157,7 @@ public class ReadWriteNaturalIdDataAccess implements NaturalIdDataAccess {
     @Override
     public void remove(SharedSessionContractImplementor session, Object key) {
         try {
-            if (isRegionLocked()) {
-                return;
-            }
-
-            NaturalIdCacheKey cacheKey = CacheKey.convert(key, NaturalIdCacheKey.class);
-
-            SoftLock lock = lockItem(session, cacheKey, null);
-            
-            if (lock != null) {
-                lockMap.remove(cacheKey, lock);
-                entityRegion.evict(cacheKey);
-            }
+            protocol.remove(CacheKey.convert(key, NaturalIdCacheKey.class));
         } catch (Exception e) {
             // Log in production
         }
@@ -289,19 +166,10 @@ public class ReadWriteNaturalIdDataAccess implements NaturalIdDataAccess {
 
     @Override
     public void removeAll(SharedSessionContractImplementor session) {
-        SoftLock lock = null;
         try {
-            lock = lockRegion();
-            
-            entityRegion.evictAll();
-            lockMap.clear();
-            
+            protocol.removeAll();
         } catch (Exception e) {
             // Log in production
-        } finally {
-            if (lock != null) {
-                unlockRegion(lock);
-            }
         }
     }
 
@@ -373,15 +241,7 @@ public class ReadWriteNaturalIdDataAccess implements NaturalIdDataAccess {
         }
 
         try {
-            NaturalIdCacheKey cacheKey = CacheKey.convert(key, NaturalIdCacheKey.class);
-            
-            if (isRegionLocked()) {
-                return false;
-            }
-            
-            entityRegion.put(cacheKey, value);
-            return true;
-            
+            return protocol.afterInsert(CacheKey.convert(key, NaturalIdCacheKey.class), value, null);
         } catch (Exception e) {
             // Log in production
             return false;
@@ -394,15 +254,7 @@ public class ReadWriteNaturalIdDataAccess implements NaturalIdDataAccess {
                         Object key,
                         Object value) {
         try {
-            if (isRegionLocked()) {
-                return false;
-            }
-            
-            SoftLock lock = lockItem(session, key, null);
-            
-
-            return lock != null;
-            
+            return protocol.update(CacheKey.convert(key, NaturalIdCacheKey.class), null);
         } catch (Exception e) {
             // Log in production
             return false;
@@ -421,19 +273,8 @@ public class ReadWriteNaturalIdDataAccess implements NaturalIdDataAccess {
 
         try {
             NaturalIdCacheKey cacheKey = CacheKey.convert(key, NaturalIdCacheKey.class);
-
-            if (isRegionLocked()) {
-                return false;
-            }
-            
-            if (lock instanceof ReadWriteSoftLock) {
-                ReadWriteSoftLock rwLock = (ReadWriteSoftLock) lock;
-                lockMap.remove(rwLock.getKey(), rwLock);
-            }
-            
-            entityRegion.put(cacheKey, value);
-            return true;
-            
+            ReadWriteSoftLock rwLock = lock instanceof ReadWriteSoftLock ? (ReadWriteSoftLock) lock : null;
+            return protocol.afterUpdate(cacheKey, value, null, rwLock);
         } catch (Exception e) {
             // Log in production
             return false;
@@ -1,35 +1,208 @@
 package com.example.cache.config;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import com.example.cache.storage.EvictionPolicyType;
+import com.example.cache.storage.StorageType;
+
 /**
  * Configuration class for the custom cache implementation.
  * Reads configuration from Hibernate properties.
+ * <p>
+ * Any {@code hibernate.cache.<property>} can be overridden for a single region
+ * with {@code hibernate.cache.region.<regionName>.<property>}, or for every
+ * region whose name starts with a prefix with
+ * {@code hibernate.cache.region.<prefix>*.<property>}; see {@link #forRegion}.
  */
 public class CacheConfiguration {
     
     // Configuration property keys
+    public static final String PROPERTY_PREFIX = "hibernate.cache.";
+    public static final String REGION_OVERRIDE_PREFIX = "hibernate.cache.region.";
     public static final String MAX_ENTRIES_PROPERTY = "hibernate.cache.max_entries";
     public static final String TTL_SECONDS_PROPERTY = "hibernate.cache.ttl_seconds";
     public static final String LOCK_TIMEOUT_SECONDS_PROPERTY = "hibernate.cache.lock_timeout_seconds";
     public static final String ENABLE_DEBUG_LOGGING_PROPERTY = "hibernate.cache.debug_logging";
+    public static final String STORAGE_PROPERTY = "hibernate.cache.storage";
+    public static final String SEGMENTS_PROPERTY = "hibernate.cache.segments";
+    public static final String BUFFERED_READS_PROPERTY = "hibernate.cache.buffered_reads";
+    public static final String EVICTION_POLICY_PROPERTY = "hibernate.cache.eviction_policy";
+    public static final String MAINTENANCE_INTERVAL_MS_PROPERTY = "hibernate.cache.maintenance_interval_ms";
+    public static final String TICKER_RESOLUTION_MS_PROPERTY = "hibernate.cache.ticker_resolution_ms";
+    public static final String MAX_BYTES_PROPERTY = "hibernate.cache.max_bytes";
+    public static final String WEIGHER_PROPERTY = "hibernate.cache.weigher";
+    public static final String OFFHEAP_BYTES_PROPERTY = "hibernate.cache.offheap_bytes";
+    public static final String DISK_DIRECTORY_PROPERTY = "hibernate.cache.disk_directory";
+    public static final String DISK_MAX_BYTES_PROPERTY = "hibernate.cache.disk_max_bytes";
+    public static final String DISK_SEGMENT_BYTES_PROPERTY = "hibernate.cache.disk_segment_bytes";
+    public static final String SNAPSHOT_DIRECTORY_PROPERTY = "hibernate.cache.snapshot_directory";
+    public static final String LOAD_WAIT_MILLIS_PROPERTY = "hibernate.cache.load_wait_millis";
+    public static final String TTL_JITTER_PERCENT_PROPERTY = "hibernate.cache.ttl_jitter_percent";
+    public static final String EARLY_REFRESH_MILLIS_PROPERTY = "hibernate.cache.early_refresh_millis";
+    public static final String BUDGET_ENTRIES_PROPERTY = "hibernate.cache.budget_entries";
+    public static final String BUDGET_BYTES_PROPERTY = "hibernate.cache.budget_bytes";
+    public static final String REBALANCE_INTERVAL_MS_PROPERTY = "hibernate.cache.rebalance_interval_ms";
+    public static final String HEAP_PRESSURE_PERCENT_PROPERTY = "hibernate.cache.heap_pressure_percent";
+    public static final String LONG_ID_STORAGE_PROPERTY = "hibernate.cache.long_id_storage";
+    public static final String MAX_SOFT_LOCKS_PROPERTY = "hibernate.cache.max_soft_locks";
     
     // Default values
     private static final int DEFAULT_MAX_ENTRIES = 10000;
     private static final long DEFAULT_TTL_SECONDS = 3600; // 1 hour
     private static final long DEFAULT_LOCK_TIMEOUT_SECONDS = 60; // 1 minute
     private static final boolean DEFAULT_DEBUG_LOGGING = false;
+    private static final StorageType DEFAULT_STORAGE = StorageType.HEAP;
+    private static final int DEFAULT_SEGMENTS = 0; // derived from available processors
+    private static final boolean DEFAULT_BUFFERED_READS = false;
+    private static final EvictionPolicyType DEFAULT_EVICTION_POLICY = EvictionPolicyType.LRU;
+    private static final long DEFAULT_MAINTENANCE_INTERVAL_MS = 1000; // 0 disables the background sweeper
+    private static final long DEFAULT_TICKER_RESOLUTION_MS = 1; // 0 reads the system clock directly
+    private static final long DEFAULT_MAX_BYTES = 0; // bounded by entry count only
+    private static final long DEFAULT_OFFHEAP_BYTES = 64L * 1024 * 1024; // per region, reserved lazily
+    private static final long DEFAULT_DISK_MAX_BYTES = 1024L * 1024 * 1024; // per region
+    private static final int DEFAULT_DISK_SEGMENT_BYTES = 64 * 1024 * 1024;
+    private static final long DEFAULT_LOAD_WAIT_MILLIS = 0; // every miss loads from the database; opt in to waiting
+    private static final int DEFAULT_TTL_JITTER_PERCENT = 0;
+    private static final long DEFAULT_EARLY_REFRESH_MILLIS = 0; // entries are only reloaded once expired
+    private static final long DEFAULT_BUDGET_ENTRIES = 0; // every region keeps its own max_entries
+    private static final long DEFAULT_BUDGET_BYTES = 0; // takes precedence over budget_entries when set
+    private static final long DEFAULT_REBALANCE_INTERVAL_MS = 10000; // 0 keeps the budget evenly split
+    private static final int DEFAULT_HEAP_PRESSURE_PERCENT = 0; // regions never shrink under heap pressure
+    private static final boolean DEFAULT_LONG_ID_STORAGE = false;
+    private static final int DEFAULT_MAX_SOFT_LOCKS = 10000; // tracked per read-write access strategy
     
     private final int maxEntries;
     private final long ttlMillis;
     private final long lockTimeoutMillis;
     private final boolean debugLogging;
+    private final StorageType storageType;
+    private final int segments;
+    private final boolean bufferedReads;
+    private final EvictionPolicyType evictionPolicy;
+    private final long maintenanceIntervalMillis;
+    private final long tickerResolutionMillis;
+    private final long maxBytes;
+    private final String weigherClassName;
+    private final long offHeapBytes;
+    private final String diskDirectory;
+    private final long diskMaxBytes;
+    private final int diskSegmentBytes;
+    private final String snapshotDirectory;
+    private final long loadWaitMillis;
+    private final int ttlJitterPercent;
+    private final long earlyRefreshMillis;
+    private final long budgetEntries;
+    private final long budgetBytes;
+    private final long rebalanceIntervalMillis;
+    private final int heapPressurePercent;
+    private final boolean longIdStorage;
+    private final int maxSoftLocks;
+    // Kept to resolve region overrides
+    private final Map<String, Object> configValues;
     
     public CacheConfiguration(Map<String, Object> configValues) {
+        this.configValues = new HashMap<>(configValues);
         this.maxEntries = getIntProperty(configValues, MAX_ENTRIES_PROPERTY, DEFAULT_MAX_ENTRIES);
         this.ttlMillis = getLongProperty(configValues, TTL_SECONDS_PROPERTY, DEFAULT_TTL_SECONDS) * 1000;
         this.lockTimeoutMillis = getLongProperty(configValues, LOCK_TIMEOUT_SECONDS_PROPERTY, DEFAULT_LOCK_TIMEOUT_SECONDS) * 1000;
         this.debugLogging = getBooleanProperty(configValues, ENABLE_DEBUG_LOGGING_PROPERTY, DEFAULT_DEBUG_LOGGING);
+        this.storageType = StorageType.fromProperty(getStringProperty(configValues, STORAGE_PROPERTY), DEFAULT_STORAGE);
+        this.segments = getIntProperty(configValues, SEGMENTS_PROPERTY, DEFAULT_SEGMENTS);
+        this.bufferedReads = getBooleanProperty(configValues, BUFFERED_READS_PROPERTY, DEFAULT_BUFFERED_READS);
+        this.evictionPolicy = EvictionPolicyType.fromProperty(
+            getStringProperty(configValues, EVICTION_POLICY_PROPERTY), DEFAULT_EVICTION_POLICY);
+        this.maintenanceIntervalMillis = getLongProperty(configValues, MAINTENANCE_INTERVAL_MS_PROPERTY, DEFAULT_MAINTENANCE_INTERVAL_MS);
+        this.tickerResolutionMillis = getLongProperty(configValues, TICKER_RESOLUTION_MS_PROPERTY, DEFAULT_TICKER_RESOLUTION_MS);
+        this.maxBytes = getLongProperty(configValues, MAX_BYTES_PROPERTY, DEFAULT_MAX_BYTES);
+        this.weigherClassName = getStringProperty(configValues, WEIGHER_PROPERTY);
+        this.offHeapBytes = getLongProperty(configValues, OFFHEAP_BYTES_PROPERTY, DEFAULT_OFFHEAP_BYTES);
+        this.diskDirectory = getStringProperty(configValues, DISK_DIRECTORY_PROPERTY);
+        this.diskMaxBytes = getLongProperty(configValues, DISK_MAX_BYTES_PROPERTY, DEFAULT_DISK_MAX_BYTES);
+        this.diskSegmentBytes = getIntProperty(configValues, DISK_SEGMENT_BYTES_PROPERTY, DEFAULT_DISK_SEGMENT_BYTES);
+        this.snapshotDirectory = getStringProperty(configValues, SNAPSHOT_DIRECTORY_PROPERTY);
+        this.loadWaitMillis = getLongProperty(configValues, LOAD_WAIT_MILLIS_PROPERTY, DEFAULT_LOAD_WAIT_MILLIS);
+        this.ttlJitterPercent = Math.min(100,
+            getIntProperty(configValues, TTL_JITTER_PERCENT_PROPERTY, DEFAULT_TTL_JITTER_PERCENT));
+        this.earlyRefreshMillis = getLongProperty(configValues, EARLY_REFRESH_MILLIS_PROPERTY, DEFAULT_EARLY_REFRESH_MILLIS);
+        this.budgetEntries = getLongProperty(configValues, BUDGET_ENTRIES_PROPERTY, DEFAULT_BUDGET_ENTRIES);
+        this.budgetBytes = getLongProperty(configValues, BUDGET_BYTES_PROPERTY, DEFAULT_BUDGET_BYTES);
+        this.rebalanceIntervalMillis = getLongProperty(configValues, REBALANCE_INTERVAL_MS_PROPERTY, DEFAULT_REBALANCE_INTERVAL_MS);
+        this.heapPressurePercent = Math.min(100,
+            getIntProperty(configValues, HEAP_PRESSURE_PERCENT_PROPERTY, DEFAULT_HEAP_PRESSURE_PERCENT));
+        this.longIdStorage = getBooleanProperty(configValues, LONG_ID_STORAGE_PROPERTY, DEFAULT_LONG_ID_STORAGE);
+        this.maxSoftLocks = getIntProperty(configValues, MAX_SOFT_LOCKS_PROPERTY, DEFAULT_MAX_SOFT_LOCKS);
+    }
+    
+    /**
+     * Returns the configuration of a region: the global properties with the
+     * region's overrides applied. When several overrides set the same property,
+     * an exact region name beats a longer prefix, which beats a shorter one.
+     *
+     * @return this configuration when no override matches the region
+     */
+    public CacheConfiguration forRegion(String regionName) {
+        List<RegionOverride> matches = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : configValues.entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(REGION_OVERRIDE_PREFIX)) {
+                continue;
+            }
+            String override = key.substring(REGION_OVERRIDE_PREFIX.length());
+            // Region names contain dots but property names do not
+            int separator = override.lastIndexOf('.');
+            if (separator <= 0) {
+                continue;
+            }
+            int specificity = specificity(override.substring(0, separator), regionName);
+            if (specificity >= 0) {
+                matches.add(new RegionOverride(specificity, override.substring(separator + 1), entry.getValue()));
+            }
+        }
+        if (matches.isEmpty()) {
+            return this;
+        }
+        matches.sort(Comparator.comparingInt(match -> match.specificity));
+        Map<String, Object> resolved = new HashMap<>(configValues);
+        for (RegionOverride match : matches) {
+            resolved.put(PROPERTY_PREFIX + match.property, match.value);
+        }
+        return new CacheConfiguration(resolved);
+    }
+    
+    /**
+     * @return a copy of this configuration with {@code property} set to {@code value}
+     */
+    public CacheConfiguration with(String property, Object value) {
+        Map<String, Object> values = new HashMap<>(configValues);
+        values.put(property, value);
+        return new CacheConfiguration(values);
+    }
+    
+    // -1 when the pattern does not match, otherwise higher for more specific patterns
+    private static int specificity(String pattern, String regionName) {
+        if (pattern.equals(regionName)) {
+            return Integer.MAX_VALUE;
+        }
+        if (pattern.endsWith("*") && regionName.startsWith(pattern.substring(0, pattern.length() - 1))) {
+            return pattern.length() - 1;
+        }
+        return -1;
+    }
+    
+    private static final class RegionOverride {
+        final int specificity;
+        final String property;
+        final Object value;
+        
+        RegionOverride(int specificity, String property, Object value) {
+            this.specificity = specificity;
+            this.property = property;
+            this.value = value;
+        }
     }
     
     public int getMaxEntries() {
@@ -48,6 +221,124 @@ public class CacheConfiguration {
         return debugLogging;
     }
     
+    public StorageType getStorageType() {
+        return storageType;
+    }
+    
+    public int getSegments() {
+        return segments;
+    }
+    
+    public boolean isBufferedReads() {
+        return bufferedReads;
+    }
+    
+    public EvictionPolicyType getEvictionPolicy() {
+        return evictionPolicy;
+    }
+    
+    public long getMaintenanceIntervalMillis() {
+        return maintenanceIntervalMillis;
+    }
+    
+    public long getTickerResolutionMillis() {
+        return tickerResolutionMillis;
+    }
+    
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+    
+    public String getWeigherClassName() {
+        return weigherClassName;
+    }
+    
+    public long getOffHeapBytes() {
+        return offHeapBytes;
+    }
+    
+    /**
+     * @return the directory holding the disk tier files, or {@code null} when the tier is disabled
+     */
+    public String getDiskDirectory() {
+        return diskDirectory;
+    }
+    
+    public long getDiskMaxBytes() {
+        return diskMaxBytes;
+    }
+    
+    public int getDiskSegmentBytes() {
+        return diskSegmentBytes;
+    }
+    
+    /**
+     * @return the directory regions are snapshotted to on stop, or {@code null} when disabled
+     */
+    public String getSnapshotDirectory() {
+        return snapshotDirectory;
+    }
+    
+    /**
+     * @return how long a cache miss waits for a concurrent load of the same key
+     */
+    public long getLoadWaitMillis() {
+        return loadWaitMillis;
+    }
+    
+    /**
+     * @return the largest share of the TTL, in percent, randomly cut from each entry's TTL
+     */
+    public int getTtlJitterPercent() {
+        return ttlJitterPercent;
+    }
+    
+    public long getEarlyRefreshMillis() {
+        return earlyRefreshMillis;
+    }
+    
+    /**
+     * @return the number of entries shared by all regions, or 0 when regions are sized individually
+     */
+    public long getBudgetEntries() {
+        return budgetEntries;
+    }
+    
+    /**
+     * @return the estimated bytes shared by all regions, or 0 when no byte budget is set
+     */
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+    
+    public long getRebalanceIntervalMillis() {
+        return rebalanceIntervalMillis;
+    }
+    
+    /**
+     * @return the old generation occupancy after a collection, in percent of its
+     *         maximum, above which regions shrink; 0 when they never do
+     */
+    public int getHeapPressurePercent() {
+        return heapPressurePercent;
+    }
+    
+    /**
+     * @return whether entities with {@code Long} or {@code Integer} ids are stored in primitive-keyed tables
+     */
+    public boolean isLongIdStorage() {
+        return longIdStorage;
+    }
+    
+    public int getMaxSoftLocks() {
+        return maxSoftLocks;
+    }
+    
+    private String getStringProperty(Map<String, Object> configValues, String key) {
+        Object value = configValues.get(key);
+        return value != null ? value.toString() : null;
+    }
+    
     private int getIntProperty(Map<String, Object> configValues, String key, int defaultValue) {
         Object value = configValues.get(key);
         if (value == null || value.toString().isEmpty()) {
@@ -112,6 +403,28 @@ public class CacheConfiguration {
                 ", ttlMillis=" + ttlMillis +
                 ", lockTimeoutMillis=" + lockTimeoutMillis +
                 ", debugLogging=" + debugLogging +
+                ", storageType=" + storageType +
+                ", segments=" + segments +
+                ", bufferedReads=" + bufferedReads +
+                ", evictionPolicy=" + evictionPolicy +
+                ", maintenanceIntervalMillis=" + maintenanceIntervalMillis +
+                ", tickerResolutionMillis=" + tickerResolutionMillis +
+                ", maxBytes=" + maxBytes +
+                ", weigher=" + weigherClassName +
+                ", offHeapBytes=" + offHeapBytes +
+                ", diskDirectory=" + diskDirectory +
+                ", diskMaxBytes=" + diskMaxBytes +
+                ", diskSegmentBytes=" + diskSegmentBytes +
+                ", snapshotDirectory=" + snapshotDirectory +
+                ", loadWaitMillis=" + loadWaitMillis +
+                ", ttlJitterPercent=" + ttlJitterPercent +
+                ", earlyRefreshMillis=" + earlyRefreshMillis +
+                ", budgetEntries=" + budgetEntries +
+                ", budgetBytes=" + budgetBytes +
+                ", rebalanceIntervalMillis=" + rebalanceIntervalMillis +
+                ", heapPressurePercent=" + heapPressurePercent +
+                ", longIdStorage=" + longIdStorage +
+                ", maxSoftLocks=" + maxSoftLocks +
                 '}';
     }
 }
@@ -0,0 +1,210 @@
+package com.example.cache.factory;
+
+import com.example.cache.config.CacheConfiguration;
+import com.example.cache.region.RegionImpl;
+import com.example.cache.storage.CacheStorageFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shares one capacity budget, in entries or estimated bytes, among the regions
+ * of a factory. A new region gets an even share, taken proportionally from the
+ * regions already registered. Each {@link #rebalance} then compares the ghost
+ * hits per allocated unit every region collected since the previous one (the
+ * misses a larger capacity would have avoided) and moves a step of capacity
+ * from the regions that gain least to the regions that gain most.
+ */
+public class CapacityRebalancer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CapacityRebalancer.class);
+
+    // Each move shifts at most this fraction of the budget
+    private static final int STEP_DIVISOR = 64;
+    // A region never shrinks below this fraction of an even share
+    private static final int FLOOR_DIVISOR = 8;
+
+    private final long budget;
+    // Whether the budget is in estimated bytes rather than entries
+    private final boolean bytes;
+    private final Map<String, Allocation> allocations = new LinkedHashMap<>();
+
+    private static final class Allocation {
+        final RegionImpl region;
+        // Entry bound of a region sized by bytes
+        final int maxEntries;
+        long capacity;
+        long ghostHits;
+        double gain;
+
+        Allocation(RegionImpl region, int maxEntries) {
+            this.region = region;
+            this.maxEntries = maxEntries;
+            this.ghostHits = region.getMetrics().getGhostHits();
+        }
+    }
+
+    /**
+     * @param bytes whether {@code budget} is in estimated bytes rather than entries
+     */
+    public CapacityRebalancer(long budget, boolean bytes) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("budget must be > 0");
+        }
+        this.budget = budget;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Sizes the configuration of a region about to be registered to its
+     * initial share, so the storage engine is built with a bound of the
+     * right kind.
+     */
+    public synchronized CacheConfiguration withInitialShare(CacheConfiguration config) {
+        long share = Math.max(1, budget / (allocations.size() + 1));
+        return bytes
+            ? config.with(CacheConfiguration.MAX_BYTES_PROPERTY, share)
+            : config.with(CacheConfiguration.MAX_ENTRIES_PROPERTY, (int) Math.min(share, Integer.MAX_VALUE));
+    }
+
+    /**
+     * @return whether regions built from {@code config} can take part in the budget;
+     *         a byte budget only takes engines that weigh their entries
+     */
+    public boolean accepts(CacheConfiguration config) {
+        return !bytes || CacheStorageFactory.weighsEntries(config);
+    }
+
+    /**
+     * Gives a region an even share of the budget, shrinking the others in proportion.
+     *
+     * @return {@code false} when the region's storage engine cannot be resized
+     *         and keeps its configured capacity
+     */
+    public synchronized boolean register(RegionImpl region) {
+        String regionName = region.getRegionName();
+        unregister(regionName);
+        CacheConfiguration config = region.getConfiguration();
+        Allocation allocation = new Allocation(region, config != null ? config.getMaxEntries() : Integer.MAX_VALUE);
+        int count = allocations.size() + 1;
+        allocation.capacity = Math.max(1, budget / count);
+        if (!apply(allocation)) {
+            logger.warn("Storage of region {} cannot be resized, it keeps its configured capacity outside the budget",
+                regionName);
+            return false;
+        }
+        double scale = allocations.isEmpty() ? 0 : (double) (budget - allocation.capacity) / allocated();
+        for (Allocation other : allocations.values()) {
+            other.capacity = Math.max(1, (long) (other.capacity * scale));
+            apply(other);
+        }
+        // Rounding leftovers go to the new region
+        allocation.capacity = Math.max(1, budget - allocated());
+        apply(allocation);
+        allocations.put(regionName, allocation);
+        return true;
+    }
+
+    /**
+     * Spreads the capacity of a removed region evenly over the remaining ones.
+     */
+    public synchronized void unregister(String regionName) {
+        Allocation removed = allocations.remove(regionName);
+        if (removed == null) {
+            return;
+        }
+        removed.region.getMetrics().setCapacity(0);
+        if (allocations.isEmpty()) {
+            return;
+        }
+        long freed = budget - allocated();
+        long share = freed / allocations.size();
+        long remainder = freed % allocations.size();
+        for (Allocation allocation : allocations.values()) {
+            allocation.capacity += share + (remainder-- > 0 ? 1 : 0);
+            apply(allocation);
+        }
+    }
+
+    /**
+     * Moves capacity from the regions with the fewest ghost hits per allocated
+     * unit since the last call to the regions with the most, pairing the best
+     * with the worst, the second best with the second worst, and so on.
+     */
+    public synchronized void rebalance() {
+        if (allocations.size() < 2) {
+            return;
+        }
+        List<Allocation> ranked = new ArrayList<>(allocations.values());
+        for (Allocation allocation : ranked) {
+            long ghostHits = allocation.region.getMetrics().getGhostHits();
+            allocation.gain = (double) (ghostHits - allocation.ghostHits) / allocation.capacity;
+            allocation.ghostHits = ghostHits;
+        }
+        ranked.sort(Comparator.comparingDouble((Allocation allocation) -> allocation.gain).reversed());
+
+        long step = Math.max(1, budget / STEP_DIVISOR);
+        long floor = Math.max(1, budget / ranked.size() / FLOOR_DIVISOR);
+        int winner = 0;
+        int loser = ranked.size() - 1;
+        while (winner < loser) {
+            Allocation gaining = ranked.get(winner);
+            Allocation losing = ranked.get(loser);
+            if (gaining.gain <= losing.gain) {
+                break;
+            }
+            long moved = Math.min(step, losing.capacity - floor);
+            if (moved <= 0) {
+                loser--;
+                continue;
+            }
+            losing.capacity -= moved;
+            gaining.capacity += moved;
+            apply(losing);
+            apply(gaining);
+            losing.region.getMetrics().revokeCapacity();
+            gaining.region.getMetrics().grantCapacity();
+            logger.debug("Moved {} {} of capacity from region {} to region {}", moved, bytes ? "bytes" : "entries",
+                losing.region.getRegionName(), gaining.region.getRegionName());
+            winner++;
+            loser--;
+        }
+    }
+
+    /**
+     * @return the capacity allocated to each budgeted region, in entries or bytes
+     */
+    public synchronized Map<String, Long> getAllocations() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        allocations.forEach((regionName, allocation) -> result.put(regionName, allocation.capacity));
+        return result;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    private long allocated() {
+        long total = 0;
+        for (Allocation allocation : allocations.values()) {
+            total += allocation.capacity;
+        }
+        return total;
+    }
+
+    private boolean apply(Allocation allocation) {
+        boolean resized = bytes
+            ? allocation.region.resize(allocation.maxEntries, allocation.capacity)
+            : allocation.region.resize((int) Math.min(allocation.capacity, Integer.MAX_VALUE), 0);
+        if (resized) {
+            allocation.region.getMetrics().setCapacity(allocation.capacity);
+        }
+        return resized;
+    }
+}
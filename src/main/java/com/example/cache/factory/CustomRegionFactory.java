@@ -5,6 +5,9 @@ import com.example.cache.region.DomainDataRegionAdapter;
 import com.example.cache.region.QueryResultsRegionImpl;
 import com.example.cache.region.RegionImpl;
 import com.example.cache.region.TimestampsRegionImpl;
+import com.example.cache.storage.StorageSnapshot;
+import com.example.cache.utils.CachedTicker;
+import com.example.cache.utils.Ticker;
 
 import org.hibernate.cache.CacheException;
 import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
@@ -16,8 +19,20 @@ import org.hibernate.boot.spi.SessionFactoryOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class CustomRegionFactory implements RegionFactory {
@@ -30,22 +45,54 @@ public class CustomRegionFactory implements RegionFactory {
     private final Map<String, DomainDataRegion> domainDataRegions = new ConcurrentHashMap<>();
     private final Map<String, QueryResultsRegion> queryResultsRegions = new ConcurrentHashMap<>();
     private final Map<String, TimestampsRegion> timestampsRegions = new ConcurrentHashMap<>();
+    // Backing storage of every region, swept periodically by the maintenance thread
+    private final Map<String, RegionImpl> storageRegions = new ConcurrentHashMap<>();
+    
+    // Snapshots from the previous run, read in parallel on start and restored when their region is built
+    private final Map<String, CompletableFuture<StorageSnapshot>> pendingSnapshots = new ConcurrentHashMap<>();
+    private Path snapshotDirectory;
+    
+    // Non-null when the regions share a global budget
+    private CapacityRebalancer rebalancer;
+    // Non-null when regions shrink under heap pressure
+    private HeapPressureMonitor heapPressureMonitor;
+    
+    private ScheduledExecutorService maintenanceExecutor;
+    // Supplied by the caller (e.g. a fake clock in tests); otherwise created on start
+    private final Ticker providedTicker;
+    private Ticker ticker = Ticker.system();
     
     private SessionFactoryOptions settings;
     private CacheConfiguration config;
 
+    public CustomRegionFactory() {
+        this(null);
+    }
+
+    public CustomRegionFactory(Ticker ticker) {
+        this.providedTicker = ticker;
+    }
+
     @Override
     public void start(SessionFactoryOptions settings, Map<String, Object> configValues) throws CacheException {
         logger.info("Starting CustomRegionFactory with settings: {}", settings);
         this.settings = settings;
         this.config = new CacheConfiguration(configValues);
-        this.nextTimestamp.set(System.currentTimeMillis());
+        this.ticker = createTicker();
+        this.nextTimestamp.set(ticker.read());
+        this.rebalancer = createRebalancer();
+        startSnapshotLoading();
+        startMaintenance();
+        startHeapPressureMonitor();
         logger.info("CustomRegionFactory started successfully with configuration: {}", config);
     }
 
     @Override
     public void stop() {
         logger.info("Stopping CustomRegionFactory");
+        stopHeapPressureMonitor();
+        stopMaintenance();
+        writeSnapshots();
 
         for (DomainDataRegion region : domainDataRegions.values()) {
             try {
@@ -74,9 +121,196 @@ public class CustomRegionFactory implements RegionFactory {
         }
         timestampsRegions.clear();
         
+        storageRegions.clear();
+        pendingSnapshots.clear();
+        rebalancer = null;
         metricsMap.clear();
+        if (ticker instanceof CachedTicker) {
+            ((CachedTicker) ticker).close();
+        }
+        ticker = Ticker.system();
         logger.info("CustomRegionFactory stopped successfully");
     }
+    
+    private Ticker createTicker() {
+        if (providedTicker != null) {
+            return providedTicker;
+        }
+        long resolution = config.getTickerResolutionMillis();
+        return resolution > 0 ? new CachedTicker(resolution) : Ticker.system();
+    }
+    
+    private CapacityRebalancer createRebalancer() {
+        if (config.getBudgetBytes() > 0) {
+            return new CapacityRebalancer(config.getBudgetBytes(), true);
+        }
+        if (config.getBudgetEntries() > 0) {
+            return new CapacityRebalancer(config.getBudgetEntries(), false);
+        }
+        return null;
+    }
+    
+    private void startSnapshotLoading() {
+        String directory = config.getSnapshotDirectory();
+        snapshotDirectory = directory != null && !directory.isEmpty() ? Paths.get(directory) : null;
+        if (snapshotDirectory == null || !Files.isDirectory(snapshotDirectory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(snapshotDirectory, "*.snapshot")) {
+            for (Path file : files) {
+                pendingSnapshots.put(file.getFileName().toString(), CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return StorageSnapshot.read(file);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } finally {
+                        // A snapshot is only valid for the run right after the one that wrote it
+                        deleteSnapshot(file);
+                    }
+                }));
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot list cache snapshots in {}", snapshotDirectory, e);
+        }
+    }
+    
+    private void restoreSnapshot(RegionImpl region) {
+        if (snapshotDirectory == null) {
+            return;
+        }
+        Path file = StorageSnapshot.fileFor(snapshotDirectory, region.getRegionName());
+        CompletableFuture<StorageSnapshot> pending = pendingSnapshots.remove(file.getFileName().toString());
+        if (pending == null) {
+            return;
+        }
+        try {
+            StorageSnapshot snapshot = pending.join();
+            int restored = region.restore(snapshot);
+            logger.info("Restored {} of {} snapshot entries into region {}", restored, snapshot.size(),
+                region.getRegionName());
+        } catch (CompletionException e) {
+            logger.warn("Discarding cache snapshot {}", file, e.getCause());
+        }
+    }
+    
+    private void writeSnapshots() {
+        if (snapshotDirectory == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(snapshotDirectory);
+        } catch (IOException e) {
+            logger.warn("Cannot create cache snapshot directory {}", snapshotDirectory, e);
+            return;
+        }
+        for (RegionImpl region : storageRegions.values()) {
+            Path file = StorageSnapshot.fileFor(snapshotDirectory, region.getRegionName());
+            try {
+                int written = region.writeSnapshot(file);
+                logger.info("Wrote {} entries of region {} to {}", written, region.getRegionName(), file);
+            } catch (IOException e) {
+                logger.warn("Failed to snapshot region: {}", region.getRegionName(), e);
+                deleteSnapshot(file);
+            }
+        }
+    }
+    
+    private void deleteSnapshot(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Cannot delete cache snapshot {}", file, e);
+        }
+    }
+    
+    private void startMaintenance() {
+        long interval = config.getMaintenanceIntervalMillis();
+        long rebalanceInterval = rebalancer != null ? config.getRebalanceIntervalMillis() : 0;
+        if (interval <= 0 && rebalanceInterval <= 0) {
+            return;
+        }
+        maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hibernate-cache-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (interval > 0) {
+            maintenanceExecutor.scheduleWithFixedDelay(this::runMaintenance, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        if (rebalanceInterval > 0) {
+            maintenanceExecutor.scheduleWithFixedDelay(this::rebalance, rebalanceInterval, rebalanceInterval,
+                TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    private void stopMaintenance() {
+        if (maintenanceExecutor != null) {
+            maintenanceExecutor.shutdownNow();
+            maintenanceExecutor = null;
+        }
+    }
+    
+    private void startHeapPressureMonitor() {
+        int percent = config.getHeapPressurePercent();
+        if (percent <= 0) {
+            return;
+        }
+        heapPressureMonitor = new HeapPressureMonitor(percent, this::scaleCapacity);
+        heapPressureMonitor.start();
+    }
+    
+    private void stopHeapPressureMonitor() {
+        if (heapPressureMonitor != null) {
+            heapPressureMonitor.stop();
+            heapPressureMonitor = null;
+        }
+    }
+    
+    /**
+     * Applies a heap pressure capacity scale to every region except the
+     * timestamps regions, for the same reason they stay out of the budget.
+     */
+    public void scaleCapacity(double scale) {
+        storageRegions.forEach((regionName, region) -> {
+            if (!timestampsRegions.containsKey(regionName)) {
+                region.scaleCapacity(scale);
+            }
+        });
+    }
+    
+    /**
+     * Reclaims expired entries and replays deferred work in every region, and
+     * lets regions grow back once heap pressure has subsided.
+     */
+    public void runMaintenance() {
+        HeapPressureMonitor monitor = heapPressureMonitor;
+        if (monitor != null) {
+            monitor.check();
+        }
+        for (RegionImpl region : storageRegions.values()) {
+            try {
+                region.cleanUp();
+            } catch (Exception e) {
+                logger.warn("Maintenance failed for region: {}", region.getRegionName(), e);
+            }
+        }
+    }
+
+    /**
+     * Moves budget capacity towards the regions that would gain the most hits
+     * from it. Does nothing when no global budget is configured.
+     */
+    public void rebalance() {
+        CapacityRebalancer current = rebalancer;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.rebalance();
+        } catch (Exception e) {
+            logger.warn("Rebalancing the cache budget failed", e);
+        }
+    }
 
     @Override
     public boolean isMinimalPutsEnabledByDefault() {
@@ -114,13 +348,21 @@ public class CustomRegionFactory implements RegionFactory {
             k -> new MetricsCollector()
         );
 
+        CacheConfiguration regionConfiguration = budgetedConfiguration(regionName);
         RegionImpl entityRegion = new RegionImpl(
             regionName,
-            config.getMaxEntries(),
-            config.getTtlMillis(),
-            metrics
+            regionConfiguration.getMaxEntries(),
+            regionConfiguration.getTtlMillis(),
+            metrics,
+            regionConfiguration,
+            ticker
         );
         
+        joinBudget(entityRegion);
+        applyHeapPressure(entityRegion);
+        restoreSnapshot(entityRegion);
+        storageRegions.put(regionName, entityRegion);
+        
         DomainDataRegionAdapter adapter = new DomainDataRegionAdapter(
             entityRegion, 
             this, 
@@ -137,16 +379,24 @@ public class CustomRegionFactory implements RegionFactory {
             String regionName, 
             SessionFactoryImplementor sessionFactory) {
         
+        CacheConfiguration regionConfiguration = budgetedConfiguration(regionName);
         RegionImpl queryRegion = new RegionImpl(
             regionName,
-            config.getMaxEntries(),
-            config.getTtlMillis(),
+            regionConfiguration.getMaxEntries(),
+            regionConfiguration.getTtlMillis(),
             metricsMap.computeIfAbsent(
                 regionName, 
                 k -> new MetricsCollector()
-            )
+            ),
+            regionConfiguration,
+            ticker
         );
         
+        joinBudget(queryRegion);
+        applyHeapPressure(queryRegion);
+        restoreSnapshot(queryRegion);
+        storageRegions.put(regionName, queryRegion);
+        
         QueryResultsRegionImpl queryResultsRegion = new QueryResultsRegionImpl(
             this, 
             queryRegion
@@ -162,16 +412,22 @@ public class CustomRegionFactory implements RegionFactory {
             String regionName, 
             SessionFactoryImplementor sessionFactory) {
         
+        CacheConfiguration regionConfiguration = resolveConfiguration(regionName);
         RegionImpl timestampsStorage = new RegionImpl(
             regionName,
-            config.getMaxEntries(),
+            regionConfiguration.getMaxEntries(),
             0, // Timestamps don't need TTL
             metricsMap.computeIfAbsent(
                 regionName, 
                 k -> new MetricsCollector()
-            )
+            ),
+            regionConfiguration,
+            ticker
         );
         
+        restoreSnapshot(timestampsStorage);
+        storageRegions.put(regionName, timestampsStorage);
+        
         TimestampsRegionImpl timestampsRegion = new TimestampsRegionImpl(
             this, 
             timestampsStorage
@@ -182,18 +438,65 @@ public class CustomRegionFactory implements RegionFactory {
         return timestampsRegion;
     }
     
+    private CacheConfiguration resolveConfiguration(String regionName) {
+        CacheConfiguration regionConfiguration = config.forRegion(regionName);
+        if (regionConfiguration != config) {
+            logger.info("Region {} uses overridden configuration: {}", regionName, regionConfiguration);
+        }
+        return regionConfiguration;
+    }
+    
+    // Timestamps regions stay out of the budget: evicting a timestamp would make stale query results look current
+    private CacheConfiguration budgetedConfiguration(String regionName) {
+        CacheConfiguration regionConfiguration = resolveConfiguration(regionName);
+        if (rebalancer == null) {
+            return regionConfiguration;
+        }
+        if (!rebalancer.accepts(regionConfiguration)) {
+            logger.warn("Storage of region {} does not weigh its entries, it keeps its configured max_entries "
+                + "outside the byte budget", regionName);
+            return regionConfiguration;
+        }
+        return rebalancer.withInitialShare(regionConfiguration);
+    }
+    
+    private void joinBudget(RegionImpl region) {
+        if (rebalancer != null && rebalancer.accepts(region.getConfiguration())) {
+            rebalancer.register(region);
+        }
+    }
+    
+    // Regions built while the heap is under pressure start out shrunk like the others
+    private void applyHeapPressure(RegionImpl region) {
+        HeapPressureMonitor monitor = heapPressureMonitor;
+        if (monitor != null && monitor.getScale() < 1) {
+            region.scaleCapacity(monitor.getScale());
+        }
+    }
+    
+    private void leaveBudget(String regionName) {
+        if (rebalancer != null) {
+            rebalancer.unregister(regionName);
+        }
+    }
+    
     public void unregisterDomainDataRegion(String regionName) {
+        leaveBudget(regionName);
         domainDataRegions.remove(regionName);
+        storageRegions.remove(regionName);
         metricsMap.remove(regionName);
     }
     
     public void unregisterQueryResultsRegion(String regionName) {
+        leaveBudget(regionName);
         queryResultsRegions.remove(regionName);
+        storageRegions.remove(regionName);
         metricsMap.remove(regionName);
     }
     
     public void unregisterTimestampsRegion(String regionName) {
         timestampsRegions.remove(regionName);
+        storageRegions.remove(regionName);
         metricsMap.remove(regionName);
     }
 
@@ -208,4 +511,25 @@ public class CustomRegionFactory implements RegionFactory {
     public CacheConfiguration getConfiguration() {
         return config;
     }
+    
+    /**
+     * @return the resolved configuration of a live region, or {@code null} when no such region exists
+     */
+    public CacheConfiguration getRegionConfiguration(String regionName) {
+        RegionImpl region = storageRegions.get(regionName);
+        return region != null ? region.getConfiguration() : null;
+    }
+    
+    /**
+     * @return the share of the global budget held by each budgeted region, in
+     *         entries or bytes; empty when no budget is configured
+     */
+    public Map<String, Long> getCapacityAllocations() {
+        CapacityRebalancer current = rebalancer;
+        return current != null ? current.getAllocations() : Collections.emptyMap();
+    }
+    
+    public Ticker getTicker() {
+        return ticker;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,166 @@
+package com.example.cache.factory;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Shrinks the cache before the heap runs out. The old generation pools get a
+ * collection usage threshold, and every threshold or garbage collection
+ * notification triggers a {@link #check} of the occupancy left after the last
+ * collection. Above the threshold, each new collection cuts the capacity scale
+ * applied to the regions by a quarter, down to 1/16; once occupancy falls below
+ * 80% of the threshold, each check grows it back by the same factor.
+ */
+public class HeapPressureMonitor implements NotificationListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(HeapPressureMonitor.class);
+
+    static final double SHRINK_FACTOR = 0.75;
+    static final double MIN_SCALE = 1.0 / 16;
+    // Occupancy, relative to the threshold, below which the regions grow back
+    static final double RECOVERY_RATIO = 0.8;
+
+    private final double threshold;
+    private final DoubleSupplier occupancy;
+    private final LongSupplier collections;
+    private final DoubleConsumer onScaleChange;
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private double scale = 1;
+    // Collection count at the last shrink, so a stale reading never shrinks twice
+    private long shrunkAtCollection = -1;
+
+    /**
+     * @param thresholdPercent old generation occupancy after a collection, in
+     *                         percent of its maximum, above which the cache shrinks
+     * @param onScaleChange    receives the new capacity scale, between 1/16 and 1
+     */
+    public HeapPressureMonitor(int thresholdPercent, DoubleConsumer onScaleChange) {
+        this(thresholdPercent / 100.0, HeapPressureMonitor::oldGenerationOccupancy,
+            HeapPressureMonitor::collectionCount, onScaleChange);
+    }
+
+    HeapPressureMonitor(double threshold, DoubleSupplier occupancy, LongSupplier collections,
+                        DoubleConsumer onScaleChange) {
+        if (threshold <= 0 || threshold > 1) {
+            throw new IllegalArgumentException("threshold must be between 0 and 1");
+        }
+        this.threshold = threshold;
+        this.occupancy = occupancy;
+        this.collections = collections;
+        this.onScaleChange = onScaleChange;
+    }
+
+    /**
+     * Sets the collection usage thresholds and subscribes to memory and garbage collection notifications.
+     */
+    public synchronized void start() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (isOldGeneration(pool)) {
+                pool.setCollectionUsageThreshold((long) (pool.getUsage().getMax() * threshold));
+            }
+        }
+        subscribe(ManagementFactory.getMemoryMXBean());
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            subscribe(collector);
+        }
+    }
+
+    private void subscribe(Object bean) {
+        if (bean instanceof NotificationEmitter) {
+            NotificationEmitter emitter = (NotificationEmitter) bean;
+            emitter.addNotificationListener(this, null, null);
+            emitters.add(emitter);
+        }
+    }
+
+    public synchronized void stop() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(this);
+            } catch (ListenerNotFoundException e) {
+                logger.debug("Heap pressure listener was already removed", e);
+            }
+        }
+        emitters.clear();
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        String type = notification.getType();
+        if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(type)
+                || GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(type)) {
+            check();
+        }
+    }
+
+    /**
+     * Compares the occupancy after the last collection with the threshold and
+     * shrinks or grows the capacity scale by one step.
+     */
+    public synchronized void check() {
+        double used = occupancy.getAsDouble();
+        double next = scale;
+        if (used >= threshold) {
+            long collection = collections.getAsLong();
+            if (collection != shrunkAtCollection) {
+                shrunkAtCollection = collection;
+                next = Math.max(MIN_SCALE, scale * SHRINK_FACTOR);
+            }
+        } else if (used < threshold * RECOVERY_RATIO) {
+            next = Math.min(1, scale / SHRINK_FACTOR);
+        }
+        if (next != scale) {
+            logger.info("Old generation at {}% after collection, scaling cache capacity from {} to {}",
+                Math.round(used * 100), scale, next);
+            scale = next;
+            onScaleChange.accept(next);
+        }
+    }
+
+    public synchronized double getScale() {
+        return scale;
+    }
+
+    // Only the tenured pools support usage thresholds; eden and survivor spaces are expected to fill up
+    private static boolean isOldGeneration(MemoryPoolMXBean pool) {
+        return pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported()
+            && pool.isCollectionUsageThresholdSupported() && pool.getUsage().getMax() > 0;
+    }
+
+    static double oldGenerationOccupancy() {
+        double occupancy = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage usage = isOldGeneration(pool) ? pool.getCollectionUsage() : null;
+            if (usage != null) {
+                occupancy = Math.max(occupancy, (double) usage.getUsed() / usage.getMax());
+            }
+        }
+        return occupancy;
+    }
+
+    static long collectionCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+}
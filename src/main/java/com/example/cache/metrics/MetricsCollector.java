@@ -7,19 +7,70 @@ public class MetricsCollector {
     private final AtomicLong misses = new AtomicLong();
     private final AtomicLong puts = new AtomicLong();
     private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong weightedSize = new AtomicLong();
+    private final AtomicLong reclaimedBytes = new AtomicLong();
+    private final AtomicLong demotions = new AtomicLong();
+    private final AtomicLong promotions = new AtomicLong();
+    private final AtomicLong coalescedLoads = new AtomicLong();
+    private final AtomicLong earlyRefreshes = new AtomicLong();
+    private final AtomicLong ghostHits = new AtomicLong();
+    private final AtomicLong capacity = new AtomicLong();
+    private final AtomicLong capacityGrants = new AtomicLong();
+    private final AtomicLong capacityRevocations = new AtomicLong();
+    private final AtomicLong pressureShrinks = new AtomicLong();
+    private final AtomicLong pressureGrowths = new AtomicLong();
+    private final AtomicLong softLocksReaped = new AtomicLong();
+    private final AtomicLong softLockOverflows = new AtomicLong();
 
     public void hit() { hits.incrementAndGet(); }
     public void miss() { misses.incrementAndGet(); }
     public void put() { puts.incrementAndGet(); }
     public void evict() { evictions.incrementAndGet(); }
+    public void expire() { expirations.incrementAndGet(); }
+    public void addWeight(long delta) { weightedSize.addAndGet(delta); }
+    public void reclaim(long bytes) { reclaimedBytes.addAndGet(bytes); }
+    public void demote() { demotions.incrementAndGet(); }
+    public void promote() { promotions.incrementAndGet(); }
+    public void coalesceLoad() { coalescedLoads.incrementAndGet(); }
+    public void earlyRefresh() { earlyRefreshes.incrementAndGet(); }
+    public void ghostHit() { ghostHits.incrementAndGet(); }
+    public void setCapacity(long allocated) { capacity.set(allocated); }
+    public void grantCapacity() { capacityGrants.incrementAndGet(); }
+    public void revokeCapacity() { capacityRevocations.incrementAndGet(); }
+    public void pressureShrink() { pressureShrinks.incrementAndGet(); }
+    public void pressureGrowth() { pressureGrowths.incrementAndGet(); }
+    public void reapSoftLock() { softLocksReaped.incrementAndGet(); }
+    public void overflowSoftLock() { softLockOverflows.incrementAndGet(); }
 
     public long getHits() { return hits.get(); }
     public long getMisses() { return misses.get(); }
     public long getPuts() { return puts.get(); }
     public long getEvictions() { return evictions.get(); }
+    public long getExpirations() { return expirations.get(); }
+    public long getWeightedSize() { return weightedSize.get(); }
+    public long getReclaimedBytes() { return reclaimedBytes.get(); }
+    public long getDemotions() { return demotions.get(); }
+    public long getPromotions() { return promotions.get(); }
+    public long getCoalescedLoads() { return coalescedLoads.get(); }
+    public long getEarlyRefreshes() { return earlyRefreshes.get(); }
+    public long getGhostHits() { return ghostHits.get(); }
+    // Share of the global budget allocated to the region, 0 when it has none
+    public long getCapacity() { return capacity.get(); }
+    public long getCapacityGrants() { return capacityGrants.get(); }
+    public long getCapacityRevocations() { return capacityRevocations.get(); }
+    public long getPressureShrinks() { return pressureShrinks.get(); }
+    public long getPressureGrowths() { return pressureGrowths.get(); }
+    // Soft locks whose transaction never released them, reclaimed after the lock timeout
+    public long getSoftLocksReaped() { return softLocksReaped.get(); }
+    // Soft locks handed out untracked because the lock table was full
+    public long getSoftLockOverflows() { return softLockOverflows.get(); }
 
     public String summary() {
-        return String.format("hits=%d misses=%d puts=%d evictions=%d",
-                getHits(), getMisses(), getPuts(), getEvictions());
+        return String.format("hits=%d misses=%d puts=%d evictions=%d expirations=%d weightedSize=%d reclaimedBytes=%d demotions=%d promotions=%d coalescedLoads=%d earlyRefreshes=%d ghostHits=%d capacity=%d capacityGrants=%d capacityRevocations=%d pressureShrinks=%d pressureGrowths=%d softLocksReaped=%d softLockOverflows=%d",
+                getHits(), getMisses(), getPuts(), getEvictions(), getExpirations(), getWeightedSize(),
+                getReclaimedBytes(), getDemotions(), getPromotions(), getCoalescedLoads(), getEarlyRefreshes(),
+                getGhostHits(), getCapacity(), getCapacityGrants(), getCapacityRevocations(),
+                getPressureShrinks(), getPressureGrowths(), getSoftLocksReaped(), getSoftLockOverflows());
     }
 }
@@ -19,6 +19,7 @@ import com.example.cache.access.naturalid.NoStrictNaturalIdDataAccess;
 import com.example.cache.access.naturalid.ReadOnlyNaturalIdDataAccess;
 import com.example.cache.access.naturalid.ReadWriteNaturalIdDataAccess;
 import com.example.cache.factory.CustomRegionFactory;
+import com.example.cache.utils.KeyTypeRegistry;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -42,6 +43,23 @@ public class DomainDataRegionAdapter implements DomainDataRegion {
         this.regionFactory = regionFactory;
         this.regionName = entityRegion.getRegionName();
         this.regionConfig = regionConfig;
+        registerKeyTypes();
+    }
+
+    // Assigns the key type ids of everything cached here up front, so key construction never has to
+    private void registerKeyTypes() {
+        if (regionConfig == null) {
+            return;
+        }
+        for (var entityConfig : regionConfig.getEntityCaching()) {
+            KeyTypeRegistry.register(entityConfig.getNavigableRole().getFullPath());
+        }
+        for (var naturalIdConfig : regionConfig.getNaturalIdCaching()) {
+            KeyTypeRegistry.register(naturalIdConfig.getNavigableRole().getFullPath());
+        }
+        for (var collectionConfig : regionConfig.getCollectionCaching()) {
+            KeyTypeRegistry.register(collectionConfig.getNavigableRole().getFullPath());
+        }
     }
 
     @Override
@@ -156,6 +174,7 @@ public class DomainDataRegionAdapter implements DomainDataRegion {
 
             if (entityRegion != null) {
                 entityRegion.evictAll();
+                entityRegion.close();
             }
             
             entityAccessMap.clear();
@@ -0,0 +1,261 @@
+package com.example.cache.region;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.example.cache.access.entities.EntityCacheKey;
+import com.example.cache.metrics.MetricsCollector;
+import com.example.cache.storage.CacheStorage;
+import com.example.cache.storage.LongKeyedCache;
+import com.example.cache.utils.Ticker;
+
+/**
+ * Sends entity keys with a {@code Long} or {@code Integer} identifier and no
+ * tenant to a {@link LongKeyedCache} per entity name, so the entity strategies
+ * look them up by primitive id without a map node per entry. Every other key
+ * goes to the region's storage engine. The tables and the engine share the
+ * region's {@code maxEntries}: the engine bounds itself, and when a write
+ * leaves the region over capacity the table written to gives way, or the
+ * largest table when the write went to the engine. Table entries are not
+ * weighed, so a byte bound only covers the engine's entries.
+ */
+final class LongIdRoutingCache implements CacheStorage<Object, Object> {
+
+    private final CacheStorage<Object, Object> delegate;
+    private final ConcurrentHashMap<String, IdTable> tables = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final MetricsCollector metrics;
+    private final Ticker ticker;
+    private volatile int maxEntries;
+
+    private static final class IdTable {
+        final LongKeyedCache<Object> cache;
+        // Whether the entity's identifiers are Integers, to rebuild its keys in snapshots
+        final boolean integerIds;
+
+        IdTable(LongKeyedCache<Object> cache, boolean integerIds) {
+            this.cache = cache;
+            this.integerIds = integerIds;
+        }
+    }
+
+    LongIdRoutingCache(CacheStorage<Object, Object> delegate, int maxEntries, long ttlMillis,
+                       MetricsCollector metrics, Ticker ticker) {
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.metrics = metrics;
+        this.ticker = ticker;
+    }
+
+    // Null when the key is not an entity key with an integral identifier
+    private static EntityCacheKey routed(Object key) {
+        if (key instanceof EntityCacheKey) {
+            EntityCacheKey entityKey = (EntityCacheKey) key;
+            Object id = entityKey.getId();
+            if (entityKey.getTenantId() == null && (id instanceof Long || id instanceof Integer)) {
+                return entityKey;
+            }
+        }
+        return null;
+    }
+
+    private IdTable tableFor(EntityCacheKey key) {
+        IdTable table = tables.get(key.getEntityName());
+        if (table != null) {
+            return table;
+        }
+        return tables.computeIfAbsent(key.getEntityName(), name -> new IdTable(
+            new LongKeyedCache<>(maxEntries, ttlMillis, metrics, ticker), key.getId() instanceof Integer));
+    }
+
+    // Evicts table entries until the region fits its capacity again
+    private void trim(IdTable written) {
+        for (int excess = size() - maxEntries; excess > 0; excess--) {
+            if (written != null && written.cache.evictOne()) {
+                continue;
+            }
+            IdTable largest = largestTable();
+            if (largest == null || !largest.cache.evictOne()) {
+                return;
+            }
+        }
+    }
+
+    private IdTable largestTable() {
+        IdTable largest = null;
+        int largestSize = 0;
+        for (IdTable table : tables.values()) {
+            int size = table.cache.size();
+            if (size > largestSize) {
+                largest = table;
+                largestSize = size;
+            }
+        }
+        return largest;
+    }
+
+    private static long idOf(EntityCacheKey key) {
+        return ((Number) key.getId()).longValue();
+    }
+
+    @Override
+    public Object get(Object key) {
+        EntityCacheKey entityKey = routed(key);
+        return entityKey != null ? tableFor(entityKey).cache.get(idOf(entityKey)) : delegate.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        EntityCacheKey entityKey = routed(key);
+        return entityKey != null ? tableFor(entityKey).cache.containsKey(idOf(entityKey)) : delegate.containsKey(key);
+    }
+
+    @Override
+    public Object peek(Object key) {
+        EntityCacheKey entityKey = routed(key);
+        return entityKey != null ? tableFor(entityKey).cache.peek(idOf(entityKey)) : delegate.peek(key);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        EntityCacheKey entityKey = routed(key);
+        if (entityKey != null) {
+            IdTable table = tableFor(entityKey);
+            table.cache.put(idOf(entityKey), value);
+            trim(table);
+        } else {
+            delegate.put(key, value);
+            trim(null);
+        }
+    }
+
+    /**
+     * Splits the batch between the engine and the entity tables, so each of them is locked once.
+     */
+    @Override
+    public Map<Object, Object> getAll(Collection<? extends Object> keys) {
+        List<Object> others = new ArrayList<>();
+        Map<IdTable, Map<Long, EntityCacheKey>> byTable = new HashMap<>();
+        for (Object key : keys) {
+            EntityCacheKey entityKey = routed(key);
+            if (entityKey != null) {
+                byTable.computeIfAbsent(tableFor(entityKey), table -> new HashMap<>()).put(idOf(entityKey), entityKey);
+            } else {
+                others.add(key);
+            }
+        }
+        Map<Object, Object> found = others.isEmpty() ? new HashMap<>() : delegate.getAll(others);
+        byTable.forEach((table, ids) -> table.cache.getAll(ids.keySet())
+            .forEach((id, value) -> found.put(ids.get(id), value)));
+        return found;
+    }
+
+    @Override
+    public void putAll(Map<? extends Object, ? extends Object> entries) {
+        Map<Object, Object> others = new HashMap<>();
+        Map<IdTable, Map<Long, Object>> byTable = new HashMap<>();
+        entries.forEach((key, value) -> {
+            EntityCacheKey entityKey = routed(key);
+            if (entityKey != null) {
+                byTable.computeIfAbsent(tableFor(entityKey), table -> new HashMap<>()).put(idOf(entityKey), value);
+            } else {
+                others.put(key, value);
+            }
+        });
+        if (!others.isEmpty()) {
+            delegate.putAll(others);
+        }
+        byTable.forEach((table, values) -> table.cache.putAll(values));
+        trim(byTable.size() == 1 ? byTable.keySet().iterator().next() : null);
+    }
+
+    @Override
+    public void remove(Object key) {
+        EntityCacheKey entityKey = routed(key);
+        if (entityKey != null) {
+            tableFor(entityKey).cache.remove(idOf(entityKey));
+        } else {
+            delegate.remove(key);
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = delegate.size();
+        for (IdTable table : tables.values()) {
+            size += table.cache.size();
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        for (IdTable table : tables.values()) {
+            table.cache.clear();
+        }
+    }
+
+    @Override
+    public void cleanUp() {
+        delegate.cleanUp();
+        for (IdTable table : tables.values()) {
+            table.cache.cleanUp();
+        }
+    }
+
+    /**
+     * The engine's weighted size only; table entries are not weighed.
+     */
+    @Override
+    public long weightedSize() {
+        return delegate.weightedSize();
+    }
+
+    /**
+     * Resizes the entity tables along with the region's engine, as long as the
+     * engine can be resized, then trims the tables to the shared capacity.
+     */
+    @Override
+    public boolean resize(int maxEntries, long maxWeight) {
+        if (!delegate.resize(maxEntries, maxWeight)) {
+            return false;
+        }
+        this.maxEntries = maxEntries;
+        for (IdTable table : tables.values()) {
+            table.cache.resize(maxEntries, 0);
+        }
+        trim(null);
+        return true;
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public void snapshot(EntryVisitor<Object, Object> visitor) {
+        delegate.snapshot(visitor);
+        tables.forEach((entityName, table) -> table.cache.snapshot((id, value, lastAccess) -> {
+            Object key = table.integerIds ? (Object) id.intValue() : id;
+            visitor.visit(new EntityCacheKey(key, entityName, null), value, lastAccess);
+        }));
+    }
+
+    @Override
+    public boolean restore(Object key, Object value, long lastAccess) {
+        EntityCacheKey entityKey = routed(key);
+        IdTable table = entityKey != null ? tableFor(entityKey) : null;
+        boolean restored = table != null
+            ? table.cache.restore(idOf(entityKey), value, lastAccess)
+            : delegate.restore(key, value, lastAccess);
+        trim(table);
+        return restored;
+    }
+}
@@ -55,6 +55,7 @@ public class QueryResultsRegionImpl implements QueryResultsRegion {
     try {
       if (queryRegion != null) {
         queryRegion.evictAll();
+        queryRegion.close();
       }
       
       if (regionFactory != null) {
@@ -1,23 +1,108 @@
 package com.example.cache.region;
 
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import com.example.cache.access.ReadWriteEntry;
+import com.example.cache.config.CacheConfiguration;
 import com.example.cache.metrics.MetricsCollector;
-import com.example.cache.storage.InMemoryLRUCache;
+import com.example.cache.storage.CacheStorage;
+import com.example.cache.storage.CacheStorageFactory;
+import com.example.cache.storage.StorageSnapshot;
+import com.example.cache.utils.Ticker;
 public class RegionImpl {
+    // Entries evicted per engine lock acquisition when the capacity shrinks
+    private static final int EVICTION_BATCH = 1024;
+    // Locks serializing update() calls, chosen by key hash; a power of two
+    private static final int UPDATE_STRIPES = 64;
+
     private final String regionName;
-    private final InMemoryLRUCache<Object, Object> cache;
+    private final CacheStorage<Object, Object> cache;
     private final MetricsCollector metrics;
+    private final Ticker ticker;
+    // Null when the region was built without a configuration
+    private final CacheConfiguration config;
+    // 0 when misses never wait for a concurrent load
+    private final long loadWaitMillis;
+    // Bounds set at construction or through resize, before the heap pressure scale is applied
+    private int maxEntries;
+    private long maxWeight;
+    private double capacityScale = 1;
+    // Bounds last handed to the engine
+    private int appliedEntries;
+    private long appliedWeight;
+    // Loads announced by a cache miss and not yet published through completeLoad
+    private final ConcurrentHashMap<Object, PendingLoad> pendingLoads = new ConcurrentHashMap<>();
+    private final ReentrantLock[] updateStripes = new ReentrantLock[UPDATE_STRIPES];
+    // Work of the access strategies on the region, run by cleanUp
+    private final CopyOnWriteArrayList<Runnable> maintenanceTasks = new CopyOnWriteArrayList<>();
+    // Entries written in an earlier epoch were invalidated by a region unlock of any access strategy
+    private final AtomicLong epoch = new AtomicLong();
+    // When the region was last invalidated; loads by transactions that started before then are stale
+    private volatile long invalidatedAt = Long.MIN_VALUE;
+
+    private static final class PendingLoad {
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        final Thread loader = Thread.currentThread();
+        final long startedAt;
+
+        PendingLoad(long startedAt) {
+            this.startedAt = startedAt;
+        }
+    }
 
     public RegionImpl(String regionName, int maxEntries, long ttlMillis, MetricsCollector metrics) {
+        this(regionName, maxEntries, ttlMillis, metrics, null);
+    }
+
+    public RegionImpl(String regionName, int maxEntries, long ttlMillis, MetricsCollector metrics,
+                      CacheConfiguration config) {
+        this(regionName, maxEntries, ttlMillis, metrics, config, Ticker.system());
+    }
+
+    public RegionImpl(String regionName, int maxEntries, long ttlMillis, MetricsCollector metrics,
+                      CacheConfiguration config, Ticker ticker) {
         if (regionName == null || regionName.trim().isEmpty()) {
             throw new IllegalArgumentException("Region name cannot be null or empty");
         }
         if (metrics == null) {
             throw new IllegalArgumentException("MetricsCollector cannot be null");
         }
+        if (ticker == null) {
+            throw new IllegalArgumentException("Ticker cannot be null");
+        }
         this.regionName = regionName;
         this.metrics = metrics;
-        this.cache = new InMemoryLRUCache<>(maxEntries, ttlMillis, metrics);
+        this.ticker = ticker;
+        this.config = config;
+        this.loadWaitMillis = config != null ? config.getLoadWaitMillis() : 0;
+        CacheStorage<Object, Object> storage = CacheStorageFactory.create(config, regionName, maxEntries, ttlMillis,
+            metrics, ticker);
+        this.cache = config != null && config.isLongIdStorage()
+            ? new LongIdRoutingCache(storage, maxEntries, ttlMillis, metrics, ticker)
+            : storage;
+        this.maxEntries = maxEntries;
+        this.maxWeight = config != null ? config.getMaxBytes() : 0;
+        this.appliedEntries = maxEntries;
+        this.appliedWeight = maxWeight;
+        for (int i = 0; i < UPDATE_STRIPES; i++) {
+            updateStripes[i] = new ReentrantLock();
+        }
     }
 
     public Object get(Object key) {
@@ -28,12 +113,347 @@ public class RegionImpl {
         cache.put(key, value);
     }
 
+    /**
+     * Checks for a live entry without affecting recency or the hit and miss
+     * counts, for minimal puts and {@code contains}; see {@link CacheStorage#containsKey}.
+     */
+    public boolean contains(Object key) {
+        return cache.containsKey(key);
+    }
+
+    /**
+     * Returns the cached value like {@link #get}, but without counting a hit or
+     * a miss or refreshing the entry; see {@link CacheStorage#peek}.
+     */
+    public Object peek(Object key) {
+        return cache.peek(key);
+    }
+
+    /**
+     * Replaces the value cached for {@code key} with {@code update} applied to
+     * it, or removes it when {@code update} returns {@code null}. Updates of the
+     * same key run one at a time; plain puts and evictions are not held back.
+     *
+     * @return the value now cached
+     */
+    public Object update(Object key, UnaryOperator<Object> update) {
+        ReentrantLock stripe = updateStripes[stripeOf(key)];
+        stripe.lock();
+        try {
+            Object current = cache.peek(key);
+            Object next = update.apply(current);
+            if (next == null) {
+                if (current != null) {
+                    cache.remove(key);
+                }
+            } else if (next != current) {
+                cache.put(key, next);
+            }
+            return next;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Batch form of {@link #update}: {@code update} gets each key with its
+     * current value. The changed values are cached with one {@link #putAll}.
+     *
+     * @return the values now cached by key; removed keys are absent
+     */
+    public Map<Object, Object> updateAll(Collection<?> keys, BiFunction<Object, Object, Object> update) {
+        boolean[] stripes = new boolean[UPDATE_STRIPES];
+        for (Object key : keys) {
+            stripes[stripeOf(key)] = true;
+        }
+        // Ascending stripe order, so two batches cannot deadlock
+        for (int i = 0; i < UPDATE_STRIPES; i++) {
+            if (stripes[i]) {
+                updateStripes[i].lock();
+            }
+        }
+        try {
+            Map<Object, Object> cached = new HashMap<>();
+            Map<Object, Object> changed = new HashMap<>();
+            for (Object key : keys) {
+                Object current = cache.peek(key);
+                Object next = update.apply(key, current);
+                if (next == null) {
+                    if (current != null) {
+                        cache.remove(key);
+                    }
+                } else {
+                    if (next != current) {
+                        changed.put(key, next);
+                    }
+                    cached.put(key, next);
+                }
+            }
+            cache.putAll(changed);
+            return cached;
+        } finally {
+            for (int i = 0; i < UPDATE_STRIPES; i++) {
+                if (stripes[i]) {
+                    updateStripes[i].unlock();
+                }
+            }
+        }
+    }
+
+    private static int stripeOf(Object key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (UPDATE_STRIPES - 1);
+    }
+
+    /**
+     * Looks up a batch of keys, such as the ids of a batch fetch, taking each
+     * lock of the storage engine once; see {@link CacheStorage#getAll}.
+     *
+     * @return the cached values by key; keys that missed are absent
+     */
+    public Map<Object, Object> getAll(Collection<?> keys) {
+        return cache.getAll(keys);
+    }
+
+    /**
+     * Caches a batch of entries, taking each lock of the storage engine once.
+     */
+    public void putAll(Map<?, ?> entries) {
+        cache.putAll(entries);
+    }
+
+    /**
+     * Returns the cached value, or calls {@code loader} and caches its non-null
+     * result. With {@code hibernate.cache.load_wait_millis} set, concurrent
+     * misses on a key coalesce like those of the access strategies: the first
+     * caller runs the loader and the others wait for its result in
+     * {@link #awaitLoad}. A result whose key was evicted during the load is
+     * returned but not cached.
+     */
+    public Object computeIfAbsent(Object key, Function<Object, Object> loader) {
+        Object value = cache.get(key);
+        if (value == null) {
+            value = awaitLoad(key);
+        }
+        if (value != null) {
+            return value;
+        }
+        // Registered by awaitLoad unless waiting is disabled; evict and evictAll unregister it
+        PendingLoad mine = pendingLoads.get(key);
+        if (mine != null && mine.loader != Thread.currentThread()) {
+            mine = null;
+        }
+        try {
+            value = loader.apply(key);
+            if (value != null && (loadWaitMillis <= 0 || pendingLoads.get(key) == mine)) {
+                cache.put(key, value);
+            }
+            return value;
+        } finally {
+            // Waiters of a failed load see a miss and fall back to loading themselves
+            if (mine != null && pendingLoads.remove(key, mine)) {
+                mine.result.complete(value);
+            }
+        }
+    }
+
+    /**
+     * Called by an access strategy after a cache miss. When another session is
+     * already loading the key, waits up to {@code hibernate.cache.load_wait_millis}
+     * for the value it publishes; otherwise registers the caller as the loader.
+     *
+     * @return the value loaded concurrently, or {@code null} when the caller has to load it
+     */
+    public Object awaitLoad(Object key) {
+        if (loadWaitMillis <= 0) {
+            return null;
+        }
+        long now = ticker.read();
+        PendingLoad mine = new PendingLoad(now);
+        PendingLoad pending = pendingLoads.putIfAbsent(key, mine);
+        if (pending == null) {
+            return null;
+        }
+        long remaining = Math.min(loadWaitMillis, loadWaitMillis - (now - pending.startedAt));
+        if (remaining <= 0 || pending.loader == mine.loader) {
+            // The loader never published (e.g. the row does not exist) or is missing again itself; take over
+            pendingLoads.replace(key, pending, mine);
+            return null;
+        }
+        metrics.coalesceLoad();
+        try {
+            return pending.result.get(remaining, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Publishes the outcome of a load to the sessions waiting in {@link #awaitLoad};
+     * {@code null} sends them to the database.
+     */
+    public void completeLoad(Object key, Object value) {
+        PendingLoad pending = pendingLoads.remove(key);
+        if (pending != null) {
+            pending.result.complete(value);
+        }
+    }
+
     public void evict(Object key) {
         cache.remove(key);
+        completeLoad(key, null);
     }
 
     public void evictAll() {
         cache.clear();
+        for (Object key : pendingLoads.keySet()) {
+            completeLoad(key, null);
+        }
+    }
+
+    /**
+     * The number of invalidations of the region so far. The access strategies
+     * sharing the region tag their entries with it and treat entries of an
+     * earlier epoch as absent.
+     */
+    public long getEpoch() {
+        return epoch.get();
+    }
+
+    /**
+     * The timestamp of the last {@link #invalidate}, or {@link Long#MIN_VALUE}.
+     */
+    public long getInvalidatedAt() {
+        return invalidatedAt;
+    }
+
+    /**
+     * Invalidates every entry of the region in constant time by moving to a new
+     * epoch; the entries themselves are reclaimed lazily.
+     *
+     * @param timestamp loads by transactions that started at or before it are stale
+     */
+    public void invalidate(long timestamp) {
+        invalidatedAt = timestamp;
+        epoch.incrementAndGet();
+    }
+
+    /**
+     * Runs {@code task} on every {@link #cleanUp}, i.e. on the region factory's
+     * maintenance thread.
+     */
+    public void addMaintenanceTask(Runnable task) {
+        maintenanceTasks.add(task);
+    }
+
+    public void cleanUp() {
+        cache.cleanUp();
+        if (!pendingLoads.isEmpty()) {
+            long now = ticker.read();
+            pendingLoads.forEach((key, pending) -> {
+                if (now - pending.startedAt > loadWaitMillis && pendingLoads.remove(key, pending)) {
+                    pending.result.complete(null);
+                }
+            });
+        }
+        for (Runnable task : maintenanceTasks) {
+            task.run();
+        }
+    }
+
+    /**
+     * Changes the capacity of the storage engine; see {@link CacheStorage#resize}.
+     * The current heap pressure scale still applies to the new bounds.
+     *
+     * @return {@code false} when the engine cannot be resized
+     */
+    public synchronized boolean resize(int maxEntries, long maxWeight) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        return applyCapacity();
+    }
+
+    /**
+     * Scales the region's bounds by {@code scale} (at most 1) while the heap is
+     * under pressure. Shrinking evicts in batches, releasing the engine's lock
+     * between them.
+     *
+     * @return {@code false} when the engine cannot be resized
+     */
+    public synchronized boolean scaleCapacity(double scale) {
+        double previous = capacityScale;
+        capacityScale = Math.min(1, scale);
+        if (!applyCapacity()) {
+            capacityScale = previous;
+            return false;
+        }
+        if (capacityScale < previous) {
+            metrics.pressureShrink();
+        } else if (capacityScale > previous) {
+            metrics.pressureGrowth();
+        }
+        return true;
+    }
+
+    private boolean applyCapacity() {
+        int targetEntries = Math.max(1, (int) (maxEntries * capacityScale));
+        long targetWeight = maxWeight > 0 ? Math.max(1, (long) (maxWeight * capacityScale)) : 0;
+        int size = cache.size();
+        int fromEntries = Math.min(size, appliedEntries);
+        long fromWeight = Math.min(cache.weightedSize(), appliedWeight);
+        long evictions = Math.max(fromEntries - targetEntries,
+            fromWeight > targetWeight && targetWeight > 0 ? (long) (size * (1 - (double) targetWeight / fromWeight)) : 0);
+        long batches = (evictions + EVICTION_BATCH - 1) / EVICTION_BATCH;
+        for (long batch = 1; batch < batches; batch++) {
+            int entries = (int) (fromEntries + (long) (targetEntries - fromEntries) * batch / batches);
+            long weight = targetWeight > 0 ? fromWeight + (targetWeight - fromWeight) * batch / batches : 0;
+            if (!cache.resize(Math.max(1, entries), weight)) {
+                return false;
+            }
+        }
+        if (!cache.resize(targetEntries, targetWeight)) {
+            return false;
+        }
+        appliedEntries = targetEntries;
+        appliedWeight = targetWeight;
+        return true;
+    }
+
+    /**
+     * Writes the region's entries to {@code file}. Soft locks are left out: the
+     * transactions holding them end with this run, so a restored lock would
+     * only block the key until it times out.
+     *
+     * @return the number of entries written
+     */
+    public int writeSnapshot(Path file) throws IOException {
+        return StorageSnapshot.write(cache, file, ticker, epoch.get(), invalidatedAt,
+            value -> !(value instanceof ReadWriteEntry.Lock));
+    }
+
+    /**
+     * Restores the entries and the invalidation state they were written under.
+     * The region carries on from the snapshot's epoch, so entries invalidated
+     * before the snapshot stay invalid; a region already invalidated in this
+     * run moves past it instead, so every restored entry is invalid.
+     *
+     * @return the number of snapshot entries that were still live and not yet cached
+     */
+    public int restore(StorageSnapshot snapshot) {
+        epoch.accumulateAndGet(snapshot.getEpoch(),
+            (current, restored) -> current == 0 ? restored : Math.max(current, restored) + 1);
+        invalidatedAt = Math.max(invalidatedAt, snapshot.getInvalidatedAt());
+        return snapshot.restoreInto(cache);
+    }
+
+    /**
+     * Releases the files and memory held by the storage engine. Called when the region is destroyed.
+     */
+    public void close() {
+        cache.close();
     }
 
     public String getRegionName() {
@@ -43,8 +463,27 @@ public class RegionImpl {
     public MetricsCollector getMetrics() {
         return metrics;
     }
+
+    public Ticker getTicker() {
+        return ticker;
+    }
+
+    /**
+     * @return the configuration the region was built with, including its overrides
+     */
+    public CacheConfiguration getConfiguration() {
+        return config;
+    }
     
     public int size() {
         return cache.size();
     }
+
+    public synchronized double getCapacityScale() {
+        return capacityScale;
+    }
+
+    public long getWeightedSize() {
+        return cache.weightedSize();
+    }
 }
\ No newline at end of file
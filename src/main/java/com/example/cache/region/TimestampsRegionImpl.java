@@ -55,6 +55,7 @@ public class TimestampsRegionImpl implements TimestampsRegion {
 
       if (timestampsRegion != null) {
         timestampsRegion.evictAll();
+        timestampsRegion.close();
       }
       
       if (regionFactory != null) {
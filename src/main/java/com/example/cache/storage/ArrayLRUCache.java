@@ -0,0 +1,501 @@
+package com.example.cache.storage;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.cache.metrics.MetricsCollector;
+import com.example.cache.utils.Ticker;
+
+/**
+ * LRU storage without a map node or list node per entry. Entries live in
+ * parallel arrays indexed by slot: key, value, cached hash, access time, and
+ * the {@code int} links of the recency list. An open-addressing table of slot
+ * numbers, kept at most half full, maps keys to slots; removals shift the
+ * following table cells back instead of leaving tombstones. An entry costs
+ * about 40 bytes of metadata instead of the hundred or so that
+ * {@link InMemoryLRUCache} spends on its map node and list node, and the
+ * collector marks a handful of arrays instead of two objects per entry.
+ * <p>
+ * The arrays grow by doubling up to {@code maxEntries} slots. Entries expire
+ * {@code ttlMillis} after their last access; since every access moves the
+ * entry to the head, the tail is always the least recently accessed entry and
+ * expiration reclaims from the tail without a timer wheel.
+ */
+public class ArrayLRUCache<K, V> implements CacheStorage<K, V> {
+  private static final Logger logger = LoggerFactory.getLogger(ArrayLRUCache.class);
+
+  private static final int INITIAL_CAPACITY = 16;
+  private static final int NIL = -1;
+  // Share of the entries remembered in the ghost list after eviction
+  private static final int GHOST_DIVISOR = 8;
+
+  private final long ttlMillis;
+  private final MetricsCollector metrics;
+  private final Ticker ticker;
+  private final ReentrantLock lock = new ReentrantLock();
+  private int maxEntries;
+
+  // Slot + 1 of the entry for each cell, 0 when the cell is empty
+  private int[] index;
+  private int indexShift;
+  private Object[] keys;
+  private Object[] values;
+  private int[] hashes;
+  private long[] accessTimes;
+  // Recency links, towards the head (prev) and the tail (next); next also chains the free slots
+  private int[] prev;
+  private int[] next;
+  private int head = NIL;
+  private int tail = NIL;
+  private int freeSlot = NIL;
+  // Slots below this have been handed out at least once
+  private int used;
+  private volatile int size;
+  // Hashes of recently evicted keys, oldest first; null until the cache is first resized
+  private LinkedHashSet<Integer> ghost;
+
+  public ArrayLRUCache(int maxEntries, long ttlMillis, MetricsCollector metrics) {
+    this(maxEntries, ttlMillis, metrics, Ticker.system());
+  }
+
+  public ArrayLRUCache(int maxEntries, long ttlMillis, MetricsCollector metrics, Ticker ticker) {
+    if (maxEntries <= 0)
+      throw new IllegalArgumentException("maxEntries must be > 0");
+    if (ttlMillis < 0)
+      throw new IllegalArgumentException("ttlMillis must be >= 0");
+    if (ticker == null)
+      throw new IllegalArgumentException("ticker cannot be null");
+    this.maxEntries = maxEntries;
+    this.ttlMillis = ttlMillis;
+    this.metrics = metrics;
+    this.ticker = ticker;
+    allocate(Math.min(maxEntries, INITIAL_CAPACITY));
+    logger.debug("ArrayLRUCache initialized with maxEntries={}, ttlMillis={}", maxEntries, ttlMillis);
+  }
+
+  private void allocate(int capacity) {
+    keys = new Object[capacity];
+    values = new Object[capacity];
+    hashes = new int[capacity];
+    accessTimes = new long[capacity];
+    prev = new int[capacity];
+    next = new int[capacity];
+    allocateIndex(capacity);
+    head = NIL;
+    tail = NIL;
+    freeSlot = NIL;
+    used = 0;
+  }
+
+  private void allocateIndex(int capacity) {
+    int cells = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) * 2;
+    index = new int[cells];
+    indexShift = 32 - Integer.numberOfTrailingZeros(cells);
+  }
+
+  private static int hash(Object key) {
+    return key.hashCode();
+  }
+
+  // Fibonacci hashing spreads keys whose hash codes differ only in the high bits
+  private int home(int hash) {
+    return (hash * 0x9E3779B9) >>> indexShift;
+  }
+
+  // Cell holding the key, or the empty cell where it would go
+  private int probe(Object key, int hash) {
+    int mask = index.length - 1;
+    int cell = home(hash);
+    while (index[cell] != 0) {
+      int slot = index[cell] - 1;
+      if (hashes[slot] == hash && keys[slot].equals(key)) {
+        return cell;
+      }
+      cell = (cell + 1) & mask;
+    }
+    return cell;
+  }
+
+  @Override
+  public V get(K key) {
+    lock.lock();
+    try {
+      return getLocked(key, ttlMillis > 0 ? ticker.read() : 0);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Looks up the whole batch under one acquisition of the lock.
+   */
+  @Override
+  public Map<K, V> getAll(Collection<? extends K> batch) {
+    Map<K, V> found = new HashMap<>();
+    lock.lock();
+    try {
+      long now = ttlMillis > 0 ? ticker.read() : 0;
+      for (K key : batch) {
+        V value = getLocked(key, now);
+        if (value != null) {
+          found.put(key, value);
+        }
+      }
+      return found;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private V getLocked(K key, long now) {
+    int cell = probe(key, hash(key));
+    if (index[cell] == 0) {
+      metrics.miss();
+      return null;
+    }
+    int slot = index[cell] - 1;
+    if (ttlMillis > 0) {
+      if (now - accessTimes[slot] > ttlMillis) {
+        removeAt(cell);
+        metrics.miss();
+        metrics.evict();
+        metrics.expire();
+        return null;
+      }
+      accessTimes[slot] = now;
+    }
+    moveToHead(slot);
+    metrics.hit();
+    @SuppressWarnings("unchecked")
+    V value = (V) values[slot];
+    return value;
+  }
+
+  @Override
+  public boolean containsKey(K key) {
+    int hash = hash(key);
+    lock.lock();
+    try {
+      int cell = probe(key, hash);
+      return index[cell] != 0 && (ttlMillis == 0 || ticker.read() - accessTimes[index[cell] - 1] <= ttlMillis);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public V peek(K key) {
+    int hash = hash(key);
+    lock.lock();
+    try {
+      int cell = probe(key, hash);
+      if (index[cell] == 0) {
+        return null;
+      }
+      int slot = index[cell] - 1;
+      if (ttlMillis > 0 && ticker.read() - accessTimes[slot] > ttlMillis) {
+        return null;
+      }
+      @SuppressWarnings("unchecked")
+      V value = (V) values[slot];
+      return value;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void put(K key, V value) {
+    lock.lock();
+    try {
+      long now = ttlMillis > 0 ? ticker.read() : 0;
+      expireEntries(now);
+      putLocked(key, value, now);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Caches the whole batch under one acquisition of the lock, expiring
+   * entries once for the batch.
+   */
+  @Override
+  public void putAll(Map<? extends K, ? extends V> entries) {
+    lock.lock();
+    try {
+      long now = ttlMillis > 0 ? ticker.read() : 0;
+      expireEntries(now);
+      for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+        putLocked(entry.getKey(), entry.getValue(), now);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void putLocked(K key, V value, long now) {
+    int hash = hash(key);
+    int cell = probe(key, hash);
+    if (index[cell] != 0) {
+      int slot = index[cell] - 1;
+      values[slot] = value;
+      accessTimes[slot] = now;
+      moveToHead(slot);
+    } else {
+      if (ghost != null && ghost.remove(hash)) {
+        metrics.ghostHit();
+      }
+      insert(key, hash, value, now);
+    }
+    metrics.put();
+  }
+
+  private void insert(Object key, int hash, Object value, long accessTime) {
+    while (size >= maxEntries) {
+      evictLRU();
+    }
+    int slot = takeSlot();
+    keys[slot] = key;
+    values[slot] = value;
+    hashes[slot] = hash;
+    accessTimes[slot] = accessTime;
+    // Growing the arrays rehashes the index, so probe only once the slot exists
+    index[probe(key, hash)] = slot + 1;
+    linkHead(slot);
+    size++;
+  }
+
+  private int takeSlot() {
+    if (freeSlot != NIL) {
+      int slot = freeSlot;
+      freeSlot = next[slot];
+      return slot;
+    }
+    if (used == keys.length) {
+      grow(Math.max(keys.length + 1, Math.min(keys.length * 2, maxEntries)));
+    }
+    return used++;
+  }
+
+  private void grow(int capacity) {
+    keys = Arrays.copyOf(keys, capacity);
+    values = Arrays.copyOf(values, capacity);
+    hashes = Arrays.copyOf(hashes, capacity);
+    accessTimes = Arrays.copyOf(accessTimes, capacity);
+    prev = Arrays.copyOf(prev, capacity);
+    next = Arrays.copyOf(next, capacity);
+    if (index.length < capacity * 2) {
+      allocateIndex(capacity);
+      for (int slot = head; slot != NIL; slot = next[slot]) {
+        index[probe(keys[slot], hashes[slot])] = slot + 1;
+      }
+    }
+  }
+
+  @Override
+  public void remove(K key) {
+    int hash = hash(key);
+    lock.lock();
+    try {
+      int cell = probe(key, hash);
+      if (index[cell] != 0) {
+        removeAt(cell);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Frees the entry in the cell, then shifts later cells of the probe run back into the hole
+  private void removeAt(int cell) {
+    int slot = index[cell] - 1;
+    unlink(slot);
+    keys[slot] = null;
+    values[slot] = null;
+    next[slot] = freeSlot;
+    freeSlot = slot;
+    size--;
+
+    int mask = index.length - 1;
+    int hole = cell;
+    int probe = (hole + 1) & mask;
+    while (index[probe] != 0) {
+      int home = home(hashes[index[probe] - 1]);
+      // The entry can fill the hole unless its home lies cyclically in (hole, probe]
+      if (((probe - home) & mask) >= ((probe - hole) & mask)) {
+        index[hole] = index[probe];
+        hole = probe;
+      }
+      probe = (probe + 1) & mask;
+    }
+    index[hole] = 0;
+  }
+
+  private void evictLRU() {
+    int slot = tail;
+    Object key = keys[slot];
+    logger.debug("Evicting LRU entry with key: {}", key);
+    if (ghost != null) {
+      rememberGhost(hashes[slot]);
+    }
+    removeAt(probe(key, hashes[slot]));
+    metrics.evict();
+  }
+
+  // The ghost covers the last 1/GHOST_DIVISOR of the resident entries, so its hits estimate the gain of growing that much
+  private void rememberGhost(int hash) {
+    ghost.add(hash);
+    int capacity = Math.max(1, size / GHOST_DIVISOR);
+    Iterator<Integer> oldest = ghost.iterator();
+    while (ghost.size() > capacity) {
+      oldest.next();
+      oldest.remove();
+    }
+  }
+
+  // The tail is the least recently accessed entry, so expired entries are always found there
+  private void expireEntries(long now) {
+    if (ttlMillis == 0) {
+      return;
+    }
+    while (tail != NIL && now - accessTimes[tail] > ttlMillis) {
+      logger.debug("Expiring entry with key: {}", keys[tail]);
+      removeAt(probe(keys[tail], hashes[tail]));
+      metrics.evict();
+      metrics.expire();
+    }
+  }
+
+  private void linkHead(int slot) {
+    prev[slot] = NIL;
+    next[slot] = head;
+    if (head != NIL) {
+      prev[head] = slot;
+    } else {
+      tail = slot;
+    }
+    head = slot;
+  }
+
+  private void unlink(int slot) {
+    int before = prev[slot];
+    int after = next[slot];
+    if (before != NIL) {
+      next[before] = after;
+    } else {
+      head = after;
+    }
+    if (after != NIL) {
+      prev[after] = before;
+    } else {
+      tail = before;
+    }
+  }
+
+  private void moveToHead(int slot) {
+    if (slot != head) {
+      unlink(slot);
+      linkHead(slot);
+    }
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      allocate(Math.min(maxEntries, INITIAL_CAPACITY));
+      size = 0;
+      if (ghost != null) {
+        ghost.clear();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Reclaims the entries whose TTL has elapsed.
+   */
+  @Override
+  public void cleanUp() {
+    if (ttlMillis == 0) {
+      return;
+    }
+    long now = ticker.read();
+    lock.lock();
+    try {
+      expireEntries(now);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean resize(int maxEntries, long maxWeight) {
+    if (maxEntries <= 0)
+      throw new IllegalArgumentException("maxEntries must be > 0");
+    lock.lock();
+    try {
+      this.maxEntries = maxEntries;
+      if (ghost == null) {
+        ghost = new LinkedHashSet<>();
+      }
+      while (size > maxEntries) {
+        evictLRU();
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void snapshot(EntryVisitor<K, V> visitor) {
+    lock.lock();
+    try {
+      long now = ticker.read();
+      for (int slot = tail; slot != NIL; slot = prev[slot]) {
+        @SuppressWarnings("unchecked")
+        K key = (K) keys[slot];
+        @SuppressWarnings("unchecked")
+        V value = (V) values[slot];
+        visitor.visit(key, value, ttlMillis > 0 ? accessTimes[slot] : now);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean restore(K key, V value, long lastAccess) {
+    int hash = hash(key);
+    lock.lock();
+    try {
+      if (index[probe(key, hash)] != 0) {
+        return false;
+      }
+      long now = ttlMillis > 0 ? ticker.read() : 0;
+      if (ttlMillis > 0 && now - lastAccess > ttlMillis) {
+        return false;
+      }
+      insert(key, hash, value, Math.min(lastAccess, now));
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,170 @@
+package com.example.cache.storage;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.cache.spi.entry.CacheEntry;
+import org.hibernate.cache.spi.entry.CollectionCacheEntry;
+
+/**
+ * Default {@link Weigher} that estimates the retained heap size of the values
+ * Hibernate puts in the second-level cache: disassembled entity state
+ * ({@link CacheEntry}), collection state ({@link CollectionCacheEntry}) and
+ * query result lists. The estimate assumes a 64-bit JVM with compressed
+ * references and does not detect shared objects, so it errs on the large side.
+ */
+public class CacheEntryWeigher implements Weigher<Object, Object> {
+
+  private static final int OBJECT_HEADER = 12;
+  private static final int ARRAY_HEADER = 16;
+  private static final int REFERENCE = 4;
+  // Storage node plus the ConcurrentHashMap entry that points at it
+  private static final int ENTRY_OVERHEAD = 80;
+  private static final int COLLECTION_ELEMENT_OVERHEAD = 16;
+  private static final int MAP_ENTRY_OVERHEAD = 32;
+  private static final int MAX_DEPTH = 6;
+
+  private static final ClassValue<Field[]> INSTANCE_FIELDS = new ClassValue<>() {
+    @Override
+    protected Field[] computeValue(Class<?> type) {
+      List<Field> fields = new ArrayList<>();
+      for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+        for (Field field : c.getDeclaredFields()) {
+          if (!Modifier.isStatic(field.getModifiers())) {
+            fields.add(field);
+          }
+        }
+      }
+      try {
+        for (Field field : fields) {
+          field.setAccessible(true);
+        }
+      } catch (RuntimeException e) {
+        return null;
+      }
+      return fields.toArray(new Field[0]);
+    }
+  };
+
+  @Override
+  public int weigh(Object key, Object value) {
+    long bytes = ENTRY_OVERHEAD + estimate(key, 0) + estimate(value, 0);
+    return (int) Math.min(Integer.MAX_VALUE, bytes);
+  }
+
+  long estimate(Object o, int depth) {
+    if (o == null || o instanceof Enum || o instanceof Class) {
+      return 0;
+    }
+    if (depth > MAX_DEPTH) {
+      return align(OBJECT_HEADER);
+    }
+    if (o instanceof CacheEntry) {
+      CacheEntry entry = (CacheEntry) o;
+      // subclass name is interned by the persister and shared by every entry
+      return align(OBJECT_HEADER + 4 * REFERENCE + 1)
+          + estimate(entry.getVersion(), depth + 1)
+          + estimate(entry.getDisassembledState(), depth + 1);
+    }
+    if (o instanceof CollectionCacheEntry) {
+      return align(OBJECT_HEADER + REFERENCE) + estimate(((CollectionCacheEntry) o).getState(), depth + 1);
+    }
+    if (o instanceof String) {
+      // Compact strings: one byte per Latin-1 character
+      return align(OBJECT_HEADER + 12) + align(ARRAY_HEADER + ((String) o).length());
+    }
+    if (o instanceof Long || o instanceof Double) {
+      return 24;
+    }
+    if (o instanceof Number || o instanceof Boolean || o instanceof Character) {
+      if (o instanceof BigDecimal || o instanceof BigInteger) {
+        return 64;
+      }
+      return 16;
+    }
+    if (o instanceof Object[]) {
+      Object[] array = (Object[]) o;
+      long bytes = align(ARRAY_HEADER + (long) REFERENCE * array.length);
+      for (Object element : array) {
+        bytes += estimate(element, depth + 1);
+      }
+      return bytes;
+    }
+    if (o.getClass().isArray()) {
+      return primitiveArraySize(o);
+    }
+    if (o instanceof Collection) {
+      Collection<?> collection = (Collection<?>) o;
+      long bytes = align(OBJECT_HEADER + 4 * REFERENCE) + (long) COLLECTION_ELEMENT_OVERHEAD * collection.size();
+      for (Object element : collection) {
+        bytes += estimate(element, depth + 1);
+      }
+      return bytes;
+    }
+    if (o instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) o;
+      long bytes = align(OBJECT_HEADER + 6 * REFERENCE) + (long) MAP_ENTRY_OVERHEAD * map.size();
+      for (Map.Entry<?, ?> e : map.entrySet()) {
+        bytes += estimate(e.getKey(), depth + 1) + estimate(e.getValue(), depth + 1);
+      }
+      return bytes;
+    }
+    return reflectiveSize(o, depth);
+  }
+
+  // Query result holders, cache keys and embeddables are walked field by field
+  private long reflectiveSize(Object o, int depth) {
+    Class<?> type = o.getClass();
+    Field[] fields = type.getName().startsWith("java.") ? null : INSTANCE_FIELDS.get(type);
+    if (fields == null) {
+      // JDK value types (dates, UUIDs, ...) are small and not worth walking
+      return 32;
+    }
+    long shallow = OBJECT_HEADER;
+    long deep = 0;
+    for (Field field : fields) {
+      Class<?> fieldType = field.getType();
+      if (fieldType.isPrimitive()) {
+        shallow += primitiveSize(fieldType);
+        continue;
+      }
+      shallow += REFERENCE;
+      try {
+        deep += estimate(field.get(o), depth + 1);
+      } catch (IllegalAccessException e) {
+        // counted as a bare reference
+      }
+    }
+    return align(shallow) + deep;
+  }
+
+  private static long primitiveArraySize(Object array) {
+    Class<?> component = array.getClass().getComponentType();
+    int length = Array.getLength(array);
+    return align(ARRAY_HEADER + (long) primitiveSize(component) * length);
+  }
+
+  private static int primitiveSize(Class<?> type) {
+    if (type == long.class || type == double.class) {
+      return 8;
+    }
+    if (type == int.class || type == float.class) {
+      return 4;
+    }
+    if (type == short.class || type == char.class) {
+      return 2;
+    }
+    return 1;
+  }
+
+  private static long align(long size) {
+    return (size + 7) & ~7L;
+  }
+}
@@ -0,0 +1,127 @@
+package com.example.cache.storage;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Contract shared by the storage engines that back a {@link com.example.cache.region.RegionImpl}.
+ */
+public interface CacheStorage<K, V> {
+
+  /**
+   * Receives the entries enumerated by {@link #snapshot}.
+   */
+  @FunctionalInterface
+  interface EntryVisitor<K, V> {
+    void visit(K key, V value, long lastAccess);
+  }
+
+  V get(K key);
+
+  /**
+   * Whether a live entry is cached for the key, without counting a hit or a
+   * miss and without refreshing the entry's recency or idle time. Engines with
+   * a concurrent index answer without locking, so the answer can be outdated
+   * by the time the caller acts on it. Engines that cannot look without side
+   * effects fall back to {@link #get}.
+   */
+  default boolean containsKey(K key) {
+    return get(key) != null;
+  }
+
+  /**
+   * Returns the live value cached for the key with the same guarantees as
+   * {@link #containsKey}: no hit or miss is counted and the entry's recency
+   * and idle time are left alone. Engines that cannot look without side
+   * effects fall back to {@link #get}.
+   */
+  default V peek(K key) {
+    return get(key);
+  }
+
+  void put(K key, V value);
+
+  void remove(K key);
+
+  int size();
+
+  void clear();
+
+  /**
+   * Looks up a batch of keys. Engines guarded by locks take each lock once for
+   * the whole batch instead of once per key; the others look the keys up one by one.
+   *
+   * @return the cached values by key; keys that missed are absent
+   */
+  default Map<K, V> getAll(Collection<? extends K> keys) {
+    Map<K, V> found = new HashMap<>();
+    for (K key : keys) {
+      V value = get(key);
+      if (value != null) {
+        found.put(key, value);
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Caches a batch of entries, taking each lock once where the engine has locks; see {@link #getAll}.
+   */
+  default void putAll(Map<? extends K, ? extends V> entries) {
+    for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+      put(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Performs pending maintenance work. Engines without deferred work ignore it.
+   */
+  default void cleanUp() {
+  }
+
+  /**
+   * Sum of the entry weights, or 0 when the engine does not weigh its entries.
+   */
+  default long weightedSize() {
+    return 0;
+  }
+
+  /**
+   * Changes the capacity, evicting entries until the cache fits it. A cache
+   * that has been resized also remembers the hashes of recently evicted keys
+   * and reports a put of one of them as a ghost hit, i.e. a miss that a larger
+   * capacity would have avoided.
+   *
+   * @param maxWeight the new weight bound; only applied by engines built with one
+   * @return {@code false} when the engine cannot be resized
+   */
+  default boolean resize(int maxEntries, long maxWeight) {
+    return false;
+  }
+
+  /**
+   * Releases resources held outside the heap, such as files. The engine must not be used afterwards.
+   */
+  default void close() {
+  }
+
+  /**
+   * Visits the entries from least to most recently used, so restoring them in
+   * order rebuilds the recency order. {@code lastAccess} is the ticker time of
+   * the last access, or the current time when the engine does not track it.
+   * Engines that cannot enumerate their entries visit none.
+   */
+  default void snapshot(EntryVisitor<K, V> visitor) {
+  }
+
+  /**
+   * Inserts an entry read from a snapshot unless the key is already cached or
+   * its TTL elapsed since {@code lastAccess}.
+   *
+   * @return whether the entry was inserted
+   */
+  default boolean restore(K key, V value, long lastAccess) {
+    return false;
+  }
+}
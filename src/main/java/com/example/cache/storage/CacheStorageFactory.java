@@ -0,0 +1,173 @@
+package com.example.cache.storage;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.cache.config.CacheConfiguration;
+import com.example.cache.metrics.MetricsCollector;
+import com.example.cache.utils.Ticker;
+
+/**
+ * Builds the storage engine for a region from the cache configuration.
+ */
+public final class CacheStorageFactory {
+  private static final Logger logger = LoggerFactory.getLogger(CacheStorageFactory.class);
+
+  private CacheStorageFactory() {
+  }
+
+  public static <K, V> CacheStorage<K, V> create(CacheConfiguration config, int maxEntries, long ttlMillis,
+      MetricsCollector metrics, Ticker ticker) {
+    return create(config, null, maxEntries, ttlMillis, metrics, ticker);
+  }
+
+  /**
+   * @param regionName names the region's disk tier directory; {@code null} disables the tier
+   */
+  public static <K, V> CacheStorage<K, V> create(CacheConfiguration config, String regionName, int maxEntries,
+      long ttlMillis, MetricsCollector metrics, Ticker ticker) {
+    StorageType type = config != null ? config.getStorageType() : StorageType.HEAP;
+    long maxBytes = config != null ? config.getMaxBytes() : 0;
+    if (config != null && config.getEvictionPolicy() != EvictionPolicyType.LRU) {
+      if (maxBytes > 0) {
+        logger.warn("hibernate.cache.max_bytes is only enforced by the lru policy, ignoring it for {}",
+            config.getEvictionPolicy());
+      }
+      if (config.getTtlJitterPercent() > 0 || config.getEarlyRefreshMillis() > 0) {
+        logger.warn("TTL jitter and early refresh are only applied by the lru policy, ignoring them for {}",
+            config.getEvictionPolicy());
+      }
+      if (config.isBufferedReads()) {
+        logger.warn("hibernate.cache.buffered_reads is only used by the lru policy, ignoring it for {}",
+            config.getEvictionPolicy());
+      }
+    }
+    if (config != null && config.isLongIdStorage()) {
+      if (maxBytes > 0) {
+        logger.warn("hibernate.cache.max_bytes does not cover entities kept in long id tables, "
+            + "only the other entries of region {}", regionName);
+      }
+      if (type != StorageType.HEAP || config.getEvictionPolicy() != EvictionPolicyType.LRU) {
+        logger.warn("Entities with Long or Integer ids in region {} are kept in long id tables evicting with CLOCK, "
+            + "ignoring {} storage and eviction policy {} for them", regionName, type, config.getEvictionPolicy());
+      }
+    }
+    Path diskDirectory = diskDirectory(config, regionName, type);
+    switch (type) {
+      case SEGMENTED:
+        // Each segment gets the share of the byte and disk budgets matching its share of the entries
+        AtomicInteger part = new AtomicInteger();
+        return new SegmentedCache<>(config.getSegments(), maxEntries,
+            share -> createEngine(config, share, maxBytes * share / maxEntries, ttlMillis, metrics, ticker,
+                diskDirectory != null ? diskDirectory.resolve("part-" + part.getAndIncrement()) : null,
+                config.getDiskMaxBytes() * share / maxEntries));
+      case OFFHEAP:
+        if (config.getEvictionPolicy() != EvictionPolicyType.LRU) {
+          logger.warn("offheap storage evicts in LRU order, ignoring eviction policy {}", config.getEvictionPolicy());
+        }
+        // Slabs are sized in whole megabytes; round tiny budgets up to a single slab
+        long offHeapBytes = Math.max(config.getOffHeapBytes(), OffHeapCache.DEFAULT_SLAB_SIZE);
+        return new OffHeapCache<>(maxEntries, offHeapBytes, ttlMillis, metrics, ticker);
+      case ARRAY:
+        if (config.getEvictionPolicy() != EvictionPolicyType.LRU) {
+          logger.warn("array storage evicts in LRU order, ignoring eviction policy {}", config.getEvictionPolicy());
+        } else if (maxBytes > 0 || config.getTtlJitterPercent() > 0 || config.getEarlyRefreshMillis() > 0) {
+          logger.warn("array storage bounds entries by count and expires them after a fixed TTL, "
+              + "ignoring max_bytes, TTL jitter and early refresh");
+        }
+        return new ArrayLRUCache<>(maxEntries, ttlMillis, metrics, ticker);
+      case HEAP:
+      default:
+        return createEngine(config, maxEntries, maxBytes, ttlMillis, metrics, ticker, diskDirectory,
+            diskDirectory != null ? config.getDiskMaxBytes() : 0);
+    }
+  }
+
+  /**
+   * @return whether the storage built for {@code config} weighs all its entries
+   *         and so can be bounded by {@code max_bytes}; long id tables do not
+   */
+  public static boolean weighsEntries(CacheConfiguration config) {
+    StorageType type = config != null ? config.getStorageType() : StorageType.HEAP;
+    EvictionPolicyType policy = config != null ? config.getEvictionPolicy() : EvictionPolicyType.LRU;
+    return (type == StorageType.HEAP || type == StorageType.SEGMENTED) && policy == EvictionPolicyType.LRU
+        && (config == null || !config.isLongIdStorage());
+  }
+
+  private static Path diskDirectory(CacheConfiguration config, String regionName, StorageType type) {
+    String directory = config != null ? config.getDiskDirectory() : null;
+    if (directory == null || directory.isEmpty() || regionName == null) {
+      return null;
+    }
+    if (type == StorageType.OFFHEAP || type == StorageType.ARRAY || config.getEvictionPolicy() != EvictionPolicyType.LRU) {
+      logger.warn("hibernate.cache.disk_directory is only used by heap or segmented storage with the lru policy, "
+          + "ignoring it for region {}", regionName);
+      return null;
+    }
+    return Paths.get(directory).resolve(fileName(regionName));
+  }
+
+  // Region names are qualified class or query region names; keep them readable but safe as file names
+  static String fileName(String regionName) {
+    return regionName.replaceAll("[^A-Za-z0-9._-]", "_");
+  }
+
+  private static <K, V> CacheStorage<K, V> createEngine(CacheConfiguration config, int maxEntries, long maxBytes,
+      long ttlMillis, MetricsCollector metrics, Ticker ticker, Path diskDirectory, long diskMaxBytes) {
+    EvictionPolicyType policy = config != null ? config.getEvictionPolicy() : EvictionPolicyType.LRU;
+    switch (policy) {
+      case TINYLFU:
+        return new WindowTinyLfuCache<>(maxEntries, ttlMillis, metrics, ticker);
+      case CLOCK:
+      case SIEVE:
+      case S3FIFO:
+        return new PolicyDrivenCache<>(maxEntries, ttlMillis, metrics, policy.newPolicy(maxEntries), ticker);
+      case LRU:
+      default:
+        if (config == null) {
+          return new InMemoryLRUCache<>(maxEntries, ttlMillis, metrics, false, ticker);
+        }
+        DiskTier<K, V> diskTier = diskDirectory != null ? createDiskTier(config, diskDirectory, diskMaxBytes, metrics) : null;
+        // A configured weigher sizes the reclaimed bytes even without a byte budget
+        String weigherClassName = config.getWeigherClassName();
+        Weigher<Object, Object> weigher = maxBytes > 0 || (weigherClassName != null && !weigherClassName.isEmpty())
+            ? createWeigher(config) : Weigher.singleton();
+        return new InMemoryLRUCache<>(maxEntries, maxBytes, weigher, ttlMillis, config.getTtlJitterPercent() / 100.0,
+            config.getEarlyRefreshMillis(), metrics, config.isBufferedReads(), ticker, diskTier);
+    }
+  }
+
+  private static <K, V> DiskTier<K, V> createDiskTier(CacheConfiguration config, Path directory, long maxBytes,
+      MetricsCollector metrics) {
+    int segmentBytes = config.getDiskSegmentBytes() > 0 ? config.getDiskSegmentBytes() : DiskTier.DEFAULT_SEGMENT_BYTES;
+    try {
+      // A budget smaller than one segment still gets a single segment
+      return new DiskTier<>(directory, Math.max(maxBytes, segmentBytes), segmentBytes, metrics);
+    } catch (UncheckedIOException | IllegalArgumentException e) {
+      logger.warn("Cannot create disk tier in {}, evicted entries will be dropped", directory, e);
+      return null;
+    }
+  }
+
+  static Weigher<Object, Object> createWeigher(CacheConfiguration config) {
+    String className = config.getWeigherClassName();
+    if (className == null || className.isEmpty()) {
+      return new CacheEntryWeigher();
+    }
+    try {
+      Object weigher = Class.forName(className, true, Thread.currentThread().getContextClassLoader())
+          .getDeclaredConstructor().newInstance();
+      @SuppressWarnings("unchecked")
+      Weigher<Object, Object> result = (Weigher<Object, Object>) weigher;
+      return result;
+    } catch (ReflectiveOperationException | ClassCastException e) {
+      logger.warn("Cannot instantiate weigher {}, falling back to CacheEntryWeigher", className, e);
+      return new CacheEntryWeigher();
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package com.example.cache.storage;
+
+/**
+ * CLOCK (second chance). A hit sets the entry's reference bit. The hand sweeps
+ * from the oldest entry: a referenced entry has its bit cleared and goes around
+ * again, the first unreferenced entry is the victim.
+ */
+public class ClockPolicy<K> implements EvictionPolicy<K> {
+  private final PolicyQueue<K> queue = new PolicyQueue<>();
+
+  @Override
+  public PolicyEntry<K> onInsert(K key) {
+    PolicyEntry<K> entry = new PolicyEntry<>(key);
+    queue.addFirst(entry);
+    return entry;
+  }
+
+  @Override
+  public void onAccess(PolicyEntry<K> entry) {
+    if (entry.frequency == 0) {
+      entry.frequency = 1;
+    }
+  }
+
+  @Override
+  public void onRemove(PolicyEntry<K> entry) {
+    queue.remove(entry);
+  }
+
+  @Override
+  public PolicyEntry<K> selectVictim() {
+    PolicyEntry<K> candidate;
+    while ((candidate = queue.pollLast()) != null) {
+      if (candidate.frequency == 0) {
+        return candidate;
+      }
+      // Passing the hand over a referenced entry moves it behind the hand
+      candidate.frequency = 0;
+      queue.addFirst(candidate);
+    }
+    return null;
+  }
+
+  @Override
+  public void clear() {
+    queue.clear();
+  }
+}
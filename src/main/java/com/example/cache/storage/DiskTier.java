@@ -0,0 +1,458 @@
+package com.example.cache.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.cache.metrics.MetricsCollector;
+
+/**
+ * Overflow tier behind {@link InMemoryLRUCache}. Entries evicted from memory are
+ * appended to memory-mapped segment files and only their offsets are kept on
+ * the heap. When the files reach their budget the oldest segment is dropped
+ * as a whole; segments that are mostly superseded or removed records are
+ * compacted by copying their live records into the active segment, a bounded
+ * batch per acquisition of the lock so demotions are not held up behind a
+ * whole segment copy. Dropped segments are unmapped right away rather than
+ * when their buffer happens to be garbage collected.
+ * <p>
+ * The files are scratch space: they are cleared when the tier is created and
+ * deleted when it is closed.
+ */
+public class DiskTier<K, V> implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(DiskTier.class);
+
+  public static final int DEFAULT_SEGMENT_BYTES = 64 * 1024 * 1024;
+  private static final int RECORD_HEADER = 4;
+  private static final String SEGMENT_SUFFIX = ".seg";
+  // Segments whose live records fill less than this fraction are rewritten by compact()
+  private static final double COMPACTION_THRESHOLD = 0.5;
+  // Records copied by compact() before it lets other callers take the lock
+  static final int COMPACTION_BATCH = 64;
+  // Unsafe.invokeCleaner, or null when it is not accessible and segments are unmapped by the garbage collector
+  private static final MethodHandle INVOKE_CLEANER = findInvokeCleaner();
+
+  private final Path directory;
+  private final long maxBytes;
+  private final int segmentBytes;
+  private final MetricsCollector metrics;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Map<K, Location> index = new HashMap<>();
+  private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+  private int nextSegmentId;
+  private boolean closed;
+
+  private static final class Segment {
+    final Path path;
+    final FileChannel channel;
+    final MappedByteBuffer buffer;
+    int writeOffset;
+    long liveBytes;
+
+    Segment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+      this.path = path;
+      this.channel = channel;
+      this.buffer = buffer;
+    }
+  }
+
+  private static final class Location {
+    final Segment segment;
+    final int offset;
+    final int length;
+    final long lastAccess;
+
+    Location(Segment segment, int offset, int length, long lastAccess) {
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+      this.lastAccess = lastAccess;
+    }
+
+    int recordLength() {
+      return RECORD_HEADER + length;
+    }
+  }
+
+  /**
+   * @throws UncheckedIOException when the directory cannot be created or cleaned
+   */
+  public DiskTier(Path directory, long maxBytes, int segmentBytes, MetricsCollector metrics) {
+    if (directory == null)
+      throw new IllegalArgumentException("directory cannot be null");
+    if (segmentBytes <= RECORD_HEADER)
+      throw new IllegalArgumentException("segmentBytes must be > " + RECORD_HEADER);
+    if (maxBytes < segmentBytes)
+      throw new IllegalArgumentException("maxBytes must be >= segmentBytes");
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+    this.segmentBytes = segmentBytes;
+    this.metrics = metrics;
+    try {
+      Files.createDirectories(directory);
+      deleteSegmentFiles();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot prepare disk tier directory " + directory, e);
+    }
+    logger.debug("DiskTier initialized in {} with maxBytes={}, segmentBytes={}", directory, maxBytes, segmentBytes);
+  }
+
+  /**
+   * Stores an entry evicted from memory. Values that cannot be encoded are dropped.
+   */
+  public void put(K key, V value, long lastAccess) {
+    put(key, value, lastAccess, () -> true);
+  }
+
+  /**
+   * Stores an entry evicted from memory if {@code stillWanted} holds once the
+   * value is encoded. The check runs under the tier lock, so a {@link #remove}
+   * that follows a failed check cannot be overtaken by the write.
+   */
+  public void put(K key, V value, long lastAccess, BooleanSupplier stillWanted) {
+    byte[] data;
+    try {
+      data = ValueCodec.encode(value);
+    } catch (IOException e) {
+      logger.debug("Value of type {} cannot be written to the disk tier", value.getClass(), e);
+      metrics.evict();
+      return;
+    }
+    lock.lock();
+    try {
+      if (closed || !stillWanted.getAsBoolean()) {
+        return;
+      }
+      release(index.remove(key));
+      Location location = append(data, lastAccess, true);
+      if (location == null) {
+        metrics.evict();
+        return;
+      }
+      index.put(key, location);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes the entry and returns its value, or {@code null} when it is absent or
+   * was last accessed before {@code notBefore}.
+   */
+  public V take(K key, long notBefore) {
+    byte[] data;
+    lock.lock();
+    try {
+      Location location = index.remove(key);
+      if (location == null) {
+        return null;
+      }
+      release(location);
+      if (location.lastAccess < notBefore) {
+        metrics.evict();
+        metrics.expire();
+        metrics.reclaim(location.recordLength());
+        return null;
+      }
+      data = read(location);
+    } finally {
+      lock.unlock();
+    }
+
+    try {
+      @SuppressWarnings("unchecked")
+      V value = (V) ValueCodec.decode(data);
+      return value;
+    } catch (IOException | RuntimeException e) {
+      logger.warn("Failed to read value from disk tier {}, dropping the entry", directory, e);
+      return null;
+    }
+  }
+
+  public void remove(K key) {
+    lock.lock();
+    try {
+      release(index.remove(key));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Drops entries last accessed before {@code notBefore} and rewrites the
+   * segments that are mostly garbage, releasing the lock after every
+   * {@value #COMPACTION_BATCH} copied records.
+   */
+  public void compact(long notBefore) {
+    List<Segment> candidates = new ArrayList<>();
+    lock.lock();
+    try {
+      if (closed || segments.isEmpty()) {
+        return;
+      }
+      Iterator<Location> expired = index.values().iterator();
+      while (expired.hasNext()) {
+        Location location = expired.next();
+        if (location.lastAccess < notBefore) {
+          expired.remove();
+          release(location);
+          metrics.evict();
+          metrics.expire();
+          metrics.reclaim(location.recordLength());
+        }
+      }
+
+      Segment active = segments.peekLast();
+      for (Segment segment : segments) {
+        if (segment != active && segment.liveBytes < segment.writeOffset * COMPACTION_THRESHOLD) {
+          candidates.add(segment);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+
+    int compacted = 0;
+    for (Segment segment : candidates) {
+      if (!compact(segment)) {
+        break;
+      }
+      compacted++;
+    }
+    if (compacted > 0) {
+      logger.debug("Compacted {} segments in {}", compacted, directory);
+    }
+  }
+
+  /**
+   * Copies the live records of a segment into the active segment in batches,
+   * then deletes it. Records are only ever appended to the active segment, so
+   * the keys found on the first pass are all the segment will hold.
+   *
+   * @return {@code false} when a record could not be copied and the segment was kept
+   */
+  private boolean compact(Segment segment) {
+    List<K> keys = new ArrayList<>();
+    lock.lock();
+    try {
+      if (closed || !segments.contains(segment)) {
+        return true;
+      }
+      index.forEach((key, location) -> {
+        if (location.segment == segment) {
+          keys.add(key);
+        }
+      });
+    } finally {
+      lock.unlock();
+    }
+
+    for (int from = 0; from < keys.size(); from += COMPACTION_BATCH) {
+      lock.lock();
+      try {
+        // Dropped by a demotion that needed the room, along with its records
+        if (closed || !segments.contains(segment)) {
+          return true;
+        }
+        for (K key : keys.subList(from, Math.min(from + COMPACTION_BATCH, keys.size()))) {
+          Location location = index.get(key);
+          if (location == null || location.segment != segment) {
+            continue;
+          }
+          // The segment is deleted right after, so the copy may briefly exceed maxBytes
+          Location moved = append(read(location), location.lastAccess, false);
+          if (moved == null) {
+            return false;
+          }
+          release(location);
+          index.put(key, moved);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    lock.lock();
+    try {
+      if (segments.remove(segment)) {
+        closeSegment(segment);
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int size() {
+    lock.lock();
+    try {
+      return index.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return bytes of segment files currently mapped
+   */
+  public long getFileBytes() {
+    lock.lock();
+    try {
+      return (long) segments.size() * segmentBytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public void clear() {
+    lock.lock();
+    try {
+      index.clear();
+      while (!segments.isEmpty()) {
+        closeSegment(segments.pollFirst());
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      clear();
+      closed = true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Location append(byte[] data, long lastAccess, boolean dropOldest) {
+    int recordLength = RECORD_HEADER + data.length;
+    if (recordLength > segmentBytes) {
+      return null;
+    }
+    Segment active = segments.peekLast();
+    if (active == null || active.writeOffset + recordLength > segmentBytes) {
+      active = roll(dropOldest);
+      if (active == null) {
+        return null;
+      }
+    }
+    int offset = active.writeOffset;
+    active.buffer.putInt(offset, data.length);
+    active.buffer.put(offset + RECORD_HEADER, data, 0, data.length);
+    active.writeOffset += recordLength;
+    active.liveBytes += recordLength;
+    return new Location(active, offset, data.length, lastAccess);
+  }
+
+  private Segment roll(boolean dropOldest) {
+    if (dropOldest) {
+      while (!segments.isEmpty() && (long) (segments.size() + 1) * segmentBytes > maxBytes) {
+        dropOldestSegment();
+      }
+    }
+    Path path = directory.resolve(String.format("segment-%06d%s", nextSegmentId++, SEGMENT_SUFFIX));
+    try {
+      FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+          StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+      Segment segment = new Segment(path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes));
+      segments.addLast(segment);
+      return segment;
+    } catch (IOException e) {
+      logger.warn("Cannot create disk tier segment {}", path, e);
+      return null;
+    }
+  }
+
+  private void dropOldestSegment() {
+    Segment oldest = segments.pollFirst();
+    Iterator<Location> locations = index.values().iterator();
+    while (locations.hasNext()) {
+      if (locations.next().segment == oldest) {
+        locations.remove();
+        metrics.evict();
+      }
+    }
+    closeSegment(oldest);
+  }
+
+  private byte[] read(Location location) {
+    byte[] data = new byte[location.length];
+    location.segment.buffer.get(location.offset + RECORD_HEADER, data, 0, location.length);
+    return data;
+  }
+
+  private void release(Location location) {
+    if (location != null) {
+      location.segment.liveBytes -= location.recordLength();
+    }
+  }
+
+  // Callers hold the lock and have removed every location in the segment, so no read can touch the unmapped buffer
+  private void closeSegment(Segment segment) {
+    try {
+      segment.channel.close();
+      unmap(segment.buffer);
+      Files.deleteIfExists(segment.path);
+    } catch (IOException e) {
+      logger.warn("Cannot delete disk tier segment {}", segment.path, e);
+    }
+  }
+
+  private static void unmap(MappedByteBuffer buffer) {
+    if (INVOKE_CLEANER == null) {
+      return;
+    }
+    try {
+      INVOKE_CLEANER.invokeExact((ByteBuffer) buffer);
+    } catch (Throwable e) {
+      logger.debug("Cannot unmap disk tier segment, leaving it to the garbage collector", e);
+    }
+  }
+
+  // MappedByteBuffer has no public unmap; sun.misc.Unsafe.invokeCleaner is the supported way around it
+  private static MethodHandle findInvokeCleaner() {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      return MethodHandles.lookup()
+          .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+          .bindTo(theUnsafe.get(null));
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      logger.debug("Cannot unmap disk tier segments explicitly, they are unmapped when garbage collected", e);
+      return null;
+    }
+  }
+
+  private void deleteSegmentFiles() throws IOException {
+    try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+      for (Path path : stale) {
+        Files.deleteIfExists(path);
+      }
+    }
+  }
+}
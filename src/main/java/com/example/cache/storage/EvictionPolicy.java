@@ -0,0 +1,40 @@
+package com.example.cache.storage;
+
+/**
+ * Eviction policy SPI used by {@link PolicyDrivenCache}. The policy owns the
+ * eviction order of the entries it creates; the storage owns the values.
+ *
+ * <p>{@link #onInsert}, {@link #onRemove}, {@link #selectVictim} and
+ * {@link #clear} are called while the storage holds its eviction lock.
+ * {@link #onAccess} is called on cache hits <em>without</em> the lock, possibly
+ * concurrently with the other callbacks, so it must only write per-entry state
+ * such as a reference flag or a saturating counter and never relink entries.
+ */
+public interface EvictionPolicy<K> {
+
+  /** Starts tracking a new key and returns its policy entry. */
+  PolicyEntry<K> onInsert(K key);
+
+  /** Records a hit on a tracked entry. */
+  void onAccess(PolicyEntry<K> entry);
+
+  /** Stops tracking an entry that was removed explicitly. */
+  void onRemove(PolicyEntry<K> entry);
+
+  /**
+   * Chooses the next entry to evict and stops tracking it. Returns {@code null}
+   * when no entry is tracked.
+   */
+  PolicyEntry<K> selectVictim();
+
+  /** Forgets every tracked entry. */
+  void clear();
+
+  /**
+   * Adapts capacity-derived sizes to a new capacity. The storage evicts
+   * through {@link #selectVictim} until it fits; policies whose sizing does
+   * not depend on the capacity ignore this.
+   */
+  default void resize(int maxEntries) {
+  }
+}
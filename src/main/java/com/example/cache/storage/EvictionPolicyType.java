@@ -0,0 +1,49 @@
+package com.example.cache.storage;
+
+import java.util.Locale;
+
+/**
+ * Eviction policies selectable through {@code hibernate.cache.eviction_policy}.
+ */
+public enum EvictionPolicyType {
+  /** Least recently used, the historical behaviour of {@link InMemoryLRUCache}. */
+  LRU,
+  /** Window TinyLFU: LRU admission window, segmented main space and a frequency filter. */
+  TINYLFU,
+  /** CLOCK second chance, see {@link ClockPolicy}. */
+  CLOCK,
+  /** SIEVE, see {@link SievePolicy}. */
+  SIEVE,
+  /** S3-FIFO, see {@link S3FifoPolicy}. */
+  S3FIFO;
+
+  /**
+   * Creates the {@link EvictionPolicy} for the policies that run on
+   * {@link PolicyDrivenCache}, or {@code null} for those with a dedicated engine.
+   */
+  public <K> EvictionPolicy<K> newPolicy(int maxEntries) {
+    switch (this) {
+      case CLOCK:
+        return new ClockPolicy<>();
+      case SIEVE:
+        return new SievePolicy<>();
+      case S3FIFO:
+        return new S3FifoPolicy<>(maxEntries);
+      default:
+        return null;
+    }
+  }
+
+  public static EvictionPolicyType fromProperty(String value, EvictionPolicyType defaultValue) {
+    if (value == null || value.trim().isEmpty()) {
+      return defaultValue;
+    }
+    String normalized = value.trim().toUpperCase(Locale.ROOT).replace("-", "").replace("_", "");
+    for (EvictionPolicyType type : values()) {
+      if (type.name().replace("_", "").equals(normalized)) {
+        return type;
+      }
+    }
+    return defaultValue;
+  }
+}
@@ -0,0 +1,86 @@
+package com.example.cache.storage;
+
+/**
+ * Count-Min sketch with 4-bit counters used by W-TinyLFU to estimate how often
+ * a key has been seen recently. Sixteen counters are packed into each long and
+ * every key maps to one counter in each of four rows. Once the number of
+ * recorded events reaches ten times the cache capacity all counters are halved,
+ * so the history ages and old popularity fades out.
+ *
+ * Not thread-safe; callers guard it with their eviction lock.
+ */
+final class FrequencySketch {
+
+  private static final long[] SEEDS = {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final int MAX_COUNT = 15;
+
+  private final long[] table;
+  private final int tableMask;
+  private final int sampleSize;
+  private int additions;
+
+  FrequencySketch(int maximumSize) {
+    int capacity = Math.max(16, Integer.highestOneBit(Math.max(1, maximumSize) - 1) << 1);
+    this.table = new long[capacity];
+    this.tableMask = capacity - 1;
+    this.sampleSize = (int) Math.min(10L * Math.max(1, maximumSize), Integer.MAX_VALUE);
+  }
+
+  int frequency(Object key) {
+    int hash = spread(key.hashCode());
+    int frequency = MAX_COUNT;
+    for (int row = 0; row < 4; row++) {
+      long slot = table[indexOf(hash, row)];
+      int count = (int) ((slot >>> offsetOf(hash, row)) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  void increment(Object key) {
+    int hash = spread(key.hashCode());
+    boolean added = false;
+    for (int row = 0; row < 4; row++) {
+      added |= incrementAt(indexOf(hash, row), offsetOf(hash, row));
+    }
+    if (added && ++additions >= sampleSize) {
+      reset();
+    }
+  }
+
+  private boolean incrementAt(int index, int offset) {
+    long mask = 0xfL << offset;
+    if ((table[index] & mask) != mask) {
+      table[index] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  /** Halves every counter so that older events weigh less than recent ones. */
+  void reset() {
+    for (int i = 0; i < table.length; i++) {
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    additions >>>= 1;
+  }
+
+  private int indexOf(int hash, int row) {
+    long h = (hash + SEEDS[row]) * SEEDS[row];
+    h += (h >>> 32);
+    return ((int) h) & tableMask;
+  }
+
+  private static int offsetOf(int hash, int row) {
+    // Each row picks a different 4-bit counter within the selected long
+    return (((hash >>> (row << 3)) & 0x3) + (row << 2)) << 2;
+  }
+
+  private static int spread(int x) {
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    return (x >>> 16) ^ x;
+  }
+}
@@ -1,118 +1,467 @@
 package com.example.cache.storage;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.example.cache.metrics.MetricsCollector;
+import com.example.cache.utils.Ticker;
 
-public class InMemoryLRUCache<K, V> {
+public class InMemoryLRUCache<K, V> implements CacheStorage<K, V> {
   private static final Logger logger = LoggerFactory.getLogger(InMemoryLRUCache.class);
   
+  // Share of the entries remembered in the ghost list after eviction
+  private static final int GHOST_DIVISOR = 8;
+
   private final ConcurrentHashMap<K, Node> map = new ConcurrentHashMap<>();
-  private final int maxEntries;
+  // Both bounds only change under the lock, through resize
+  private int maxEntries;
+  // 0 when the cache is bounded by entry count only
+  private long maxWeight;
+  private final Weigher<? super K, ? super V> weigher;
+  // Entries are weighed under a weight bound or with a real weigher, which also sizes reclaimed entries
+  private final boolean weighed;
+  private long weightedSize;
   private final long ttlMillis;
-  private final Node head = new Node(null, null);
-  private final Node tail = new Node(null, null);
+  // Fraction of ttlMillis by which each entry's TTL is randomly shortened at insert
+  private final double ttlJitter;
+  // Scale of the XFetch early refresh window, 0 when entries are only reloaded after they expire
+  private final long earlyRefreshMillis;
+  private final Node head = new Node(null, null, 0);
+  private final Node tail = new Node(null, null, 0);
   private final ReentrantLock lock = new ReentrantLock();
   private final AtomicInteger size = new AtomicInteger(0);
   private final MetricsCollector metrics;
+  private final Ticker ticker;
+  // Non-null when hits are recorded lock-free and replayed in batches
+  private final ReadBuffer<Node> readBuffer;
+  // Non-null when entries expire; tracks them by deadline so they can be reclaimed without being read
+  private final TimerWheel<Node> timerWheel;
+  // Non-null when evicted entries are demoted to disk instead of dropped
+  private final DiskTier<K, V> diskTier;
+  // Entries evicted under the lock and written to the disk tier after it is released, by key and in eviction order
+  private final ConcurrentHashMap<K, Node> demoting = new ConcurrentHashMap<>();
+  private final ConcurrentLinkedQueue<Node> pendingDemotions = new ConcurrentLinkedQueue<>();
+  // Hashes of recently evicted keys, oldest first; null until the cache is first resized
+  private LinkedHashSet<Integer> ghost;
+
+  @SuppressWarnings("rawtypes")
+  private static final AtomicReferenceFieldUpdater<InMemoryLRUCache.Node, Thread> REFRESHER =
+      AtomicReferenceFieldUpdater.newUpdater(InMemoryLRUCache.Node.class, Thread.class, "refresher");
 
-  private class Node {
+  private class Node extends TimerWheel.Timer {
     final K key;
-    V value;
-    long lastAccess;
+    volatile V value;
+    volatile long lastAccess;
+    long ttl;
+    int weight;
+    // Thread reloading the entry after an early refresh miss, cleared when the new value is put
+    volatile Thread refresher;
     Node prev, next;
 
-    Node(K k, V v) {
+    Node(K k, V v, long now) {
       this.key = k;
       this.value = v;
-      this.lastAccess = System.currentTimeMillis();
+      this.lastAccess = now;
     }
   }
 
   public InMemoryLRUCache(int maxEntries, long ttlMillis, MetricsCollector metrics) {
+    this(maxEntries, ttlMillis, metrics, false);
+  }
+
+  /**
+   * @param bufferedReads when {@code true}, hits read the map without locking and
+   *                      record the access in a lossy read buffer; the LRU reorders
+   *                      are replayed later by the thread that holds the lock
+   */
+  public InMemoryLRUCache(int maxEntries, long ttlMillis, MetricsCollector metrics, boolean bufferedReads) {
+    this(maxEntries, ttlMillis, metrics, bufferedReads, Ticker.system());
+  }
+
+  public InMemoryLRUCache(int maxEntries, long ttlMillis, MetricsCollector metrics, boolean bufferedReads,
+      Ticker ticker) {
+    this(maxEntries, 0, Weigher.singleton(), ttlMillis, metrics, bufferedReads, ticker);
+  }
+
+  /**
+   * @param maxWeight when positive, entries are also evicted until the sum of
+   *                  their {@code weigher} weights fits this budget
+   */
+  public InMemoryLRUCache(int maxEntries, long maxWeight, Weigher<? super K, ? super V> weigher, long ttlMillis,
+      MetricsCollector metrics, boolean bufferedReads, Ticker ticker) {
+    this(maxEntries, maxWeight, weigher, ttlMillis, 0, 0, metrics, bufferedReads, ticker, null);
+  }
+
+  /**
+   * @param ttlJitter          between 0 and 1; each entry's TTL is shortened by a random
+   *                           share of up to this fraction so entries loaded together
+   *                           do not expire together
+   * @param earlyRefreshMillis when positive, a read close to the entry's deadline is
+   *                           reported as a miss with a probability that grows as the
+   *                           deadline nears (XFetch), so one caller reloads it in time;
+   *                           roughly the expected time to reload an entry
+   * @param diskTier           when non-null, evicted entries are demoted to it and promoted
+   *                           back into memory when they are read again; closed with this cache
+   */
+  public InMemoryLRUCache(int maxEntries, long maxWeight, Weigher<? super K, ? super V> weigher, long ttlMillis,
+      double ttlJitter, long earlyRefreshMillis, MetricsCollector metrics, boolean bufferedReads, Ticker ticker,
+      DiskTier<K, V> diskTier) {
     if (maxEntries <= 0)
       throw new IllegalArgumentException("maxEntries must be > 0");
+    if (maxWeight < 0)
+      throw new IllegalArgumentException("maxWeight must be >= 0");
+    if (weigher == null)
+      throw new IllegalArgumentException("weigher cannot be null");
     if (ttlMillis < 0)
       throw new IllegalArgumentException("ttlMillis must be >= 0");
+    if (ttlJitter < 0 || ttlJitter > 1)
+      throw new IllegalArgumentException("ttlJitter must be between 0 and 1");
+    if (earlyRefreshMillis < 0)
+      throw new IllegalArgumentException("earlyRefreshMillis must be >= 0");
+    if (ticker == null)
+      throw new IllegalArgumentException("ticker cannot be null");
     this.maxEntries = maxEntries;
+    this.maxWeight = maxWeight;
+    this.weigher = weigher;
+    this.weighed = maxWeight > 0 || weigher != Weigher.singleton();
     this.metrics = metrics;
     this.ttlMillis = ttlMillis;
+    this.ttlJitter = ttlJitter;
+    this.earlyRefreshMillis = earlyRefreshMillis;
+    this.ticker = ticker;
+    this.readBuffer = bufferedReads ? new ReadBuffer<>() : null;
+    this.timerWheel = ttlMillis > 0 ? new TimerWheel<>(ticker.read()) : null;
+    this.diskTier = diskTier;
     head.next = tail;
     tail.prev = head;
-    logger.debug("InMemoryLRUCache initialized with maxEntries={}, ttlMillis={}", maxEntries, ttlMillis);
+    logger.debug("InMemoryLRUCache initialized with maxEntries={}, maxWeight={}, ttlMillis={}, bufferedReads={}, diskTier={}",
+        maxEntries, maxWeight, ttlMillis, bufferedReads, diskTier != null);
   }
 
 
+  @Override
   public V get(K key) {
+    if (readBuffer != null) {
+      V value = getBuffered(key);
+      flushDemotions();
+      return value;
+    }
+    V value;
+    lock.lock();
+    try {
+      value = getLocked(key);
+    } finally {
+      lock.unlock();
+    }
+    flushDemotions();
+    return value;
+  }
+
+
+  @Override
+  public Map<K, V> getAll(Collection<? extends K> keys) {
+    Map<K, V> found = new HashMap<>();
+    if (readBuffer != null) {
+      // Buffered hits take no lock to begin with
+      for (K key : keys) {
+        V value = getBuffered(key);
+        if (value != null) {
+          found.put(key, value);
+        }
+      }
+      flushDemotions();
+      return found;
+    }
     lock.lock();
     try {
-      Node n = map.get(key);
-      if (n == null) {
+      for (K key : keys) {
+        V value = getLocked(key);
+        if (value != null) {
+          found.put(key, value);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    flushDemotions();
+    return found;
+  }
+
+
+  private V getLocked(K key) {
+    Node n = map.get(key);
+    if (n == null) {
+      return promote(key);
+    }
+    
+    if (ttlMillis > 0) {
+      long now = ticker.read();
+      if ((now - n.lastAccess) > n.ttl) {
+        map.remove(key);
+        discard(n);
         metrics.miss();
+        metrics.evict();
+        metrics.expire();
+        if (weighed) {
+          metrics.reclaim(n.weight);
+        }
         return null;
       }
-      
-      long now = System.currentTimeMillis();
-      if (ttlMillis > 0 && (now - n.lastAccess) > ttlMillis) {
-        map.remove(key);
-        unlink(n);
-        size.decrementAndGet();
+      if (refreshEarly(n, now)) {
         metrics.miss();
-        metrics.evict(); 
         return null;
       }
-      
-      metrics.hit();
       n.lastAccess = now;
-      unlink(n);
-      addFront(n);
-      return n.value;
+    }
+    
+    metrics.hit();
+    unlink(n);
+    addFront(n);
+    return n.value;
+  }
+
+
+  /**
+   * Reads the map without locking. Entries demoted to the disk tier are not in memory and do not count.
+   */
+  @Override
+  public boolean containsKey(K key) {
+    Node n = map.get(key);
+    return n != null && (ttlMillis == 0 || ticker.read() - n.lastAccess <= n.ttl);
+  }
+
+  @Override
+  public V peek(K key) {
+    Node n = map.get(key);
+    return n != null && (ttlMillis == 0 || ticker.read() - n.lastAccess <= n.ttl) ? n.value : null;
+  }
+
+
+  private V getBuffered(K key) {
+    Node n = map.get(key);
+    if (n == null) {
+      return promote(key);
+    }
+
+    long now = ttlMillis > 0 ? ticker.read() : 0;
+    if (ttlMillis > 0 && (now - n.lastAccess) > n.ttl) {
+      lock.lock();
+      try {
+        if (map.remove(key, n)) {
+          discard(n);
+          metrics.evict();
+          metrics.expire();
+          if (weighed) {
+            metrics.reclaim(n.weight);
+          }
+        }
+      } finally {
+        lock.unlock();
+      }
+      metrics.miss();
+      return null;
+    }
+    if (ttlMillis > 0 && refreshEarly(n, now)) {
+      metrics.miss();
+      return null;
+    }
+
+    metrics.hit();
+    if (ttlMillis > 0) {
+      n.lastAccess = now;
+    }
+    V value = n.value;
+    if (readBuffer.offer(n) == ReadBuffer.Result.FULL) {
+      tryDrainReadBuffer();
+    }
+    return value;
+  }
+
+
+  /**
+   * XFetch: a read reports a miss when {@code earlyRefreshMillis * -ln(random)}
+   * reaches past the entry's deadline. Only the thread that wins the refresh
+   * keeps missing until it puts the reloaded value; everyone else still hits.
+   */
+  private boolean refreshEarly(Node n, long now) {
+    if (earlyRefreshMillis == 0) {
+      return false;
+    }
+    Thread refresher = n.refresher;
+    if (refresher != null) {
+      return refresher == Thread.currentThread();
+    }
+    long remaining = n.lastAccess + n.ttl - now;
+    if (earlyRefreshMillis * -Math.log(ThreadLocalRandom.current().nextDouble()) < remaining) {
+      return false;
+    }
+    if (!REFRESHER.compareAndSet(n, null, Thread.currentThread())) {
+      return false;
+    }
+    metrics.earlyRefresh();
+    return true;
+  }
+
+
+  private long jitteredTtl() {
+    if (ttlJitter == 0) {
+      return ttlMillis;
+    }
+    return ttlMillis - (long) (ttlMillis * ttlJitter * ThreadLocalRandom.current().nextDouble());
+  }
+
+
+  // Moves an entry demoted to the disk tier back into memory, or records the miss
+  private V promote(K key) {
+    if (diskTier == null) {
+      metrics.miss();
+      return null;
+    }
+    lock.lock();
+    try {
+      if (map.containsKey(key)) {
+        // Another thread promoted or wrote the key since the lock-free lookup; read it like any hit
+        return getLocked(key);
+      }
+      long now = ttlMillis > 0 ? ticker.read() : 0;
+      long notBefore = ttlMillis > 0 ? now - ttlMillis : Long.MIN_VALUE;
+      V value;
+      Node pending = demoting.remove(key);
+      if (pending == null) {
+        value = diskTier.take(key, notBefore);
+      } else if (pending.lastAccess < notBefore) {
+        // Evicted but not written out yet; taking it out of demoting cancels the write
+        metrics.evict();
+        value = null;
+      } else {
+        value = pending.value;
+      }
+      if (value == null) {
+        metrics.miss();
+        return null;
+      }
+      int weight = weighed ? weigh(key, value) : 0;
+      if (maxWeight == 0 || weight <= maxWeight) {
+        insert(key, value, weight, now);
+      }
+      metrics.hit();
+      metrics.promote();
+      return value;
     } finally {
       lock.unlock();
     }
   }
 
 
+  @Override
   public void put(K key, V value) {
     lock.lock();
     try {
-      Node existing = map.get(key);
-      
-      if (existing != null) {
-        existing.value = value;
-        existing.lastAccess = System.currentTimeMillis();
-        unlink(existing);
-        addFront(existing);
-        metrics.put();
-        return;
-      }
-      
-      Node newNode = new Node(key, value);
-      addFront(newNode);
-      map.put(key, newNode);
-      metrics.put();
-      
-      if (size.incrementAndGet() > maxEntries) {
-        evictLRU();
+      long now = ttlMillis > 0 ? ticker.read() : 0;
+      drainReadBuffer();
+      expireEntries(now);
+      putLocked(key, value, now);
+    } finally {
+      lock.unlock();
+    }
+    flushDemotions();
+  }
+
+
+  @Override
+  public void putAll(Map<? extends K, ? extends V> entries) {
+    lock.lock();
+    try {
+      long now = ttlMillis > 0 ? ticker.read() : 0;
+      drainReadBuffer();
+      expireEntries(now);
+      for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+        putLocked(entry.getKey(), entry.getValue(), now);
       }
     } finally {
       lock.unlock();
     }
+    flushDemotions();
+  }
+
+
+  private void putLocked(K key, V value, long now) {
+    int weight = weighed ? weigh(key, value) : 0;
+    Node existing = map.get(key);
+    if (existing == null && diskTier != null) {
+      // Drop the demoted copy so a later miss cannot promote the stale value
+      demoting.remove(key);
+      diskTier.remove(key);
+    }
+    if (maxWeight > 0 && weight > maxWeight) {
+      // Admitting an entry larger than the whole budget would flush every other entry
+      logger.debug("Rejecting entry with key: {} weighing {} of maxWeight {}", key, weight, maxWeight);
+      if (existing != null) {
+        map.remove(key);
+        discard(existing);
+      }
+      return;
+    }
+    
+    if (existing != null) {
+      existing.value = value;
+      existing.lastAccess = now;
+      existing.refresher = null;
+      addWeight(weight - existing.weight);
+      existing.weight = weight;
+      unlink(existing);
+      addFront(existing);
+      metrics.put();
+      evictIfNeeded();
+      return;
+    }
+    
+    if (ghost != null && ghost.remove(key.hashCode())) {
+      metrics.ghostHit();
+    }
+    insert(key, value, weight, now);
+    metrics.put();
+  }
+
+
+  private void insert(K key, V value, int weight, long now) {
+    Node newNode = new Node(key, value, now);
+    newNode.ttl = jitteredTtl();
+    newNode.weight = weight;
+    addWeight(weight);
+    addFront(newNode);
+    map.put(key, newNode);
+    if (timerWheel != null) {
+      newNode.expirationTime = now + newNode.ttl;
+      timerWheel.schedule(newNode);
+    }
+    size.incrementAndGet();
+    evictIfNeeded();
   }
   
 
+  @Override
   public void remove(K key) {
     lock.lock();
     try {
       Node n = map.remove(key);
       if (n != null) {
-        unlink(n);
-        size.decrementAndGet();
+        discard(n);
+      } else if (diskTier != null) {
+        demoting.remove(key);
+        diskTier.remove(key);
       }
     } finally {
       lock.unlock();
@@ -120,6 +469,84 @@ public class InMemoryLRUCache<K, V> {
   }
 
 
+  /**
+   * Replays the buffered accesses so the LRU order reflects recent hits and
+   * reclaims the entries whose TTL has elapsed, then compacts the disk tier.
+   */
+  @Override
+  public void cleanUp() {
+    if (readBuffer == null && timerWheel == null && diskTier == null) {
+      return;
+    }
+    long now = ticker.read();
+    lock.lock();
+    try {
+      drainReadBuffer();
+      expireEntries(now);
+    } finally {
+      lock.unlock();
+    }
+    if (diskTier != null) {
+      flushDemotions();
+      diskTier.compact(ttlMillis > 0 ? now - ttlMillis : Long.MIN_VALUE);
+    }
+  }
+
+
+  private void expireEntries(long now) {
+    if (timerWheel != null) {
+      timerWheel.advance(now, n -> onTimerExpired(n, now));
+    }
+  }
+
+
+  private void onTimerExpired(Node n, long now) {
+    if (map.get(n.key) != n) {
+      return;
+    }
+    // Hits only refresh lastAccess; push the deadline out instead of rescheduling on every read
+    long deadline = n.lastAccess + n.ttl;
+    if (deadline > now) {
+      n.expirationTime = deadline;
+      timerWheel.schedule(n);
+      return;
+    }
+    logger.debug("Expiring entry with key: {}", n.key);
+    map.remove(n.key, n);
+    discard(n);
+    metrics.evict();
+    metrics.expire();
+    if (weighed) {
+      metrics.reclaim(n.weight);
+    }
+  }
+
+
+  private void tryDrainReadBuffer() {
+    if (lock.tryLock()) {
+      try {
+        drainReadBuffer();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+
+  private void drainReadBuffer() {
+    if (readBuffer == null) {
+      return;
+    }
+    readBuffer.drainTo(n -> {
+      // Skip nodes removed or replaced since the hit was recorded
+      if (map.get(n.key) == n) {
+        unlink(n);
+        addFront(n);
+      }
+    });
+  }
+
+
   private void unlink(Node n) {
     if (n.prev != null && n.next != null) {
       n.prev.next = n.next;
@@ -136,35 +563,214 @@ public class InMemoryLRUCache<K, V> {
   }
   
 
-  private void evictLRU() {
+  private void evictIfNeeded() {
+    while (size.get() > maxEntries || (maxWeight > 0 && weightedSize > maxWeight)) {
+      if (!evictLRU()) {
+        return;
+      }
+    }
+  }
+
+
+  private boolean evictLRU() {
     Node lru = tail.prev;
     if (lru == head) {
-      return; 
+      return false;
     }
     
-    logger.debug("Evicting LRU entry with key: {}", lru.key);
     map.remove(lru.key);
-    unlink(lru);
+    discard(lru);
+    if (ghost != null) {
+      rememberGhost(lru.key);
+    }
+    if (diskTier != null) {
+      logger.debug("Demoting LRU entry with key: {}", lru.key);
+      // Encoding and the mapped write happen in flushDemotions, once the lock is released
+      demoting.put(lru.key, lru);
+      pendingDemotions.add(lru);
+      metrics.demote();
+    } else {
+      logger.debug("Evicting LRU entry with key: {}", lru.key);
+      metrics.evict();
+    }
+    return true;
+  }
+
+
+  // The ghost covers the last 1/GHOST_DIVISOR of the resident entries, so its hits estimate the gain of growing that much
+  private void rememberGhost(K key) {
+    ghost.add(key.hashCode());
+    int capacity = Math.max(1, size.get() / GHOST_DIVISOR);
+    Iterator<Integer> oldest = ghost.iterator();
+    while (ghost.size() > capacity) {
+      oldest.next();
+      oldest.remove();
+    }
+  }
+
+
+  @Override
+  public boolean resize(int maxEntries, long maxWeight) {
+    if (maxEntries <= 0)
+      throw new IllegalArgumentException("maxEntries must be > 0");
+    if (maxWeight < 0)
+      throw new IllegalArgumentException("maxWeight must be >= 0");
+    lock.lock();
+    try {
+      this.maxEntries = maxEntries;
+      // Entries of a cache built without a weight bound or weigher were never weighed
+      if (weighed && maxWeight > 0) {
+        this.maxWeight = maxWeight;
+      }
+      if (ghost == null) {
+        ghost = new LinkedHashSet<>();
+      }
+      drainReadBuffer();
+      evictIfNeeded();
+    } finally {
+      lock.unlock();
+    }
+    flushDemotions();
+    return true;
+  }
+
+
+  /**
+   * Writes the entries evicted since the last flush to the disk tier. Runs
+   * after the lock is released; a write is skipped once its entry was promoted,
+   * rewritten or removed in the meantime, which takes it out of demoting.
+   */
+  private void flushDemotions() {
+    if (diskTier == null || lock.isHeldByCurrentThread()) {
+      return;
+    }
+    Node n;
+    while ((n = pendingDemotions.poll()) != null) {
+      Node demoted = n;
+      diskTier.put(demoted.key, demoted.value, demoted.lastAccess, () -> demoting.remove(demoted.key, demoted));
+    }
+  }
+
+
+  // Detaches a node already removed from the map and releases its capacity
+  private void discard(Node n) {
+    unlink(n);
+    if (timerWheel != null) {
+      timerWheel.deschedule(n);
+    }
     size.decrementAndGet();
-    metrics.evict();
+    addWeight(-n.weight);
+  }
+
+
+  private int weigh(K key, V value) {
+    int weight = weigher.weigh(key, value);
+    if (weight < 0)
+      throw new IllegalArgumentException("weight must be >= 0");
+    return weight;
+  }
+
+
+  private void addWeight(long delta) {
+    if (delta != 0) {
+      weightedSize += delta;
+      metrics.addWeight(delta);
+    }
+  }
+
+
+  @Override
+  public long weightedSize() {
+    lock.lock();
+    try {
+      return weightedSize;
+    } finally {
+      lock.unlock();
+    }
   }
 
 
+  @Override
   public int size() {
     return size.get();
   }
   
 
+  @Override
   public void clear() {
     lock.lock();
     try {
+      drainReadBuffer();
       map.clear();
       head.next = tail;
       tail.prev = head;
+      if (timerWheel != null) {
+        timerWheel.clear();
+      }
       size.set(0);
+      addWeight(-weightedSize);
+      if (ghost != null) {
+        ghost.clear();
+      }
+      if (diskTier != null) {
+        demoting.clear();
+        pendingDemotions.clear();
+        diskTier.clear();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+
+  /**
+   * Visits the in-memory entries while holding the lock; entries demoted to
+   * the disk tier are not included.
+   */
+  @Override
+  public void snapshot(EntryVisitor<K, V> visitor) {
+    lock.lock();
+    try {
+      drainReadBuffer();
+      long now = ticker.read();
+      for (Node n = tail.prev; n != head; n = n.prev) {
+        visitor.visit(n.key, n.value, ttlMillis > 0 ? n.lastAccess : now);
+      }
     } finally {
       lock.unlock();
     }
   }
 
-}
\ No newline at end of file
+
+  @Override
+  public boolean restore(K key, V value, long lastAccess) {
+    lock.lock();
+    try {
+      if (map.containsKey(key)) {
+        return false;
+      }
+      long now = ttlMillis > 0 ? ticker.read() : 0;
+      if (ttlMillis > 0 && now - lastAccess > ttlMillis) {
+        return false;
+      }
+      int weight = weighed ? weigh(key, value) : 0;
+      if (maxWeight > 0 && weight > maxWeight) {
+        return false;
+      }
+      insert(key, value, weight, Math.min(lastAccess, now));
+    } finally {
+      lock.unlock();
+    }
+    flushDemotions();
+    return true;
+  }
+
+
+  @Override
+  public void close() {
+    if (diskTier != null) {
+      diskTier.close();
+    }
+  }
+
+}
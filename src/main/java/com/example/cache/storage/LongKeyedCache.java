@@ -0,0 +1,452 @@
+package com.example.cache.storage;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.cache.metrics.MetricsCollector;
+import com.example.cache.utils.Ticker;
+
+/**
+ * Storage for primitive {@code long} keys. Keys, values, access times and
+ * CLOCK reference bits live in parallel arrays indexed by an open-addressing,
+ * linear-probing hash table, so an entry costs about 21 bytes per slot instead
+ * of a boxed key, a map node and a list node. The table is kept at most half
+ * full and grows on demand up to twice {@code maxEntries} slots; removals shift
+ * the following entries back instead of leaving tombstones. A hand sweeps the
+ * slots in order to pick CLOCK victims. Entries expire {@code ttlMillis} after
+ * their last access: reads drop them, and {@link #cleanUp} sweeps a bounded
+ * number of slots per call.
+ */
+public class LongKeyedCache<V> implements CacheStorage<Long, V> {
+  private static final Logger logger = LoggerFactory.getLogger(LongKeyedCache.class);
+
+  private static final int INITIAL_CAPACITY = 16;
+  // Slots examined per cleanUp for expired entries
+  private static final int SWEEP_SLOTS = 4096;
+  private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+  private final long ttlMillis;
+  private final MetricsCollector metrics;
+  private final Ticker ticker;
+  private final ReentrantLock lock = new ReentrantLock();
+  private int maxEntries;
+
+  // A slot is empty when its value is null
+  private long[] keys;
+  private Object[] values;
+  private long[] accessTimes;
+  private boolean[] referenced;
+  // 64 - log2(table length), for Fibonacci hashing
+  private int shift;
+  private int size;
+  private int hand;
+  private int sweepCursor;
+
+  public LongKeyedCache(int maxEntries, long ttlMillis, MetricsCollector metrics) {
+    this(maxEntries, ttlMillis, metrics, Ticker.system());
+  }
+
+  public LongKeyedCache(int maxEntries, long ttlMillis, MetricsCollector metrics, Ticker ticker) {
+    if (maxEntries <= 0)
+      throw new IllegalArgumentException("maxEntries must be > 0");
+    if (ttlMillis < 0)
+      throw new IllegalArgumentException("ttlMillis must be >= 0");
+    if (ticker == null)
+      throw new IllegalArgumentException("ticker cannot be null");
+    this.maxEntries = maxEntries;
+    this.ttlMillis = ttlMillis;
+    this.metrics = metrics;
+    this.ticker = ticker;
+    allocate(INITIAL_CAPACITY);
+    logger.debug("LongKeyedCache initialized with maxEntries={}, ttlMillis={}", maxEntries, ttlMillis);
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new Object[capacity];
+    accessTimes = new long[capacity];
+    referenced = new boolean[capacity];
+    shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    hand = 0;
+    sweepCursor = 0;
+  }
+
+  private int home(long key) {
+    return (int) ((key * GOLDEN_RATIO) >>> shift);
+  }
+
+  // Slot holding the key, or the empty slot where it would go
+  private int probe(long key) {
+    int mask = values.length - 1;
+    int slot = home(key);
+    while (values[slot] != null && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  public V get(long key) {
+    lock.lock();
+    try {
+      return getLocked(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private V getLocked(long key) {
+    int slot = probe(key);
+    if (values[slot] == null) {
+      metrics.miss();
+      return null;
+    }
+    if (ttlMillis > 0) {
+      long now = ticker.read();
+      if (now - accessTimes[slot] > ttlMillis) {
+        removeAt(slot);
+        metrics.miss();
+        metrics.evict();
+        metrics.expire();
+        return null;
+      }
+      accessTimes[slot] = now;
+    }
+    referenced[slot] = true;
+    metrics.hit();
+    @SuppressWarnings("unchecked")
+    V value = (V) values[slot];
+    return value;
+  }
+
+  public boolean containsKey(long key) {
+    lock.lock();
+    try {
+      int slot = probe(key);
+      return values[slot] != null && (ttlMillis == 0 || ticker.read() - accessTimes[slot] <= ttlMillis);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public V peek(long key) {
+    lock.lock();
+    try {
+      int slot = probe(key);
+      if (values[slot] == null || (ttlMillis > 0 && ticker.read() - accessTimes[slot] > ttlMillis)) {
+        return null;
+      }
+      @SuppressWarnings("unchecked")
+      V value = (V) values[slot];
+      return value;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Caches {@code value}; a {@code null} value removes the key, since empty slots are marked by null.
+   */
+  public void put(long key, V value) {
+    if (value == null) {
+      remove(key);
+      return;
+    }
+    lock.lock();
+    try {
+      insert(key, value, ttlMillis > 0 ? ticker.read() : 0);
+      metrics.put();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void insert(long key, Object value, long accessTime) {
+    int slot = probe(key);
+    if (values[slot] == null) {
+      while (size >= maxEntries) {
+        evict();
+      }
+      if ((size + 1) * 2 > values.length) {
+        rehash(values.length * 2);
+      }
+      slot = probe(key);
+      keys[slot] = key;
+      referenced[slot] = false;
+      size++;
+    }
+    values[slot] = value;
+    accessTimes[slot] = accessTime;
+  }
+
+  public void remove(long key) {
+    lock.lock();
+    try {
+      int slot = probe(key);
+      if (values[slot] != null) {
+        removeAt(slot);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // CLOCK: clear the reference bits the hand passes over until it finds an unreferenced entry
+  private void evict() {
+    int mask = values.length - 1;
+    while (true) {
+      int slot = hand;
+      hand = (hand + 1) & mask;
+      if (values[slot] == null) {
+        continue;
+      }
+      if (referenced[slot]) {
+        referenced[slot] = false;
+        continue;
+      }
+      logger.debug("Evicting entry with key: {}", keys[slot]);
+      removeAt(slot);
+      metrics.evict();
+      return;
+    }
+  }
+
+  // Backward-shift deletion: move later entries of the probe run into the hole so lookups never stop early
+  private void removeAt(int slot) {
+    int mask = values.length - 1;
+    int hole = slot;
+    int next = (hole + 1) & mask;
+    while (values[next] != null) {
+      int home = home(keys[next]);
+      // The entry can fill the hole unless its home lies cyclically in (hole, next]
+      if (((next - home) & mask) >= ((next - hole) & mask)) {
+        keys[hole] = keys[next];
+        values[hole] = values[next];
+        accessTimes[hole] = accessTimes[next];
+        referenced[hole] = referenced[next];
+        hole = next;
+      }
+      next = (next + 1) & mask;
+    }
+    values[hole] = null;
+    referenced[hole] = false;
+    size--;
+  }
+
+  private void rehash(int capacity) {
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    long[] oldAccessTimes = accessTimes;
+    boolean[] oldReferenced = referenced;
+    allocate(capacity);
+    for (int i = 0; i < oldValues.length; i++) {
+      if (oldValues[i] != null) {
+        int slot = probe(oldKeys[i]);
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+        accessTimes[slot] = oldAccessTimes[i];
+        referenced[slot] = oldReferenced[i];
+      }
+    }
+  }
+
+  @Override
+  public V get(Long key) {
+    return get(key.longValue());
+  }
+
+  @Override
+  public boolean containsKey(Long key) {
+    return containsKey(key.longValue());
+  }
+
+  @Override
+  public V peek(Long key) {
+    return peek(key.longValue());
+  }
+
+  @Override
+  public void put(Long key, V value) {
+    put(key.longValue(), value);
+  }
+
+  @Override
+  public void remove(Long key) {
+    remove(key.longValue());
+  }
+
+  @Override
+  public Map<Long, V> getAll(Collection<? extends Long> keys) {
+    Map<Long, V> found = new HashMap<>();
+    lock.lock();
+    try {
+      for (Long key : keys) {
+        V value = getLocked(key);
+        if (value != null) {
+          found.put(key, value);
+        }
+      }
+      return found;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void putAll(Map<? extends Long, ? extends V> entries) {
+    lock.lock();
+    try {
+      long now = ttlMillis > 0 ? ticker.read() : 0;
+      for (Map.Entry<? extends Long, ? extends V> entry : entries.entrySet()) {
+        if (entry.getValue() == null) {
+          int slot = probe(entry.getKey());
+          if (values[slot] != null) {
+            removeAt(slot);
+          }
+        } else {
+          insert(entry.getKey(), entry.getValue(), now);
+          metrics.put();
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.lock();
+    try {
+      return size;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      allocate(INITIAL_CAPACITY);
+      size = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Reclaims the expired entries among the next {@value #SWEEP_SLOTS} slots.
+   */
+  @Override
+  public void cleanUp() {
+    if (ttlMillis == 0) {
+      return;
+    }
+    long now = ticker.read();
+    lock.lock();
+    try {
+      int mask = values.length - 1;
+      int visited = 0;
+      while (visited < Math.min(SWEEP_SLOTS, values.length)) {
+        int slot = sweepCursor;
+        // A backward shift may move an unvisited entry into this slot; look at it again
+        if (values[slot] != null && now - accessTimes[slot] > ttlMillis) {
+          removeAt(slot);
+          metrics.evict();
+          metrics.expire();
+        } else {
+          sweepCursor = (sweepCursor + 1) & mask;
+          visited++;
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Evicts one entry in CLOCK order, for callers that bound several tables
+   * by one capacity.
+   *
+   * @return {@code false} when the table is empty
+   */
+  public boolean evictOne() {
+    lock.lock();
+    try {
+      if (size == 0) {
+        return false;
+      }
+      evict();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean resize(int maxEntries, long maxWeight) {
+    if (maxEntries <= 0)
+      throw new IllegalArgumentException("maxEntries must be > 0");
+    lock.lock();
+    try {
+      this.maxEntries = maxEntries;
+      while (size > maxEntries) {
+        evict();
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Visits the entries in slot order; CLOCK keeps no recency order to preserve.
+   */
+  @Override
+  public void snapshot(EntryVisitor<Long, V> visitor) {
+    lock.lock();
+    try {
+      long now = ticker.read();
+      for (int slot = 0; slot < values.length; slot++) {
+        if (values[slot] != null) {
+          @SuppressWarnings("unchecked")
+          V value = (V) values[slot];
+          visitor.visit(keys[slot], value, ttlMillis > 0 ? accessTimes[slot] : now);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean restore(Long key, V value, long lastAccess) {
+    lock.lock();
+    try {
+      if (values[probe(key)] != null) {
+        return false;
+      }
+      long now = ttlMillis > 0 ? ticker.read() : 0;
+      if (ttlMillis > 0 && now - lastAccess > ttlMillis) {
+        return false;
+      }
+      insert(key, value, Math.min(lastAccess, now));
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int capacity() {
+    lock.lock();
+    try {
+      return values.length;
+    } finally {
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,561 @@
+package com.example.cache.storage;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.cache.metrics.MetricsCollector;
+import com.example.cache.utils.Ticker;
+
+/**
+ * LRU storage that keeps values serialized in direct memory. Only the keys and
+ * a small index node per entry live on the heap, so the old generation does
+ * not grow with the cached data. Values are encoded by {@link ValueCodec} on
+ * {@link #put} and decoded into a fresh object on every {@link #get}; both run
+ * outside the lock.
+ * <p>
+ * Values that are not {@link java.io.Serializable} or do not fit in a slab are
+ * not cached.
+ */
+public class OffHeapCache<K, V> implements CacheStorage<K, V> {
+  private static final Logger logger = LoggerFactory.getLogger(OffHeapCache.class);
+
+  static final int DEFAULT_SLAB_SIZE = 1 << 20;
+  // How far from the LRU tail to look for an entry whose chunk the new value can reuse
+  private static final int SAME_CLASS_SCAN = 32;
+  // Share of the entries remembered in the ghost list after eviction
+  private static final int GHOST_DIVISOR = 8;
+
+  private final ConcurrentHashMap<K, Slot> map = new ConcurrentHashMap<>();
+  private int maxEntries;
+  private final long ttlMillis;
+  private final Slot head = new Slot(null, 0);
+  private final Slot tail = new Slot(null, 0);
+  private final ReentrantLock lock = new ReentrantLock();
+  private final AtomicInteger size = new AtomicInteger(0);
+  private final MetricsCollector metrics;
+  private final Ticker ticker;
+  private final SlabAllocator allocator;
+  // Hashes of recently evicted keys, oldest first; null until the cache is first resized
+  private LinkedHashSet<Integer> ghost;
+  private final TimerWheel<Slot> timerWheel;
+  private long usedBytes;
+
+  private class Slot extends TimerWheel.Timer {
+    final K key;
+    long address;
+    int length;
+    // Written under the lock, read without it by containsKey
+    volatile long lastAccess;
+    Slot prev, next;
+
+    Slot(K key, long now) {
+      this.key = key;
+      this.lastAccess = now;
+    }
+  }
+
+  public OffHeapCache(int maxEntries, long maxBytes, long ttlMillis, MetricsCollector metrics) {
+    this(maxEntries, maxBytes, ttlMillis, metrics, Ticker.system());
+  }
+
+  public OffHeapCache(int maxEntries, long maxBytes, long ttlMillis, MetricsCollector metrics, Ticker ticker) {
+    this(maxEntries, maxBytes, DEFAULT_SLAB_SIZE, ttlMillis, metrics, ticker);
+  }
+
+  OffHeapCache(int maxEntries, long maxBytes, int slabSize, long ttlMillis, MetricsCollector metrics,
+      Ticker ticker) {
+    if (maxEntries <= 0)
+      throw new IllegalArgumentException("maxEntries must be > 0");
+    if (maxBytes < slabSize)
+      throw new IllegalArgumentException("maxBytes must be >= " + slabSize);
+    if (ttlMillis < 0)
+      throw new IllegalArgumentException("ttlMillis must be >= 0");
+    if (ticker == null)
+      throw new IllegalArgumentException("ticker cannot be null");
+    this.maxEntries = maxEntries;
+    this.ttlMillis = ttlMillis;
+    this.metrics = metrics;
+    this.ticker = ticker;
+    this.allocator = new SlabAllocator(maxBytes, slabSize);
+    this.timerWheel = ttlMillis > 0 ? new TimerWheel<>(ticker.read()) : null;
+    head.next = tail;
+    tail.prev = head;
+    logger.debug("OffHeapCache initialized with maxEntries={}, maxBytes={}, slabSize={}, ttlMillis={}",
+        maxEntries, maxBytes, slabSize, ttlMillis);
+  }
+
+  /**
+   * Reads the index without locking or decoding the value.
+   */
+  @Override
+  public boolean containsKey(K key) {
+    Slot slot = map.get(key);
+    return slot != null && (ttlMillis == 0 || ticker.read() - slot.lastAccess <= ttlMillis);
+  }
+
+  /**
+   * Copies the value out under the lock, since its chunk may be reused once
+   * released, and decodes it outside. An undecodable value is left for
+   * {@link #get} to drop.
+   */
+  @Override
+  public V peek(K key) {
+    byte[] data;
+    lock.lock();
+    try {
+      Slot slot = map.get(key);
+      if (slot == null || (ttlMillis > 0 && ticker.read() - slot.lastAccess > ttlMillis)) {
+        return null;
+      }
+      data = allocator.read(slot.address, slot.length);
+    } finally {
+      lock.unlock();
+    }
+    return deserialize(data);
+  }
+
+  @Override
+  public V get(K key) {
+    byte[] data;
+    lock.lock();
+    try {
+      data = readLocked(key, ttlMillis > 0 ? ticker.read() : 0);
+    } finally {
+      lock.unlock();
+    }
+    return data != null ? decode(key, data) : null;
+  }
+
+  /**
+   * Copies the whole batch out under one acquisition of the lock and decodes
+   * it outside.
+   */
+  @Override
+  public Map<K, V> getAll(Collection<? extends K> keys) {
+    Map<K, byte[]> copies = new HashMap<>();
+    lock.lock();
+    try {
+      long now = ttlMillis > 0 ? ticker.read() : 0;
+      for (K key : keys) {
+        byte[] data = readLocked(key, now);
+        if (data != null) {
+          copies.put(key, data);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    Map<K, V> found = new HashMap<>();
+    copies.forEach((key, data) -> {
+      V value = decode(key, data);
+      if (value != null) {
+        found.put(key, value);
+      }
+    });
+    return found;
+  }
+
+  // Counts a miss for an absent or expired key, otherwise refreshes the entry and copies its bytes
+  private byte[] readLocked(K key, long now) {
+    Slot slot = map.get(key);
+    if (slot == null) {
+      metrics.miss();
+      return null;
+    }
+    if (ttlMillis > 0) {
+      if ((now - slot.lastAccess) > ttlMillis) {
+        map.remove(key);
+        discard(slot);
+        metrics.miss();
+        metrics.evict();
+        metrics.expire();
+        metrics.reclaim(allocator.chunkSize(slot.length));
+        return null;
+      }
+      slot.lastAccess = now;
+    }
+    unlink(slot);
+    addFront(slot);
+    return allocator.read(slot.address, slot.length);
+  }
+
+  // Counts the hit, or drops an entry that cannot be decoded and counts a miss
+  private V decode(K key, byte[] data) {
+    V value = deserialize(data);
+    if (value == null) {
+      remove(key);
+      metrics.miss();
+      return null;
+    }
+    metrics.hit();
+    return value;
+  }
+
+  @Override
+  public void put(K key, V value) {
+    byte[] data = serialize(value);
+    lock.lock();
+    try {
+      long now = ttlMillis > 0 ? ticker.read() : 0;
+      expireEntries(now);
+      putLocked(key, data, now);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Encodes the whole batch outside the lock, then stores it under one
+   * acquisition of the lock.
+   */
+  @Override
+  public void putAll(Map<? extends K, ? extends V> entries) {
+    Map<K, byte[]> encoded = new HashMap<>();
+    for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+      encoded.put(entry.getKey(), serialize(entry.getValue()));
+    }
+    lock.lock();
+    try {
+      long now = ttlMillis > 0 ? ticker.read() : 0;
+      expireEntries(now);
+      encoded.forEach((key, data) -> putLocked(key, data, now));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void putLocked(K key, byte[] data, long now) {
+    Slot existing = map.get(key);
+    if (data == null || allocator.sizeClass(data.length) < 0) {
+      // Never serve a stale copy of a value we could not store
+      if (existing != null) {
+        map.remove(key);
+        discard(existing);
+      }
+      return;
+    }
+
+    if (existing != null) {
+      if (allocator.sizeClass(existing.length) == allocator.sizeClass(data.length)) {
+        allocator.write(existing.address, data);
+        existing.length = data.length;
+        existing.lastAccess = now;
+        unlink(existing);
+        addFront(existing);
+        metrics.put();
+        return;
+      }
+      map.remove(key);
+      discard(existing);
+    }
+
+    if (existing == null && ghost != null && ghost.remove(key.hashCode())) {
+      metrics.ghostHit();
+    }
+    if (insert(key, data, now)) {
+      metrics.put();
+    }
+  }
+
+  // Stores a new entry at the MRU end, evicting the LRU entry when over capacity
+  private boolean insert(K key, byte[] data, long accessTime) {
+    long address = allocate(data.length);
+    if (address < 0) {
+      return false;
+    }
+    allocator.write(address, data);
+    Slot slot = new Slot(key, accessTime);
+    slot.address = address;
+    slot.length = data.length;
+    addFront(slot);
+    map.put(key, slot);
+    if (timerWheel != null) {
+      slot.expirationTime = accessTime + ttlMillis;
+      timerWheel.schedule(slot);
+    }
+    addUsedBytes(allocator.chunkSize(data.length));
+
+    if (size.incrementAndGet() > maxEntries) {
+      evict(tail.prev);
+    }
+    return true;
+  }
+
+  @Override
+  public void remove(K key) {
+    lock.lock();
+    try {
+      Slot slot = map.remove(key);
+      if (slot != null) {
+        discard(slot);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    return size.get();
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      map.clear();
+      head.next = tail;
+      tail.prev = head;
+      if (timerWheel != null) {
+        timerWheel.clear();
+      }
+      allocator.clear();
+      size.set(0);
+      if (ghost != null) {
+        ghost.clear();
+      }
+      addUsedBytes(-usedBytes);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void cleanUp() {
+    if (timerWheel == null) {
+      return;
+    }
+    lock.lock();
+    try {
+      expireEntries(ticker.read());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return bytes of direct memory held by live entries, including chunk rounding
+   */
+  @Override
+  public long weightedSize() {
+    lock.lock();
+    try {
+      return usedBytes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return bytes of direct memory reserved by the slab allocator
+   */
+  public long getReservedBytes() {
+    lock.lock();
+    try {
+      return allocator.reservedBytes();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private long allocate(int length) {
+    long address = allocator.allocate(length);
+    while (address < 0) {
+      Slot victim = victimFor(length);
+      if (victim == null) {
+        return -1;
+      }
+      evict(victim);
+      address = allocator.allocate(length);
+    }
+    return address;
+  }
+
+  // Prefers an old entry of the same size class, whose chunk is immediately reusable
+  private Slot victimFor(int length) {
+    Slot lru = tail.prev;
+    if (lru == head) {
+      return null;
+    }
+    int cls = allocator.sizeClass(length);
+    Slot candidate = lru;
+    for (int i = 0; i < SAME_CLASS_SCAN && candidate != head; i++, candidate = candidate.prev) {
+      if (allocator.sizeClass(candidate.length) == cls) {
+        return candidate;
+      }
+    }
+    return lru;
+  }
+
+  private void evict(Slot slot) {
+    if (slot == head) {
+      return;
+    }
+    logger.debug("Evicting off-heap entry with key: {}", slot.key);
+    if (ghost != null) {
+      rememberGhost(slot.key);
+    }
+    map.remove(slot.key);
+    discard(slot);
+    metrics.evict();
+  }
+
+  // The ghost covers the last 1/GHOST_DIVISOR of the resident entries, so its hits estimate the gain of growing that much
+  private void rememberGhost(K key) {
+    ghost.add(key.hashCode());
+    int capacity = Math.max(1, size.get() / GHOST_DIVISOR);
+    Iterator<Integer> oldest = ghost.iterator();
+    while (ghost.size() > capacity) {
+      oldest.next();
+      oldest.remove();
+    }
+  }
+
+  /**
+   * Evicts least recently used entries until the cache fits. The direct
+   * memory reserved for the slabs is fixed, so there is no weight bound to
+   * apply; the byte budget is {@code hibernate.cache.offheap_bytes}.
+   */
+  @Override
+  public boolean resize(int maxEntries, long maxWeight) {
+    if (maxEntries <= 0)
+      throw new IllegalArgumentException("maxEntries must be > 0");
+    lock.lock();
+    try {
+      this.maxEntries = maxEntries;
+      if (ghost == null) {
+        ghost = new LinkedHashSet<>();
+      }
+      while (size.get() > maxEntries) {
+        evict(tail.prev);
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Decodes each value under the lock and hands it to the visitor right away,
+   * so a large off-heap cache is never copied onto the heap as a whole. Values
+   * that cannot be decoded are skipped.
+   */
+  @Override
+  public void snapshot(EntryVisitor<K, V> visitor) {
+    lock.lock();
+    try {
+      long now = ticker.read();
+      for (Slot slot = tail.prev; slot != head; slot = slot.prev) {
+        V value = deserialize(allocator.read(slot.address, slot.length));
+        if (value != null) {
+          visitor.visit(slot.key, value, ttlMillis > 0 ? slot.lastAccess : now);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean restore(K key, V value, long lastAccess) {
+    byte[] data = serialize(value);
+    if (data == null || allocator.sizeClass(data.length) < 0) {
+      return false;
+    }
+    lock.lock();
+    try {
+      if (map.containsKey(key)) {
+        return false;
+      }
+      long now = ttlMillis > 0 ? ticker.read() : 0;
+      if (ttlMillis > 0 && now - lastAccess > ttlMillis) {
+        return false;
+      }
+      return insert(key, data, Math.min(lastAccess, now));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void expireEntries(long now) {
+    if (timerWheel != null) {
+      timerWheel.advance(now, slot -> onTimerExpired(slot, now));
+    }
+  }
+
+  private void onTimerExpired(Slot slot, long now) {
+    if (map.get(slot.key) != slot) {
+      return;
+    }
+    long deadline = slot.lastAccess + ttlMillis;
+    if (deadline > now) {
+      slot.expirationTime = deadline;
+      timerWheel.schedule(slot);
+      return;
+    }
+    map.remove(slot.key, slot);
+    discard(slot);
+    metrics.evict();
+    metrics.expire();
+    metrics.reclaim(allocator.chunkSize(slot.length));
+  }
+
+  // Detaches a slot already removed from the map and frees its chunk
+  private void discard(Slot slot) {
+    unlink(slot);
+    if (timerWheel != null) {
+      timerWheel.deschedule(slot);
+    }
+    allocator.free(slot.address);
+    size.decrementAndGet();
+    addUsedBytes(-allocator.chunkSize(slot.length));
+  }
+
+  private void addUsedBytes(long delta) {
+    if (delta != 0) {
+      usedBytes += delta;
+      metrics.addWeight(delta);
+    }
+  }
+
+  private void unlink(Slot slot) {
+    slot.prev.next = slot.next;
+    slot.next.prev = slot.prev;
+  }
+
+  private void addFront(Slot slot) {
+    slot.next = head.next;
+    slot.prev = head;
+    head.next.prev = slot;
+    head.next = slot;
+  }
+
+  private byte[] serialize(V value) {
+    try {
+      return ValueCodec.encode(value);
+    } catch (IOException e) {
+      logger.debug("Value of type {} cannot be stored off-heap", value == null ? null : value.getClass(), e);
+      return null;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private V deserialize(byte[] data) {
+    try {
+      return (V) ValueCodec.decode(data);
+    } catch (IOException | RuntimeException e) {
+      logger.warn("Failed to read off-heap value, dropping the entry", e);
+      return null;
+    }
+  }
+}
@@ -0,0 +1,358 @@
+package com.example.cache.storage;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.cache.metrics.MetricsCollector;
+import com.example.cache.utils.Ticker;
+
+/**
+ * Storage whose eviction order is delegated to an {@link EvictionPolicy}.
+ * Hits are served without locking and only notify the policy through
+ * {@link EvictionPolicy#onAccess}; inserts, removals and evictions are
+ * serialized by a single lock.
+ * <p>
+ * The LRU and W-TinyLFU policies are separate engines rather than policies,
+ * since they relink entries on hits. Unlike {@link InMemoryLRUCache}, this
+ * engine has no weight bound, disk tier, TTL jitter or read buffer.
+ */
+public class PolicyDrivenCache<K, V> implements CacheStorage<K, V> {
+  private static final Logger logger = LoggerFactory.getLogger(PolicyDrivenCache.class);
+
+  // Share of the entries remembered in the ghost list after eviction
+  private static final int GHOST_DIVISOR = 8;
+
+  private final ConcurrentHashMap<K, Holder<K, V>> map = new ConcurrentHashMap<>();
+  private int maxEntries;
+  private final long ttlMillis;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final AtomicInteger size = new AtomicInteger(0);
+  private final MetricsCollector metrics;
+  private final EvictionPolicy<K> policy;
+  private final Ticker ticker;
+  private final TimerWheel<Holder<K, V>> timerWheel;
+  // Hashes of recently evicted keys, oldest first; null until the cache is first resized
+  private LinkedHashSet<Integer> ghost;
+
+  private static final class Holder<K, V> extends TimerWheel.Timer {
+    final PolicyEntry<K> entry;
+    volatile V value;
+    volatile long lastAccess;
+
+    Holder(PolicyEntry<K> entry, V value, long now) {
+      this.entry = entry;
+      this.value = value;
+      this.lastAccess = now;
+    }
+  }
+
+  public PolicyDrivenCache(int maxEntries, long ttlMillis, MetricsCollector metrics, EvictionPolicy<K> policy) {
+    this(maxEntries, ttlMillis, metrics, policy, Ticker.system());
+  }
+
+  public PolicyDrivenCache(int maxEntries, long ttlMillis, MetricsCollector metrics, EvictionPolicy<K> policy,
+      Ticker ticker) {
+    if (maxEntries <= 0)
+      throw new IllegalArgumentException("maxEntries must be > 0");
+    if (ttlMillis < 0)
+      throw new IllegalArgumentException("ttlMillis must be >= 0");
+    if (policy == null)
+      throw new IllegalArgumentException("policy cannot be null");
+    if (ticker == null)
+      throw new IllegalArgumentException("ticker cannot be null");
+    this.maxEntries = maxEntries;
+    this.ttlMillis = ttlMillis;
+    this.metrics = metrics;
+    this.policy = policy;
+    this.ticker = ticker;
+    this.timerWheel = ttlMillis > 0 ? new TimerWheel<>(ticker.read()) : null;
+    logger.debug("PolicyDrivenCache initialized with maxEntries={}, ttlMillis={}, policy={}",
+        maxEntries, ttlMillis, policy.getClass().getSimpleName());
+  }
+
+  @Override
+  public boolean containsKey(K key) {
+    Holder<K, V> holder = map.get(key);
+    return holder != null && (ttlMillis == 0 || ticker.read() - holder.lastAccess <= ttlMillis);
+  }
+
+  @Override
+  public V peek(K key) {
+    Holder<K, V> holder = map.get(key);
+    return holder != null && (ttlMillis == 0 || ticker.read() - holder.lastAccess <= ttlMillis) ? holder.value : null;
+  }
+
+  @Override
+  public V get(K key) {
+    Holder<K, V> holder = map.get(key);
+    if (holder == null) {
+      metrics.miss();
+      return null;
+    }
+
+    long now = ttlMillis > 0 ? ticker.read() : 0;
+    if (ttlMillis > 0 && (now - holder.lastAccess) > ttlMillis) {
+      lock.lock();
+      try {
+        if (map.remove(key, holder)) {
+          policy.onRemove(holder.entry);
+          timerWheel.deschedule(holder);
+          size.decrementAndGet();
+          metrics.evict();
+          metrics.expire();
+        }
+      } finally {
+        lock.unlock();
+      }
+      metrics.miss();
+      return null;
+    }
+
+    metrics.hit();
+    if (ttlMillis > 0) {
+      holder.lastAccess = now;
+    }
+    policy.onAccess(holder.entry);
+    return holder.value;
+  }
+
+  @Override
+  public void put(K key, V value) {
+    lock.lock();
+    try {
+      long now = ttlMillis > 0 ? ticker.read() : 0;
+      expireEntries(now);
+      putLocked(key, value, now);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Caches the whole batch under one acquisition of the lock, expiring
+   * entries once for the batch. Reads need no batch path since hits take no lock.
+   */
+  @Override
+  public void putAll(Map<? extends K, ? extends V> entries) {
+    lock.lock();
+    try {
+      long now = ttlMillis > 0 ? ticker.read() : 0;
+      expireEntries(now);
+      for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+        putLocked(entry.getKey(), entry.getValue(), now);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void putLocked(K key, V value, long now) {
+    Holder<K, V> existing = map.get(key);
+    if (existing != null) {
+      existing.value = value;
+      existing.lastAccess = now;
+      policy.onAccess(existing.entry);
+      metrics.put();
+      return;
+    }
+
+    if (ghost != null && ghost.remove(key.hashCode())) {
+      metrics.ghostHit();
+    }
+    insert(key, value, now);
+    metrics.put();
+  }
+
+  private void insert(K key, V value, long accessTime) {
+    Holder<K, V> holder = new Holder<>(policy.onInsert(key), value, accessTime);
+    map.put(key, holder);
+    if (timerWheel != null) {
+      holder.expirationTime = accessTime + ttlMillis;
+      timerWheel.schedule(holder);
+    }
+
+    if (size.incrementAndGet() > maxEntries) {
+      evict();
+    }
+  }
+
+  private boolean evict() {
+    PolicyEntry<K> victim = policy.selectVictim();
+    if (victim == null) {
+      return false;
+    }
+    logger.debug("Evicting entry with key: {}", victim.key);
+    if (ghost != null) {
+      rememberGhost(victim.key);
+    }
+    Holder<K, V> holder = map.remove(victim.key);
+    if (holder != null && timerWheel != null) {
+      timerWheel.deschedule(holder);
+    }
+    size.decrementAndGet();
+    metrics.evict();
+    return true;
+  }
+
+  // The ghost covers the last 1/GHOST_DIVISOR of the resident entries, so its hits estimate the gain of growing that much
+  private void rememberGhost(K key) {
+    ghost.add(key.hashCode());
+    int capacity = Math.max(1, size.get() / GHOST_DIVISOR);
+    Iterator<Integer> oldest = ghost.iterator();
+    while (ghost.size() > capacity) {
+      oldest.next();
+      oldest.remove();
+    }
+  }
+
+  /**
+   * Evicts in the policy's order until the cache fits; the policy adapts
+   * its capacity-derived sizes. There is no weight bound to apply.
+   */
+  @Override
+  public boolean resize(int maxEntries, long maxWeight) {
+    if (maxEntries <= 0)
+      throw new IllegalArgumentException("maxEntries must be > 0");
+    lock.lock();
+    try {
+      this.maxEntries = maxEntries;
+      policy.resize(maxEntries);
+      if (ghost == null) {
+        ghost = new LinkedHashSet<>();
+      }
+      while (size.get() > maxEntries) {
+        if (!evict()) {
+          break;
+        }
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Visits the entries in no particular order, since the eviction order
+   * belongs to the policy and is not exposed by it.
+   */
+  @Override
+  public void snapshot(EntryVisitor<K, V> visitor) {
+    lock.lock();
+    try {
+      long now = ticker.read();
+      for (Holder<K, V> holder : map.values()) {
+        visitor.visit(holder.entry.key, holder.value, ttlMillis > 0 ? holder.lastAccess : now);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Inserts without counting a put. Restored entries start out like newly
+   * inserted ones; a full cache takes no more of them, since the snapshot
+   * carries no order to evict by.
+   */
+  @Override
+  public boolean restore(K key, V value, long lastAccess) {
+    lock.lock();
+    try {
+      if (map.containsKey(key) || size.get() >= maxEntries) {
+        return false;
+      }
+      long now = ttlMillis > 0 ? ticker.read() : 0;
+      if (ttlMillis > 0 && now - lastAccess > ttlMillis) {
+        return false;
+      }
+      insert(key, value, Math.min(lastAccess, now));
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void remove(K key) {
+    lock.lock();
+    try {
+      Holder<K, V> holder = map.remove(key);
+      if (holder != null) {
+        policy.onRemove(holder.entry);
+        if (timerWheel != null) {
+          timerWheel.deschedule(holder);
+        }
+        size.decrementAndGet();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    return size.get();
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      map.clear();
+      policy.clear();
+      if (timerWheel != null) {
+        timerWheel.clear();
+      }
+      size.set(0);
+      if (ghost != null) {
+        ghost.clear();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void cleanUp() {
+    if (timerWheel == null) {
+      return;
+    }
+    lock.lock();
+    try {
+      expireEntries(ticker.read());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void expireEntries(long now) {
+    if (timerWheel != null) {
+      timerWheel.advance(now, holder -> onTimerExpired(holder, now));
+    }
+  }
+
+  private void onTimerExpired(Holder<K, V> holder, long now) {
+    K key = holder.entry.key;
+    if (map.get(key) != holder) {
+      return;
+    }
+    long deadline = holder.lastAccess + ttlMillis;
+    if (deadline > now) {
+      holder.expirationTime = deadline;
+      timerWheel.schedule(holder);
+      return;
+    }
+    logger.debug("Expiring entry with key: {}", key);
+    map.remove(key, holder);
+    policy.onRemove(holder.entry);
+    size.decrementAndGet();
+    metrics.evict();
+    metrics.expire();
+  }
+}
@@ -0,0 +1,23 @@
+package com.example.cache.storage;
+
+/**
+ * Per-entry metadata of an {@link EvictionPolicy}. Hits only touch
+ * {@link #frequency}; the links are owned by the policy and only changed under
+ * the storage lock.
+ */
+public class PolicyEntry<K> {
+  final K key;
+  /** Reference bit (0 or 1) or a small saturating access counter. */
+  volatile int frequency;
+  /** Policy specific queue marker. */
+  int queue;
+  PolicyEntry<K> prev, next;
+
+  public PolicyEntry(K key) {
+    this.key = key;
+  }
+
+  public K getKey() {
+    return key;
+  }
+}
@@ -0,0 +1,65 @@
+package com.example.cache.storage;
+
+/**
+ * Intrusive FIFO of {@link PolicyEntry} instances shared by the policies.
+ * The head holds the newest entry, the tail the oldest.
+ */
+final class PolicyQueue<K> {
+  private PolicyEntry<K> head;
+  private PolicyEntry<K> tail;
+  private int size;
+
+  void addFirst(PolicyEntry<K> e) {
+    e.prev = null;
+    e.next = head;
+    if (head != null) {
+      head.prev = e;
+    } else {
+      tail = e;
+    }
+    head = e;
+    size++;
+  }
+
+  void remove(PolicyEntry<K> e) {
+    if (e.prev != null) {
+      e.prev.next = e.next;
+    } else {
+      head = e.next;
+    }
+    if (e.next != null) {
+      e.next.prev = e.prev;
+    } else {
+      tail = e.prev;
+    }
+    e.prev = null;
+    e.next = null;
+    size--;
+  }
+
+  PolicyEntry<K> pollLast() {
+    PolicyEntry<K> last = tail;
+    if (last != null) {
+      remove(last);
+    }
+    return last;
+  }
+
+  PolicyEntry<K> peekLast() {
+    return tail;
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  void clear() {
+    head = null;
+    tail = null;
+    size = 0;
+  }
+}
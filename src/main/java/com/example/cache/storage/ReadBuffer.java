@@ -0,0 +1,91 @@
+package com.example.cache.storage;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Striped, lossy ring buffers used to record cache hits without taking the
+ * eviction lock. Each thread is mapped to a stripe; when a stripe is full the
+ * access is simply dropped, since the recency order is only a hint. The
+ * buffers are drained in batches by whichever thread holds the eviction lock.
+ */
+final class ReadBuffer<E> {
+
+  static final int BUFFER_SIZE = 16;
+  private static final int BUFFER_MASK = BUFFER_SIZE - 1;
+
+  enum Result { SUCCESS, FULL, FAILED }
+
+  // Holds Stripe<E>; read through stripe(), since a generic array cannot be created
+  private final Object[] stripes;
+  private final int stripeMask;
+
+  ReadBuffer() {
+    int count = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+    this.stripes = new Object[Math.min(count, 64)];
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new Stripe<>();
+    }
+    this.stripeMask = stripes.length - 1;
+  }
+
+  /**
+   * Records an element. {@link Result#FULL} signals that the stripe should be
+   * drained; {@link Result#FAILED} that the element was dropped because of a
+   * concurrent writer on the same stripe.
+   */
+  Result offer(E e) {
+    long id = Thread.currentThread().getId();
+    int h = (int) (id * 0x9E3779B9L);
+    return stripe((h ^ (h >>> 16)) & stripeMask).offer(e);
+  }
+
+  /** Drains every stripe; must be called by a single thread at a time. */
+  void drainTo(Consumer<E> consumer) {
+    for (int i = 0; i < stripes.length; i++) {
+      stripe(i).drainTo(consumer);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Stripe<E> stripe(int index) {
+    return (Stripe<E>) stripes[index];
+  }
+
+  private static final class Stripe<E> {
+    private final AtomicReferenceArray<E> buffer = new AtomicReferenceArray<>(BUFFER_SIZE);
+    private final AtomicLong writeCounter = new AtomicLong();
+    private volatile long readCounter;
+
+    Result offer(E e) {
+      long head = readCounter;
+      long tail = writeCounter.get();
+      if (tail - head >= BUFFER_SIZE) {
+        return Result.FULL;
+      }
+      if (writeCounter.compareAndSet(tail, tail + 1)) {
+        buffer.lazySet((int) (tail & BUFFER_MASK), e);
+        return Result.SUCCESS;
+      }
+      return Result.FAILED;
+    }
+
+    void drainTo(Consumer<E> consumer) {
+      long head = readCounter;
+      long tail = writeCounter.get();
+      while (head < tail) {
+        int index = (int) (head & BUFFER_MASK);
+        E e = buffer.get(index);
+        if (e == null) {
+          // The writer claimed the slot but has not published yet
+          break;
+        }
+        buffer.lazySet(index, null);
+        consumer.accept(e);
+        head++;
+      }
+      readCounter = head;
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package com.example.cache.storage;
+
+import java.util.LinkedHashSet;
+import java.util.Iterator;
+
+/**
+ * S3-FIFO. New entries go to a small FIFO (10% of capacity); entries hit more
+ * than once while there are promoted to the main FIFO, the others are evicted
+ * early and remembered in a ghost FIFO of key hashes. A key that comes back
+ * while still in the ghost queue is inserted straight into the main FIFO. The
+ * main FIFO gives entries with a non-zero counter another lap (decrementing
+ * the counter) before evicting them. Hits only bump a counter capped at 3.
+ */
+public class S3FifoPolicy<K> implements EvictionPolicy<K> {
+  private static final int SMALL = 0;
+  private static final int MAIN = 1;
+  private static final int MAX_FREQUENCY = 3;
+
+  private final PolicyQueue<K> small = new PolicyQueue<>();
+  private final PolicyQueue<K> main = new PolicyQueue<>();
+  private final LinkedHashSet<Integer> ghost = new LinkedHashSet<>();
+  private int smallTarget;
+  private int ghostCapacity;
+
+  public S3FifoPolicy(int maxEntries) {
+    if (maxEntries <= 0)
+      throw new IllegalArgumentException("maxEntries must be > 0");
+    resize(maxEntries);
+  }
+
+  @Override
+  public void resize(int maxEntries) {
+    this.smallTarget = Math.max(1, maxEntries / 10);
+    this.ghostCapacity = Math.max(1, maxEntries - smallTarget);
+  }
+
+  @Override
+  public PolicyEntry<K> onInsert(K key) {
+    PolicyEntry<K> entry = new PolicyEntry<>(key);
+    if (ghost.remove(key.hashCode())) {
+      entry.queue = MAIN;
+      main.addFirst(entry);
+    } else {
+      entry.queue = SMALL;
+      small.addFirst(entry);
+    }
+    return entry;
+  }
+
+  @Override
+  public void onAccess(PolicyEntry<K> entry) {
+    int frequency = entry.frequency;
+    if (frequency < MAX_FREQUENCY) {
+      entry.frequency = frequency + 1;
+    }
+  }
+
+  @Override
+  public void onRemove(PolicyEntry<K> entry) {
+    queueOf(entry).remove(entry);
+  }
+
+  @Override
+  public PolicyEntry<K> selectVictim() {
+    while (!small.isEmpty() || !main.isEmpty()) {
+      PolicyEntry<K> victim = small.size() >= smallTarget || main.isEmpty() ? evictSmall() : evictMain();
+      if (victim != null) {
+        return victim;
+      }
+    }
+    return null;
+  }
+
+  private PolicyEntry<K> evictSmall() {
+    PolicyEntry<K> candidate;
+    while ((candidate = small.pollLast()) != null) {
+      if (candidate.frequency > 1) {
+        candidate.frequency = 0;
+        candidate.queue = MAIN;
+        main.addFirst(candidate);
+      } else {
+        rememberGhost(candidate.key);
+        return candidate;
+      }
+    }
+    return null;
+  }
+
+  private PolicyEntry<K> evictMain() {
+    PolicyEntry<K> candidate;
+    while ((candidate = main.pollLast()) != null) {
+      int frequency = candidate.frequency;
+      if (frequency > 0) {
+        candidate.frequency = frequency - 1;
+        main.addFirst(candidate);
+      } else {
+        return candidate;
+      }
+    }
+    return null;
+  }
+
+  private void rememberGhost(K key) {
+    ghost.add(key.hashCode());
+    // More than one after the capacity shrank
+    Iterator<Integer> oldest = ghost.iterator();
+    while (ghost.size() > ghostCapacity) {
+      oldest.next();
+      oldest.remove();
+    }
+  }
+
+  private PolicyQueue<K> queueOf(PolicyEntry<K> entry) {
+    return entry.queue == MAIN ? main : small;
+  }
+
+  @Override
+  public void clear() {
+    small.clear();
+    main.clear();
+    ghost.clear();
+  }
+}
@@ -0,0 +1,219 @@
+package com.example.cache.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lock-striped storage: keys are hashed into a fixed number of segments, each
+ * an independent {@link CacheStorage} with its own lock, LRU order, size counter
+ * and share of the region capacity. Operations on different segments never
+ * contend with each other.
+ */
+public class SegmentedCache<K, V> implements CacheStorage<K, V> {
+  private static final Logger logger = LoggerFactory.getLogger(SegmentedCache.class);
+
+  // Holds CacheStorage<K, V>; read through segment(), since a generic array cannot be created
+  private final Object[] segments;
+  private final int segmentMask;
+
+  /**
+   * @param segmentCount   requested number of segments, rounded up to a power of two
+   *                       and capped so every segment holds at least one entry;
+   *                       {@code 0} picks a value from the number of available processors
+   * @param maxEntries     total capacity, split as evenly as possible across segments
+   * @param segmentFactory creates a segment for the given capacity share
+   */
+  public SegmentedCache(int segmentCount, int maxEntries, IntFunction<CacheStorage<K, V>> segmentFactory) {
+    if (maxEntries <= 0)
+      throw new IllegalArgumentException("maxEntries must be > 0");
+    if (segmentCount < 0)
+      throw new IllegalArgumentException("segmentCount must be >= 0");
+    if (segmentFactory == null)
+      throw new IllegalArgumentException("segmentFactory cannot be null");
+
+    int count = segmentCount == 0 ? defaultSegmentCount() : ceilingPowerOfTwo(segmentCount);
+    while (count > 1 && count > maxEntries) {
+      count >>>= 1;
+    }
+
+    this.segments = new Object[count];
+    this.segmentMask = count - 1;
+    int share = maxEntries / count;
+    int remainder = maxEntries % count;
+    for (int i = 0; i < count; i++) {
+      segments[i] = segmentFactory.apply(share + (i < remainder ? 1 : 0));
+    }
+    logger.debug("SegmentedCache initialized with segments={}, maxEntries={}", count, maxEntries);
+  }
+
+  static int defaultSegmentCount() {
+    return ceilingPowerOfTwo(Runtime.getRuntime().availableProcessors() * 2);
+  }
+
+  private static int ceilingPowerOfTwo(int n) {
+    if (n <= 1) {
+      return 1;
+    }
+    return Integer.highestOneBit(Math.min(n, 1 << 16) - 1) << 1;
+  }
+
+  CacheStorage<K, V> segmentFor(K key) {
+    return segment(segmentIndex(key));
+  }
+
+  @SuppressWarnings("unchecked")
+  private CacheStorage<K, V> segment(int index) {
+    return (CacheStorage<K, V>) segments[index];
+  }
+
+  private int segmentIndex(K key) {
+    int h = key.hashCode();
+    h ^= (h >>> 16);
+    return h & segmentMask;
+  }
+
+  @Override
+  public V get(K key) {
+    return segmentFor(key).get(key);
+  }
+
+  @Override
+  public boolean containsKey(K key) {
+    return segmentFor(key).containsKey(key);
+  }
+
+  @Override
+  public V peek(K key) {
+    return segmentFor(key).peek(key);
+  }
+
+  @Override
+  public void put(K key, V value) {
+    segmentFor(key).put(key, value);
+  }
+
+  /**
+   * Groups the keys by segment so each segment is asked, and locked, once.
+   */
+  @Override
+  public Map<K, V> getAll(Collection<? extends K> keys) {
+    Map<K, V> found = new HashMap<>();
+    List<List<K>> groups = new ArrayList<>(Collections.nCopies(segments.length, null));
+    for (K key : keys) {
+      int index = segmentIndex(key);
+      if (groups.get(index) == null) {
+        groups.set(index, new ArrayList<>());
+      }
+      groups.get(index).add(key);
+    }
+    for (int i = 0; i < groups.size(); i++) {
+      if (groups.get(i) != null) {
+        found.putAll(segment(i).getAll(groups.get(i)));
+      }
+    }
+    return found;
+  }
+
+  @Override
+  public void putAll(Map<? extends K, ? extends V> entries) {
+    List<Map<K, V>> groups = new ArrayList<>(Collections.nCopies(segments.length, null));
+    for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+      int index = segmentIndex(entry.getKey());
+      if (groups.get(index) == null) {
+        groups.set(index, new HashMap<>());
+      }
+      groups.get(index).put(entry.getKey(), entry.getValue());
+    }
+    for (int i = 0; i < groups.size(); i++) {
+      if (groups.get(i) != null) {
+        segment(i).putAll(groups.get(i));
+      }
+    }
+  }
+
+  @Override
+  public void remove(K key) {
+    segmentFor(key).remove(key);
+  }
+
+  @Override
+  public int size() {
+    int total = 0;
+    for (int i = 0; i < segments.length; i++) {
+      total += segment(i).size();
+    }
+    return total;
+  }
+
+  @Override
+  public void clear() {
+    for (int i = 0; i < segments.length; i++) {
+      segment(i).clear();
+    }
+  }
+
+  @Override
+  public void cleanUp() {
+    for (int i = 0; i < segments.length; i++) {
+      segment(i).cleanUp();
+    }
+  }
+
+  /**
+   * Splits the new bounds across the segments the same way the constructor
+   * splits the capacity.
+   */
+  @Override
+  public boolean resize(int maxEntries, long maxWeight) {
+    if (maxEntries <= 0)
+      throw new IllegalArgumentException("maxEntries must be > 0");
+    int count = segments.length;
+    boolean resized = true;
+    for (int i = 0; i < count; i++) {
+      int share = Math.max(1, maxEntries / count + (i < maxEntries % count ? 1 : 0));
+      resized &= segment(i).resize(share, maxWeight / count);
+    }
+    return resized;
+  }
+
+  @Override
+  public void snapshot(EntryVisitor<K, V> visitor) {
+    // Recency is only ordered within a segment, and each key restores into the same segment
+    for (int i = 0; i < segments.length; i++) {
+      segment(i).snapshot(visitor);
+    }
+  }
+
+  @Override
+  public boolean restore(K key, V value, long lastAccess) {
+    return segmentFor(key).restore(key, value, lastAccess);
+  }
+
+  @Override
+  public void close() {
+    for (int i = 0; i < segments.length; i++) {
+      segment(i).close();
+    }
+  }
+
+  @Override
+  public long weightedSize() {
+    long total = 0;
+    for (int i = 0; i < segments.length; i++) {
+      total += segment(i).weightedSize();
+    }
+    return total;
+  }
+
+  public int getSegmentCount() {
+    return segments.length;
+  }
+}
@@ -0,0 +1,55 @@
+package com.example.cache.storage;
+
+/**
+ * SIEVE. Entries are kept in insertion order and never move. A hit sets the
+ * entry's visited bit; the hand walks from the oldest towards the newest entry,
+ * clearing visited bits, and evicts the first unvisited entry. The hand keeps
+ * its position between evictions and wraps around to the oldest entry.
+ */
+public class SievePolicy<K> implements EvictionPolicy<K> {
+  private final PolicyQueue<K> queue = new PolicyQueue<>();
+  private PolicyEntry<K> hand;
+
+  @Override
+  public PolicyEntry<K> onInsert(K key) {
+    PolicyEntry<K> entry = new PolicyEntry<>(key);
+    queue.addFirst(entry);
+    return entry;
+  }
+
+  @Override
+  public void onAccess(PolicyEntry<K> entry) {
+    if (entry.frequency == 0) {
+      entry.frequency = 1;
+    }
+  }
+
+  @Override
+  public void onRemove(PolicyEntry<K> entry) {
+    if (hand == entry) {
+      hand = entry.prev;
+    }
+    queue.remove(entry);
+  }
+
+  @Override
+  public PolicyEntry<K> selectVictim() {
+    if (queue.isEmpty()) {
+      return null;
+    }
+    PolicyEntry<K> candidate = hand != null ? hand : queue.peekLast();
+    while (candidate.frequency != 0) {
+      candidate.frequency = 0;
+      candidate = candidate.prev != null ? candidate.prev : queue.peekLast();
+    }
+    hand = candidate.prev;
+    queue.remove(candidate);
+    return candidate;
+  }
+
+  @Override
+  public void clear() {
+    queue.clear();
+    hand = null;
+  }
+}
@@ -0,0 +1,213 @@
+package com.example.cache.storage;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Carves direct {@link ByteBuffer} slabs into fixed-size chunks. Chunk sizes
+ * grow by 25% per size class, and every slab serves a single class once it is
+ * assigned. A slab whose chunks are all free goes back to the shared pool so
+ * another class can use it. Free chunks are linked through their first four
+ * bytes, so the only heap cost is a few ints per slab.
+ * <p>
+ * Addresses pack the slab index in the high 32 bits and the offset in the low
+ * 32 bits. Not thread-safe; callers guard it with their own lock.
+ */
+final class SlabAllocator {
+
+  static final int MIN_CHUNK = 64;
+  private static final double GROWTH_FACTOR = 1.25;
+
+  private final int slabSize;
+  private final int maxSlabs;
+  private final int[] chunkSizes;
+
+  private final ByteBuffer[] slabs;
+  private final int[] slabClass;
+  private final int[] bump;
+  private final int[] freeHead;
+  private final int[] liveChunks;
+  private final boolean[] partial;
+  // ArrayDeque<Integer> per size class; read through partialSlabs(), since a generic array cannot be created
+  private final Object[] partialSlabs;
+  private final ArrayDeque<Integer> unassigned = new ArrayDeque<>();
+  private int allocatedSlabs;
+
+  SlabAllocator(long capacityBytes, int slabSize) {
+    if (slabSize < MIN_CHUNK)
+      throw new IllegalArgumentException("slabSize must be >= " + MIN_CHUNK);
+    if (capacityBytes < slabSize)
+      throw new IllegalArgumentException("capacityBytes must be >= slabSize");
+    this.slabSize = slabSize;
+    this.maxSlabs = (int) Math.min(Integer.MAX_VALUE - 8, capacityBytes / slabSize);
+    this.chunkSizes = computeChunkSizes(slabSize);
+    this.slabs = new ByteBuffer[maxSlabs];
+    this.slabClass = new int[maxSlabs];
+    this.bump = new int[maxSlabs];
+    this.freeHead = new int[maxSlabs];
+    this.liveChunks = new int[maxSlabs];
+    this.partial = new boolean[maxSlabs];
+    this.partialSlabs = new Object[chunkSizes.length];
+    for (int i = 0; i < chunkSizes.length; i++) {
+      partialSlabs[i] = new ArrayDeque<>();
+    }
+  }
+
+  private static int[] computeChunkSizes(int slabSize) {
+    int[] sizes = new int[64];
+    int count = 0;
+    double size = MIN_CHUNK;
+    while (size < slabSize && count < sizes.length - 1) {
+      int aligned = ((int) size + 7) & ~7;
+      if (count == 0 || aligned > sizes[count - 1]) {
+        sizes[count++] = aligned;
+      }
+      size *= GROWTH_FACTOR;
+    }
+    sizes[count++] = slabSize;
+    int[] result = new int[count];
+    System.arraycopy(sizes, 0, result, 0, count);
+    return result;
+  }
+
+  /**
+   * @return the size class able to hold {@code length} bytes, or -1 when it does not fit in a slab
+   */
+  int sizeClass(int length) {
+    int low = 0;
+    int high = chunkSizes.length - 1;
+    if (length > chunkSizes[high]) {
+      return -1;
+    }
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (chunkSizes[mid] < length) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  int chunkSize(int length) {
+    return chunkSizes[sizeClass(length)];
+  }
+
+  /**
+   * @return the address of a chunk of at least {@code length} bytes, or -1 when the class has no
+   *         free chunk and no slab is left to assign to it
+   */
+  long allocate(int length) {
+    int cls = sizeClass(length);
+    if (cls < 0) {
+      return -1;
+    }
+    ArrayDeque<Integer> candidates = partialSlabs(cls);
+    Integer slab = candidates.peekFirst();
+    if (slab == null) {
+      slab = assignSlab(cls);
+      if (slab == null) {
+        return -1;
+      }
+    }
+    int s = slab;
+    int chunk = chunkSizes[cls];
+    int offset;
+    if (freeHead[s] >= 0) {
+      offset = freeHead[s];
+      freeHead[s] = slabs[s].getInt(offset);
+    } else {
+      offset = bump[s];
+      bump[s] += chunk;
+    }
+    liveChunks[s]++;
+    if (freeHead[s] < 0 && bump[s] + chunk > slabSize) {
+      candidates.pollFirst();
+      partial[s] = false;
+    }
+    return ((long) s << 32) | offset;
+  }
+
+  void free(long address) {
+    int s = (int) (address >>> 32);
+    int offset = (int) address;
+    slabs[s].putInt(offset, freeHead[s]);
+    freeHead[s] = offset;
+    liveChunks[s]--;
+    int cls = slabClass[s];
+    if (liveChunks[s] == 0) {
+      if (partial[s]) {
+        partialSlabs(cls).remove(s);
+      }
+      releaseSlab(s);
+    } else if (!partial[s]) {
+      partialSlabs(cls).addFirst(s);
+      partial[s] = true;
+    }
+  }
+
+  void write(long address, byte[] data) {
+    slabs[(int) (address >>> 32)].put((int) address, data, 0, data.length);
+  }
+
+  byte[] read(long address, int length) {
+    byte[] data = new byte[length];
+    slabs[(int) (address >>> 32)].get((int) address, data, 0, length);
+    return data;
+  }
+
+  /**
+   * Returns every slab to the pool. The direct buffers are kept for reuse.
+   */
+  void clear() {
+    for (int cls = 0; cls < partialSlabs.length; cls++) {
+      partialSlabs(cls).clear();
+    }
+    unassigned.clear();
+    for (int s = 0; s < allocatedSlabs; s++) {
+      releaseSlab(s);
+    }
+  }
+
+  /**
+   * @return bytes of direct memory reserved so far
+   */
+  long reservedBytes() {
+    return (long) allocatedSlabs * slabSize;
+  }
+
+  private Integer assignSlab(int cls) {
+    Integer slab = unassigned.pollFirst();
+    if (slab == null) {
+      if (allocatedSlabs == maxSlabs) {
+        return null;
+      }
+      slab = allocatedSlabs;
+      slabs[slab] = ByteBuffer.allocateDirect(slabSize);
+      allocatedSlabs++;
+    }
+    int s = slab;
+    slabClass[s] = cls;
+    bump[s] = 0;
+    freeHead[s] = -1;
+    liveChunks[s] = 0;
+    partial[s] = true;
+    partialSlabs(cls).addFirst(s);
+    return slab;
+  }
+
+  @SuppressWarnings("unchecked")
+  private ArrayDeque<Integer> partialSlabs(int cls) {
+    return (ArrayDeque<Integer>) partialSlabs[cls];
+  }
+
+  private void releaseSlab(int s) {
+    slabClass[s] = -1;
+    bump[s] = 0;
+    freeHead[s] = -1;
+    liveChunks[s] = 0;
+    partial[s] = false;
+    unassigned.addLast(s);
+  }
+}
@@ -0,0 +1,266 @@
+package com.example.cache.storage;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.cache.utils.Ticker;
+
+/**
+ * Binary snapshot of a storage engine's entries, written on shutdown and
+ * restored on the next start so regions do not warm up from an empty cache.
+ * <p>
+ * The file holds a header (magic, format version, write time, and the
+ * region's invalidation epoch and time) followed by
+ * {@code [key][value][lastAccess]} records from least to most recently used
+ * and an end marker. Keys and values use {@link ValueCodec}; entries that
+ * cannot be encoded are skipped. Last-access times are absolute ticker times,
+ * so entries whose TTL elapsed while the node was down are dropped on restore.
+ * The epoch lets the region carry on from the one its entries were written
+ * in, since it is counted in memory and restarts with every run.
+ */
+public final class StorageSnapshot {
+  private static final Logger logger = LoggerFactory.getLogger(StorageSnapshot.class);
+
+  static final int MAGIC = 0x48435331; // "HCS1"
+  static final int VERSION = 2;
+  private static final int END_OF_ENTRIES = -1;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final String FILE_SUFFIX = ".snapshot";
+
+  private final long writtenAt;
+  private final long epoch;
+  private final long invalidatedAt;
+  private final List<Record> records;
+
+  private static final class Record {
+    final Object key;
+    final Object value;
+    final long lastAccess;
+
+    Record(Object key, Object value, long lastAccess) {
+      this.key = key;
+      this.value = value;
+      this.lastAccess = lastAccess;
+    }
+  }
+
+  private StorageSnapshot(long writtenAt, long epoch, long invalidatedAt, List<Record> records) {
+    this.writtenAt = writtenAt;
+    this.epoch = epoch;
+    this.invalidatedAt = invalidatedAt;
+    this.records = records;
+  }
+
+  /**
+   * @return the snapshot file of the region inside {@code directory}
+   */
+  public static Path fileFor(Path directory, String regionName) {
+    return directory.resolve(CacheStorageFactory.fileName(regionName) + FILE_SUFFIX);
+  }
+
+  /**
+   * Writes the entries of {@code storage} to {@code file}. The snapshot is
+   * written to a temporary file first and moved into place, so a crash never
+   * leaves a partial snapshot behind.
+   *
+   * @return the number of entries written
+   */
+  public static <K, V> int write(CacheStorage<K, V> storage, Path file, Ticker ticker) throws IOException {
+    return write(storage, file, ticker, 0, Long.MIN_VALUE);
+  }
+
+  /**
+   * Writes the entries of {@code storage} along with the invalidation state
+   * of its region, see {@link #getEpoch} and {@link #getInvalidatedAt}.
+   *
+   * @return the number of entries written
+   */
+  public static <K, V> int write(CacheStorage<K, V> storage, Path file, Ticker ticker, long epoch,
+      long invalidatedAt) throws IOException {
+    return write(storage, file, ticker, epoch, invalidatedAt, value -> true);
+  }
+
+  /**
+   * Writes the entries of {@code storage} whose value matches {@code durable},
+   * leaving out state that must not outlive the run, like soft locks.
+   *
+   * @return the number of entries written
+   */
+  public static <K, V> int write(CacheStorage<K, V> storage, Path file, Ticker ticker, long epoch,
+      long invalidatedAt, Predicate<? super V> durable) throws IOException {
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    int[] written = new int[1];
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+      buffer.putInt(MAGIC).putInt(VERSION).putLong(ticker.read()).putLong(epoch).putLong(invalidatedAt);
+      IOException[] failure = new IOException[1];
+      storage.snapshot((key, value, lastAccess) -> {
+        if (failure[0] != null || !durable.test(value)) {
+          return;
+        }
+        byte[] keyBytes;
+        byte[] valueBytes;
+        try {
+          keyBytes = ValueCodec.encode(key);
+          valueBytes = ValueCodec.encode(value);
+        } catch (NotSerializableException e) {
+          logger.debug("Skipping entry with key {} that cannot be encoded", key, e);
+          return;
+        } catch (IOException e) {
+          failure[0] = e;
+          return;
+        }
+        try {
+          putBytes(channel, buffer, keyBytes);
+          putBytes(channel, buffer, valueBytes);
+          ensureRemaining(channel, buffer, Long.BYTES);
+          buffer.putLong(lastAccess);
+          written[0]++;
+        } catch (IOException e) {
+          failure[0] = e;
+        }
+      });
+      if (failure[0] != null) {
+        throw failure[0];
+      }
+      ensureRemaining(channel, buffer, Integer.BYTES);
+      buffer.putInt(END_OF_ENTRIES);
+      flush(channel, buffer);
+      channel.force(false);
+    } catch (IOException e) {
+      Files.deleteIfExists(temp);
+      throw e;
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    return written[0];
+  }
+
+  /**
+   * Reads a snapshot written by {@link #write}.
+   *
+   * @throws IOException when the file is not a snapshot, was written by an
+   *                     incompatible version or is truncated
+   */
+  public static StorageSnapshot read(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel),
+            BUFFER_SIZE))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a cache snapshot: " + file);
+      }
+      int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported cache snapshot version " + version + " in " + file);
+      }
+      long writtenAt = in.readLong();
+      long epoch = in.readLong();
+      long invalidatedAt = in.readLong();
+      List<Record> records = new ArrayList<>();
+      int keyLength;
+      while ((keyLength = in.readInt()) != END_OF_ENTRIES) {
+        Object key = ValueCodec.decode(readBytes(in, keyLength));
+        Object value = ValueCodec.decode(readBytes(in, in.readInt()));
+        records.add(new Record(key, value, in.readLong()));
+      }
+      return new StorageSnapshot(writtenAt, epoch, invalidatedAt, records);
+    } catch (EOFException e) {
+      throw new IOException("Truncated cache snapshot " + file, e);
+    } catch (ClassCastException | IllegalArgumentException e) {
+      throw new IOException("Corrupt cache snapshot " + file, e);
+    }
+  }
+
+  /**
+   * Inserts the entries in recency order. Keys already cached keep their
+   * current value, and entries whose TTL has elapsed are dropped.
+   *
+   * @return the number of entries restored
+   */
+  @SuppressWarnings("unchecked")
+  public <K, V> int restoreInto(CacheStorage<K, V> storage) {
+    int restored = 0;
+    for (Record record : records) {
+      if (storage.restore((K) record.key, (V) record.value, record.lastAccess)) {
+        restored++;
+      }
+    }
+    return restored;
+  }
+
+  public long getWrittenAt() {
+    return writtenAt;
+  }
+
+  /**
+   * The invalidation epoch of the region when the snapshot was written.
+   */
+  public long getEpoch() {
+    return epoch;
+  }
+
+  /**
+   * When the region was last invalidated before the snapshot was written, or {@link Long#MIN_VALUE}.
+   */
+  public long getInvalidatedAt() {
+    return invalidatedAt;
+  }
+
+  public int size() {
+    return records.size();
+  }
+
+  private static void putBytes(FileChannel channel, ByteBuffer buffer, byte[] bytes) throws IOException {
+    ensureRemaining(channel, buffer, Integer.BYTES);
+    buffer.putInt(bytes.length);
+    if (bytes.length > buffer.capacity()) {
+      flush(channel, buffer);
+      ByteBuffer large = ByteBuffer.wrap(bytes);
+      while (large.hasRemaining()) {
+        channel.write(large);
+      }
+      return;
+    }
+    ensureRemaining(channel, buffer, bytes.length);
+    buffer.put(bytes);
+  }
+
+  private static void ensureRemaining(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+    if (buffer.remaining() < bytes) {
+      flush(channel, buffer);
+    }
+  }
+
+  private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private static byte[] readBytes(DataInputStream in, int length) throws IOException {
+    if (length < 0) {
+      throw new IOException("Negative record length " + length);
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return bytes;
+  }
+}
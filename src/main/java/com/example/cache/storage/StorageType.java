@@ -0,0 +1,28 @@
+package com.example.cache.storage;
+
+import java.util.Locale;
+
+/**
+ * Storage engines selectable through {@code hibernate.cache.storage}.
+ */
+public enum StorageType {
+  /** One LRU list guarded by a single region-wide lock. */
+  HEAP,
+  /** Keys hashed into independently locked LRU segments. */
+  SEGMENTED,
+  /** Values serialized into direct memory slabs, with only the index on the heap. */
+  OFFHEAP,
+  /** One LRU list kept in parallel arrays, without a map node or list node per entry. */
+  ARRAY;
+
+  public static StorageType fromProperty(String value, StorageType defaultValue) {
+    if (value == null || value.trim().isEmpty()) {
+      return defaultValue;
+    }
+    try {
+      return StorageType.valueOf(value.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      return defaultValue;
+    }
+  }
+}
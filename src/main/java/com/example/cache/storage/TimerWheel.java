@@ -0,0 +1,154 @@
+package com.example.cache.storage;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel that tracks entries by expiration time (in
+ * milliseconds). Each level is an array of buckets covering a power-of-two
+ * time span; an entry is placed in the finest level whose range covers its
+ * remaining time. Advancing the wheel only visits the buckets whose span has
+ * elapsed: expired entries are handed to the caller and the others cascade to
+ * a finer level, so scheduling, descheduling and expiring are O(1) amortized.
+ *
+ * <p>Bucket spans are roughly 64ms, 4s, 4.4min, 4.7h and 6.2 days, with a
+ * single overflow bucket for anything further out. Not thread-safe; the
+ * owning storage guards it with its eviction lock.
+ */
+final class TimerWheel<T extends TimerWheel.Timer> {
+
+  /** Intrusive wheel links; storage nodes extend this class. */
+  static class Timer {
+    long expirationTime;
+    Timer previousInWheel;
+    Timer nextInWheel;
+  }
+
+  static final int[] BUCKETS = { 64, 64, 64, 32, 1 };
+  static final long[] SPANS = {
+      1L << 6,   // 64ms
+      1L << 12,  // 4.1s
+      1L << 18,  // 4.4min
+      1L << 24,  // 4.7h
+      1L << 29,  // 6.2d
+      1L << 29,
+  };
+  static final int[] SHIFT = {
+      Long.numberOfTrailingZeros(SPANS[0]),
+      Long.numberOfTrailingZeros(SPANS[1]),
+      Long.numberOfTrailingZeros(SPANS[2]),
+      Long.numberOfTrailingZeros(SPANS[3]),
+      Long.numberOfTrailingZeros(SPANS[4]),
+  };
+
+  private final Timer[][] wheel;
+  private long time;
+
+  TimerWheel(long now) {
+    this.time = now;
+    this.wheel = new Timer[BUCKETS.length][];
+    for (int i = 0; i < wheel.length; i++) {
+      wheel[i] = new Timer[BUCKETS[i]];
+      for (int j = 0; j < wheel[i].length; j++) {
+        Timer sentinel = new Timer();
+        sentinel.previousInWheel = sentinel;
+        sentinel.nextInWheel = sentinel;
+        wheel[i][j] = sentinel;
+      }
+    }
+  }
+
+  /** Adds a timer using its {@link Timer#expirationTime}. */
+  void schedule(T timer) {
+    Timer sentinel = findBucket(timer.expirationTime);
+    timer.previousInWheel = sentinel.previousInWheel;
+    timer.nextInWheel = sentinel;
+    sentinel.previousInWheel.nextInWheel = timer;
+    sentinel.previousInWheel = timer;
+  }
+
+  /** Removes a timer if it is scheduled. */
+  void deschedule(T timer) {
+    if (timer.nextInWheel != null) {
+      timer.nextInWheel.previousInWheel = timer.previousInWheel;
+      timer.previousInWheel.nextInWheel = timer.nextInWheel;
+      timer.nextInWheel = null;
+      timer.previousInWheel = null;
+    }
+  }
+
+  /**
+   * Advances the wheel to {@code now} and passes every timer whose expiration
+   * time has been reached to {@code onExpired}. The timer is descheduled when
+   * the callback runs, which may schedule it again.
+   */
+  @SuppressWarnings("unchecked")
+  void advance(long now, Consumer<T> onExpired) {
+    long previous = time;
+    time = now;
+    for (int i = 0; i < SHIFT.length; i++) {
+      long previousTicks = previous >>> SHIFT[i];
+      long currentTicks = now >>> SHIFT[i];
+      long delta = currentTicks - previousTicks;
+      if (delta <= 0L) {
+        break;
+      }
+      expire(i, previousTicks, delta, (Consumer<Timer>) onExpired);
+    }
+  }
+
+  private void expire(int level, long previousTicks, long delta, Consumer<Timer> onExpired) {
+    Timer[] timerWheel = wheel[level];
+    int mask = timerWheel.length - 1;
+    int steps = (int) Math.min(1L + delta, timerWheel.length);
+    int start = (int) (previousTicks & mask);
+    int end = start + steps;
+
+    for (int i = start; i < end; i++) {
+      Timer sentinel = timerWheel[i & mask];
+      Timer node = sentinel.nextInWheel;
+      sentinel.previousInWheel = sentinel;
+      sentinel.nextInWheel = sentinel;
+
+      while (node != sentinel) {
+        Timer next = node.nextInWheel;
+        node.previousInWheel = null;
+        node.nextInWheel = null;
+        if (node.expirationTime - time > 0) {
+          // Not due yet, cascade to the level matching the remaining time
+          cascade(node);
+        } else {
+          onExpired.accept(node);
+        }
+        node = next;
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void cascade(Timer node) {
+    schedule((T) node);
+  }
+
+  private Timer findBucket(long expirationTime) {
+    long duration = expirationTime - time;
+    int length = wheel.length - 1;
+    for (int i = 0; i < length; i++) {
+      if (duration < SPANS[i + 1]) {
+        long ticks = expirationTime >>> SHIFT[i];
+        int index = (int) (ticks & (wheel[i].length - 1));
+        return wheel[i][index];
+      }
+    }
+    return wheel[length][0];
+  }
+
+  /** Forgets every scheduled timer. */
+  void clear() {
+    for (Timer[] level : wheel) {
+      for (Timer sentinel : level) {
+        sentinel.previousInWheel = sentinel;
+        sentinel.nextInWheel = sentinel;
+      }
+    }
+  }
+}
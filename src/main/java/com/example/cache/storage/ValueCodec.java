@@ -0,0 +1,194 @@
+package com.example.cache.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.nio.charset.StandardCharsets;
+
+import org.hibernate.cache.spi.entry.StandardCacheEntryImpl;
+
+/**
+ * Binary encoding for values stored outside the heap. Disassembled entity
+ * state is mostly boxed primitives and strings inside {@code Serializable[]},
+ * so those get compact tagged encodings; anything else falls back to Java
+ * serialization, which costs a class descriptor per value.
+ */
+final class ValueCodec {
+
+  private static final byte NULL = 0;
+  private static final byte STRING = 1;
+  private static final byte LONG = 2;
+  private static final byte INTEGER = 3;
+  private static final byte SHORT = 4;
+  private static final byte BYTE = 5;
+  private static final byte DOUBLE = 6;
+  private static final byte FLOAT = 7;
+  private static final byte BOOLEAN = 8;
+  private static final byte CHARACTER = 9;
+  private static final byte BYTES = 10;
+  private static final byte OBJECT_ARRAY = 11;
+  private static final byte SERIALIZABLE_ARRAY = 12;
+  private static final byte CACHE_ENTRY = 13;
+  private static final byte SERIALIZED = 14;
+
+  // Package-private in Hibernate; null when it cannot be opened, so entries use Java serialization
+  private static final Constructor<StandardCacheEntryImpl> CACHE_ENTRY_CONSTRUCTOR = findCacheEntryConstructor();
+
+  private ValueCodec() {
+  }
+
+  /**
+   * @throws java.io.NotSerializableException when the value contains an object that cannot be serialized
+   */
+  static byte[] encode(Object value) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+    DataOutputStream out = new DataOutputStream(bytes);
+    write(out, value);
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  static Object decode(byte[] data) throws IOException {
+    return read(new DataInputStream(new ByteArrayInputStream(data)));
+  }
+
+  private static void write(DataOutputStream out, Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof String) {
+      out.writeByte(STRING);
+      byte[] utf8 = ((String) value).getBytes(StandardCharsets.UTF_8);
+      out.writeInt(utf8.length);
+      out.write(utf8);
+    } else if (value instanceof Long) {
+      out.writeByte(LONG);
+      out.writeLong((Long) value);
+    } else if (value instanceof Integer) {
+      out.writeByte(INTEGER);
+      out.writeInt((Integer) value);
+    } else if (value instanceof Short) {
+      out.writeByte(SHORT);
+      out.writeShort((Short) value);
+    } else if (value instanceof Byte) {
+      out.writeByte(BYTE);
+      out.writeByte((Byte) value);
+    } else if (value instanceof Double) {
+      out.writeByte(DOUBLE);
+      out.writeDouble((Double) value);
+    } else if (value instanceof Float) {
+      out.writeByte(FLOAT);
+      out.writeFloat((Float) value);
+    } else if (value instanceof Boolean) {
+      out.writeByte(BOOLEAN);
+      out.writeBoolean((Boolean) value);
+    } else if (value instanceof Character) {
+      out.writeByte(CHARACTER);
+      out.writeChar((Character) value);
+    } else if (value instanceof byte[]) {
+      byte[] array = (byte[]) value;
+      out.writeByte(BYTES);
+      out.writeInt(array.length);
+      out.write(array);
+    } else if (value.getClass() == Object[].class || value.getClass() == Serializable[].class) {
+      Object[] array = (Object[]) value;
+      out.writeByte(value.getClass() == Object[].class ? OBJECT_ARRAY : SERIALIZABLE_ARRAY);
+      out.writeInt(array.length);
+      for (Object element : array) {
+        write(out, element);
+      }
+    } else if (value.getClass() == StandardCacheEntryImpl.class && CACHE_ENTRY_CONSTRUCTOR != null) {
+      StandardCacheEntryImpl entry = (StandardCacheEntryImpl) value;
+      out.writeByte(CACHE_ENTRY);
+      write(out, entry.getDisassembledState());
+      write(out, entry.getSubclass());
+      write(out, entry.getVersion());
+    } else {
+      ByteArrayOutputStream serialized = new ByteArrayOutputStream(256);
+      try (ObjectOutputStream objectOut = new ObjectOutputStream(serialized)) {
+        objectOut.writeObject(value);
+      }
+      out.writeByte(SERIALIZED);
+      out.writeInt(serialized.size());
+      serialized.writeTo(out);
+    }
+  }
+
+  private static Object read(DataInputStream in) throws IOException {
+    byte tag = in.readByte();
+    switch (tag) {
+      case NULL:
+        return null;
+      case STRING:
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+      case LONG:
+        return in.readLong();
+      case INTEGER:
+        return in.readInt();
+      case SHORT:
+        return in.readShort();
+      case BYTE:
+        return in.readByte();
+      case DOUBLE:
+        return in.readDouble();
+      case FLOAT:
+        return in.readFloat();
+      case BOOLEAN:
+        return in.readBoolean();
+      case CHARACTER:
+        return in.readChar();
+      case BYTES:
+        return readBytes(in);
+      case OBJECT_ARRAY:
+      case SERIALIZABLE_ARRAY: {
+        int length = in.readInt();
+        Object[] array = tag == OBJECT_ARRAY ? new Object[length] : new Serializable[length];
+        for (int i = 0; i < length; i++) {
+          array[i] = read(in);
+        }
+        return array;
+      }
+      case CACHE_ENTRY: {
+        Serializable[] state = (Serializable[]) read(in);
+        String subclass = (String) read(in);
+        Object version = read(in);
+        try {
+          return CACHE_ENTRY_CONSTRUCTOR.newInstance(state, subclass, version);
+        } catch (ReflectiveOperationException e) {
+          throw new IOException("Cannot rebuild cache entry for " + subclass, e);
+        }
+      }
+      case SERIALIZED:
+        try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(readBytes(in)))) {
+          return objectIn.readObject();
+        } catch (ClassNotFoundException e) {
+          throw new IOException(e);
+        }
+      default:
+        throw new InvalidObjectException("Unknown value tag " + tag);
+    }
+  }
+
+  private static byte[] readBytes(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  private static Constructor<StandardCacheEntryImpl> findCacheEntryConstructor() {
+    try {
+      Constructor<StandardCacheEntryImpl> constructor =
+          StandardCacheEntryImpl.class.getDeclaredConstructor(Serializable[].class, String.class, Object.class);
+      constructor.setAccessible(true);
+      return constructor;
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package com.example.cache.storage;
+
+/**
+ * Computes the size of a cache entry, in bytes or any other unit the
+ * configured budget ({@code hibernate.cache.max_bytes}) is expressed in.
+ * Implementations are called under the storage lock on every write, so they
+ * should be cheap and must not touch the cache.
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+  /**
+   * @return the entry's weight, never negative
+   */
+  int weigh(K key, V value);
+
+  /**
+   * Weighs every entry as 1. Engines given this weigher bound entries by
+   * count only and do not weigh them.
+   */
+  @SuppressWarnings("unchecked")
+  static <K, V> Weigher<K, V> singleton() {
+    return (Weigher<K, V>) Singleton.INSTANCE;
+  }
+
+  /** The shared instance behind {@link #singleton()}, so engines can recognize it. */
+  enum Singleton implements Weigher<Object, Object> {
+    INSTANCE;
+
+    @Override
+    public int weigh(Object key, Object value) {
+      return 1;
+    }
+  }
+}
@@ -0,0 +1,549 @@
+package com.example.cache.storage;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.cache.metrics.MetricsCollector;
+import com.example.cache.utils.Ticker;
+
+/**
+ * W-TinyLFU storage. New entries land in a small LRU admission window (1% of
+ * capacity). Entries leaving the window compete with the victim of the main
+ * space, and the {@link FrequencySketch} decides which one is kept, so one-off
+ * scans cannot push out frequently used entries. The main space is a segmented
+ * LRU: a probation segment for entries seen once since admission and a
+ * protected segment (80% of the main space) for entries hit again.
+ */
+public class WindowTinyLfuCache<K, V> implements CacheStorage<K, V> {
+  private static final Logger logger = LoggerFactory.getLogger(WindowTinyLfuCache.class);
+
+  private static final double WINDOW_PERCENTAGE = 0.01;
+  private static final double PROTECTED_PERCENTAGE = 0.80;
+  // Share of the entries remembered in the ghost list after eviction
+  private static final int GHOST_DIVISOR = 8;
+
+  private enum Queue { WINDOW, PROBATION, PROTECTED }
+
+  private final ConcurrentHashMap<K, Node> map = new ConcurrentHashMap<>();
+  private int maxEntries;
+  private int maxWindow;
+  private int maxProtected;
+  private final long ttlMillis;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final AtomicInteger size = new AtomicInteger(0);
+  private final MetricsCollector metrics;
+  private final Ticker ticker;
+  // Hashes of recently evicted keys, oldest first; null until the cache is first resized
+  private LinkedHashSet<Integer> ghost;
+  private final FrequencySketch sketch;
+
+  private final AccessOrderDeque window = new AccessOrderDeque();
+  private final AccessOrderDeque probation = new AccessOrderDeque();
+  private final AccessOrderDeque protectedSegment = new AccessOrderDeque();
+  private final TimerWheel<Node> timerWheel;
+
+  private class Node extends TimerWheel.Timer {
+    final K key;
+    // Written under the lock, read without it by containsKey and peek
+    volatile V value;
+    volatile long lastAccess;
+    Queue queue;
+    Node prev, next;
+
+    Node(K k, V v, long now) {
+      this.key = k;
+      this.value = v;
+      this.lastAccess = now;
+    }
+  }
+
+  private class AccessOrderDeque {
+    final Node head = new Node(null, null, 0);
+    int size;
+
+    AccessOrderDeque() {
+      head.next = head;
+      head.prev = head;
+    }
+
+    void addMostRecent(Node n) {
+      n.prev = head.prev;
+      n.next = head;
+      head.prev.next = n;
+      head.prev = n;
+      size++;
+    }
+
+    void remove(Node n) {
+      n.prev.next = n.next;
+      n.next.prev = n.prev;
+      n.prev = null;
+      n.next = null;
+      size--;
+    }
+
+    void moveToMostRecent(Node n) {
+      remove(n);
+      addMostRecent(n);
+    }
+
+    Node leastRecent() {
+      return head.next == head ? null : head.next;
+    }
+
+    void clear() {
+      head.next = head;
+      head.prev = head;
+      size = 0;
+    }
+  }
+
+  public WindowTinyLfuCache(int maxEntries, long ttlMillis, MetricsCollector metrics) {
+    this(maxEntries, ttlMillis, metrics, Ticker.system());
+  }
+
+  public WindowTinyLfuCache(int maxEntries, long ttlMillis, MetricsCollector metrics, Ticker ticker) {
+    if (maxEntries <= 0)
+      throw new IllegalArgumentException("maxEntries must be > 0");
+    if (ttlMillis < 0)
+      throw new IllegalArgumentException("ttlMillis must be >= 0");
+    if (ticker == null)
+      throw new IllegalArgumentException("ticker cannot be null");
+    this.maxEntries = maxEntries;
+    this.maxWindow = Math.max(1, (int) (maxEntries * WINDOW_PERCENTAGE));
+    this.maxProtected = (int) ((maxEntries - maxWindow) * PROTECTED_PERCENTAGE);
+    this.ttlMillis = ttlMillis;
+    this.metrics = metrics;
+    this.ticker = ticker;
+    this.sketch = new FrequencySketch(maxEntries);
+    this.timerWheel = ttlMillis > 0 ? new TimerWheel<>(ticker.read()) : null;
+    logger.debug("WindowTinyLfuCache initialized with maxEntries={}, window={}, protected={}, ttlMillis={}",
+        maxEntries, maxWindow, maxProtected, ttlMillis);
+  }
+
+  /**
+   * Reads the map without locking and without recording the access in the frequency sketch.
+   */
+  @Override
+  public boolean containsKey(K key) {
+    Node n = map.get(key);
+    return n != null && (ttlMillis == 0 || ticker.read() - n.lastAccess <= ttlMillis);
+  }
+
+  @Override
+  public V peek(K key) {
+    Node n = map.get(key);
+    return n != null && (ttlMillis == 0 || ticker.read() - n.lastAccess <= ttlMillis) ? n.value : null;
+  }
+
+  @Override
+  public V get(K key) {
+    lock.lock();
+    try {
+      return getLocked(key, ttlMillis > 0 ? ticker.read() : 0);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Looks up the whole batch under one acquisition of the lock.
+   */
+  @Override
+  public Map<K, V> getAll(Collection<? extends K> keys) {
+    Map<K, V> found = new HashMap<>();
+    lock.lock();
+    try {
+      long now = ttlMillis > 0 ? ticker.read() : 0;
+      for (K key : keys) {
+        V value = getLocked(key, now);
+        if (value != null) {
+          found.put(key, value);
+        }
+      }
+      return found;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private V getLocked(K key, long now) {
+    sketch.increment(key);
+    Node n = map.get(key);
+    if (n == null) {
+      metrics.miss();
+      return null;
+    }
+
+    if (ttlMillis > 0) {
+      if ((now - n.lastAccess) > ttlMillis) {
+        removeNode(n);
+        metrics.miss();
+        metrics.evict();
+        metrics.expire();
+        return null;
+      }
+      n.lastAccess = now;
+    }
+
+    metrics.hit();
+    onHit(n);
+    return n.value;
+  }
+
+  @Override
+  public void put(K key, V value) {
+    lock.lock();
+    try {
+      long now = ttlMillis > 0 ? ticker.read() : 0;
+      expireEntries(now);
+      putLocked(key, value, now);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Caches the whole batch under one acquisition of the lock, expiring
+   * entries once for the batch.
+   */
+  @Override
+  public void putAll(Map<? extends K, ? extends V> entries) {
+    lock.lock();
+    try {
+      long now = ttlMillis > 0 ? ticker.read() : 0;
+      expireEntries(now);
+      for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+        putLocked(entry.getKey(), entry.getValue(), now);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void putLocked(K key, V value, long now) {
+    Node existing = map.get(key);
+    if (existing != null) {
+      existing.value = value;
+      existing.lastAccess = now;
+      onHit(existing);
+      metrics.put();
+      return;
+    }
+
+    if (ghost != null && ghost.remove(key.hashCode())) {
+      metrics.ghostHit();
+    }
+    insert(key, value, now);
+    metrics.put();
+  }
+
+  // Adds a new entry to the admission window, moving the window's LRU entry on when it overflows
+  private void insert(K key, V value, long accessTime) {
+    sketch.increment(key);
+    Node newNode = new Node(key, value, accessTime);
+    newNode.queue = Queue.WINDOW;
+    window.addMostRecent(newNode);
+    map.put(key, newNode);
+    if (timerWheel != null) {
+      newNode.expirationTime = accessTime + ttlMillis;
+      timerWheel.schedule(newNode);
+    }
+    size.incrementAndGet();
+
+    if (window.size > maxWindow) {
+      evictFromWindow();
+    }
+  }
+
+  @Override
+  public void remove(K key) {
+    lock.lock();
+    try {
+      Node n = map.get(key);
+      if (n != null) {
+        removeNode(n);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    return size.get();
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      map.clear();
+      window.clear();
+      probation.clear();
+      protectedSegment.clear();
+      if (timerWheel != null) {
+        timerWheel.clear();
+      }
+      size.set(0);
+      if (ghost != null) {
+        ghost.clear();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void cleanUp() {
+    if (timerWheel == null) {
+      return;
+    }
+    lock.lock();
+    try {
+      expireEntries(ticker.read());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void expireEntries(long now) {
+    if (timerWheel != null) {
+      timerWheel.advance(now, n -> onTimerExpired(n, now));
+    }
+  }
+
+  private void onTimerExpired(Node n, long now) {
+    if (map.get(n.key) != n) {
+      return;
+    }
+    long deadline = n.lastAccess + ttlMillis;
+    if (deadline > now) {
+      n.expirationTime = deadline;
+      timerWheel.schedule(n);
+      return;
+    }
+    logger.debug("Expiring entry with key: {}", n.key);
+    removeNode(n);
+    metrics.evict();
+    metrics.expire();
+  }
+
+  private void onHit(Node n) {
+    switch (n.queue) {
+      case WINDOW:
+        window.moveToMostRecent(n);
+        break;
+      case PROBATION:
+        probation.remove(n);
+        n.queue = Queue.PROTECTED;
+        protectedSegment.addMostRecent(n);
+        demoteFromProtected();
+        break;
+      case PROTECTED:
+      default:
+        protectedSegment.moveToMostRecent(n);
+        break;
+    }
+  }
+
+  private void demoteFromProtected() {
+    while (protectedSegment.size > maxProtected) {
+      Node demoted = protectedSegment.leastRecent();
+      protectedSegment.remove(demoted);
+      demoted.queue = Queue.PROBATION;
+      probation.addMostRecent(demoted);
+    }
+  }
+
+  /**
+   * Moves the window's LRU entry into the main space. When the cache is over
+   * capacity the candidate has to beat the main space's victim on estimated
+   * frequency; otherwise the candidate itself is evicted.
+   */
+  private void evictFromWindow() {
+    Node candidate = window.leastRecent();
+    window.remove(candidate);
+    candidate.queue = Queue.PROBATION;
+
+    if (size.get() <= maxEntries) {
+      probation.addMostRecent(candidate);
+      return;
+    }
+
+    Node victim = probation.leastRecent();
+    if (victim == null) {
+      victim = protectedSegment.leastRecent();
+    }
+    if (victim != null && admit(candidate.key, victim.key)) {
+      probation.addMostRecent(candidate);
+      evict(victim);
+    } else {
+      evict(candidate);
+    }
+  }
+
+  // The ghost covers the last 1/GHOST_DIVISOR of the resident entries, so its hits estimate the gain of growing that much
+  private void rememberGhost(K key) {
+    ghost.add(key.hashCode());
+    int capacity = Math.max(1, size.get() / GHOST_DIVISOR);
+    Iterator<Integer> oldest = ghost.iterator();
+    while (ghost.size() > capacity) {
+      oldest.next();
+      oldest.remove();
+    }
+  }
+
+  /**
+   * Resizes the window and the protected segment with the capacity, then
+   * evicts from the probation segment, the protected segment and finally the
+   * window, each least recently used first, until the cache fits. The
+   * frequency sketch keeps its size and history. There is no weight bound to
+   * apply.
+   */
+  @Override
+  public boolean resize(int maxEntries, long maxWeight) {
+    if (maxEntries <= 0)
+      throw new IllegalArgumentException("maxEntries must be > 0");
+    lock.lock();
+    try {
+      this.maxEntries = maxEntries;
+      this.maxWindow = Math.max(1, (int) (maxEntries * WINDOW_PERCENTAGE));
+      this.maxProtected = (int) ((maxEntries - maxWindow) * PROTECTED_PERCENTAGE);
+      if (ghost == null) {
+        ghost = new LinkedHashSet<>();
+      }
+      demoteFromProtected();
+      while (window.size > maxWindow) {
+        Node n = window.leastRecent();
+        window.remove(n);
+        n.queue = Queue.PROBATION;
+        probation.addMostRecent(n);
+      }
+      while (size.get() > maxEntries) {
+        evict(leastValuable());
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Node leastValuable() {
+    Node victim = probation.leastRecent();
+    if (victim == null) {
+      victim = protectedSegment.leastRecent();
+    }
+    return victim != null ? victim : window.leastRecent();
+  }
+
+  /**
+   * Visits the probation segment, then the window, then the protected
+   * segment, each from least to most recently used, so the entries most
+   * worth keeping come last.
+   */
+  @Override
+  public void snapshot(EntryVisitor<K, V> visitor) {
+    lock.lock();
+    try {
+      long now = ticker.read();
+      visit(probation, visitor, now);
+      visit(window, visitor, now);
+      visit(protectedSegment, visitor, now);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void visit(AccessOrderDeque queue, EntryVisitor<K, V> visitor, long now) {
+    for (Node n = queue.head.next; n != queue.head; n = n.next) {
+      visitor.visit(n.key, n.value, ttlMillis > 0 ? n.lastAccess : now);
+    }
+  }
+
+  /**
+   * Inserts through the admission window without counting a put. A full
+   * cache makes room by evicting in the same order as {@link #resize}, so the
+   * entries restored last are kept.
+   */
+  @Override
+  public boolean restore(K key, V value, long lastAccess) {
+    lock.lock();
+    try {
+      if (map.containsKey(key)) {
+        return false;
+      }
+      long now = ttlMillis > 0 ? ticker.read() : 0;
+      if (ttlMillis > 0 && now - lastAccess > ttlMillis) {
+        return false;
+      }
+      if (size.get() >= maxEntries) {
+        evict(leastValuable());
+      }
+      insert(key, value, Math.min(lastAccess, now));
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** The estimated access count of the key, as used for admission. */
+  int frequency(K key) {
+    lock.lock();
+    try {
+      return sketch.frequency(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private boolean admit(K candidateKey, K victimKey) {
+    return sketch.frequency(candidateKey) > sketch.frequency(victimKey);
+  }
+
+  private void evict(Node n) {
+    logger.debug("Evicting entry with key: {}", n.key);
+    if (ghost != null) {
+      rememberGhost(n.key);
+    }
+    if (n.prev != null) {
+      queueOf(n).remove(n);
+    }
+    map.remove(n.key, n);
+    if (timerWheel != null) {
+      timerWheel.deschedule(n);
+    }
+    size.decrementAndGet();
+    metrics.evict();
+  }
+
+  private void removeNode(Node n) {
+    queueOf(n).remove(n);
+    if (timerWheel != null) {
+      timerWheel.deschedule(n);
+    }
+    map.remove(n.key, n);
+    size.decrementAndGet();
+  }
+
+  private AccessOrderDeque queueOf(Node n) {
+    switch (n.queue) {
+      case WINDOW:
+        return window;
+      case PROBATION:
+        return probation;
+      case PROTECTED:
+      default:
+        return protectedSegment;
+    }
+  }
+}
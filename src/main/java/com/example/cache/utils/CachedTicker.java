@@ -0,0 +1,44 @@
+package com.example.cache.utils;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ticker whose value is refreshed by a daemon thread every {@code resolutionMillis},
+ * so reading it is a single volatile load instead of a system call.
+ */
+public final class CachedTicker implements Ticker, AutoCloseable {
+
+    private final long resolutionNanos;
+    private final Thread updater;
+    private volatile long now;
+    private volatile boolean running = true;
+
+    public CachedTicker(long resolutionMillis) {
+        if (resolutionMillis <= 0) {
+            throw new IllegalArgumentException("resolutionMillis must be > 0");
+        }
+        this.resolutionNanos = resolutionMillis * 1_000_000L;
+        this.now = System.currentTimeMillis();
+        this.updater = new Thread(this::run, "hibernate-cache-ticker");
+        this.updater.setDaemon(true);
+        this.updater.start();
+    }
+
+    private void run() {
+        while (running) {
+            LockSupport.parkNanos(resolutionNanos);
+            now = System.currentTimeMillis();
+        }
+    }
+
+    @Override
+    public long read() {
+        return now;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(updater);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.cache.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Manually advanced ticker for tests and simulations.
+ */
+public final class FakeTicker implements Ticker {
+
+    private final AtomicLong now;
+
+    public FakeTicker() {
+        this(0);
+    }
+
+    public FakeTicker(long startMillis) {
+        this.now = new AtomicLong(startMillis);
+    }
+
+    public FakeTicker advance(long millis) {
+        now.addAndGet(millis);
+        return this;
+    }
+
+    public void set(long millis) {
+        now.set(millis);
+    }
+
+    @Override
+    public long read() {
+        return now.get();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.cache.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns small integer ids to entity names and collection roles, so cache keys
+ * carry an {@code int} instead of a {@code String} and compare it with
+ * {@code ==}. Regions register the names they cache when they are built; a key
+ * built for a name nobody registered gets the next free id on first use. Ids
+ * are never reused and are only meaningful inside this JVM, so keys serialize
+ * the name itself.
+ */
+public final class KeyTypeRegistry {
+
+    private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[16];
+    private static int nextId;
+
+    private KeyTypeRegistry() {
+    }
+
+    /**
+     * Returns the id of {@code name}, registering it if it has none yet.
+     */
+    public static int idOf(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : register(name);
+    }
+
+    public static synchronized int register(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("Name cannot be null");
+        }
+        Integer existing = ids.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        int id = nextId++;
+        String[] current = names;
+        if (id == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[id] = name;
+        // Publish the name before the id, so whoever reads the id can resolve it
+        names = current;
+        ids.put(name, id);
+        return id;
+    }
+
+    public static String nameOf(int id) {
+        String[] current = names;
+        if (id < 0 || id >= current.length || current[id] == null) {
+            throw new IllegalArgumentException("Unknown key type id: " + id);
+        }
+        return current[id];
+    }
+}
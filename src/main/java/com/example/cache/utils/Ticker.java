@@ -0,0 +1,23 @@
+package com.example.cache.utils;
+
+/**
+ * Source of the current time in milliseconds used for TTLs, soft-lock
+ * timeouts and region timestamps.
+ */
+public interface Ticker {
+
+    long read();
+
+    static Ticker system() {
+        return SystemTicker.INSTANCE;
+    }
+}
+
+enum SystemTicker implements Ticker {
+    INSTANCE;
+
+    @Override
+    public long read() {
+        return System.currentTimeMillis();
+    }
+}
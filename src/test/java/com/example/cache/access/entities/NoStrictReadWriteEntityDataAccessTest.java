@@ -498,4 +498,20 @@ class NoStrictReadWriteEntityDataAccessTest {
         assertNull(dataAccess.get(session, key));
         assertFalse(dataAccess.contains(key));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should check existence without counting hits or misses")
+    void testExistenceChecksLeaveMetricsAlone() {
+        EntityCacheKey key = new EntityCacheKey(1L, "Entity", null);
+        dataAccess.putFromLoad(session, key, "value1", 1, false);
+
+        assertTrue(dataAccess.contains(key));
+        assertFalse(dataAccess.contains(new EntityCacheKey(2L, "Entity", null)));
+        assertFalse(dataAccess.putFromLoad(session, key, "value2", 1, true));
+        assertTrue(dataAccess.putFromLoad(session, new EntityCacheKey(3L, "Entity", null), "value3", 1, true));
+
+        MetricsCollector metrics = entityRegion.getMetrics();
+        assertEquals(0, metrics.getHits());
+        assertEquals(0, metrics.getMisses());
+    }
+}
@@ -1,12 +1,18 @@
 package com.example.cache.access.entities;
 
+import com.example.cache.access.ReadWriteEntry;
 import com.example.cache.access.ReadWriteSoftLock;
+import com.example.cache.access.collections.CollectionCacheKey;
+import com.example.cache.access.collections.ReadWriteCollectionDataAccess;
+import com.example.cache.config.CacheConfiguration;
 import com.example.cache.metrics.MetricsCollector;
 import com.example.cache.region.DomainDataRegionAdapter;
 import com.example.cache.region.RegionImpl;
+import com.example.cache.utils.FakeTicker;
 
 
 import org.hibernate.cache.CacheException;
+import org.hibernate.cache.spi.CacheTransactionSynchronization;
 import org.hibernate.cache.spi.access.AccessType;
 import org.hibernate.cache.spi.access.SoftLock;
 import org.hibernate.engine.spi.SessionFactoryImplementor;
@@ -16,9 +22,13 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import static org.junit.jupiter.api.Assertions.*;
@@ -108,17 +118,24 @@ class ReadWriteEntityDataAccessTest {
     }
 
     @Test
-    @DisplayName("Should throw exception when locking already locked item")
+    @DisplayName("Should share a lock between concurrent writers and keep the key locked until both unlock")
     void testDoubleLock() {
         EntityCacheKey key = new EntityCacheKey(1L, "Entity", null);
         dataAccess.putFromLoad(session, key, "value", 1);
         
         SoftLock lock1 = dataAccess.lockItem(session, key, 1);
+        SoftLock lock2 = dataAccess.lockItem(session, key, 1);
+        assertNotNull(lock2, "A second writer joins the lock instead of waiting");
+        assertEquals(((ReadWriteSoftLock) lock1).getLockId(), ((ReadWriteSoftLock) lock2).getLockId());
         
-        // Try to lock again
-        assertNull(dataAccess.lockItem(session, key, 1));
+        // The order of concurrent writes is unknown, so neither may cache its value
+        assertFalse(dataAccess.afterUpdate(session, key, "value2", 2, 1, lock1));
+        assertFalse(dataAccess.putFromLoad(session, key, "value", 1));
+        assertFalse(dataAccess.afterUpdate(session, key, "value3", 3, 1, lock2));
+        assertNull(dataAccess.get(session, key));
         
-        dataAccess.unlockItem(session, key, lock1);
+        assertTrue(dataAccess.putFromLoad(session, key, "value3", 3));
+        assertEquals("value3", dataAccess.get(session, key));
     }
 
     @Test
@@ -137,6 +154,228 @@ class ReadWriteEntityDataAccessTest {
         dataAccess.unlockItem(session, key, lock);
     }
 
+    @Test
+    @DisplayName("Should expire soft locks using the region ticker")
+    void testLockExpirationWithTicker() {
+        FakeTicker ticker = new FakeTicker(1_000);
+        RegionImpl region = new RegionImpl("ticker-region", 100, 0, new MetricsCollector(), null, ticker);
+        ReadWriteEntityDataAccess access = new ReadWriteEntityDataAccess(region, domainDataRegion);
+        EntityCacheKey key = new EntityCacheKey(1L, "Entity", null);
+        access.putFromLoad(session, key, "value", 1);
+
+        SoftLock stale = access.lockItem(session, key, 1);
+        assertNotNull(stale);
+        assertEquals(1_000, ((ReadWriteSoftLock) stale).getTimestamp());
+        assertFalse(access.putFromLoad(session, key, "value", 1), "Locked key should reject puts");
+
+        ticker.advance(60_001);
+        assertTrue(access.putFromLoad(session, key, "value", 1), "Expired lock should no longer block puts");
+        SoftLock fresh = access.lockItem(session, key, 2);
+        assertNotNull(fresh, "Expired lock should be replaced");
+        assertEquals(61_001, ((ReadWriteSoftLock) fresh).getTimestamp());
+    }
+
+    @Test
+    @DisplayName("Should reap abandoned soft locks during region maintenance")
+    void testAbandonedLocksReaped() {
+        FakeTicker ticker = new FakeTicker(1_000);
+        MetricsCollector metrics = new MetricsCollector();
+        RegionImpl region = new RegionImpl("reaped-region", 100, 0, metrics, null, ticker);
+        ReadWriteEntityDataAccess access = new ReadWriteEntityDataAccess(region, domainDataRegion);
+        EntityCacheKey abandoned = new EntityCacheKey(1L, "Entity", null);
+        EntityCacheKey live = new EntityCacheKey(2L, "Entity", null);
+
+        access.lockItem(session, abandoned, 1);
+        ticker.advance(30_000);
+        SoftLock liveLock = access.lockItem(session, live, 1);
+        assertEquals(2, access.getOutstandingLocks());
+
+        ticker.advance(30_001);
+        region.cleanUp();
+        assertEquals(1, access.getOutstandingLocks(), "Only the expired lock is reaped");
+        assertEquals(1, metrics.getSoftLocksReaped());
+        assertNull(region.get(abandoned), "The expired lock entry is removed without a read of its key");
+        assertTrue(region.get(live) instanceof ReadWriteEntry.Lock);
+
+        access.unlockItem(session, live, liveLock);
+        assertEquals(0, access.getOutstandingLocks());
+        region.cleanUp();
+        assertEquals(1, metrics.getSoftLocksReaped(), "Released locks are not reaped again");
+    }
+
+    @Test
+    @DisplayName("Should stop counting soft locks beyond the lock table cap")
+    void testLockTableCap() {
+        FakeTicker ticker = new FakeTicker(1_000);
+        MetricsCollector metrics = new MetricsCollector();
+        CacheConfiguration config = new CacheConfiguration(Map.of(CacheConfiguration.MAX_SOFT_LOCKS_PROPERTY, 2));
+        RegionImpl region = new RegionImpl("capped-region", 100, 0, metrics, config, ticker);
+        ReadWriteEntityDataAccess access = new ReadWriteEntityDataAccess(region, domainDataRegion);
+
+        access.lockItem(session, new EntityCacheKey(1L, "Entity", null), 1);
+        access.lockItem(session, new EntityCacheKey(2L, "Entity", null), 1);
+        EntityCacheKey overflow = new EntityCacheKey(3L, "Entity", null);
+        SoftLock untracked = access.lockItem(session, overflow, 1);
+        assertNotNull(untracked, "A lock beyond the cap still locks its key");
+        assertFalse(access.putFromLoad(session, overflow, "stale", 1));
+        assertEquals(2, access.getOutstandingLocks());
+        assertEquals(1, metrics.getSoftLockOverflows());
+
+        // A full table reaps expired locks before turning a lock away
+        ticker.advance(60_001);
+        access.lockItem(session, new EntityCacheKey(4L, "Entity", null), 1);
+        assertEquals(1, access.getOutstandingLocks());
+        assertEquals(2, metrics.getSoftLocksReaped());
+        assertEquals(1, metrics.getSoftLockOverflows());
+
+        access.unlockItem(session, overflow, untracked);
+        assertEquals(1, access.getOutstandingLocks(), "Releasing an uncounted lock leaves the count alone");
+    }
+
+    @Test
+    @DisplayName("Should reject loads older than the cached version or than the last write")
+    void testStaleLoadsRejected() {
+        FakeTicker ticker = new FakeTicker(1_000);
+        RegionImpl region = new RegionImpl("stale-region", 100, 0, new MetricsCollector(), null, ticker);
+        ReadWriteEntityDataAccess access = new ReadWriteEntityDataAccess(region, domainDataRegion);
+        EntityCacheKey versioned = new EntityCacheKey(1L, "Entity", null);
+        EntityCacheKey unversioned = new EntityCacheKey(2L, "Entity", null);
+
+        assertTrue(access.putFromLoad(session, versioned, "v2", 2));
+        assertFalse(access.putFromLoad(session, versioned, "v1", 1), "An older version is stale");
+        assertTrue(access.putFromLoad(session, versioned, "v3", 3));
+        assertEquals("v3", access.get(session, versioned));
+
+        assertTrue(access.putFromLoad(sessionStartedAt(500), unversioned, "first", null));
+        assertFalse(access.putFromLoad(sessionStartedAt(900), unversioned, "older", null),
+            "A transaction that started before the item was cached may have read older data");
+        assertTrue(access.putFromLoad(sessionStartedAt(1_500), unversioned, "newer", null));
+
+        ticker.advance(1_000);
+        SoftLock lock = access.lockItem(session, unversioned, null);
+        access.unlockItem(session, unversioned, lock);
+        assertNull(access.get(session, unversioned), "The key misses until it is loaded again");
+        assertFalse(access.putFromLoad(sessionStartedAt(1_900), unversioned, "before-unlock", null));
+        assertTrue(access.putFromLoad(sessionStartedAt(2_100), unversioned, "after-unlock", null));
+        assertEquals("after-unlock", access.get(session, unversioned));
+    }
+
+    @Test
+    @DisplayName("Should count reads of locked keys as misses")
+    void testLockedReadCountsMiss() {
+        MetricsCollector metrics = entityRegion.getMetrics();
+        EntityCacheKey key = new EntityCacheKey(1L, "Entity", null);
+        dataAccess.putFromLoad(session, key, "value1", 1);
+
+        assertEquals("value1", dataAccess.get(session, key));
+        assertEquals(1, metrics.getHits());
+
+        SoftLock lock = dataAccess.lockItem(session, key, 1);
+        assertNull(dataAccess.get(session, key));
+        assertEquals(1, metrics.getHits());
+        assertEquals(1, metrics.getMisses());
+
+        dataAccess.unlockItem(session, key, lock);
+        dataAccess.removeAll(session);
+        assertNull(dataAccess.get(session, key));
+        assertEquals(1, metrics.getHits());
+        assertEquals(2, metrics.getMisses());
+    }
+
+    @Test
+    @DisplayName("Should time out locks after the region's own lock timeout")
+    void testRegionLockTimeout() {
+        CacheConfiguration config = new CacheConfiguration(Map.of(
+            CacheConfiguration.LOCK_TIMEOUT_SECONDS_PROPERTY, 60,
+            "hibernate.cache.region.short-locks.lock_timeout_seconds", 5));
+        RegionImpl region = new RegionImpl("short-locks", 100, 60000, new MetricsCollector(),
+            config.forRegion("short-locks"), new FakeTicker());
+        ReadWriteEntityDataAccess access = new ReadWriteEntityDataAccess(region, domainDataRegion);
+
+        ReadWriteSoftLock lock = (ReadWriteSoftLock) access.lockItem(session, new EntityCacheKey(1L, "Entity", null), 1);
+        assertEquals(5000, lock.getTimeout() - lock.getTimestamp());
+    }
+
+    @Test
+    @DisplayName("Should count each lock until it is released once")
+    void testOutstandingLocks() {
+        EntityCacheKey key = new EntityCacheKey(1L, "Entity", null);
+        assertEquals(0, dataAccess.getOutstandingLocks());
+
+        SoftLock first = dataAccess.lockItem(session, key, 1);
+        SoftLock second = dataAccess.lockItem(session, key, 1);
+        assertEquals(2, dataAccess.getOutstandingLocks());
+
+        dataAccess.unlockItem(session, key, first);
+        dataAccess.unlockItem(session, key, first);
+        assertEquals(1, dataAccess.getOutstandingLocks(), "A lock handed back twice is released once");
+        dataAccess.afterUpdate(session, key, "updated", 2, 1, second);
+        assertEquals(0, dataAccess.getOutstandingLocks());
+
+        SoftLock regionLock = dataAccess.lockRegion();
+        assertEquals(1, dataAccess.getOutstandingLocks());
+        assertThrows(CacheException.class, dataAccess::lockRegion);
+        assertEquals(1, dataAccess.getOutstandingLocks(), "A failed region lock is not counted");
+        assertNull(dataAccess.get(session, key));
+        dataAccess.unlockRegion(regionLock);
+        assertEquals(0, dataAccess.getOutstandingLocks());
+
+        assertTrue(dataAccess.putFromLoad(session, key, "loaded", 3));
+        assertEquals("loaded", dataAccess.get(session, key));
+    }
+
+    private static SharedSessionContractImplementor sessionStartedAt(long timestamp) {
+        CacheTransactionSynchronization synchronization = mock(CacheTransactionSynchronization.class);
+        when(synchronization.getCachingTimestamp()).thenReturn(timestamp);
+        SharedSessionContractImplementor session = mock(SharedSessionContractImplementor.class);
+        when(session.getCacheTransactionSynchronization()).thenReturn(synchronization);
+        return session;
+    }
+
+    @Test
+    @DisplayName("Should let concurrent misses wait for the session loading the key")
+    void testConcurrentMissWaitsForLoad() throws Exception {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(CacheConfiguration.LOAD_WAIT_MILLIS_PROPERTY, 5_000);
+        MetricsCollector metrics = new MetricsCollector();
+        RegionImpl region = new RegionImpl("loading-region", 100, 0, metrics, new CacheConfiguration(properties));
+        ReadWriteEntityDataAccess access = new ReadWriteEntityDataAccess(region, domainDataRegion);
+        EntityCacheKey key = new EntityCacheKey(1L, "Entity", null);
+
+        assertNull(access.get(session, key), "First miss becomes the loader");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Object> waiter = executor.submit(() -> access.get(session, key));
+        while (metrics.getCoalescedLoads() == 0) {
+            Thread.sleep(1);
+        }
+        assertTrue(access.putFromLoad(session, key, "loaded", 1));
+
+        assertEquals("loaded", waiter.get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should release waiting misses when the key is locked for update")
+    void testLockReleasesWaitingMisses() throws Exception {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(CacheConfiguration.LOAD_WAIT_MILLIS_PROPERTY, 5_000);
+        MetricsCollector metrics = new MetricsCollector();
+        RegionImpl region = new RegionImpl("loading-region", 100, 0, metrics, new CacheConfiguration(properties));
+        ReadWriteEntityDataAccess access = new ReadWriteEntityDataAccess(region, domainDataRegion);
+        EntityCacheKey key = new EntityCacheKey(1L, "Entity", null);
+
+        assertNull(access.get(session, key));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Object> waiter = executor.submit(() -> access.get(session, key));
+        while (metrics.getCoalescedLoads() == 0) {
+            Thread.sleep(1);
+        }
+        assertNotNull(access.lockItem(session, key, 1));
+
+        assertNull(waiter.get(1, TimeUnit.SECONDS), "Waiters should fall back to the database");
+        executor.shutdown();
+    }
+
     @Test
     @DisplayName("Should unlock item properly")
     void testUnlockItem() {
@@ -342,6 +581,52 @@ class ReadWriteEntityDataAccessTest {
         assertNull(dataAccess.get(session, key2));
     }
 
+    @Test
+    @DisplayName("Should invalidate the region by moving to a new epoch")
+    void testRegionInvalidationByEpoch() {
+        EntityCacheKey key1 = new EntityCacheKey(1L, "Entity", null);
+        EntityCacheKey key2 = new EntityCacheKey(2L, "Entity", null);
+        dataAccess.putFromLoad(session, key1, "value1", 1);
+        dataAccess.putFromLoad(session, key2, "value2", 1);
+
+        dataAccess.removeAll(session);
+        assertEquals(2, entityRegion.size(), "Invalidation leaves the entries for lazy reclamation");
+        assertFalse(dataAccess.contains(key1));
+
+        assertNull(dataAccess.get(session, key1));
+        assertEquals(1, entityRegion.size(), "A read removes the stale entry");
+        assertTrue(dataAccess.putFromLoad(session, key2, "reloaded", 1), "A stale entry does not block loads");
+        assertEquals("reloaded", dataAccess.get(session, key2));
+
+        SharedSessionContractImplementor before = sessionStartedAt(Long.MIN_VALUE + 1);
+        dataAccess.removeAll(session);
+        assertFalse(dataAccess.putFromLoad(before, key1, "stale", 1),
+            "A transaction that started before the invalidation may have read stale data");
+        assertTrue(dataAccess.putFromLoad(session, key1, "fresh", 2));
+        assertEquals("fresh", dataAccess.get(session, key1));
+    }
+
+    @Test
+    @DisplayName("Should invalidate the entries of every strategy sharing the region")
+    void testSharedRegionInvalidation() {
+        ReadWriteCollectionDataAccess collectionAccess = new ReadWriteCollectionDataAccess(entityRegion, domainDataRegion);
+        EntityCacheKey entityKey = new EntityCacheKey(1L, "Entity", null);
+        CollectionCacheKey collectionKey = new CollectionCacheKey(1L, "Entity.children", null);
+        dataAccess.putFromLoad(session, entityKey, "entity", 1);
+        collectionAccess.putFromLoad(session, collectionKey, "children", 1);
+
+        dataAccess.removeAll(session);
+        assertFalse(dataAccess.contains(entityKey));
+        assertFalse(collectionAccess.contains(collectionKey), "The collection entries share the region's epoch");
+        assertNull(collectionAccess.get(session, collectionKey));
+
+        SharedSessionContractImplementor before = sessionStartedAt(Long.MIN_VALUE + 1);
+        assertFalse(collectionAccess.putFromLoad(before, collectionKey, "stale", 1),
+            "A transaction that started before the invalidation may have read stale data");
+        assertTrue(collectionAccess.putFromLoad(session, collectionKey, "fresh", 1));
+        assertEquals("fresh", collectionAccess.get(session, collectionKey));
+    }
+
     @Test
     @DisplayName("Should evict item and clear lock")
     void testEvict() {
@@ -465,4 +750,116 @@ class ReadWriteEntityDataAccessTest {
         
         assertEquals("value1", dataAccess.get(session, key));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should serve numeric ids from the primitive id tables")
+    void testLongIdStorage() {
+        Map<String, Object> configValues = new HashMap<>();
+        configValues.put(CacheConfiguration.LONG_ID_STORAGE_PROPERTY, "true");
+        RegionImpl region = new RegionImpl("long-ids", 100, 60000, new MetricsCollector(),
+            new CacheConfiguration(configValues));
+        ReadWriteEntityDataAccess access = new ReadWriteEntityDataAccess(region, domainDataRegion);
+
+        assertTrue(access.putFromLoad(session, new EntityCacheKey(1L, "Entity", null), "long", 1));
+        assertTrue(access.putFromLoad(session, new EntityCacheKey(1, "Other", null), "int", 1));
+        assertTrue(access.putFromLoad(session, new EntityCacheKey("1", "Entity", null), "string", 1));
+        assertTrue(access.putFromLoad(session, new EntityCacheKey(1L, "Entity", "tenant"), "tenant", 1));
+
+        assertEquals("long", access.get(session, new EntityCacheKey(1L, "Entity", null)));
+        assertEquals("int", access.get(session, new EntityCacheKey(1, "Other", null)));
+        assertEquals("string", access.get(session, new EntityCacheKey("1", "Entity", null)));
+        assertEquals("tenant", access.get(session, new EntityCacheKey(1L, "Entity", "tenant")));
+        assertEquals(4, region.size());
+
+        access.evict(new EntityCacheKey(1L, "Entity", null));
+        assertNull(access.get(session, new EntityCacheKey(1L, "Entity", null)));
+        access.evictAll();
+        assertEquals(0, region.size());
+    }
+
+    @Test
+    @DisplayName("Should not count writes as hits or misses on array storage")
+    void testWritesLeaveMetricsAloneOnArrayStorage() {
+        assertWritesLeaveMetricsAlone(CacheConfiguration.STORAGE_PROPERTY, "array");
+    }
+
+    @Test
+    @DisplayName("Should not count writes as hits or misses on off-heap storage")
+    void testWritesLeaveMetricsAloneOnOffHeapStorage() {
+        assertWritesLeaveMetricsAlone(CacheConfiguration.STORAGE_PROPERTY, "offheap");
+    }
+
+    @Test
+    @DisplayName("Should not count writes as hits or misses with the TinyLFU policy")
+    void testWritesLeaveMetricsAloneWithTinyLfu() {
+        assertWritesLeaveMetricsAlone(CacheConfiguration.EVICTION_POLICY_PROPERTY, "tinylfu");
+    }
+
+    private void assertWritesLeaveMetricsAlone(String property, String value) {
+        MetricsCollector metrics = new MetricsCollector();
+        RegionImpl region = new RegionImpl("engine-region", 100, 60000, metrics,
+            new CacheConfiguration(Map.of(property, value)));
+        ReadWriteEntityDataAccess access = new ReadWriteEntityDataAccess(region, domainDataRegion);
+        EntityCacheKey key = new EntityCacheKey(1L, "Entity", null);
+
+        assertTrue(access.putFromLoad(session, key, "value1", 1));
+        SoftLock lock = access.lockItem(session, key, 1);
+        assertFalse(access.putFromLoad(session, key, "stale", 1));
+        assertTrue(access.afterUpdate(session, key, "value2", 2, 1, lock));
+        lock = access.lockItem(session, key, 2);
+        access.unlockItem(session, key, lock);
+        access.remove(session, key);
+
+        assertEquals(0, metrics.getHits());
+        assertEquals(0, metrics.getMisses());
+    }
+
+    @Test
+    @DisplayName("Should read and load batches, skipping locked keys")
+    void testBatchAccess() {
+        Map<Object, Object> loaded = new HashMap<>();
+        for (long id = 1; id <= 5; id++) {
+            loaded.put(new EntityCacheKey(id, "Entity", null), "value" + id);
+        }
+        loaded.put(new EntityCacheKey(6L, "Entity", null), null);
+        EntityCacheKey locked = new EntityCacheKey(3L, "Entity", null);
+        SoftLock lock = dataAccess.lockItem(session, locked, 1);
+
+        assertEquals(4, dataAccess.putAllFromLoad(session, loaded), "Null values and locked keys are not cached");
+        assertTrue(entityRegion.get(locked) instanceof ReadWriteEntry.Lock);
+
+        Map<Object, Object> found = dataAccess.getAll(session, loaded.keySet());
+        assertEquals(4, found.size());
+        assertEquals("value1", found.get(new EntityCacheKey(1L, "Entity", null)));
+        assertFalse(found.containsKey(locked));
+
+        dataAccess.unlockItem(session, locked, lock);
+        assertTrue(dataAccess.getAll(session, List.of("not a key")).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should miss batch reads of locked keys and while the region is locked")
+    void testBatchAccessMisses() {
+        MetricsCollector metrics = entityRegion.getMetrics();
+        EntityCacheKey key1 = new EntityCacheKey(1L, "Entity", null);
+        EntityCacheKey key2 = new EntityCacheKey(2L, "Entity", null);
+        dataAccess.putFromLoad(session, key1, "value1", 1);
+        dataAccess.putFromLoad(session, key2, "value2", 1);
+        SoftLock lock = dataAccess.lockItem(session, key2, 1);
+
+        Map<Object, Object> found = dataAccess.getAll(session, List.of(key1, key2));
+        assertEquals(Map.of(key1, "value1"), found);
+        assertEquals(1, metrics.getHits());
+        assertEquals(1, metrics.getMisses(), "A lock entry is a miss, not an engine hit");
+        dataAccess.unlockItem(session, key2, lock);
+
+        SoftLock regionLock = dataAccess.lockRegion();
+        assertTrue(dataAccess.getAll(session, List.of(key1)).isEmpty());
+        dataAccess.unlockRegion(regionLock);
+
+        assertTrue(dataAccess.getAll(session, List.of(key1)).isEmpty(), "Items of an earlier epoch miss");
+        assertEquals(1, metrics.getHits());
+        assertEquals(2, metrics.getMisses());
+        assertNull(entityRegion.peek(key1), "Entries of an earlier epoch are removed");
+    }
+}
@@ -1,5 +1,9 @@
 package com.example.cache.config;
 
+import com.example.cache.factory.CustomRegionFactory;
+import com.example.cache.storage.EvictionPolicyType;
+import com.example.cache.storage.StorageType;
+import org.hibernate.cache.spi.QueryResultsRegion;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
@@ -167,4 +171,162 @@ class CacheConfigurationTest {
         assertEquals(Long.MAX_VALUE / 1000 * 1000, config.getTtlMillis());
         assertEquals((long) Integer.MAX_VALUE * 1000, config.getLockTimeoutMillis());
     }
+
+    @Test
+    @DisplayName("Should select storage engine and segment count")
+    void testStorageSelection() {
+        CacheConfiguration defaults = new CacheConfiguration(configValues);
+        assertEquals(StorageType.HEAP, defaults.getStorageType());
+        assertEquals(0, defaults.getSegments());
+
+        configValues.put("hibernate.cache.storage", "segmented");
+        configValues.put("hibernate.cache.segments", "32");
+        CacheConfiguration config = new CacheConfiguration(configValues);
+        assertEquals(StorageType.SEGMENTED, config.getStorageType());
+        assertEquals(32, config.getSegments());
+
+        assertFalse(defaults.isBufferedReads());
+        configValues.put("hibernate.cache.buffered_reads", "true");
+        assertTrue(new CacheConfiguration(configValues).isBufferedReads());
+
+        assertEquals(EvictionPolicyType.LRU, defaults.getEvictionPolicy());
+        configValues.put("hibernate.cache.eviction_policy", "TinyLFU");
+        assertEquals(EvictionPolicyType.TINYLFU, new CacheConfiguration(configValues).getEvictionPolicy());
+        configValues.put("hibernate.cache.eviction_policy", "s3-fifo");
+        assertEquals(EvictionPolicyType.S3FIFO, new CacheConfiguration(configValues).getEvictionPolicy());
+        configValues.put("hibernate.cache.eviction_policy", "sieve");
+        assertEquals(EvictionPolicyType.SIEVE, new CacheConfiguration(configValues).getEvictionPolicy());
+
+        assertEquals(64L * 1024 * 1024, defaults.getOffHeapBytes());
+        configValues.put("hibernate.cache.storage", "OffHeap");
+        configValues.put("hibernate.cache.offheap_bytes", 1L << 30);
+        config = new CacheConfiguration(configValues);
+        assertEquals(StorageType.OFFHEAP, config.getStorageType());
+        assertEquals(1L << 30, config.getOffHeapBytes());
+
+        configValues.put("hibernate.cache.storage", "unknown");
+        assertEquals(StorageType.HEAP, new CacheConfiguration(configValues).getStorageType());
+    }
+
+    @Test
+    @DisplayName("Should read maintenance and clock settings")
+    void testMaintenanceAndTickerSettings() {
+        CacheConfiguration defaults = new CacheConfiguration(configValues);
+        assertEquals(1000, defaults.getMaintenanceIntervalMillis());
+        assertEquals(1, defaults.getTickerResolutionMillis());
+
+        configValues.put("hibernate.cache.maintenance_interval_ms", "0");
+        configValues.put("hibernate.cache.ticker_resolution_ms", 5);
+        CacheConfiguration config = new CacheConfiguration(configValues);
+        assertEquals(0, config.getMaintenanceIntervalMillis());
+        assertEquals(5, config.getTickerResolutionMillis());
+    }
+
+    @Test
+    @DisplayName("Should read the byte budget and weigher")
+    void testWeightSettings() {
+        CacheConfiguration defaults = new CacheConfiguration(configValues);
+        assertEquals(0, defaults.getMaxBytes());
+        assertNull(defaults.getWeigherClassName());
+
+        configValues.put("hibernate.cache.max_bytes", "67108864");
+        configValues.put("hibernate.cache.weigher", "com.example.CustomWeigher");
+        CacheConfiguration config = new CacheConfiguration(configValues);
+        assertEquals(64L * 1024 * 1024, config.getMaxBytes());
+        assertEquals("com.example.CustomWeigher", config.getWeigherClassName());
+
+        configValues.put("hibernate.cache.max_bytes", "-1");
+        assertEquals(0, new CacheConfiguration(configValues).getMaxBytes());
+    }
+
+    @Test
+    @DisplayName("Should read the disk tier settings")
+    void testDiskTierSettings() {
+        CacheConfiguration defaults = new CacheConfiguration(configValues);
+        assertNull(defaults.getDiskDirectory());
+        assertEquals(1024L * 1024 * 1024, defaults.getDiskMaxBytes());
+        assertEquals(64 * 1024 * 1024, defaults.getDiskSegmentBytes());
+
+        configValues.put("hibernate.cache.disk_directory", "/var/cache/app");
+        configValues.put("hibernate.cache.disk_max_bytes", "268435456");
+        configValues.put("hibernate.cache.disk_segment_bytes", 16777216);
+        CacheConfiguration config = new CacheConfiguration(configValues);
+        assertEquals("/var/cache/app", config.getDiskDirectory());
+        assertEquals(256L * 1024 * 1024, config.getDiskMaxBytes());
+        assertEquals(16 * 1024 * 1024, config.getDiskSegmentBytes());
+    }
+
+    @Test
+    @DisplayName("Should read load coalescing and expiry smoothing settings")
+    void testLoadSettings() {
+        CacheConfiguration defaults = new CacheConfiguration(configValues);
+        assertEquals(0, defaults.getLoadWaitMillis());
+        assertEquals(0, defaults.getTtlJitterPercent());
+        assertEquals(0, defaults.getEarlyRefreshMillis());
+
+        configValues.put("hibernate.cache.load_wait_millis", "100");
+        configValues.put("hibernate.cache.ttl_jitter_percent", "10");
+        configValues.put("hibernate.cache.early_refresh_millis", 250L);
+        CacheConfiguration config = new CacheConfiguration(configValues);
+        assertEquals(100, config.getLoadWaitMillis());
+        assertEquals(10, config.getTtlJitterPercent());
+        assertEquals(250, config.getEarlyRefreshMillis());
+
+        configValues.put("hibernate.cache.ttl_jitter_percent", "150");
+        assertEquals(100, new CacheConfiguration(configValues).getTtlJitterPercent());
+    }
+
+    @Test
+    @DisplayName("Should apply region overrides from most to least specific")
+    void testRegionOverrides() {
+        configValues.put("hibernate.cache.max_entries", "10000");
+        configValues.put("hibernate.cache.region.factory_class", "com.example.cache.factory.CustomRegionFactory");
+        configValues.put("hibernate.cache.region.com.example.*.max_entries", "2000");
+        configValues.put("hibernate.cache.region.com.example.ref.*.max_entries", "500");
+        configValues.put("hibernate.cache.region.com.example.ref.*.eviction_policy", "tinylfu");
+        configValues.put("hibernate.cache.region.com.example.Customer.max_entries", "5000000");
+        configValues.put("hibernate.cache.region.com.example.Customer.storage", "offheap");
+        configValues.put("hibernate.cache.region.com.example.Customer.ttl_seconds", "60");
+        CacheConfiguration config = new CacheConfiguration(configValues);
+
+        CacheConfiguration customer = config.forRegion("com.example.Customer");
+        assertEquals(5_000_000, customer.getMaxEntries());
+        assertEquals(StorageType.OFFHEAP, customer.getStorageType());
+        assertEquals(60_000, customer.getTtlMillis());
+
+        CacheConfiguration country = config.forRegion("com.example.ref.Country");
+        assertEquals(500, country.getMaxEntries(), "Longer prefix should win");
+        assertEquals(EvictionPolicyType.TINYLFU, country.getEvictionPolicy());
+        assertEquals(3600 * 1000, country.getTtlMillis(), "Properties without overrides keep the global value");
+
+        assertEquals(2000, config.forRegion("com.example.Order").getMaxEntries());
+        assertSame(config, config.forRegion("org.other.Region"));
+        assertEquals(10000, config.forRegion("org.other.Region").getMaxEntries());
+    }
+
+    @Test
+    @DisplayName("Should build regions with their resolved configuration")
+    void testRegionFactoryUsesOverrides() {
+        configValues.put("hibernate.cache.max_entries", "100");
+        configValues.put("hibernate.cache.maintenance_interval_ms", "0");
+        configValues.put("hibernate.cache.region.small-queries.max_entries", "2");
+        CustomRegionFactory factory = new CustomRegionFactory();
+        factory.start(null, configValues);
+        try {
+            QueryResultsRegion small = factory.buildQueryResultsRegion("small-queries", null);
+            QueryResultsRegion large = factory.buildQueryResultsRegion("large-queries", null);
+            for (int i = 0; i < 10; i++) {
+                small.putIntoCache(i, "result" + i, null);
+                large.putIntoCache(i, "result" + i, null);
+            }
+
+            assertEquals(2, factory.getRegionConfiguration("small-queries").getMaxEntries());
+            assertEquals(100, factory.getRegionConfiguration("large-queries").getMaxEntries());
+            assertNull(small.getFromCache(0, null), "Small region should have evicted its oldest entries");
+            assertEquals("result0", large.getFromCache(0, null));
+            assertNull(factory.getRegionConfiguration("missing"));
+        } finally {
+            factory.stop();
+        }
+    }
 }
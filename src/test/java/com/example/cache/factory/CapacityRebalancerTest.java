@@ -0,0 +1,155 @@
+package com.example.cache.factory;
+
+import com.example.cache.config.CacheConfiguration;
+import com.example.cache.metrics.MetricsCollector;
+import com.example.cache.region.RegionImpl;
+import org.hibernate.cache.spi.QueryResultsRegion;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CapacityRebalancer Tests")
+class CapacityRebalancerTest {
+
+    private final Map<String, Object> configValues = new HashMap<>();
+
+    private RegionImpl region(CapacityRebalancer rebalancer, String name) {
+        CacheConfiguration config = rebalancer.withInitialShare(new CacheConfiguration(configValues));
+        RegionImpl region = new RegionImpl(name, config.getMaxEntries(), 0, new MetricsCollector(), config);
+        assertTrue(rebalancer.register(region));
+        return region;
+    }
+
+    @Test
+    @DisplayName("Should split the budget evenly as regions register and leave")
+    void testEvenSplit() {
+        CapacityRebalancer rebalancer = new CapacityRebalancer(900, false);
+        RegionImpl first = region(rebalancer, "first");
+        assertEquals(900, rebalancer.getAllocations().get("first"));
+
+        region(rebalancer, "second");
+        RegionImpl third = region(rebalancer, "third");
+        assertEquals(300, rebalancer.getAllocations().get("first"));
+        assertEquals(300, rebalancer.getAllocations().get("third"));
+        assertEquals(300, first.getMetrics().getCapacity());
+
+        rebalancer.unregister("third");
+        assertEquals(450, rebalancer.getAllocations().get("first"));
+        assertEquals(0, third.getMetrics().getCapacity());
+    }
+
+    @Test
+    @DisplayName("Should move capacity to the region with more ghost hits")
+    void testRebalanceTowardsGhostHits() {
+        CapacityRebalancer rebalancer = new CapacityRebalancer(640, false);
+        RegionImpl thrashing = region(rebalancer, "thrashing");
+        RegionImpl idle = region(rebalancer, "idle");
+
+        // Cycling over more keys than fit keeps bringing back recently evicted keys
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 340; i++) {
+                thrashing.put("key" + i, "value" + i);
+            }
+        }
+        idle.put("key", "value");
+        assertTrue(thrashing.getMetrics().getGhostHits() > 0);
+
+        rebalancer.rebalance();
+        assertEquals(330, rebalancer.getAllocations().get("thrashing"));
+        assertEquals(310, rebalancer.getAllocations().get("idle"));
+        assertEquals(1, thrashing.getMetrics().getCapacityGrants());
+        assertEquals(1, idle.getMetrics().getCapacityRevocations());
+
+        rebalancer.rebalance();
+        assertEquals(330, rebalancer.getAllocations().get("thrashing"), "Without new ghost hits nothing moves");
+    }
+
+    @Test
+    @DisplayName("Should not shrink a region below its floor")
+    void testFloor() {
+        CapacityRebalancer rebalancer = new CapacityRebalancer(64, false);
+        RegionImpl thrashing = region(rebalancer, "thrashing");
+        region(rebalancer, "idle");
+
+        for (int round = 0; round < 40; round++) {
+            // Always a little more than fits, so growing would help
+            long keys = rebalancer.getAllocations().get("thrashing") + 2;
+            for (int pass = 0; pass < 2; pass++) {
+                for (int i = 0; i < keys; i++) {
+                    thrashing.put("key" + i, "value" + i);
+                }
+            }
+            rebalancer.rebalance();
+        }
+        assertEquals(4, rebalancer.getAllocations().get("idle"));
+        assertEquals(60, rebalancer.getAllocations().get("thrashing"));
+    }
+
+    @Test
+    @DisplayName("Should resize engines of every policy within an entry budget")
+    void testPolicyEngineInBudget() {
+        configValues.put(CacheConfiguration.EVICTION_POLICY_PROPERTY, "tinylfu");
+        CapacityRebalancer rebalancer = new CapacityRebalancer(100, false);
+        CacheConfiguration config = new CacheConfiguration(configValues);
+        RegionImpl region = new RegionImpl("tinylfu", 500, 0, new MetricsCollector(), config);
+        for (int i = 0; i < 500; i++) {
+            region.put("key" + i, "value" + i);
+        }
+
+        assertTrue(rebalancer.accepts(config));
+        assertTrue(rebalancer.register(region));
+        assertEquals(100, rebalancer.getAllocations().get("tinylfu"));
+        assertEquals(100, region.size());
+    }
+
+    @Test
+    @DisplayName("Should keep engines that do not weigh their entries out of a byte budget")
+    void testByteBudgetNeedsWeighing() {
+        CapacityRebalancer rebalancer = new CapacityRebalancer(1_000_000, true);
+        assertTrue(rebalancer.accepts(new CacheConfiguration(configValues)));
+
+        configValues.put(CacheConfiguration.EVICTION_POLICY_PROPERTY, "sieve");
+        assertFalse(rebalancer.accepts(new CacheConfiguration(configValues)));
+
+        configValues.put(CacheConfiguration.EVICTION_POLICY_PROPERTY, "lru");
+        configValues.put(CacheConfiguration.STORAGE_PROPERTY, "offheap");
+        assertFalse(rebalancer.accepts(new CacheConfiguration(configValues)));
+
+        configValues.remove(CacheConfiguration.STORAGE_PROPERTY);
+        configValues.put(CacheConfiguration.LONG_ID_STORAGE_PROPERTY, "true");
+        assertFalse(rebalancer.accepts(new CacheConfiguration(configValues)), "Long id tables are not weighed");
+    }
+
+    @Test
+    @DisplayName("Should share a global budget between the factory's regions")
+    void testFactoryBudget() {
+        configValues.put(CacheConfiguration.MAINTENANCE_INTERVAL_MS_PROPERTY, "0");
+        configValues.put(CacheConfiguration.REBALANCE_INTERVAL_MS_PROPERTY, "0");
+        configValues.put(CacheConfiguration.BUDGET_ENTRIES_PROPERTY, "100");
+        CustomRegionFactory factory = new CustomRegionFactory();
+        factory.start(null, configValues);
+        try {
+            QueryResultsRegion first = factory.buildQueryResultsRegion("first", null);
+            factory.buildQueryResultsRegion("second", null);
+            factory.buildTimestampsRegion("timestamps", null);
+            for (int i = 0; i < 100; i++) {
+                first.putIntoCache(i, "result" + i, null);
+            }
+
+            assertEquals(50, factory.getCapacityAllocations().get("first"));
+            assertEquals(50, factory.getCapacityAllocations().get("second"));
+            assertFalse(factory.getCapacityAllocations().containsKey("timestamps"));
+            assertEquals(50, factory.getMetrics("first").getCapacity());
+            assertNull(first.getFromCache(0, null), "The region should be bounded by its share");
+
+            first.destroy();
+            assertEquals(100, factory.getCapacityAllocations().get("second"));
+        } finally {
+            factory.stop();
+        }
+    }
+}
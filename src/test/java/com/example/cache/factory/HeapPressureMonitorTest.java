@@ -0,0 +1,117 @@
+package com.example.cache.factory;
+
+import com.example.cache.config.CacheConfiguration;
+import com.example.cache.metrics.MetricsCollector;
+import com.example.cache.region.RegionImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("HeapPressureMonitor Tests")
+class HeapPressureMonitorTest {
+
+    private double occupancy;
+    private long collections;
+    private List<Double> scales;
+    private HeapPressureMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        scales = new ArrayList<>();
+        monitor = new HeapPressureMonitor(0.9, () -> occupancy, () -> collections, scales::add);
+    }
+
+    @Test
+    @DisplayName("Should shrink once per collection while above the threshold")
+    void testShrinkPerCollection() {
+        occupancy = 0.95;
+        collections = 1;
+        monitor.check();
+        assertEquals(0.75, monitor.getScale());
+
+        monitor.check();
+        assertEquals(0.75, monitor.getScale(), "The same collection should not shrink twice");
+
+        for (int i = 0; i < 20; i++) {
+            collections++;
+            monitor.check();
+        }
+        assertEquals(HeapPressureMonitor.MIN_SCALE, monitor.getScale());
+    }
+
+    @Test
+    @DisplayName("Should grow back once occupancy drops well below the threshold")
+    void testGrowBack() {
+        occupancy = 0.95;
+        collections = 1;
+        monitor.check();
+        collections = 2;
+        monitor.check();
+        assertEquals(0.5625, monitor.getScale());
+
+        occupancy = 0.8;
+        monitor.check();
+        assertEquals(0.5625, monitor.getScale(), "Occupancy just below the threshold should hold the scale");
+
+        occupancy = 0.5;
+        monitor.check();
+        monitor.check();
+        monitor.check();
+        assertEquals(1.0, monitor.getScale());
+        assertEquals(List.of(0.75, 0.5625, 0.75, 1.0), scales);
+    }
+
+    @Test
+    @DisplayName("Should shrink and grow a region in batches and record the events")
+    void testRegionScaling() {
+        MetricsCollector metrics = new MetricsCollector();
+        RegionImpl region = new RegionImpl("scaled", 10000, 0, metrics, new CacheConfiguration(new HashMap<>()));
+        for (int i = 0; i < 10000; i++) {
+            region.put("key" + i, "value" + i);
+        }
+
+        assertTrue(region.scaleCapacity(0.25));
+        assertEquals(2500, region.size());
+        assertEquals(7500, metrics.getEvictions());
+        assertEquals(1, metrics.getPressureShrinks());
+        assertNotNull(region.get("key9999"), "The most recently used entries should survive");
+
+        assertTrue(region.resize(8000, 0));
+        assertEquals(2000, region.size(), "A new capacity is still scaled while under pressure");
+
+        assertTrue(region.scaleCapacity(1));
+        for (int i = 0; i < 8000; i++) {
+            region.put("more" + i, "value" + i);
+        }
+        assertEquals(8000, region.size());
+        assertEquals(1, metrics.getPressureGrowths());
+    }
+
+    @Test
+    @DisplayName("Should scale every region of the factory except timestamps")
+    void testFactoryScaling() {
+        Map<String, Object> configValues = new HashMap<>();
+        configValues.put(CacheConfiguration.MAX_ENTRIES_PROPERTY, "100");
+        configValues.put(CacheConfiguration.MAINTENANCE_INTERVAL_MS_PROPERTY, "0");
+        configValues.put(CacheConfiguration.HEAP_PRESSURE_PERCENT_PROPERTY, "99");
+        CustomRegionFactory factory = new CustomRegionFactory();
+        factory.start(null, configValues);
+        try {
+            factory.buildQueryResultsRegion("queries", null).putIntoCache("key", "value", null);
+            factory.buildTimestampsRegion("timestamps", null);
+
+            factory.scaleCapacity(0.5);
+            assertEquals(1, factory.getMetrics("queries").getPressureShrinks());
+            assertEquals(0, factory.getMetrics("timestamps").getPressureShrinks());
+        } finally {
+            factory.stop();
+        }
+    }
+}
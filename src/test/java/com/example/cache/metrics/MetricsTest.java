@@ -326,4 +326,22 @@ class MetricsTest {
         assertTrue(evictionsFromTTL > 0, "Should have evictions due to TTL");
         assertTrue(ttlMetrics.getEvictions() > 0, "Total evictions should be positive");
     }
+
+    @Test
+    @DisplayName("Should report entries reclaimed by the maintenance sweep")
+    void testExpirationMetrics() throws InterruptedException {
+        MetricsCollector ttlMetrics = new MetricsCollector();
+        RegionImpl ttlRegion = new RegionImpl("ttl-region", 100, 100, ttlMetrics);
+
+        for (int i = 0; i < 10; i++) {
+            ttlRegion.put(new EntityCacheKey((long) i, "TestEntity", null), "value" + i);
+        }
+
+        Thread.sleep(250);
+        ttlRegion.cleanUp();
+
+        assertEquals(0, ttlRegion.size(), "Expired entries should be reclaimed without being read");
+        assertEquals(10, ttlMetrics.getExpirations(), "Should count reclaimed entries");
+        assertTrue(ttlMetrics.summary().contains("expirations=10"), "Summary should contain expirations");
+    }
 }
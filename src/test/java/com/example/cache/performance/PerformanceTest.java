@@ -2,6 +2,7 @@ package com.example.cache.performance;
 
 import com.example.cache.access.entities.EntityCacheKey;
 import com.example.cache.access.entities.ReadWriteEntityDataAccess;
+import com.example.cache.config.CacheConfiguration;
 import com.example.cache.factory.CustomRegionFactory;
 import com.example.cache.metrics.MetricsCollector;
 import com.example.cache.region.DomainDataRegionAdapter;
@@ -421,4 +422,184 @@ class PerformanceTest {
         assertTrue(successRate > 50, "Success rate should be at least 50%");
         assertTrue(totalLocks > 0, "Should have attempted some locks");
     }
+
+    @Test
+    @DisplayName("Should compare reads with and without outstanding locks")
+    void testReadFastPath() {
+        int keyCount = 1000;
+        int reads = 500_000;
+        for (int i = 0; i < keyCount; i++) {
+            dataAccess.putFromLoad(null, new EntityCacheKey(i, "TestEntity", null), "value-" + i, 1);
+        }
+        EntityCacheKey[] keys = new EntityCacheKey[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = new EntityCacheKey(i, "TestEntity", null);
+        }
+
+        // Warm up both paths before measuring
+        timeReads(keys, reads);
+        double unlockedOps = reads / (timeReads(keys, reads) / 1_000_000_000.0);
+
+        // One key outside the working set stays locked, so every read takes the checked path
+        EntityCacheKey lockedKey = new EntityCacheKey(keyCount, "TestEntity", null);
+        var lock = dataAccess.lockItem(null, lockedKey, 1);
+        assertEquals(1, dataAccess.getOutstandingLocks());
+        timeReads(keys, reads);
+        double lockedOps = reads / (timeReads(keys, reads) / 1_000_000_000.0);
+        dataAccess.unlockItem(null, lockedKey, lock);
+
+        System.out.printf("Reads with no outstanding locks: %.0f ops/sec, with one outstanding lock: %.0f ops/sec%n",
+                         unlockedOps, lockedOps);
+
+        assertEquals(0, dataAccess.getOutstandingLocks());
+        assertTrue(unlockedOps > 1000, "Reads should sustain at least 1000 ops/sec");
+    }
+
+    private long timeReads(EntityCacheKey[] keys, int reads) {
+        long start = System.nanoTime();
+        for (int i = 0; i < reads; i++) {
+            assertNotNull(dataAccess.get(null, keys[i % keys.length]));
+        }
+        return System.nanoTime() - start;
+    }
+
+    @Test
+    @DisplayName("Should scale reads with core count on segmented storage")
+    void testSegmentedReadScaling() throws InterruptedException {
+        int maxThreads = Math.min(Runtime.getRuntime().availableProcessors(), 32);
+        int keyCount = 1000;
+        int readsPerThread = 100_000;
+
+        Map<String, Object> segmentedValues = new HashMap<>();
+        segmentedValues.put("hibernate.cache.storage", "segmented");
+        CacheConfiguration segmentedConfig = new CacheConfiguration(segmentedValues);
+        Map<String, Object> bufferedValues = new HashMap<>(segmentedValues);
+        bufferedValues.put("hibernate.cache.buffered_reads", true);
+        CacheConfiguration bufferedConfig = new CacheConfiguration(bufferedValues);
+        CacheConfiguration heapConfig = new CacheConfiguration(new HashMap<>());
+
+        // Headroom so that uneven segment occupancy never evicts part of the working set
+        RegionImpl heapRegion = new RegionImpl("heap-region", keyCount * 2, 0, new MetricsCollector(), heapConfig);
+        RegionImpl segmentedRegion = new RegionImpl("segmented-region", keyCount * 2, 0, new MetricsCollector(), segmentedConfig);
+        RegionImpl bufferedRegion = new RegionImpl("buffered-region", keyCount * 2, 0, new MetricsCollector(), bufferedConfig);
+        for (int i = 0; i < keyCount; i++) {
+            EntityCacheKey key = new EntityCacheKey(i, "TestEntity", null);
+            heapRegion.put(key, "value-" + i);
+            segmentedRegion.put(key, "value-" + i);
+            bufferedRegion.put(key, "value-" + i);
+        }
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            double heapOps = measureReads(heapRegion, threads, readsPerThread, keyCount);
+            double segmentedOps = measureReads(segmentedRegion, threads, readsPerThread, keyCount);
+            double bufferedOps = measureReads(bufferedRegion, threads, readsPerThread, keyCount);
+            System.out.printf("Read scaling with %d threads: heap %.0f ops/sec, segmented %.0f ops/sec, buffered %.0f ops/sec%n",
+                             threads, heapOps, segmentedOps, bufferedOps);
+            assertTrue(segmentedOps > 0, "Segmented reads should complete");
+        }
+
+        assertEquals(keyCount, segmentedRegion.size(), "Reads should not evict entries");
+        assertEquals(keyCount, bufferedRegion.size(), "Buffered reads should not evict entries");
+    }
+
+    @Test
+    @DisplayName("Should compare GC and throughput of heap and off-heap storage")
+    void testOffHeapGcComparison() {
+        int entryCount = 100_000;
+        int operations = 300_000;
+
+        Map<String, Object> offHeapValues = new HashMap<>();
+        offHeapValues.put("hibernate.cache.storage", "offheap");
+        offHeapValues.put("hibernate.cache.offheap_bytes", 128L * 1024 * 1024);
+        RegionImpl heapRegion = new RegionImpl("heap-gc-region", entryCount, 0, new MetricsCollector(),
+            new CacheConfiguration(new HashMap<>()));
+        RegionImpl offHeapRegion = new RegionImpl("offheap-gc-region", entryCount, 0, new MetricsCollector(),
+            new CacheConfiguration(offHeapValues));
+
+        long[] heapStats = measureGc(heapRegion, entryCount, operations);
+        long[] offHeapStats = measureGc(offHeapRegion, entryCount, operations);
+
+        System.out.printf("Heap storage: %d ms, %d collections, %d ms GC, %d MB retained%n",
+                         heapStats[0], heapStats[1], heapStats[2], heapStats[3] / (1024 * 1024));
+        System.out.printf("Off-heap storage: %d ms, %d collections, %d ms GC, %d MB retained, %d MB direct%n",
+                         offHeapStats[0], offHeapStats[1], offHeapStats[2], offHeapStats[3] / (1024 * 1024),
+                         offHeapRegion.getWeightedSize() / (1024 * 1024));
+
+        assertEquals(entryCount, offHeapRegion.size(), "Budget should hold every entry");
+        EntityCacheKey key = new EntityCacheKey(42, "TestEntity", null);
+        assertArrayEquals((Object[]) heapRegion.get(key), (Object[]) offHeapRegion.get(key));
+    }
+
+    // Returns elapsed millis, collection count, collection millis and heap retained by the loaded entries
+    private long[] measureGc(RegionImpl region, int entryCount, int operations) {
+        List<java.lang.management.GarbageCollectorMXBean> collectors =
+            java.lang.management.ManagementFactory.getGarbageCollectorMXBeans();
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long usedBefore = runtime.totalMemory() - runtime.freeMemory();
+        long collectionsBefore = collectors.stream().mapToLong(gc -> Math.max(0, gc.getCollectionCount())).sum();
+        long gcMillisBefore = collectors.stream().mapToLong(gc -> Math.max(0, gc.getCollectionTime())).sum();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < entryCount; i++) {
+            region.put(new EntityCacheKey(i, "TestEntity", null), entityState(i));
+        }
+        System.gc();
+        long retained = runtime.totalMemory() - runtime.freeMemory() - usedBefore;
+
+        Random random = new Random(7);
+        for (int i = 0; i < operations; i++) {
+            EntityCacheKey key = new EntityCacheKey(random.nextInt(entryCount), "TestEntity", null);
+            if (i % 10 == 0) {
+                region.put(key, entityState(i));
+            } else {
+                region.get(key);
+            }
+        }
+
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        long collections = collectors.stream().mapToLong(gc -> Math.max(0, gc.getCollectionCount())).sum() - collectionsBefore;
+        long gcMillis = collectors.stream().mapToLong(gc -> Math.max(0, gc.getCollectionTime())).sum() - gcMillisBefore;
+        return new long[] {elapsed, collections, gcMillis, retained};
+    }
+
+    private static Object[] entityState(int i) {
+        return new Object[] {(long) i, "name-" + i, "description of entity " + i + " ".repeat(64), i % 100, i * 1.5d};
+    }
+
+    private double measureReads(RegionImpl region, int threadCount, int readsPerThread, int keyCount)
+            throws InterruptedException {
+        EntityCacheKey[] keys = new EntityCacheKey[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = new EntityCacheKey(i, "TestEntity", null);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            final int offset = i * 7919;
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    for (int j = 0; j < readsPerThread; j++) {
+                        region.get(keys[(offset + j) % keyCount]);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        long elapsedNanos = System.nanoTime() - startTime;
+        executor.shutdown();
+
+        return (threadCount * (double) readsPerThread) * 1_000_000_000L / elapsedNanos;
+    }
 }
@@ -0,0 +1,141 @@
+package com.example.cache.region;
+
+import com.example.cache.access.collections.CollectionCacheKey;
+import com.example.cache.access.entities.EntityCacheKey;
+import com.example.cache.config.CacheConfiguration;
+import com.example.cache.metrics.MetricsCollector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("RegionImpl Tests")
+class RegionImplTest {
+
+    private MetricsCollector metrics;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new MetricsCollector();
+    }
+
+    private RegionImpl region(long loadWaitMillis) {
+        return new RegionImpl("test-region", 100, 60000, metrics,
+            new CacheConfiguration(Map.of(CacheConfiguration.LOAD_WAIT_MILLIS_PROPERTY, loadWaitMillis)));
+    }
+
+    @Test
+    @DisplayName("Should run the loader on every miss by default")
+    void testLoadWithoutWaiting() {
+        RegionImpl region = new RegionImpl("test-region", 100, 60000, metrics, new CacheConfiguration(Map.of()));
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("loaded", region.computeIfAbsent("key1", key -> {
+            loads.incrementAndGet();
+            return "loaded";
+        }));
+        assertEquals("loaded", region.computeIfAbsent("key1", key -> "unused"));
+        assertNull(region.computeIfAbsent("key2", key -> null));
+
+        assertEquals(1, loads.get());
+        assertEquals(0, metrics.getCoalescedLoads());
+    }
+
+    @Test
+    @DisplayName("Should run the loader once for concurrent misses on one key")
+    void testSingleFlightLoad() throws Exception {
+        RegionImpl region = region(5_000);
+        int threads = 8;
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Object>> results = new ArrayList<>();
+
+        results.add(executor.submit(() -> region.computeIfAbsent("hot", key -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            // Finishes only once every other caller is waiting for this load
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (metrics.getCoalescedLoads() < threads - 1 && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            return "loaded";
+        })));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < threads; i++) {
+            results.add(executor.submit(() -> region.computeIfAbsent("hot", key -> {
+                loads.incrementAndGet();
+                return "duplicate";
+            })));
+        }
+
+        for (Future<Object> result : results) {
+            assertEquals("loaded", result.get(5, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        assertEquals(1, loads.get());
+        assertEquals(threads - 1, metrics.getCoalescedLoads());
+        assertEquals("loaded", region.get("hot"));
+    }
+
+    @Test
+    @DisplayName("Should give up waiting on a slow load and not cache a load overtaken by evict")
+    void testSingleFlightBoundedWaitAndInvalidation() throws Exception {
+        RegionImpl region = region(50);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Object> leader = executor.submit(() -> region.computeIfAbsent("key1", key -> {
+            loading.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "stale";
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        assertEquals("own", region.computeIfAbsent("key1", key -> "own"),
+            "A waiter that times out loads the key itself");
+        region.evict("key1");
+        release.countDown();
+
+        assertEquals("stale", leader.get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertNull(region.get("key1"), "A load overtaken by evict must not be cached");
+        assertEquals("fresh", region.computeIfAbsent("key1", key -> "fresh"));
+        assertEquals("fresh", region.get("key1"));
+    }
+
+    @Test
+    @DisplayName("Should bound long id tables and the engine by one shared capacity")
+    void testLongIdTablesShareCapacity() {
+        RegionImpl region = new RegionImpl("test-region", 10, 0, metrics,
+            new CacheConfiguration(Map.of(CacheConfiguration.LONG_ID_STORAGE_PROPERTY, "true")));
+        for (long id = 0; id < 10; id++) {
+            region.put(new EntityCacheKey(id, "Order", null), "order" + id);
+            region.put(new EntityCacheKey((int) id, "Customer", null), "customer" + id);
+        }
+        assertEquals(10, region.size());
+        for (long id = 0; id < 4; id++) {
+            region.put(new CollectionCacheKey(id, "Order.lines", null), "lines" + id);
+        }
+        assertEquals(10, region.size(), "Engine writes make the tables give way");
+        assertEquals("lines0", region.get(new CollectionCacheKey(0L, "Order.lines", null)));
+
+        assertTrue(region.resize(5, 0));
+        assertEquals(5, region.size());
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.cache.storage;
+
+import com.example.cache.config.CacheConfiguration;
+import com.example.cache.metrics.MetricsCollector;
+import com.example.cache.utils.FakeTicker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ArrayLRUCache Tests")
+class ArrayLRUCacheTest {
+
+    private MetricsCollector metrics;
+    private FakeTicker ticker;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new MetricsCollector();
+        ticker = new FakeTicker();
+    }
+
+    @Test
+    @DisplayName("Should store, update and remove entries")
+    void testPutGetRemove() {
+        ArrayLRUCache<String, String> cache = new ArrayLRUCache<>(100, 0, metrics, ticker);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("a", "3");
+
+        assertEquals("3", cache.get("a"));
+        assertEquals("2", cache.get("b"));
+        assertNull(cache.get("c"));
+        assertEquals(2, cache.size());
+
+        cache.remove("a");
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.size());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used entry")
+    void testLruEviction() {
+        ArrayLRUCache<String, String> cache = new ArrayLRUCache<>(3, 0, metrics, ticker);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+        cache.get("a");
+        cache.put("d", "4");
+
+        assertNull(cache.get("b"));
+        assertEquals("1", cache.get("a"));
+        assertEquals("3", cache.get("c"));
+        assertEquals("4", cache.get("d"));
+        assertEquals(1, metrics.getEvictions());
+    }
+
+    @Test
+    @DisplayName("Should behave like an access-ordered LinkedHashMap under random operations")
+    void testAgainstLinkedHashMap() {
+        int capacity = 500;
+        ArrayLRUCache<Integer, Integer> cache = new ArrayLRUCache<>(capacity, 0, metrics, ticker);
+        LinkedHashMap<Integer, Integer> expected = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+                return size() > capacity;
+            }
+        };
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            // Multiples of 1024 collide in the low bits, exercising long probe runs
+            Integer key = random.nextInt(2000) * 1024;
+            int op = random.nextInt(10);
+            if (op < 5) {
+                assertEquals(expected.get(key), cache.get(key), "key " + key);
+            } else if (op < 9) {
+                cache.put(key, i);
+                expected.put(key, i);
+            } else {
+                cache.remove(key);
+                expected.remove(key);
+            }
+        }
+        assertEquals(expected.size(), cache.size());
+
+        List<Integer> order = new ArrayList<>();
+        cache.snapshot((key, value, lastAccess) -> order.add(key));
+        assertEquals(new ArrayList<>(expected.keySet()), order, "The recency order should match");
+    }
+
+    @Test
+    @DisplayName("Should expire idle entries on read and in cleanUp")
+    void testExpiration() {
+        ArrayLRUCache<String, String> cache = new ArrayLRUCache<>(100, 1000, metrics, ticker);
+        for (int i = 0; i < 10; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        ticker.advance(600);
+        cache.get("key0");
+        ticker.advance(600);
+
+        assertNull(cache.get("key1"));
+        cache.cleanUp();
+        assertEquals(1, cache.size(), "Only the entry read in between should survive");
+        assertEquals("value0", cache.get("key0"));
+        assertEquals(9, metrics.getExpirations());
+    }
+
+    @Test
+    @DisplayName("Should shrink on resize and report ghost hits")
+    void testResize() {
+        ArrayLRUCache<String, String> cache = new ArrayLRUCache<>(100, 0, metrics, ticker);
+        for (int i = 0; i < 100; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        assertTrue(cache.resize(80, 0));
+        assertEquals(80, cache.size());
+        assertNotNull(cache.get("key99"));
+
+        cache.put("key19", "value19");
+        assertEquals(1, metrics.getGhostHits(), "Re-adding a recently evicted key is a ghost hit");
+        cache.put("key0", "value0");
+        assertEquals(1, metrics.getGhostHits(), "The ghost only remembers the most recent evictions");
+    }
+
+    @Test
+    @DisplayName("Should restore a snapshot in recency order")
+    void testSnapshotRestore() {
+        ArrayLRUCache<String, String> source = new ArrayLRUCache<>(10, 0, metrics, ticker);
+        for (int i = 0; i < 5; i++) {
+            source.put("key" + i, "value" + i);
+        }
+        source.get("key0");
+
+        ArrayLRUCache<String, String> target = new ArrayLRUCache<>(4, 0, new MetricsCollector(), ticker);
+        source.snapshot(target::restore);
+        assertEquals(4, target.size());
+        assertNull(target.get("key1"), "The least recently used entry should not fit");
+        assertEquals("value0", target.get("key0"));
+    }
+
+    @Test
+    @DisplayName("Should read and write batches with the same semantics as single keys")
+    void testGetAllPutAll() {
+        ArrayLRUCache<String, Object> batchCache = new ArrayLRUCache<>(3, 0, metrics, ticker);
+        Map<String, Object> entries = new LinkedHashMap<>();
+        entries.put("a", "1");
+        entries.put("b", "2");
+        entries.put("c", "3");
+        entries.put("d", "4");
+        batchCache.putAll(entries);
+        assertEquals(3, batchCache.size());
+        assertEquals(4, metrics.getPuts());
+        assertEquals(1, metrics.getEvictions(), "The batch should still be bounded by maxEntries");
+
+        Map<String, Object> found = batchCache.getAll(List.of("a", "b", "d", "missing"));
+        assertEquals(Map.of("b", "2", "d", "4"), found);
+        assertEquals(2, metrics.getHits());
+        assertEquals(2, metrics.getMisses());
+
+        // The batch read refreshed b and d, so c is now the least recently used
+        batchCache.put("e", "5");
+        assertNull(batchCache.peek("c"));
+        assertEquals("2", batchCache.peek("b"));
+    }
+
+    @Test
+    @DisplayName("Should peek without touching recency, metrics or idle time")
+    void testPeek() {
+        ArrayLRUCache<String, String> cache = new ArrayLRUCache<>(2, 1_000, metrics, ticker);
+        cache.put("a", "1");
+        cache.put("b", "2");
+
+        assertEquals("1", cache.peek("a"));
+        assertNull(cache.peek("missing"));
+        assertEquals(0, metrics.getHits());
+        assertEquals(0, metrics.getMisses());
+
+        cache.put("c", "3");
+        assertNull(cache.peek("a"), "peek should not have made a the most recently used");
+
+        ticker.advance(900);
+        assertEquals("2", cache.peek("b"));
+        ticker.advance(200);
+        assertNull(cache.peek("b"), "peek should not have refreshed the idle time");
+    }
+
+    @Test
+    @DisplayName("Should be selected by the array storage type")
+    void testFactory() {
+        Map<String, Object> configValues = new HashMap<>();
+        configValues.put(CacheConfiguration.STORAGE_PROPERTY, "array");
+        CacheStorage<Object, Object> storage = CacheStorageFactory.create(new CacheConfiguration(configValues), 10, 0,
+            metrics, ticker);
+        assertInstanceOf(ArrayLRUCache.class, storage);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.cache.storage;
+
+import com.example.cache.access.entities.EntityCacheKey;
+import com.example.cache.config.CacheConfiguration;
+import com.example.cache.metrics.MetricsCollector;
+import com.example.cache.region.RegionImpl;
+import org.hibernate.cache.spi.entry.CacheEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CacheEntryWeigher Tests")
+class CacheEntryWeigherTest {
+
+    private final CacheEntryWeigher weigher = new CacheEntryWeigher();
+
+    private static CacheEntry entityEntry(Serializable... state) {
+        return new CacheEntry() {
+            @Override
+            public boolean isReferenceEntry() {
+                return false;
+            }
+
+            @Override
+            public String getSubclass() {
+                return "TestEntity";
+            }
+
+            @Override
+            public Object getVersion() {
+                return 1;
+            }
+
+            @Override
+            public Serializable[] getDisassembledState() {
+                return state;
+            }
+        };
+    }
+
+    private static List<Object[]> queryResults(int rows) {
+        List<Object[]> results = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            results.add(new Object[] {(long) i, "name-" + i});
+        }
+        return results;
+    }
+
+    @Test
+    @DisplayName("Should weigh entity state by its contents")
+    void testEntityEntry() {
+        int small = weigher.weigh(1L, entityEntry(1L, "a"));
+        int large = weigher.weigh(1L, entityEntry(1L, "a".repeat(10_000)));
+
+        assertTrue(small > 0);
+        assertTrue(large - small >= 9_000, "String payload should dominate the estimate");
+    }
+
+    @Test
+    @DisplayName("Should weigh query results and collections per element")
+    void testResultLists() {
+        int tenRows = weigher.weigh("query", queryResults(10));
+        int thousandRows = weigher.weigh("query", queryResults(1_000));
+
+        assertTrue(thousandRows > 50 * tenRows, "Weight should grow with the number of rows");
+
+        ArrayList<Long> ids = new ArrayList<>();
+        for (long i = 0; i < 5_000; i++) {
+            ids.add(i);
+        }
+        assertTrue(weigher.weigh("collection", ids) > 5_000 * 24);
+    }
+
+    @Test
+    @DisplayName("Should walk unknown holder objects field by field")
+    void testReflectiveHolder() {
+        Holder empty = new Holder(List.of());
+        Holder full = new Holder(queryResults(100));
+
+        assertTrue(weigher.weigh("q", full) > weigher.weigh("q", empty) + 100 * 24);
+    }
+
+    @Test
+    @DisplayName("Should keep a region within its byte budget")
+    void testRegionByteBudget() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(CacheConfiguration.MAX_BYTES_PROPERTY, 64 * 1024);
+        CacheConfiguration config = new CacheConfiguration(properties);
+        MetricsCollector metrics = new MetricsCollector();
+        RegionImpl region = new RegionImpl("query-region", 10_000, 0, metrics, config);
+
+        for (int i = 0; i < 100; i++) {
+            region.put(new EntityCacheKey((long) i, "Query", null), queryResults(100));
+        }
+
+        assertTrue(region.getWeightedSize() <= 64 * 1024);
+        assertTrue(region.size() < 100, "Entry count alone would have kept every result list");
+        assertEquals(region.getWeightedSize(), metrics.getWeightedSize());
+        assertTrue(metrics.getEvictions() > 0);
+    }
+
+    private static final class Holder implements Serializable {
+        private final long timestamp = 42;
+        private final List<?> results;
+
+        Holder(List<?> results) {
+            this.results = results;
+        }
+    }
+}
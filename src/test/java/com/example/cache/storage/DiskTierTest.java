@@ -0,0 +1,273 @@
+package com.example.cache.storage;
+
+import com.example.cache.config.CacheConfiguration;
+import com.example.cache.metrics.MetricsCollector;
+import com.example.cache.region.RegionImpl;
+import com.example.cache.utils.FakeTicker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("DiskTier Tests")
+class DiskTierTest {
+
+    private static final int SEGMENT = 4096;
+
+    @TempDir
+    Path directory;
+
+    private MetricsCollector metrics;
+    private FakeTicker ticker;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new MetricsCollector();
+        ticker = new FakeTicker();
+    }
+
+    private DiskTier<String, Object> tier(int segments) {
+        return new DiskTier<>(directory, (long) segments * SEGMENT, SEGMENT, metrics);
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    @DisplayName("Should demote LRU entries to disk and promote them on read")
+    void testDemoteAndPromote() {
+        DiskTier<String, Object> tier = tier(4);
+        InMemoryLRUCache<String, Object> cache = new InMemoryLRUCache<>(2, 0, Weigher.singleton(), 0, 0, 0, metrics,
+            false, ticker, tier);
+
+        cache.put("key1", "value1");
+        cache.put("key2", "value2");
+        cache.put("key3", "value3");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, tier.size());
+        assertEquals(1, metrics.getDemotions());
+        assertEquals(0, metrics.getEvictions(), "Demoted entries are not dropped");
+
+        assertEquals("value1", cache.get("key1"));
+        assertEquals(1, metrics.getPromotions());
+        assertEquals(1, metrics.getHits());
+        assertEquals(2, cache.size());
+        assertEquals(1, tier.size(), "Promoting key1 demotes key2");
+        assertEquals("value2", cache.get("key2"));
+
+        assertNull(cache.get("missing"));
+        assertEquals(1, metrics.getMisses());
+    }
+
+    @Test
+    @DisplayName("Should not promote stale or removed values")
+    void testWritesInvalidateDemotedCopy() {
+        DiskTier<String, Object> tier = tier(4);
+        InMemoryLRUCache<String, Object> cache = new InMemoryLRUCache<>(1, 0, Weigher.singleton(), 0, 0, 0, metrics,
+            true, ticker, tier);
+
+        cache.put("key1", "old");
+        cache.put("key2", "value2");
+        cache.put("key1", "new");
+        assertEquals("new", cache.get("key1"));
+
+        cache.remove("key2");
+        assertNull(cache.get("key2"));
+        assertEquals(0, tier.size());
+
+        cache.put("key3", "value3");
+        cache.clear();
+        assertNull(cache.get("key1"));
+        assertEquals(0, tier.size());
+    }
+
+    @Test
+    @DisplayName("Should write demoted entries after releasing the cache lock")
+    void testDemotionOutsideLock() throws InterruptedException {
+        DiskTier<String, Object> tier = tier(4);
+        InMemoryLRUCache<String, Object> cache = new InMemoryLRUCache<>(1, 0, Weigher.singleton(), 0, 0, 0, metrics,
+            false, ticker, tier);
+        BlockingValue slow = new BlockingValue();
+        cache.put("key1", slow);
+
+        Thread writer = new Thread(() -> cache.put("key2", "value2"));
+        writer.start();
+        assertTrue(slow.encoding.await(5, TimeUnit.SECONDS));
+
+        // The writer is still encoding key1, so reads and writes must not wait for it
+        assertSame(slow, cache.get("key1"), "An entry being demoted is promoted from memory");
+        cache.remove("key2");
+        slow.release.countDown();
+        writer.join(5000);
+
+        assertFalse(writer.isAlive());
+        assertEquals(0, tier.size(), "The promoted entry is not written out");
+        assertSame(slow, cache.get("key1"));
+        assertNull(cache.get("key2"));
+    }
+
+        @Test
+    @DisplayName("Should drop demoted entries once their TTL elapses")
+    void testDiskTtl() {
+        DiskTier<String, Object> tier = tier(4);
+        InMemoryLRUCache<String, Object> cache = new InMemoryLRUCache<>(1, 0, Weigher.singleton(), 1000, 0, 0, metrics,
+            false, ticker, tier);
+
+        cache.put("key1", "value1");
+        cache.put("key2", "value2");
+        cache.put("key3", "value3");
+        assertEquals(2, tier.size());
+
+        ticker.advance(500);
+        assertEquals("value1", cache.get("key1"), "Idle time is kept across demotion");
+        ticker.advance(600);
+        assertNull(cache.get("key2"));
+        assertEquals(1, metrics.getExpirations());
+
+        cache.cleanUp();
+        assertEquals(0, tier.size(), "Maintenance drops the expired demoted entry");
+        assertEquals(2, metrics.getExpirations());
+    }
+
+    @Test
+    @DisplayName("Should drop the oldest segment when the disk budget is reached")
+    void testSegmentBudget() throws IOException {
+        DiskTier<String, Object> tier = tier(2);
+        String value = "x".repeat(1000);
+
+        for (int i = 0; i < 12; i++) {
+            tier.put("key" + i, value + i, 0);
+        }
+
+        assertEquals(2, segmentFiles());
+        assertEquals(2 * SEGMENT, tier.getFileBytes());
+        assertTrue(tier.size() < 12);
+        assertEquals(12 - tier.size(), metrics.getEvictions());
+        assertNull(tier.take("key0", Long.MIN_VALUE));
+        assertEquals(value + 11, tier.take("key11", Long.MIN_VALUE));
+    }
+
+    @Test
+    @DisplayName("Should compact segments that hold mostly removed records")
+    void testCompaction() throws IOException {
+        DiskTier<String, Object> tier = tier(8);
+        String value = "x".repeat(1000);
+        for (int i = 0; i < 12; i++) {
+            tier.put("key" + i, value + i, 0);
+        }
+        long before = segmentFiles();
+        for (int i = 0; i < 12; i++) {
+            if (i % 4 != 0) {
+                tier.remove("key" + i);
+            }
+        }
+
+        tier.compact(Long.MIN_VALUE);
+
+        assertTrue(segmentFiles() < before, "Sparse segments should be rewritten");
+        assertEquals(3, tier.size());
+        for (int i = 0; i < 12; i += 4) {
+            assertEquals(value + i, tier.take("key" + i, Long.MIN_VALUE));
+        }
+    }
+
+    @Test
+    @DisplayName("Should compact in batches while demotions keep writing")
+    void testBatchedCompaction() throws InterruptedException {
+        DiskTier<String, Object> tier = tier(64);
+        int records = DiskTier.COMPACTION_BATCH * 10;
+        for (int i = 0; i < records; i++) {
+            tier.put("key" + i, "value" + i, 0);
+        }
+        for (int i = 0; i < records; i++) {
+            if (i % 8 != 0) {
+                tier.remove("key" + i);
+            }
+        }
+
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < records; i++) {
+                tier.put("new" + i, "value" + i, 0);
+            }
+        });
+        writer.start();
+        tier.compact(Long.MIN_VALUE);
+        writer.join(5_000);
+
+        assertEquals(records / 8 + records, tier.size());
+        for (int i = 0; i < records; i += 8) {
+            assertEquals("value" + i, tier.take("key" + i, Long.MIN_VALUE));
+        }
+        for (int i = 0; i < records; i++) {
+            assertEquals("value" + i, tier.take("new" + i, Long.MIN_VALUE));
+        }
+    }
+
+    @Test
+    @DisplayName("Should delete its files when closed")
+    void testClose() throws IOException {
+        DiskTier<String, Object> tier = tier(4);
+        tier.put("key1", "value1", 0);
+        assertEquals(1, segmentFiles());
+
+        tier.close();
+        tier.put("key2", "value2", 0);
+
+        assertEquals(0, segmentFiles());
+        assertEquals(0, tier.size());
+    }
+
+    @Test
+    @DisplayName("Should give each region its own disk tier directory")
+    void testRegionDiskTier() throws IOException {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(CacheConfiguration.DISK_DIRECTORY_PROPERTY, directory.toString());
+        properties.put(CacheConfiguration.DISK_SEGMENT_BYTES_PROPERTY, SEGMENT);
+        RegionImpl region = new RegionImpl("com.example.Product", 10, 0, metrics,
+            new CacheConfiguration(properties), ticker);
+
+        for (int i = 0; i < 20; i++) {
+            region.put(i, "product" + i);
+        }
+        assertEquals(10, region.size());
+        assertEquals("product0", region.get(0));
+        assertTrue(Files.isDirectory(directory.resolve("com.example.Product")));
+
+        region.close();
+        try (Stream<Path> files = Files.list(directory.resolve("com.example.Product"))) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private static class BlockingValue implements Serializable {
+        final transient CountDownLatch encoding = new CountDownLatch(1);
+        final transient CountDownLatch release = new CountDownLatch(1);
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            encoding.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            out.defaultWriteObject();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.cache.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("FrequencySketch Tests")
+class FrequencySketchTest {
+
+    @Test
+    @DisplayName("Should estimate frequencies and saturate at 15")
+    void testIncrementAndFrequency() {
+        FrequencySketch sketch = new FrequencySketch(512);
+        assertEquals(0, sketch.frequency("key"));
+
+        for (int i = 0; i < 5; i++) {
+            sketch.increment("key");
+        }
+        assertEquals(5, sketch.frequency("key"));
+
+        for (int i = 0; i < 20; i++) {
+            sketch.increment("key");
+        }
+        assertEquals(15, sketch.frequency("key"));
+    }
+
+    @Test
+    @DisplayName("Should halve counters when aging")
+    void testReset() {
+        FrequencySketch sketch = new FrequencySketch(512);
+        for (int i = 0; i < 10; i++) {
+            sketch.increment("key");
+        }
+        sketch.reset();
+        assertEquals(5, sketch.frequency("key"));
+    }
+
+    @Test
+    @DisplayName("Should age automatically after the sample size is reached")
+    void testPeriodicAging() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 8; i++) {
+            sketch.increment("hot");
+        }
+        for (int i = 0; i < 200; i++) {
+            sketch.increment("cold" + i);
+        }
+        assertTrue(sketch.frequency("hot") < 8, "Old popularity should fade out");
+    }
+}
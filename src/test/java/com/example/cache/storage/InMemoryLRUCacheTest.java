@@ -1,10 +1,14 @@
 package com.example.cache.storage;
 
 import com.example.cache.metrics.MetricsCollector;
+import com.example.cache.utils.FakeTicker;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -223,4 +227,376 @@ class InMemoryLRUCacheTest {
         // Should still be present with 0 TTL
         assertNotNull(noExpiryCache.get("key1"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should apply buffered hits to the LRU order before evicting")
+    void testBufferedReadsLRUOrdering() {
+        InMemoryLRUCache<String, String> buffered = new InMemoryLRUCache<>(3, 0, metrics, true);
+        buffered.put("key1", "value1");
+        buffered.put("key2", "value2");
+        buffered.put("key3", "value3");
+
+        // Recorded in the read buffer, replayed by the next write
+        assertEquals("value1", buffered.get("key1"));
+
+        buffered.put("key4", "value4");
+
+        assertNotNull(buffered.get("key1"));
+        assertNull(buffered.get("key2"));
+        assertNotNull(buffered.get("key3"));
+        assertNotNull(buffered.get("key4"));
+        assertEquals(3, buffered.size());
+    }
+
+    @Test
+    @DisplayName("Should expire entries on the buffered read path")
+    void testBufferedReadsTTLExpiration() throws InterruptedException {
+        InMemoryLRUCache<String, String> buffered = new InMemoryLRUCache<>(3, 50, metrics, true);
+        buffered.put("key1", "value1");
+        assertNotNull(buffered.get("key1"));
+
+        Thread.sleep(100);
+
+        assertNull(buffered.get("key1"));
+        assertEquals(0, buffered.size());
+        assertEquals(1, metrics.getEvictions());
+    }
+
+    @Test
+    @DisplayName("Should ignore buffered hits for removed entries")
+    void testBufferedReadsAfterRemoveAndClear() {
+        InMemoryLRUCache<String, String> buffered = new InMemoryLRUCache<>(3, 0, metrics, true);
+        buffered.put("key1", "value1");
+        buffered.put("key2", "value2");
+        buffered.get("key1");
+        buffered.get("key2");
+
+        buffered.remove("key1");
+        buffered.clear();
+        buffered.cleanUp();
+
+        buffered.put("key3", "value3");
+        assertEquals("value3", buffered.get("key3"));
+        assertEquals(1, buffered.size());
+    }
+
+    @Test
+    @DisplayName("Should handle concurrent buffered reads safely")
+    void testBufferedReadsConcurrentAccess() throws InterruptedException {
+        InMemoryLRUCache<String, String> buffered = new InMemoryLRUCache<>(50, 0, metrics, true);
+        int threadCount = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch latch = new CountDownLatch(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            final int threadId = i;
+            executor.submit(() -> {
+                try {
+                    for (int j = 0; j < 2000; j++) {
+                        String key = "key-" + ((threadId + j) % 100);
+                        if (j % 10 == 0) {
+                            buffered.put(key, "value-" + j);
+                        } else {
+                            buffered.get(key);
+                        }
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        buffered.cleanUp();
+
+        assertTrue(buffered.size() <= 50);
+        assertEquals(8 * 2000, metrics.getHits() + metrics.getMisses() + metrics.getPuts());
+    }
+
+    @Test
+    @DisplayName("Should reclaim expired entries without reading them")
+    void testExpiredEntriesReclaimedByCleanUp() throws InterruptedException {
+        InMemoryLRUCache<String, String> ttlCache = new InMemoryLRUCache<>(10, 50, metrics);
+        ttlCache.put("key1", "value1");
+        ttlCache.put("key2", "value2");
+
+        Thread.sleep(200);
+        ttlCache.cleanUp();
+
+        assertEquals(0, ttlCache.size());
+        assertEquals(2, metrics.getExpirations());
+        assertEquals(0, metrics.getMisses());
+    }
+
+    @Test
+    @DisplayName("Should not count expired entries toward capacity")
+    void testExpiredEntriesDoNotCauseEviction() throws InterruptedException {
+        InMemoryLRUCache<String, String> ttlCache = new InMemoryLRUCache<>(2, 50, metrics);
+        ttlCache.put("key1", "value1");
+        ttlCache.put("key2", "value2");
+
+        Thread.sleep(200);
+        ttlCache.put("key3", "value3");
+        ttlCache.put("key4", "value4");
+
+        assertEquals(2, ttlCache.size());
+        assertEquals(2, metrics.getExpirations());
+        assertEquals(2, metrics.getEvictions(), "Only the expirations should be counted, no LRU eviction");
+    }
+
+    @Test
+    @DisplayName("Should keep entries that were read after being scheduled")
+    void testRecentlyReadEntriesSurviveCleanUp() throws InterruptedException {
+        InMemoryLRUCache<String, String> ttlCache = new InMemoryLRUCache<>(10, 300, metrics);
+        ttlCache.put("key1", "value1");
+
+        Thread.sleep(200);
+        assertNotNull(ttlCache.get("key1"));
+        Thread.sleep(200);
+        ttlCache.cleanUp();
+
+        assertEquals(1, ttlCache.size());
+        assertEquals(0, metrics.getExpirations());
+    }
+
+    @Test
+    @DisplayName("Should expire entries according to the supplied ticker")
+    void testTtlWithFakeTicker() {
+        FakeTicker ticker = new FakeTicker();
+        InMemoryLRUCache<String, String> ttlCache = new InMemoryLRUCache<>(10, 1_000, metrics, false, ticker);
+        ttlCache.put("key1", "value1");
+
+        ticker.advance(900);
+        assertEquals("value1", ttlCache.get("key1"), "Read should refresh the idle deadline");
+
+        ticker.advance(900);
+        ttlCache.cleanUp();
+        assertEquals(1, ttlCache.size());
+
+        ticker.advance(1_200);
+        ttlCache.cleanUp();
+        assertEquals(0, ttlCache.size());
+        assertEquals(1, metrics.getExpirations());
+    }
+
+    @Test
+    @DisplayName("Should evict by weight when a byte budget is set")
+    void testWeightBoundedEviction() {
+        Weigher<String, String> byLength = (key, value) -> value.length();
+        InMemoryLRUCache<String, String> weighted =
+            new InMemoryLRUCache<>(100, 10, byLength, 0, metrics, false, new FakeTicker());
+
+        weighted.put("a", "aaaa");
+        weighted.put("b", "bbbb");
+        assertEquals(8, weighted.weightedSize());
+
+        weighted.put("c", "cccc");
+        assertNull(weighted.get("a"), "Least recently used entry should make room by weight");
+        assertEquals(2, weighted.size());
+        assertEquals(8, weighted.weightedSize());
+        assertEquals(8, metrics.getWeightedSize());
+        assertEquals(1, metrics.getEvictions());
+    }
+
+    @Test
+    @DisplayName("Should re-weigh entries when their value is replaced")
+    void testWeightUpdatedOnReplace() {
+        Weigher<String, String> byLength = (key, value) -> value.length();
+        InMemoryLRUCache<String, String> weighted =
+            new InMemoryLRUCache<>(100, 10, byLength, 0, metrics, false, new FakeTicker());
+
+        weighted.put("a", "aaa");
+        weighted.put("b", "bbb");
+        weighted.put("b", "bbbbbbbb");
+
+        assertEquals("bbbbbbbb", weighted.get("b"), "Replaced entry is the most recently used one");
+        assertNull(weighted.get("a"));
+        assertEquals(8, weighted.weightedSize());
+
+        weighted.remove("b");
+        assertEquals(0, weighted.weightedSize());
+        assertEquals(0, metrics.getWeightedSize());
+    }
+
+    @Test
+    @DisplayName("Should not admit an entry heavier than the whole budget")
+    void testOversizedEntryRejected() {
+        Weigher<String, String> byLength = (key, value) -> value.length();
+        InMemoryLRUCache<String, String> weighted =
+            new InMemoryLRUCache<>(100, 10, byLength, 0, metrics, false, new FakeTicker());
+
+        weighted.put("a", "aaaa");
+        weighted.put("huge", "x".repeat(11));
+        assertNull(weighted.get("huge"));
+        assertEquals("aaaa", weighted.get("a"), "Existing entries should survive an oversized put");
+
+        weighted.put("a", "y".repeat(20));
+        assertNull(weighted.get("a"), "Stale value should not outlive an oversized replacement");
+        assertEquals(0, weighted.size());
+        assertEquals(0, weighted.weightedSize());
+    }
+
+    @Test
+    @DisplayName("Should report reclaimed bytes for expired entries")
+    void testReclaimedBytes() {
+        FakeTicker ticker = new FakeTicker();
+        Weigher<String, String> byLength = (key, value) -> value.length();
+        InMemoryLRUCache<String, String> weighted =
+            new InMemoryLRUCache<>(100, 1_000, byLength, 100, metrics, false, ticker);
+
+        weighted.put("a", "aaaa");
+        weighted.put("b", "bb");
+        ticker.advance(500);
+        weighted.cleanUp();
+
+        assertEquals(0, weighted.weightedSize());
+        assertEquals(6, metrics.getReclaimedBytes());
+        assertEquals(2, metrics.getExpirations());
+    }
+
+    @Test
+    @DisplayName("Should size reclaimed entries with a weigher even without a byte budget")
+    void testReclaimedBytesWithoutBudget() {
+        FakeTicker ticker = new FakeTicker();
+        InMemoryLRUCache<String, String> weighed =
+            new InMemoryLRUCache<>(100, 0, (key, value) -> value.length(), 100, metrics, false, ticker);
+        weighed.put("a", "aaaa");
+        ticker.advance(500);
+        weighed.cleanUp();
+        assertEquals(1, metrics.getExpirations());
+        assertEquals(4, metrics.getReclaimedBytes());
+
+        MetricsCollector countOnly = new MetricsCollector();
+        InMemoryLRUCache<String, String> unweighed = new InMemoryLRUCache<>(100, 100, countOnly, false, ticker);
+        unweighed.put("a", "aaaa");
+        ticker.advance(500);
+        unweighed.cleanUp();
+        assertEquals(1, countOnly.getExpirations());
+        assertEquals(0, countOnly.getReclaimedBytes(), "Without a weigher only expirations are counted");
+    }
+
+    @Test
+    @DisplayName("Should spread the expiry of entries inserted together")
+    void testTtlJitter() {
+        FakeTicker ticker = new FakeTicker();
+        InMemoryLRUCache<String, String> jittered = new InMemoryLRUCache<>(1000, 0, Weigher.singleton(), 1000, 0.5, 0,
+            metrics, false, ticker, null);
+        for (int i = 0; i < 1000; i++) {
+            jittered.put("key" + i, "value" + i);
+        }
+
+        ticker.advance(499);
+        jittered.cleanUp();
+        assertEquals(1000, jittered.size(), "Jitter never cuts more than the configured share");
+
+        ticker.advance(251);
+        jittered.cleanUp();
+        assertTrue(jittered.size() > 200 && jittered.size() < 800,
+            "About half the entries should have expired, but " + jittered.size() + " remain");
+
+        ticker.advance(251);
+        jittered.cleanUp();
+        assertEquals(0, jittered.size());
+    }
+
+    @Test
+    @DisplayName("Should let one thread refresh an entry before its deadline")
+    void testEarlyRefresh() throws Exception {
+        FakeTicker ticker = new FakeTicker();
+        InMemoryLRUCache<String, String> refreshing = new InMemoryLRUCache<>(10, 0, Weigher.singleton(), 1000, 0, 50,
+            metrics, false, ticker, null);
+        refreshing.put("key1", "value1");
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals("value1", refreshing.get("key1"), "Reads far from the deadline should hit");
+        }
+        assertEquals(0, metrics.getEarlyRefreshes());
+
+        ticker.advance(1000);
+        assertNull(refreshing.get("key1"), "A read at the deadline should refresh early");
+        assertEquals(1, metrics.getEarlyRefreshes());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        assertEquals("value1", executor.submit(() -> refreshing.get("key1")).get(5, TimeUnit.SECONDS),
+            "Other threads keep hitting while the entry is refreshed");
+        executor.shutdown();
+        assertNull(refreshing.get("key1"), "The refreshing thread keeps missing until it puts");
+
+        refreshing.put("key1", "value2");
+        assertEquals("value2", refreshing.get("key1"));
+        assertEquals(1, metrics.getEarlyRefreshes());
+    }
+
+    @Test
+    @DisplayName("Should evict down to a new capacity and count ghost hits")
+    void testResizeAndGhostHits() {
+        InMemoryLRUCache<String, String> resizable = new InMemoryLRUCache<>(100, 0, metrics);
+        for (int i = 0; i < 100; i++) {
+            resizable.put("key" + i, "value" + i);
+        }
+
+        assertTrue(resizable.resize(40, 0));
+        assertEquals(40, resizable.size());
+        assertEquals(60, metrics.getEvictions());
+        assertNull(resizable.get("key0"), "Least recently used entries should be evicted first");
+        assertEquals("value99", resizable.get("key99"));
+
+        resizable.put("key59", "value59");
+        assertEquals(1, metrics.getGhostHits(), "A recently evicted key coming back is a ghost hit");
+        resizable.put("key0", "value0");
+        assertEquals(1, metrics.getGhostHits(), "The ghost only remembers the most recent evictions");
+
+        assertTrue(resizable.resize(80, 0));
+        for (int i = 0; i < 40; i++) {
+            resizable.put("new" + i, "value" + i);
+        }
+        assertEquals(80, resizable.size());
+    }
+
+    @Test
+    @DisplayName("Should read and write batches with the same semantics as single keys")
+    void testGetAllPutAll() {
+        InMemoryLRUCache<String, String> batchCache = new InMemoryLRUCache<>(3, 0, metrics);
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("a", "1");
+        entries.put("b", "2");
+        entries.put("c", "3");
+        entries.put("d", "4");
+        batchCache.putAll(entries);
+        assertEquals(3, batchCache.size());
+        assertEquals(4, metrics.getPuts());
+        assertEquals(1, metrics.getEvictions(), "The batch should still be bounded by maxEntries");
+
+        Map<String, String> found = batchCache.getAll(List.of("a", "b", "d", "missing"));
+        assertEquals(Map.of("b", "2", "d", "4"), found);
+        assertEquals(2, metrics.getHits());
+        assertEquals(2, metrics.getMisses());
+
+        // The batch read refreshed b and d, so c is now the least recently used
+        batchCache.put("e", "5");
+        assertNull(batchCache.get("c"));
+        assertEquals("2", batchCache.get("b"));
+    }
+
+    @Test
+    @DisplayName("Should check for a key without touching recency, metrics or idle time")
+    void testContainsKey() {
+        FakeTicker ticker = new FakeTicker();
+        InMemoryLRUCache<String, String> lruCache = new InMemoryLRUCache<>(2, 1_000, metrics, false, ticker);
+        lruCache.put("a", "1");
+        lruCache.put("b", "2");
+
+        assertTrue(lruCache.containsKey("a"));
+        assertFalse(lruCache.containsKey("missing"));
+        assertEquals(0, metrics.getHits());
+        assertEquals(0, metrics.getMisses());
+
+        lruCache.put("c", "3");
+        assertFalse(lruCache.containsKey("a"), "containsKey should not have made a the most recently used");
+
+        ticker.advance(900);
+        assertTrue(lruCache.containsKey("b"));
+        ticker.advance(200);
+        assertFalse(lruCache.containsKey("b"), "containsKey should not have refreshed the idle time");
+    }
+}
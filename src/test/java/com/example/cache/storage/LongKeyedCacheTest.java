@@ -0,0 +1,122 @@
+package com.example.cache.storage;
+
+import com.example.cache.metrics.MetricsCollector;
+import com.example.cache.utils.FakeTicker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("LongKeyedCache Tests")
+class LongKeyedCacheTest {
+
+    private MetricsCollector metrics;
+    private FakeTicker ticker;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new MetricsCollector();
+        ticker = new FakeTicker();
+    }
+
+    @Test
+    @DisplayName("Should store, update and remove primitive keys")
+    void testPutGetRemove() {
+        LongKeyedCache<String> cache = new LongKeyedCache<>(100, 0, metrics, ticker);
+        cache.put(1L, "one");
+        cache.put(-5L, "minus five");
+        cache.put(1L, "uno");
+
+        assertEquals("uno", cache.get(1L));
+        assertEquals("minus five", cache.get(-5L));
+        assertNull(cache.get(2L));
+        assertEquals(2, cache.size());
+        assertEquals(2, metrics.getHits());
+        assertEquals(1, metrics.getMisses());
+
+        cache.remove(1L);
+        cache.put(-5L, null);
+        assertNull(cache.get(1L));
+        assertEquals(0, cache.size(), "Putting null should remove the key");
+    }
+
+    @Test
+    @DisplayName("Should keep every key reachable through inserts and removals")
+    void testAgainstHashMap() {
+        LongKeyedCache<Long> cache = new LongKeyedCache<>(100_000, 0, metrics, ticker);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            // A narrow key range forces long probe runs and many backward shifts
+            long key = random.nextInt(4096) * 1024L;
+            if (random.nextInt(3) == 0) {
+                cache.remove(key);
+                expected.remove(key);
+            } else {
+                cache.put(key, Long.valueOf(i));
+                expected.put(key, (long) i);
+            }
+        }
+        assertEquals(expected.size(), cache.size());
+        for (long key = 0; key < 4096 * 1024L; key += 1024) {
+            assertEquals(expected.get(key), cache.get(key), "key " + key);
+        }
+        assertTrue(cache.capacity() <= 16384, "The table should stay at most half full, and no larger");
+    }
+
+    @Test
+    @DisplayName("Should evict unreferenced entries first")
+    void testClockEviction() {
+        LongKeyedCache<String> cache = new LongKeyedCache<>(4, 0, metrics, ticker);
+        for (long key = 0; key < 4; key++) {
+            cache.put(key, "value" + key);
+        }
+        cache.get(0L);
+        cache.get(2L);
+
+        cache.put(10L, "value10");
+        cache.put(11L, "value11");
+        assertEquals(4, cache.size());
+        assertEquals(2, metrics.getEvictions());
+        assertEquals("value0", cache.get(0L), "Referenced entries should get a second chance");
+        assertEquals("value2", cache.get(2L));
+        assertNull(cache.get(1L));
+        assertNull(cache.get(3L));
+    }
+
+    @Test
+    @DisplayName("Should expire idle entries on read and in cleanUp")
+    void testExpiration() {
+        LongKeyedCache<String> cache = new LongKeyedCache<>(100, 1000, metrics, ticker);
+        for (long key = 0; key < 10; key++) {
+            cache.put(key, "value" + key);
+        }
+        ticker.advance(600);
+        cache.get(0L);
+        ticker.advance(600);
+
+        assertNull(cache.get(1L));
+        cache.cleanUp();
+        assertEquals(1, cache.size(), "Only the entry read in between should survive");
+        assertEquals("value0", cache.get(0L));
+        assertEquals(9, metrics.getExpirations());
+    }
+
+    @Test
+    @DisplayName("Should shrink to a new capacity")
+    void testResize() {
+        LongKeyedCache<String> cache = new LongKeyedCache<>(100, 0, metrics, ticker);
+        for (long key = 0; key < 100; key++) {
+            cache.put(key, "value" + key);
+        }
+        assertTrue(cache.resize(10, 0));
+        assertEquals(10, cache.size());
+        cache.put(1000L, "value");
+        assertEquals(10, cache.size());
+    }
+}
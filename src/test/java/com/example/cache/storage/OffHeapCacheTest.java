@@ -0,0 +1,271 @@
+package com.example.cache.storage;
+
+import com.example.cache.metrics.MetricsCollector;
+import com.example.cache.utils.FakeTicker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("OffHeapCache Tests")
+class OffHeapCacheTest {
+
+    private static final int SLAB = 4096;
+
+    private MetricsCollector metrics;
+    private FakeTicker ticker;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new MetricsCollector();
+        ticker = new FakeTicker();
+    }
+
+    private OffHeapCache<String, Object> cache(int maxEntries, int slabs, long ttlMillis) {
+        return new OffHeapCache<>(maxEntries, (long) slabs * SLAB, SLAB, ttlMillis, metrics, ticker);
+    }
+
+    @Test
+    @DisplayName("Should return an equal copy of the stored value")
+    void testRoundTrip() {
+        OffHeapCache<String, Object> cache = cache(10, 4, 0);
+        ArrayList<Object> state = new ArrayList<>(List.of(1L, "name", 3.5d));
+
+        cache.put("key1", state);
+        Object first = cache.get("key1");
+
+        assertEquals(state, first);
+        assertNotSame(state, first, "Values are deserialized from direct memory");
+        assertEquals(1, metrics.getHits());
+        assertNull(cache.get("missing"));
+        assertEquals(1, metrics.getMisses());
+    }
+
+    @Test
+    @DisplayName("Should preserve the types of disassembled state")
+    void testDisassembledStateTypes() {
+        OffHeapCache<String, Object> cache = cache(10, 4, 0);
+        Serializable[] state = {
+            null, "text", 1L, 2, (short) 3, (byte) 4, 5.5d, 6.5f, true, 'c',
+            new byte[] {1, 2}, new BigDecimal("12.50"), new Object[] {"nested", 7L}
+        };
+
+        cache.put("entity", state);
+        Object copy = cache.get("entity");
+
+        assertInstanceOf(Serializable[].class, copy);
+        assertArrayEquals(state, (Object[]) copy);
+    }
+
+    @Test
+    @DisplayName("Should evict least recently used entries when full")
+    void testEntryBound() {
+        OffHeapCache<String, Object> cache = cache(3, 4, 0);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+        cache.get("a");
+        cache.put("d", "4");
+
+        assertNull(cache.get("b"));
+        assertEquals("1", cache.get("a"));
+        assertEquals(3, cache.size());
+        assertEquals(1, metrics.getEvictions());
+    }
+
+    @Test
+    @DisplayName("Should evict to make room when direct memory is exhausted")
+    void testMemoryBound() {
+        OffHeapCache<String, Object> cache = cache(10_000, 2, 0);
+        for (int i = 0; i < 200; i++) {
+            cache.put("key" + i, "x".repeat(200));
+        }
+
+        assertTrue(cache.size() < 200);
+        assertTrue(cache.weightedSize() <= 2 * SLAB);
+        assertEquals(2 * SLAB, cache.getReservedBytes());
+        assertEquals("x".repeat(200), cache.get("key199"), "Most recent entry should be kept");
+        assertEquals(cache.weightedSize(), metrics.getWeightedSize());
+    }
+
+    @Test
+    @DisplayName("Should move slabs between size classes once they empty")
+    void testSlabReuseAcrossSizeClasses() {
+        OffHeapCache<String, Object> cache = cache(10_000, 2, 0);
+        for (int i = 0; i < 100; i++) {
+            cache.put("small" + i, "s" + i);
+        }
+        // Both slabs hold small chunks, so one has to be emptied and handed to the large size class
+        cache.put("large", "L".repeat(2500));
+
+        assertEquals("L".repeat(2500), cache.get("large"));
+        assertEquals("s99", cache.get("small99"), "Entries in the other slab should survive");
+        assertNull(cache.get("small0"));
+        assertTrue(cache.size() < 100);
+        assertEquals(2 * SLAB, cache.getReservedBytes(), "No direct memory beyond the budget");
+    }
+
+    @Test
+    @DisplayName("Should replace values of the same and of a different size")
+    void testReplace() {
+        OffHeapCache<String, Object> cache = cache(10, 4, 0);
+        cache.put("key", "short");
+        cache.put("key", "other");
+        assertEquals("other", cache.get("key"));
+
+        cache.put("key", "y".repeat(1000));
+        assertEquals("y".repeat(1000), cache.get("key"));
+        assertEquals(1, cache.size());
+
+        cache.remove("key");
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weightedSize());
+    }
+
+    @Test
+    @DisplayName("Should skip values that cannot be stored off-heap")
+    void testUnstorableValues() {
+        OffHeapCache<String, Object> cache = cache(10, 4, 0);
+        cache.put("key", "stored");
+        cache.put("key", new Object());
+        assertNull(cache.get("key"), "Stale value should not be served");
+
+        cache.put("big", "z".repeat(SLAB * 2));
+        assertNull(cache.get("big"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Should expire entries and release their memory")
+    void testExpiration() {
+        OffHeapCache<String, Object> cache = cache(10, 4, 1_000);
+        cache.put("a", "1");
+        cache.put("b", "2");
+
+        ticker.advance(2_000);
+        cache.cleanUp();
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weightedSize());
+        assertEquals(2, metrics.getExpirations());
+        assertTrue(metrics.getReclaimedBytes() > 0);
+    }
+
+    @Test
+    @DisplayName("Should read and write batches with the same semantics as single keys")
+    void testGetAllPutAll() {
+        OffHeapCache<String, Object> batchCache = cache(3, 4, 0);
+        Map<String, Object> entries = new LinkedHashMap<>();
+        entries.put("a", "1");
+        entries.put("b", "2");
+        entries.put("c", "3");
+        entries.put("d", "4");
+        batchCache.putAll(entries);
+        assertEquals(3, batchCache.size());
+        assertEquals(4, metrics.getPuts());
+        assertEquals(1, metrics.getEvictions(), "The batch should still be bounded by maxEntries");
+
+        Map<String, Object> found = batchCache.getAll(List.of("a", "b", "d", "missing"));
+        assertEquals(Map.of("b", "2", "d", "4"), found);
+        assertEquals(2, metrics.getHits());
+        assertEquals(2, metrics.getMisses());
+
+        // The batch read refreshed b and d, so c is now the least recently used
+        batchCache.put("e", "5");
+        assertNull(batchCache.peek("c"));
+        assertEquals("2", batchCache.peek("b"));
+    }
+
+    @Test
+    @DisplayName("Should peek without touching recency, metrics or idle time")
+    void testPeek() {
+        OffHeapCache<String, Object> cache = cache(2, 4, 1_000);
+        cache.put("a", "1");
+        cache.put("b", "2");
+
+        assertEquals("1", cache.peek("a"));
+        assertNull(cache.peek("missing"));
+        assertEquals(0, metrics.getHits());
+        assertEquals(0, metrics.getMisses());
+
+        cache.put("c", "3");
+        assertNull(cache.peek("a"), "peek should not have made a the most recently used");
+
+        ticker.advance(900);
+        assertEquals("2", cache.peek("b"));
+        ticker.advance(200);
+        assertNull(cache.peek("b"), "peek should not have refreshed the idle time");
+    }
+
+    @Test
+    @DisplayName("Should release all memory on clear and reuse it")
+    void testClear() {
+        OffHeapCache<String, Object> cache = cache(100, 2, 0);
+        for (int i = 0; i < 20; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weightedSize());
+        assertEquals(0, metrics.getWeightedSize());
+
+        cache.put("key", "value");
+        assertEquals("value", cache.get("key"));
+    }
+
+    @Test
+    @DisplayName("Should shrink on resize and report ghost hits")
+    void testResize() {
+        OffHeapCache<String, Object> cache = cache(100, 8, 0);
+        for (int i = 0; i < 100; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        long weight = cache.weightedSize();
+        assertTrue(cache.resize(80, 0));
+        assertEquals(80, cache.size());
+        assertTrue(cache.weightedSize() < weight, "Evicted entries should release their memory");
+        assertEquals("value99", cache.get("key99"));
+
+        cache.put("key19", "value19");
+        assertEquals(1, metrics.getGhostHits(), "Re-adding a recently evicted key is a ghost hit");
+        cache.put("key0", "value0");
+        assertEquals(1, metrics.getGhostHits(), "The ghost only remembers the most recent evictions");
+
+        assertTrue(cache.resize(100, 0));
+        for (int i = 100; i < 200; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        assertEquals(100, cache.size());
+    }
+
+    @Test
+    @DisplayName("Should restore a snapshot in recency order and keep idle times")
+    void testSnapshotRestore() {
+        OffHeapCache<String, Object> source = cache(10, 2, 1_000);
+        for (int i = 0; i < 5; i++) {
+            source.put("key" + i, "value" + i);
+            ticker.advance(100);
+        }
+        source.get("key0");
+
+        OffHeapCache<String, Object> target = new OffHeapCache<>(4, 2L * SLAB, SLAB, 1_000, new MetricsCollector(),
+            ticker);
+        source.snapshot(target::restore);
+        assertEquals(4, target.size());
+        assertNull(target.peek("key1"), "The least recently used entry should not fit");
+        assertEquals("value0", target.peek("key0"));
+
+        ticker.advance(750);
+        assertNull(target.peek("key2"), "Restored entries should keep their idle time");
+        assertEquals("value4", target.peek("key4"));
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.cache.storage;
+
+import com.example.cache.metrics.MetricsCollector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PolicyDrivenCache Tests")
+class PolicyDrivenCacheTest {
+
+    private static final List<EvictionPolicyType> POLICIES =
+        List.of(EvictionPolicyType.CLOCK, EvictionPolicyType.SIEVE, EvictionPolicyType.S3FIFO);
+
+    private MetricsCollector metrics;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new MetricsCollector();
+    }
+
+    private PolicyDrivenCache<String, String> newCache(EvictionPolicyType type, int maxEntries) {
+        return new PolicyDrivenCache<>(maxEntries, 0, metrics, type.newPolicy(maxEntries));
+    }
+
+    @Test
+    @DisplayName("Should store, update, remove and clear with every policy")
+    void testBasicOperations() {
+        for (EvictionPolicyType type : POLICIES) {
+            PolicyDrivenCache<String, String> cache = newCache(type, 10);
+            cache.put("key1", "value1");
+            cache.put("key1", "value2");
+            assertEquals("value2", cache.get("key1"), type.name());
+            assertEquals(1, cache.size(), type.name());
+
+            cache.remove("key1");
+            assertNull(cache.get("key1"), type.name());
+
+            cache.put("key2", "value2");
+            cache.clear();
+            assertEquals(0, cache.size(), type.name());
+            assertNull(cache.get("key2"), type.name());
+        }
+    }
+
+    @Test
+    @DisplayName("Should respect capacity with every policy")
+    void testCapacity() {
+        for (EvictionPolicyType type : POLICIES) {
+            PolicyDrivenCache<String, String> cache = newCache(type, 50);
+            for (int i = 0; i < 500; i++) {
+                cache.put("key" + i, "value" + i);
+                cache.get("key" + (i / 2));
+            }
+            assertEquals(50, cache.size(), type.name());
+        }
+    }
+
+    @Test
+    @DisplayName("CLOCK should give referenced entries a second chance")
+    void testClockSecondChance() {
+        PolicyDrivenCache<String, String> cache = newCache(EvictionPolicyType.CLOCK, 3);
+        cache.put("key1", "value1");
+        cache.put("key2", "value2");
+        cache.put("key3", "value3");
+        cache.get("key1");
+
+        cache.put("key4", "value4");
+
+        assertNotNull(cache.get("key1"));
+        assertNull(cache.get("key2"));
+        assertEquals(1, metrics.getEvictions());
+    }
+
+    @Test
+    @DisplayName("SIEVE should keep visited entries in place and evict unvisited ones")
+    void testSieveRetainsVisited() {
+        PolicyDrivenCache<String, String> cache = newCache(EvictionPolicyType.SIEVE, 3);
+        cache.put("key1", "value1");
+        cache.put("key2", "value2");
+        cache.put("key3", "value3");
+        cache.get("key1");
+        cache.get("key2");
+
+        cache.put("key4", "value4");
+        assertNull(cache.get("key3"));
+
+        cache.put("key5", "value5");
+        assertNotNull(cache.get("key1"));
+        assertNotNull(cache.get("key2"));
+        assertNotNull(cache.get("key5"));
+    }
+
+    @Test
+    @DisplayName("S3-FIFO should evict one-hit entries early and readmit ghosts to main")
+    void testS3FifoQuickDemotion() {
+        S3FifoPolicy<String> policy = new S3FifoPolicy<>(20);
+        PolicyDrivenCache<String, String> cache = new PolicyDrivenCache<>(20, 0, metrics, policy);
+
+        for (int i = 0; i < 10; i++) {
+            cache.put("hot" + i, "value");
+            cache.get("hot" + i);
+            cache.get("hot" + i);
+        }
+        for (int i = 0; i < 200; i++) {
+            cache.put("scan" + i, "value");
+        }
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(cache.get("hot" + i), "hot" + i + " should have been promoted to main");
+        }
+
+        // scan185 was evicted from the small queue recently and is still remembered as a ghost
+        assertNull(cache.get("scan185"));
+        cache.put("scan185", "value");
+        for (int i = 200; i < 230; i++) {
+            cache.put("scan" + i, "value");
+        }
+        assertNotNull(cache.get("scan185"), "A ghost hit should be inserted into the main queue");
+    }
+
+    @Test
+    @DisplayName("Should expire entries after TTL")
+    void testTTLExpiration() throws InterruptedException {
+        PolicyDrivenCache<String, String> cache =
+            new PolicyDrivenCache<>(10, 50, metrics, new SievePolicy<>());
+        cache.put("key1", "value1");
+        assertNotNull(cache.get("key1"));
+
+        Thread.sleep(100);
+
+        assertNull(cache.get("key1"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Should handle concurrent lock-free hits with every policy")
+    void testConcurrentAccess() throws InterruptedException {
+        for (EvictionPolicyType type : POLICIES) {
+            PolicyDrivenCache<String, String> cache = newCache(type, 50);
+            int threadCount = 8;
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+            CountDownLatch latch = new CountDownLatch(threadCount);
+
+            for (int i = 0; i < threadCount; i++) {
+                final int threadId = i;
+                executor.submit(() -> {
+                    try {
+                        for (int j = 0; j < 2000; j++) {
+                            String key = "key-" + ((threadId + j) % 100);
+                            if (cache.get(key) == null) {
+                                cache.put(key, "value-" + j);
+                            }
+                        }
+                    } finally {
+                        latch.countDown();
+                    }
+                });
+            }
+
+            assertTrue(latch.await(10, TimeUnit.SECONDS), type.name());
+            executor.shutdown();
+            assertTrue(cache.size() <= 50, type.name());
+        }
+    }
+
+    @Test
+    @DisplayName("Should shrink on resize and report ghost hits with every policy")
+    void testResize() {
+        for (EvictionPolicyType type : POLICIES) {
+            metrics = new MetricsCollector();
+            PolicyDrivenCache<String, String> cache = newCache(type, 100);
+            for (int i = 0; i < 100; i++) {
+                cache.put("key" + i, "value" + i);
+            }
+            assertTrue(cache.resize(92, 0), type.name());
+            assertEquals(92, cache.size(), type.name());
+
+            int evicted = 0;
+            while (cache.peek("key" + evicted) != null) {
+                evicted++;
+            }
+            cache.put("key" + evicted, "again");
+            assertEquals(1, metrics.getGhostHits(), type.name());
+
+            for (int i = 100; i < 300; i++) {
+                cache.put("key" + i, "value" + i);
+                cache.get("key" + (i / 2));
+            }
+            assertEquals(92, cache.size(), type.name());
+            assertTrue(cache.resize(100, 0), type.name());
+            for (int i = 300; i < 600; i++) {
+                cache.put("key" + i, "value" + i);
+            }
+            assertEquals(100, cache.size(), type.name());
+        }
+    }
+
+    @Test
+    @DisplayName("Should restore a snapshot up to capacity with every policy")
+    void testSnapshotRestore() {
+        for (EvictionPolicyType type : POLICIES) {
+            PolicyDrivenCache<String, String> source = newCache(type, 10);
+            for (int i = 0; i < 10; i++) {
+                source.put("key" + i, "value" + i);
+            }
+
+            PolicyDrivenCache<String, String> full = newCache(type, 10);
+            source.snapshot(full::restore);
+            assertEquals(10, full.size(), type.name());
+            for (int i = 0; i < 10; i++) {
+                assertEquals("value" + i, full.peek("key" + i), type.name());
+            }
+
+            PolicyDrivenCache<String, String> small = newCache(type, 4);
+            small.put("key0", "current");
+            source.snapshot(small::restore);
+            assertEquals(4, small.size(), type.name());
+            assertEquals("current", small.peek("key0"), type.name());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.cache.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ReadBuffer Tests")
+class ReadBufferTest {
+
+    @Test
+    @DisplayName("Should drain recorded elements in order")
+    void testOfferAndDrain() {
+        ReadBuffer<Integer> buffer = new ReadBuffer<>();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(ReadBuffer.Result.SUCCESS, buffer.offer(i));
+        }
+
+        List<Integer> drained = new ArrayList<>();
+        buffer.drainTo(drained::add);
+
+        assertEquals(List.of(0, 1, 2, 3, 4), drained);
+    }
+
+    @Test
+    @DisplayName("Should report a full stripe and drop further elements")
+    void testFullStripe() {
+        ReadBuffer<Integer> buffer = new ReadBuffer<>();
+        for (int i = 0; i < ReadBuffer.BUFFER_SIZE; i++) {
+            assertEquals(ReadBuffer.Result.SUCCESS, buffer.offer(i));
+        }
+        assertEquals(ReadBuffer.Result.FULL, buffer.offer(-1));
+
+        List<Integer> drained = new ArrayList<>();
+        buffer.drainTo(drained::add);
+        assertEquals(ReadBuffer.BUFFER_SIZE, drained.size());
+        assertFalse(drained.contains(-1));
+
+        assertEquals(ReadBuffer.Result.SUCCESS, buffer.offer(42));
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.cache.storage;
+
+import com.example.cache.metrics.MetricsCollector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SegmentedCache Tests")
+class SegmentedCacheTest {
+
+    private SegmentedCache<String, String> cache;
+    private MetricsCollector metrics;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new MetricsCollector();
+        cache = new SegmentedCache<>(4, 100, share -> new InMemoryLRUCache<>(share, 0, metrics));
+    }
+
+    @Test
+    @DisplayName("Should store and retrieve values across segments")
+    void testPutAndGet() {
+        for (int i = 0; i < 50; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        for (int i = 0; i < 50; i++) {
+            assertEquals("value" + i, cache.get("key" + i));
+        }
+        assertEquals(50, cache.size());
+        assertEquals(50, metrics.getHits());
+        assertEquals(50, metrics.getPuts());
+    }
+
+    @Test
+    @DisplayName("Should remove and clear entries in every segment")
+    void testRemoveAndClear() {
+        cache.put("key1", "value1");
+        cache.put("key2", "value2");
+
+        cache.remove("key1");
+        assertNull(cache.get("key1"));
+        assertEquals(1, cache.size());
+
+        cache.clear();
+        assertNull(cache.get("key2"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Should never exceed the total capacity")
+    void testCapacityIsShared() {
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        assertTrue(cache.size() <= 100);
+        assertTrue(metrics.getEvictions() >= 900);
+    }
+
+    @Test
+    @DisplayName("Should round segment count to a power of two within capacity")
+    void testSegmentCount() {
+        assertEquals(4, cache.getSegmentCount());
+        assertEquals(8, new SegmentedCache<String, String>(5, 100,
+            share -> new InMemoryLRUCache<>(share, 0, metrics)).getSegmentCount());
+        assertEquals(2, new SegmentedCache<String, String>(16, 3,
+            share -> new InMemoryLRUCache<>(share, 0, metrics)).getSegmentCount());
+        assertTrue(new SegmentedCache<String, String>(0, 10000,
+            share -> new InMemoryLRUCache<>(share, 0, metrics)).getSegmentCount() >= 1);
+    }
+
+    @Test
+    @DisplayName("Should validate constructor parameters")
+    void testInvalidConstructorParams() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new SegmentedCache<String, String>(4, 0, share -> new InMemoryLRUCache<>(share, 0, metrics)));
+        assertThrows(IllegalArgumentException.class,
+            () -> new SegmentedCache<String, String>(-1, 10, share -> new InMemoryLRUCache<>(share, 0, metrics)));
+        assertThrows(IllegalArgumentException.class,
+            () -> new SegmentedCache<String, String>(4, 10, null));
+    }
+
+    @Test
+    @DisplayName("Should handle concurrent access safely")
+    void testConcurrentAccess() throws InterruptedException {
+        int threadCount = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch latch = new CountDownLatch(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            final int threadId = i;
+            executor.submit(() -> {
+                try {
+                    for (int j = 0; j < 1000; j++) {
+                        String key = "key-" + ((threadId * 31 + j) % 200);
+                        cache.put(key, "value-" + j);
+                        cache.get(key);
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(cache.size() <= 100);
+    }
+
+    @Test
+    @DisplayName("Should split a new capacity across segments")
+    void testResize() {
+        for (int i = 0; i < 100; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+
+        assertTrue(cache.resize(20, 0));
+        assertTrue(cache.size() <= 20);
+        assertTrue(cache.resize(200, 0));
+        for (int i = 0; i < 200; i++) {
+            cache.put("more" + i, "value" + i);
+        }
+        assertTrue(cache.size() > 100, "Segments should grow past their original share");
+    }
+
+    @Test
+    @DisplayName("Should ask each segment once per batch")
+    void testBatchPerSegment() {
+        AtomicInteger batchCalls = new AtomicInteger();
+        AtomicInteger singleCalls = new AtomicInteger();
+        SegmentedCache<String, String> counted = new SegmentedCache<>(4, 1000, share -> {
+            InMemoryLRUCache<String, String> segment = new InMemoryLRUCache<>(share, 0, metrics);
+            return new CacheStorage<String, String>() {
+                public String get(String key) { singleCalls.incrementAndGet(); return segment.get(key); }
+                public void put(String key, String value) { singleCalls.incrementAndGet(); segment.put(key, value); }
+                public void remove(String key) { segment.remove(key); }
+                public int size() { return segment.size(); }
+                public void clear() { segment.clear(); }
+                public Map<String, String> getAll(Collection<? extends String> keys) {
+                    batchCalls.incrementAndGet();
+                    return segment.getAll(keys);
+                }
+                public void putAll(Map<? extends String, ? extends String> entries) {
+                    batchCalls.incrementAndGet();
+                    segment.putAll(entries);
+                }
+            };
+        });
+        Map<String, String> entries = new HashMap<>();
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            entries.put("key" + i, "value" + i);
+            keys.add("key" + i);
+        }
+        counted.putAll(entries);
+        assertEquals(4, batchCalls.get());
+
+        keys.add("missing");
+        Map<String, String> found = counted.getAll(keys);
+        assertEquals(entries, found);
+        assertEquals(8, batchCalls.get());
+        assertEquals(0, singleCalls.get(), "No key should go through the single-key path");
+    }
+}
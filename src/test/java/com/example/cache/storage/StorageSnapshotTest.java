@@ -0,0 +1,207 @@
+package com.example.cache.storage;
+
+import com.example.cache.access.ReadWriteEntry;
+import com.example.cache.config.CacheConfiguration;
+import com.example.cache.factory.CustomRegionFactory;
+import com.example.cache.metrics.MetricsCollector;
+import com.example.cache.region.QueryResultsRegionImpl;
+import com.example.cache.region.RegionImpl;
+import com.example.cache.utils.FakeTicker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("StorageSnapshot Tests")
+class StorageSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private MetricsCollector metrics;
+    private FakeTicker ticker;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new MetricsCollector();
+        ticker = new FakeTicker(1_000_000);
+    }
+
+    private InMemoryLRUCache<Object, Object> cache(int maxEntries, long ttlMillis) {
+        return new InMemoryLRUCache<>(maxEntries, ttlMillis, metrics, false, ticker);
+    }
+
+    private List<Object> keysInOrder(CacheStorage<Object, Object> cache) {
+        List<Object> keys = new ArrayList<>();
+        cache.snapshot((key, value, lastAccess) -> keys.add(key));
+        return keys;
+    }
+
+    @Test
+    @DisplayName("Should restore entries in LRU order")
+    void testRoundTripPreservesOrder() throws IOException {
+        InMemoryLRUCache<Object, Object> source = cache(10, 0);
+        source.put("key1", "value1");
+        source.put("key2", 2L);
+        source.put("key3", new Object[] {"state", 3});
+        source.get("key1");
+        Path file = directory.resolve("region.snapshot");
+
+        assertEquals(3, StorageSnapshot.write(source, file, ticker));
+        StorageSnapshot snapshot = StorageSnapshot.read(file);
+        InMemoryLRUCache<Object, Object> target = cache(10, 0);
+
+        assertEquals(3, snapshot.restoreInto(target));
+        assertEquals(List.of("key2", "key3", "key1"), keysInOrder(target));
+        assertEquals(2L, target.get("key2"));
+        assertArrayEquals(new Object[] {"state", 3}, (Object[]) target.get("key3"));
+    }
+
+    @Test
+    @DisplayName("Should keep remaining TTL and drop entries that expired while down")
+    void testRemainingTtl() throws IOException {
+        InMemoryLRUCache<Object, Object> source = cache(10, 1000);
+        source.put("old", "value");
+        ticker.advance(600);
+        source.put("recent", "value");
+        Path file = directory.resolve("region.snapshot");
+        StorageSnapshot.write(source, file, ticker);
+
+        ticker.advance(500);
+        InMemoryLRUCache<Object, Object> target = cache(10, 1000);
+        assertEquals(1, StorageSnapshot.read(file).restoreInto(target));
+        assertNull(target.get("old"));
+        ticker.advance(450);
+        assertEquals("value", target.get("recent"), "Idle time before shutdown still counts");
+        ticker.advance(1001);
+        assertNull(target.get("recent"));
+    }
+
+    @Test
+    @DisplayName("Should not overwrite entries cached before the restore")
+    void testLiveEntriesWin() throws IOException {
+        InMemoryLRUCache<Object, Object> source = cache(10, 0);
+        source.put("key1", "stale");
+        source.put("key2", "value2");
+        Path file = directory.resolve("region.snapshot");
+        StorageSnapshot.write(source, file, ticker);
+
+        InMemoryLRUCache<Object, Object> target = cache(10, 0);
+        target.put("key1", "fresh");
+
+        assertEquals(1, StorageSnapshot.read(file).restoreInto(target));
+        assertEquals("fresh", target.get("key1"));
+        assertEquals("value2", target.get("key2"));
+    }
+
+    @Test
+    @DisplayName("Should skip values that cannot be encoded")
+    void testUnencodableValuesSkipped() throws IOException {
+        InMemoryLRUCache<Object, Object> source = cache(10, 0);
+        source.put("key1", new Object());
+        source.put("key2", "value2");
+        Path file = directory.resolve("region.snapshot");
+
+        assertEquals(1, StorageSnapshot.write(source, file, ticker));
+        assertEquals(1, StorageSnapshot.read(file).size());
+    }
+
+    @Test
+    @DisplayName("Should reject snapshots with another format version or missing entries")
+    void testIncompatibleSnapshotRejected() throws IOException {
+        Path file = directory.resolve("region.snapshot");
+        ByteBuffer header = ByteBuffer.allocate(32)
+            .putInt(StorageSnapshot.MAGIC).putInt(StorageSnapshot.VERSION + 1).putLong(0).putLong(0).putLong(0);
+        Files.write(file, header.array());
+        IOException version = assertThrows(IOException.class, () -> StorageSnapshot.read(file));
+        assertTrue(version.getMessage().contains("version"));
+
+        InMemoryLRUCache<Object, Object> source = cache(10, 0);
+        source.put("key1", "value1");
+        StorageSnapshot.write(source, file, ticker);
+        byte[] complete = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(complete, complete.length - 4));
+        assertThrows(IOException.class, () -> StorageSnapshot.read(file));
+
+        Files.write(file, "not a snapshot".getBytes());
+        assertThrows(IOException.class, () -> StorageSnapshot.read(file));
+    }
+
+    @Test
+    @DisplayName("Should snapshot regions on stop and restore them when rebuilt")
+    void testRegionFactoryWarmRestart() {
+        Map<String, Object> configValues = new HashMap<>();
+        configValues.put(CacheConfiguration.SNAPSHOT_DIRECTORY_PROPERTY, directory.toString());
+        configValues.put(CacheConfiguration.MAINTENANCE_INTERVAL_MS_PROPERTY, 0);
+
+        CustomRegionFactory first = new CustomRegionFactory(ticker);
+        first.start(null, configValues);
+        QueryResultsRegionImpl region = (QueryResultsRegionImpl) first.buildQueryResultsRegion("app.queries", null);
+        region.putIntoCache("query1", List.of(1L, 2L), null);
+        first.stop();
+        assertTrue(Files.exists(StorageSnapshot.fileFor(directory, "app.queries")));
+
+        CustomRegionFactory second = new CustomRegionFactory(ticker);
+        second.start(null, configValues);
+        QueryResultsRegionImpl restored = (QueryResultsRegionImpl) second.buildQueryResultsRegion("app.queries", null);
+        try {
+            assertEquals(List.of(1L, 2L), restored.getFromCache("query1", null));
+            assertFalse(Files.exists(StorageSnapshot.fileFor(directory, "app.queries")),
+                "A snapshot is consumed by the next start");
+        } finally {
+            second.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Should carry the region epoch over, so invalidated entries stay invalid")
+    void testRegionEpochRestored() throws IOException {
+        RegionImpl source = new RegionImpl("region", 10, 0, metrics, null, ticker);
+        source.put("stale", new ReadWriteEntry.Item("old", null, 1, source.getEpoch()));
+        source.invalidate(ticker.read());
+        source.invalidate(ticker.read());
+        source.put("live", new ReadWriteEntry.Item("new", null, 2, source.getEpoch()));
+        Path file = directory.resolve("region.snapshot");
+        source.writeSnapshot(file);
+
+        RegionImpl target = new RegionImpl("region", 10, 0, new MetricsCollector(), null, ticker);
+        assertEquals(2, target.restore(StorageSnapshot.read(file)));
+        assertEquals(2, target.getEpoch());
+        assertEquals(source.getInvalidatedAt(), target.getInvalidatedAt());
+        assertNull(ReadWriteEntry.live(target.peek("stale"), target.getEpoch()));
+        assertNotNull(ReadWriteEntry.live(target.peek("live"), target.getEpoch()));
+
+        RegionImpl invalidated = new RegionImpl("region", 10, 0, new MetricsCollector(), null, ticker);
+        invalidated.invalidate(ticker.read());
+        invalidated.restore(StorageSnapshot.read(file));
+        assertNull(ReadWriteEntry.live(invalidated.peek("live"), invalidated.getEpoch()),
+            "A region invalidated in this run keeps nothing written before");
+    }
+
+    @Test
+    @DisplayName("Should leave soft locks out of region snapshots")
+    void testRegionSkipsLocks() throws IOException {
+        RegionImpl source = new RegionImpl("region", 10, 0, metrics, null, ticker);
+        source.put("item", new ReadWriteEntry.Item("value", null, 1, source.getEpoch()));
+        source.put("locked", ReadWriteEntry.Lock.acquire(null, 60000, source.getEpoch()));
+        Path file = directory.resolve("region.snapshot");
+        assertEquals(1, source.writeSnapshot(file));
+
+        RegionImpl target = new RegionImpl("region", 10, 0, new MetricsCollector(), null, ticker);
+        assertEquals(1, target.restore(StorageSnapshot.read(file)));
+        assertNotNull(target.peek("item"));
+        assertNull(target.peek("locked"));
+    }
+}
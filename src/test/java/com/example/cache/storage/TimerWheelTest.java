@@ -0,0 +1,102 @@
+package com.example.cache.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TimerWheel Tests")
+class TimerWheelTest {
+
+    private static final class TestTimer extends TimerWheel.Timer {
+        final String name;
+
+        TestTimer(String name, long expirationTime) {
+            this.name = name;
+            this.expirationTime = expirationTime;
+        }
+    }
+
+    private static List<String> advance(TimerWheel<TestTimer> wheel, long now) {
+        List<String> expired = new ArrayList<>();
+        wheel.advance(now, timer -> expired.add(timer.name));
+        return expired;
+    }
+
+    @Test
+    @DisplayName("Should expire timers once their deadline passes")
+    void testExpiresDueTimers() {
+        TimerWheel<TestTimer> wheel = new TimerWheel<>(0);
+        wheel.schedule(new TestTimer("early", 100));
+        wheel.schedule(new TestTimer("late", 5_000));
+
+        assertTrue(advance(wheel, 50).isEmpty());
+        assertEquals(List.of("early"), advance(wheel, 200));
+        assertTrue(advance(wheel, 4_000).isEmpty());
+        assertEquals(List.of("late"), advance(wheel, 5_200));
+    }
+
+    @Test
+    @DisplayName("Should cascade far timers down the levels")
+    void testCascadesAcrossLevels() {
+        TimerWheel<TestTimer> wheel = new TimerWheel<>(0);
+        long oneHour = 3_600_000L;
+        long oneWeek = 7 * 24 * oneHour;
+        wheel.schedule(new TestTimer("hour", oneHour));
+        wheel.schedule(new TestTimer("week", oneWeek));
+
+        List<String> expired = new ArrayList<>();
+        for (long now = 0; now <= oneWeek + 60_000; now += 30_000) {
+            expired.addAll(advance(wheel, now));
+            if (now < oneHour) {
+                assertTrue(expired.isEmpty(), "Nothing should expire before one hour, now=" + now);
+            }
+        }
+        assertEquals(List.of("hour", "week"), expired);
+    }
+
+    @Test
+    @DisplayName("Should not expire descheduled timers")
+    void testDeschedule() {
+        TimerWheel<TestTimer> wheel = new TimerWheel<>(0);
+        TestTimer removed = new TestTimer("removed", 100);
+        wheel.schedule(removed);
+        wheel.schedule(new TestTimer("kept", 100));
+
+        wheel.deschedule(removed);
+        wheel.deschedule(removed);
+
+        assertEquals(List.of("kept"), advance(wheel, 1_000));
+    }
+
+    @Test
+    @DisplayName("Should allow rescheduling from the expiry callback")
+    void testRescheduleFromCallback() {
+        TimerWheel<TestTimer> wheel = new TimerWheel<>(0);
+        TestTimer timer = new TestTimer("refreshed", 100);
+        wheel.schedule(timer);
+
+        List<String> expired = new ArrayList<>();
+        wheel.advance(200, t -> {
+            t.expirationTime = 1_000;
+            wheel.schedule(t);
+        });
+        wheel.advance(500, t -> expired.add(t.name));
+        assertTrue(expired.isEmpty());
+        wheel.advance(1_100, t -> expired.add(t.name));
+        assertEquals(List.of("refreshed"), expired);
+    }
+
+    @Test
+    @DisplayName("Should forget every timer on clear")
+    void testClear() {
+        TimerWheel<TestTimer> wheel = new TimerWheel<>(0);
+        wheel.schedule(new TestTimer("a", 100));
+        wheel.schedule(new TestTimer("b", 100_000));
+        wheel.clear();
+        assertTrue(advance(wheel, 1_000_000).isEmpty());
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.cache.storage;
+
+import com.example.cache.metrics.MetricsCollector;
+import com.example.cache.utils.FakeTicker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("WindowTinyLfuCache Tests")
+class WindowTinyLfuCacheTest {
+
+    private WindowTinyLfuCache<String, String> cache;
+    private MetricsCollector metrics;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new MetricsCollector();
+        cache = new WindowTinyLfuCache<>(100, 0, metrics);
+    }
+
+    @Test
+    @DisplayName("Should store, update and remove values")
+    void testBasicOperations() {
+        cache.put("key1", "value1");
+        cache.put("key1", "value2");
+        assertEquals("value2", cache.get("key1"));
+        assertEquals(1, cache.size());
+
+        cache.remove("key1");
+        assertNull(cache.get("key1"));
+        assertEquals(0, cache.size());
+        assertEquals(2, metrics.getPuts());
+    }
+
+    @Test
+    @DisplayName("Should peek without touching metrics, frequency or idle time")
+    void testPeek() {
+        FakeTicker ticker = new FakeTicker();
+        WindowTinyLfuCache<String, String> ttlCache = new WindowTinyLfuCache<>(10, 1_000, metrics, ticker);
+        ttlCache.put("a", "1");
+        int frequency = ttlCache.frequency("a");
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("1", ttlCache.peek("a"));
+        }
+        assertNull(ttlCache.peek("missing"));
+        assertEquals(0, metrics.getHits());
+        assertEquals(0, metrics.getMisses());
+        assertEquals(frequency, ttlCache.frequency("a"), "peek should not have been counted in the frequency sketch");
+
+        ticker.advance(900);
+        assertEquals("1", ttlCache.peek("a"));
+        ticker.advance(200);
+        assertNull(ttlCache.peek("a"), "peek should not have refreshed the idle time");
+    }
+
+    @Test
+    @DisplayName("Should never exceed capacity")
+    void testCapacity() {
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        assertEquals(100, cache.size());
+        assertEquals(900, metrics.getEvictions());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Should expire entries after TTL")
+    void testTTLExpiration() throws InterruptedException {
+        WindowTinyLfuCache<String, String> ttlCache = new WindowTinyLfuCache<>(10, 50, metrics);
+        ttlCache.put("key1", "value1");
+        assertNotNull(ttlCache.get("key1"));
+
+        Thread.sleep(100);
+
+        assertNull(ttlCache.get("key1"));
+        assertEquals(0, ttlCache.size());
+    }
+
+    @Test
+    @DisplayName("Should keep frequently used entries when a scan passes through")
+    void testFrequentEntriesSurviveScan() {
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.put("hot" + i, "value");
+                cache.get("hot" + i);
+            }
+        }
+        for (int i = 0; i < 10_000; i++) {
+            cache.put("scan" + i, "value");
+        }
+
+        int retained = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.get("hot" + i) != null) {
+                retained++;
+            }
+        }
+        // Sketch collisions may cost an entry or two, an LRU would retain none
+        assertTrue(retained >= 45, "Hot entries should not be displaced by one-off scan entries, retained " + retained);
+    }
+
+    @Test
+    @DisplayName("Should resist scans better than LRU on a Zipf-plus-scan trace")
+    void testScanResistanceAgainstLRU() {
+        int capacity = 500;
+        MetricsCollector lfuMetrics = new MetricsCollector();
+        MetricsCollector lruMetrics = new MetricsCollector();
+        CacheStorage<Integer, Integer> lfu = new WindowTinyLfuCache<>(capacity, 0, lfuMetrics);
+        CacheStorage<Integer, Integer> lru = new InMemoryLRUCache<>(capacity, 0, lruMetrics);
+
+        int[] trace = zipfPlusScanTrace(200_000, 5_000, 1.0, 20_000, 42L);
+        for (int key : trace) {
+            replay(lfu, key);
+            replay(lru, key);
+        }
+
+        double lfuHitRate = hitRate(lfuMetrics);
+        double lruHitRate = hitRate(lruMetrics);
+        System.out.printf("Zipf+scan hit rate: W-TinyLFU %.2f%%, LRU %.2f%%%n", lfuHitRate * 100, lruHitRate * 100);
+
+        assertTrue(lfuHitRate > lruHitRate, "W-TinyLFU should outperform LRU on a scan-polluted trace");
+        assertTrue(lfu.size() <= capacity);
+    }
+
+    private static void replay(CacheStorage<Integer, Integer> cache, int key) {
+        if (cache.get(key) == null) {
+            cache.put(key, key);
+        }
+    }
+
+    private static double hitRate(MetricsCollector metrics) {
+        return metrics.getHits() / (double) (metrics.getHits() + metrics.getMisses());
+    }
+
+    /**
+     * Zipf-distributed requests over {@code keySpace} keys, interrupted every 20k
+     * requests by a burst of {@code scanLength} unique keys that are never reused.
+     */
+    private static int[] zipfPlusScanTrace(int zipfRequests, int keySpace, double skew, int scanLength, long seed) {
+        double[] cdf = new double[keySpace];
+        double sum = 0;
+        for (int i = 0; i < keySpace; i++) {
+            sum += 1.0 / Math.pow(i + 1, skew);
+            cdf[i] = sum;
+        }
+
+        Random random = new Random(seed);
+        int scans = zipfRequests / 20_000;
+        int[] trace = new int[zipfRequests + scans * scanLength];
+        int position = 0;
+        int nextScanKey = keySpace;
+        for (int i = 0; i < zipfRequests; i++) {
+            if (i > 0 && i % 20_000 == 0) {
+                for (int j = 0; j < scanLength; j++) {
+                    trace[position++] = nextScanKey++;
+                }
+            }
+            double u = random.nextDouble() * sum;
+            int index = java.util.Arrays.binarySearch(cdf, u);
+            trace[position++] = index >= 0 ? index : -index - 1;
+        }
+        return java.util.Arrays.copyOf(trace, position);
+    }
+
+    @Test
+    @DisplayName("Should shrink on resize and report ghost hits")
+    void testResize() {
+        for (int i = 0; i < 100; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        assertTrue(cache.resize(92, 0));
+        assertEquals(92, cache.size());
+
+        int evicted = 0;
+        while (cache.peek("key" + evicted) != null) {
+            evicted++;
+        }
+        cache.put("key" + evicted, "again");
+        assertEquals(1, metrics.getGhostHits(), "Re-adding a recently evicted key is a ghost hit");
+
+        for (int i = 100; i < 300; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        assertEquals(92, cache.size());
+        assertTrue(cache.resize(100, 0));
+        for (int i = 300; i < 500; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        assertEquals(100, cache.size());
+    }
+
+    @Test
+    @DisplayName("Should restore a snapshot, keeping protected entries over probation ones")
+    void testSnapshotRestore() {
+        FakeTicker ticker = new FakeTicker();
+        WindowTinyLfuCache<String, String> source = new WindowTinyLfuCache<>(100, 1_000, metrics, ticker);
+        for (int i = 0; i < 20; i++) {
+            source.put("key" + i, "value" + i);
+        }
+        for (int i = 0; i < 5; i++) {
+            source.get("key" + i);
+        }
+        ticker.advance(600);
+        source.put("late", "value");
+
+        WindowTinyLfuCache<String, String> target =
+            new WindowTinyLfuCache<>(6, 1_000, new MetricsCollector(), ticker);
+        source.snapshot(target::restore);
+        assertEquals(6, target.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("value" + i, target.peek("key" + i), "Protected entries are restored last and kept");
+        }
+
+        ticker.advance(500);
+        assertNull(target.peek("key0"), "Restored entries should keep their idle time");
+        assertEquals("value", target.peek("late"));
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.cache.utils;
+
+import com.example.cache.access.collections.CollectionCacheKey;
+import com.example.cache.access.entities.EntityCacheKey;
+import com.example.cache.access.naturalid.NaturalIdCacheKey;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("KeyTypeRegistry Tests")
+class KeyTypeRegistryTest {
+
+    @Test
+    @DisplayName("Should give each name one stable id")
+    void testStableIds() {
+        int id = KeyTypeRegistry.register("com.example.Registered");
+        assertEquals(id, KeyTypeRegistry.idOf("com.example.Registered"));
+        assertEquals(id, KeyTypeRegistry.register(new String("com.example.Registered")));
+        assertNotEquals(id, KeyTypeRegistry.idOf("com.example.Other"));
+        assertEquals("com.example.Registered", KeyTypeRegistry.nameOf(id));
+        assertThrows(IllegalArgumentException.class, () -> KeyTypeRegistry.nameOf(-1));
+    }
+
+    @Test
+    @DisplayName("Should keep many ids resolvable as the name table grows")
+    void testGrowth() {
+        for (int i = 0; i < 100; i++) {
+            assertEquals("com.example.Entity" + i, KeyTypeRegistry.nameOf(KeyTypeRegistry.idOf("com.example.Entity" + i)));
+        }
+    }
+
+    @Test
+    @DisplayName("Should compare keys by type id and value")
+    void testKeyEquality() {
+        EntityCacheKey entity = new EntityCacheKey(1L, "com.example.Order", null);
+        assertEquals(entity, new EntityCacheKey(1L, new String("com.example.Order"), null));
+        assertEquals(entity.hashCode(), new EntityCacheKey(1L, "com.example.Order", null).hashCode());
+        assertNotEquals(entity, new EntityCacheKey(1L, "com.example.Invoice", null));
+        assertNotEquals(entity, new EntityCacheKey(1L, "com.example.Order", "tenant"));
+        assertEquals("com.example.Order", entity.getEntityName());
+
+        NaturalIdCacheKey naturalId = new NaturalIdCacheKey(new Object[] {"a", 1}, "com.example.Order", null);
+        assertEquals(naturalId, new NaturalIdCacheKey(new Object[] {"a", 1}, "com.example.Order", null));
+        assertNotEquals(naturalId, new NaturalIdCacheKey(new Object[] {"a", 2}, "com.example.Order", null));
+
+        CollectionCacheKey collection = new CollectionCacheKey(1L, "com.example.Order.lines", null);
+        assertEquals(collection, new CollectionCacheKey(1L, "com.example.Order.lines", null));
+        assertEquals("com.example.Order.lines", collection.getRole());
+    }
+
+    @Test
+    @DisplayName("Should serialize keys by name rather than by type id")
+    void testSerialization() throws Exception {
+        EntityCacheKey entity = new EntityCacheKey(7L, "com.example.Serialized", "tenant");
+        NaturalIdCacheKey naturalId = new NaturalIdCacheKey(new Object[] {"code"}, "com.example.Serialized", null);
+        CollectionCacheKey collection = new CollectionCacheKey(7L, "com.example.Serialized.items", null);
+
+        assertEquals(entity, roundTrip(entity));
+        assertEquals(naturalId, roundTrip(naturalId));
+        assertEquals(collection, roundTrip(collection));
+    }
+
+    private static Object roundTrip(Object value) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return in.readObject();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.cache.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Ticker Tests")
+class TickerTest {
+
+    @Test
+    @DisplayName("Should advance the cached ticker in the background")
+    void testCachedTickerAdvances() throws InterruptedException {
+        try (CachedTicker ticker = new CachedTicker(1)) {
+            long start = ticker.read();
+            assertTrue(Math.abs(System.currentTimeMillis() - start) < 1_000);
+
+            Thread.sleep(50);
+            assertTrue(ticker.read() > start, "Cached time should be refreshed by the updater thread");
+        }
+    }
+
+    @Test
+    @DisplayName("Should stop refreshing once closed")
+    void testCachedTickerClose() throws InterruptedException {
+        CachedTicker ticker = new CachedTicker(1);
+        ticker.close();
+        Thread.sleep(20);
+        long stopped = ticker.read();
+        Thread.sleep(50);
+        assertEquals(stopped, ticker.read());
+    }
+
+    @Test
+    @DisplayName("Should reject non-positive resolution")
+    void testInvalidResolution() {
+        assertThrows(IllegalArgumentException.class, () -> new CachedTicker(0));
+    }
+
+    @Test
+    @DisplayName("Should only move the fake ticker when told to")
+    void testFakeTicker() {
+        FakeTicker ticker = new FakeTicker(100);
+        assertEquals(100, ticker.read());
+        assertEquals(150, ticker.advance(50).read());
+        ticker.set(10);
+        assertEquals(10, ticker.read());
+    }
+}